@@ -7,10 +7,12 @@ import io.swagger.v3.oas.annotations.info.Info;
 import io.swagger.v3.oas.annotations.security.SecurityScheme;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableScheduling  // Enable scheduled tasks for auto-charging
+@EnableAsync  // @Async chạy trên applicationTaskExecutor (virtual thread khi spring.threads.virtual.enabled=true)
 @OpenAPIDefinition(info = @Info(title = "EvBS API", version = "1.0", description = "Information"))
 @SecurityScheme(name = "api", scheme = "bearer", type = SecuritySchemeType.HTTP, in = SecuritySchemeIn.HEADER)
 public class BackEndEvBsApplication {
@@ -0,0 +1,200 @@
+package com.evbs.BackEndEvBs.config;
+
+import com.evbs.BackEndEvBs.util.GradientConcurrencyLimit;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Admission control cho toàn bộ API: số request đồng thời tối đa do GradientConcurrencyLimit tự chỉnh
+ * theo độ trễ thực tế, khi DB chậm thì limit giảm và request bị trả 503 ngay thay vì dồn thread chờ connection
+ *
+ * Ưu tiên khi quá tải (mỗi mức chỉ được dùng một phần limit, bị cắt trước khi chạm tới mức cao hơn):
+ * - LOW      : dashboard, export, admin, GET danh sách toàn bộ (/api/booking, /api/swap-transaction, ...)
+ * - NORMAL   : còn lại (đăng nhập, tra cứu trạm, hồ sơ...)
+ * - CRITICAL : đặt / hủy booking, đổi pin, quick swap, thanh toán — được dùng toàn bộ limit
+ *
+ * Chạy trước Spring Security: phân loại chỉ dựa vào method + path, request bị từ chối không tốn câu
+ * findUserById của JWT Filter (lúc quá tải chính câu đó cũng phải chờ connection). Sau filter này là
+ * RequestBulkheadFilter. Export streaming (async) giữ chỗ tới khi xong nhưng không tính vào độ trễ.
+ * Chỉ response thành công / lỗi nghiệp vụ (< 500, trừ 401 / 403) mới được ghi độ trễ: lỗi trả về ngay
+ * (bulkhead từ chối, chưa đăng nhập, lỗi 500 nhanh) có độ trễ gần 0, nếu tính vào sẽ kéo shortRtt xuống
+ * và làm limit tăng đúng lúc hệ thống đang phải cắt bớt tải.
+ * Job @Scheduled dùng chung pool connection primary với request nhưng không đi qua filter này,
+ * nên admission control không giữ chỗ connection cho chúng.
+ * Metrics: evbs.admission.limit, evbs.admission.inflight, evbs.admission.rtt (tag window=short|long),
+ * evbs.admission.requests (tag priority, outcome=accepted|rejected)
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 2)
+@ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    public enum Priority {
+        CRITICAL, NORMAL, LOW
+    }
+
+    private static final List<String> EXCLUDED_PATHS = List.of("/api/live/**", "/actuator/**");
+
+    private static final List<String> LOW_PRIORITY_PATHS = List.of("/api/dashboard/**", "/api/export/**", "/api/admin/**");
+
+    private static final List<String> CRITICAL_PATHS = List.of(
+            "/api/booking/**", "/api/swap-transaction/**", "/api/quick-swap/**", "/api/payment/**");
+
+    // GET /api/{resource}: các endpoint trả toàn bộ danh sách, không phân trang
+    private static final Pattern LISTING = Pattern.compile("^/api/[a-z-]+/?$");
+
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final GradientConcurrencyLimit limit;
+    private final MeterRegistry meterRegistry;
+    private final double normalShare;
+    private final double lowShare;
+
+    public AdmissionControlFilter(MeterRegistry meterRegistry,
+                                  @Value("${app.admission.initial-limit:50}") int initialLimit,
+                                  @Value("${app.admission.min-limit:10}") int minLimit,
+                                  @Value("${app.admission.max-limit:400}") int maxLimit,
+                                  @Value("${app.admission.window-ms:1000}") long windowMs,
+                                  @Value("${app.admission.min-window-samples:20}") int minWindowSamples,
+                                  @Value("${app.admission.normal-share:0.8}") double normalShare,
+                                  @Value("${app.admission.low-share:0.5}") double lowShare) {
+        this.meterRegistry = meterRegistry;
+        this.limit = new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit, windowMs, minWindowSamples);
+        this.normalShare = normalShare;
+        this.lowShare = lowShare;
+
+        Gauge.builder("evbs.admission.limit", limit, GradientConcurrencyLimit::getLimit)
+                .description("Số request đồng thời tối đa hiện tại").register(meterRegistry);
+        Gauge.builder("evbs.admission.inflight", limit, GradientConcurrencyLimit::getInflight)
+                .description("Số request đang chạy").register(meterRegistry);
+        Gauge.builder("evbs.admission.rtt", limit, GradientConcurrencyLimit::getShortRttMs)
+                .tag("window", "short").baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder("evbs.admission.rtt", limit, GradientConcurrencyLimit::getLongRttMs)
+                .tag("window", "long").baseUnit("milliseconds").register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return EXCLUDED_PATHS.stream().anyMatch(pattern -> matcher.match(pattern, uri));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Priority priority = classify(request);
+        String tag = priority.name().toLowerCase(Locale.ROOT);
+
+        if (!limit.tryAcquire(shareOf(priority))) {
+            meterRegistry.counter("evbs.admission.requests", "priority", tag, "outcome", "rejected").increment();
+            log.debug("Admission rejected {} {} ({}), limit {}", request.getMethod(), request.getRequestURI(),
+                    priority, limit.getLimit());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getOutputStream().write("Hệ thống đang quá tải, vui lòng thử lại sau!".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        meterRegistry.counter("evbs.admission.requests", "priority", tag, "outcome", "accepted").increment();
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(limit));
+            } else if (countsTowardLatency(request, response)) {
+                limit.release(System.nanoTime() - start);
+            } else {
+                limit.release();
+            }
+        }
+    }
+
+    static boolean countsTowardLatency(HttpServletRequest request, HttpServletResponse response) {
+        int status = response.getStatus();
+        return status < 500
+                && status != HttpServletResponse.SC_UNAUTHORIZED
+                && status != HttpServletResponse.SC_FORBIDDEN
+                && request.getAttribute(RequestBulkheadFilter.REJECTED_ATTRIBUTE) == null;
+    }
+
+    Priority classify(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (LOW_PRIORITY_PATHS.stream().anyMatch(pattern -> matcher.match(pattern, uri))) {
+            return Priority.LOW;
+        }
+        if ("GET".equals(request.getMethod()) && LISTING.matcher(uri).matches()) {
+            return Priority.LOW;
+        }
+        if (CRITICAL_PATHS.stream().anyMatch(pattern -> matcher.match(pattern, uri))) {
+            return Priority.CRITICAL;
+        }
+        return Priority.NORMAL;
+    }
+
+    private double shareOf(Priority priority) {
+        return switch (priority) {
+            case CRITICAL -> 1.0;
+            case NORMAL -> normalShare;
+            case LOW -> lowShare;
+        };
+    }
+
+    private static final class ReleaseOnComplete implements AsyncListener {
+
+        private final GradientConcurrencyLimit limit;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleaseOnComplete(GradientConcurrencyLimit limit) {
+            this.limit = limit;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limit.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.evbs.BackEndEvBs.entity.*;
 import com.evbs.BackEndEvBs.repository.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
@@ -16,6 +17,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Component
+@Profile("!perf") // Profile perf tự sinh dữ liệu lớn bằng PerfDataGenerator
 @Slf4j
 public class DatabaseInitializer implements CommandLineRunner {
 
@@ -11,7 +11,9 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -20,11 +22,15 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.List;
 
 @Component
 public class Filter extends OncePerRequestFilter {
 
+    public static final String METRICS_SCRAPE_AUTHORITY = "METRICS_SCRAPE";
+
     @Autowired
     @Qualifier("handlerExceptionResolver")
     private HandlerExceptionResolver resolver;
@@ -32,6 +38,10 @@ public class Filter extends OncePerRequestFilter {
     @Autowired
     TokenService tokenService;
 
+    // Token riêng cho Prometheus gọi GET /actuator/prometheus, để trống = chỉ ADMIN xem được metrics
+    @Value("${app.metrics.scrape-token:}")
+    private String scrapeToken;
+
     private final List<String> PUBLIC_API = List.of(
             // AUTH & REGISTRATION
             "POST:/api/register",
@@ -44,13 +54,17 @@ public class Filter extends OncePerRequestFilter {
             "GET:/v3/api-docs/**",
             "GET:/swagger-resources/**",
 
-            // STATION PUBLIC endpoints
+            // STATION PUBLIC endpoints (/api/station/* gồm cả /search, /available, /availability)
             "GET:/api/station",
             "GET:/api/station/*",
             "GET:/api/station/*/batteries",
-            "GET:/api/stations/active",
-            "GET:/api/stations/available",
-            "GET:/api/stations/search",
+            "GET:/api/station/*/availability",
+
+            // ACTUATOR - chỉ health check (metrics cần ADMIN hoặc scrape token, xem SecurityConfig)
+            "GET:/actuator/health",
+
+            // LIVE EVENTS (SSE) PUBLIC
+            "GET:/api/live/stations",
 
             // SERVICE PACKAGE PUBLIC
             "GET:/api/service-package",
@@ -97,6 +111,11 @@ public class Filter extends OncePerRequestFilter {
         if(isPublicAPI(uri, method)){
             // API public - cho phép truy cập không cần token
             filterChain.doFilter(request, response);
+        } else if (isMetricsScrape(request)) {
+            UsernamePasswordAuthenticationToken scrapeAuthentication = new UsernamePasswordAuthenticationToken(
+                    "prometheus", null, List.of(new SimpleGrantedAuthority(METRICS_SCRAPE_AUTHORITY)));
+            SecurityContextHolder.getContext().setAuthentication(scrapeAuthentication);
+            filterChain.doFilter(request, response);
         } else {
             // API theo role - cần kiểm tra token
             String token = getToken(request);
@@ -126,6 +145,16 @@ public class Filter extends OncePerRequestFilter {
         }
     }
 
+    private boolean isMetricsScrape(HttpServletRequest request) {
+        if (scrapeToken == null || scrapeToken.isBlank()
+                || !"GET".equals(request.getMethod()) || !"/actuator/prometheus".equals(request.getRequestURI())) {
+            return false;
+        }
+        String token = getToken(request);
+        return token != null && MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.UTF_8), scrapeToken.getBytes(StandardCharsets.UTF_8));
+    }
+
     public String getToken(HttpServletRequest request) {
         String authHeader = request.getHeader("Authorization");
         if (authHeader == null) return null;
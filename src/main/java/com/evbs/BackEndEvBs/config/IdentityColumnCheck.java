@@ -0,0 +1,55 @@
+package com.evbs.BackEndEvBs.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Booking, Battery, Payment, SwapTransaction lấy ID từ sequence.
+ * Database SQL Server cũ còn cột IDENTITY sẽ lỗi ở mọi INSERT: dừng ứng dụng ngay khi khởi động
+ * và chỉ ra script chuyển đổi db/sqlserver/identity-to-sequence.sql
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdentityColumnCheck {
+
+    private static final Map<String, String> SEQUENCE_ID_COLUMNS = Map.of(
+            "Booking", "BookingID",
+            "Battery", "BatteryID",
+            "Payment", "PaymentID",
+            "SwapTransaction", "TransactionID");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    void checkIdentityColumns() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (product == null || !product.startsWith("Microsoft SQL Server")) {
+            return;
+        }
+
+        List<String> identityColumns = new ArrayList<>();
+        SEQUENCE_ID_COLUMNS.forEach((table, column) -> {
+            Integer isIdentity = jdbcTemplate.queryForObject(
+                    "SELECT COLUMNPROPERTY(OBJECT_ID(?), ?, 'IsIdentity')", Integer.class, table, column);
+            if (isIdentity != null && isIdentity == 1) {
+                identityColumns.add(table + "." + column);
+            }
+        });
+
+        if (!identityColumns.isEmpty()) {
+            throw new IllegalStateException("Các cột " + identityColumns + " vẫn là IDENTITY nhưng entity dùng sequence. "
+                    + "Chạy script db/sqlserver/identity-to-sequence.sql trước khi khởi động ứng dụng");
+        }
+        log.debug("Sequence ID columns OK: {}", SEQUENCE_ID_COLUMNS.keySet());
+    }
+}
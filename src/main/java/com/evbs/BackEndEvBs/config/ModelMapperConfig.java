@@ -1,14 +0,0 @@
-package com.evbs.BackEndEvBs.config;
-
-import org.hibernate.annotations.Bag;
-import org.modelmapper.ModelMapper;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-
-@Configuration
-public class ModelMapperConfig {
-    @Bean
-    public ModelMapper modelMapper(){
-        return new ModelMapper();
-    }
-}
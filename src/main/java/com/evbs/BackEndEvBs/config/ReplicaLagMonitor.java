@@ -0,0 +1,83 @@
+package com.evbs.BackEndEvBs.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Theo dõi replica đọc: chỉ khi replica trả lời được và độ trễ <= max-lag-seconds thì transaction
+ * readOnly mới được gửi sang replica, ngược lại ReplicaRoutingDataSource dùng primary
+ *
+ * - lag-query: câu SQL chạy trên replica, trả về số giây trễ so với primary
+ * - lag-query trống: không đo được độ trễ nên không bao giờ dùng replica (cảnh báo lúc khởi động),
+ *   mọi transaction readOnly chạy trên primary
+ *
+ * Metrics: evbs.datasource.replica.lag (giây, NaN khi không kết nối được), evbs.datasource.replica.usable (1/0)
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+
+    // Chưa kiểm tra lần nào thì chưa dùng replica
+    private volatile boolean usable;
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, String lagQuery, double maxLagSeconds,
+                             int queryTimeoutSeconds, MeterRegistry meterRegistry) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.replicaJdbcTemplate.setQueryTimeout(queryTimeoutSeconds);
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+        if (lagQuery == null || lagQuery.isBlank()) {
+            log.warn("Read replica enabled but app.datasource.replica.lag-query is empty: "
+                    + "replica lag cannot be measured, read-only transactions stay on primary");
+        }
+
+        Gauge.builder("evbs.datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Độ trễ của replica đọc so với primary")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("evbs.datasource.replica.usable", this, monitor -> monitor.usable ? 1 : 0)
+                .description("1 nếu transaction readOnly đang được gửi sang replica")
+                .register(meterRegistry);
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.datasource.replica.lag-check-ms:5000}")
+    public void check() {
+        if (lagQuery == null || lagQuery.isBlank()) {
+            return;
+        }
+        boolean wasUsable = usable;
+        try {
+            Number lag = replicaJdbcTemplate.queryForObject(lagQuery, Number.class);
+            // NULL: replica chưa có số liệu đồng bộ, không biết trễ bao nhiêu
+            lagSeconds = lag == null ? Double.NaN : lag.doubleValue();
+            usable = lagSeconds <= maxLagSeconds;
+            if (wasUsable && !usable) {
+                log.warn("Read replica lagging {}s (max {}s), read-only transactions fall back to primary",
+                        lagSeconds, maxLagSeconds);
+            }
+        } catch (DataAccessException e) {
+            lagSeconds = Double.NaN;
+            usable = false;
+            if (wasUsable) {
+                log.warn("Read replica unreachable, read-only transactions fall back to primary: {}", e.getMessage());
+            }
+        }
+        if (!wasUsable && usable) {
+            log.info("Read replica available (lag {}s), routing read-only transactions to replica", lagSeconds);
+        }
+    }
+}
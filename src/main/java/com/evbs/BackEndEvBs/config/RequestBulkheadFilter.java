@@ -0,0 +1,258 @@
+package com.evbs.BackEndEvBs.config;
+
+import com.evbs.BackEndEvBs.service.TokenService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulkhead theo loại traffic: mỗi loại có giới hạn số request chạy đồng thời và hàng chờ riêng,
+ * đầy thì trả 503 + Retry-After ngay thay vì chiếm thêm thread / connection
+ *
+ * - DRIVER    : app tài xế (booking, quick swap, thanh toán...), mặc định cho mọi request còn lại
+ * - STATION   : staff và kiosk tại trạm (đổi pin bằng mã, xem pin mới / cũ)
+ * - REPORTING : admin, dashboard, export báo cáo
+ *
+ * Với open-in-view, mỗi request giữ tối đa 1 JDBC connection tới khi trả response, nên
+ * app.bulkhead.reporting.max-concurrent cũng là số connection tối đa mà báo cáo có thể chiếm
+ * (khi bật read replica, các transaction readOnly của báo cáo chạy trên pool replica).
+ * Hàng chờ chỉ dùng khi bật virtual thread (spring.threads.virtual.enabled): với thread pool Tomcat,
+ * request nằm chờ vẫn giữ 1 worker, một loại traffic dồn lên có thể chiếm hết worker và request của loại
+ * khác không tới được bulkhead của mình. Khi đó hết chỗ là trả 503 ngay (max-queue bị bỏ qua), và tổng
+ * max-concurrent của các loại phải nhỏ hơn server.tomcat.threads.max (lúc khởi động cảnh báo nếu không).
+ * Không tách thread pool riêng cho từng loại: giới hạn bằng semaphore trên chính worker của Tomcat là đủ
+ * khi tổng giới hạn nằm dưới số worker.
+ * Chạy trước Spring Security (sau AdmissionControlFilter): request bị từ chối không tốn câu findUserById
+ * của JWT Filter. Role lấy từ claim trong token (chỉ kiểm tra chữ ký, không query DB); token cũ không có
+ * claim role hoặc không hợp lệ được xếp vào DRIVER. Bỏ qua SSE (/api/live) và actuator.
+ *
+ * Metrics (tag workload): evbs.bulkhead.active, evbs.bulkhead.waiting (gauge), evbs.bulkhead.rejected (counter)
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+@Slf4j
+public class RequestBulkheadFilter extends OncePerRequestFilter {
+
+    public enum Workload {
+        DRIVER, STATION, REPORTING
+    }
+
+    private static final List<String> EXCLUDED_PATHS = List.of("/api/live/**", "/actuator/**");
+
+    private static final List<String> REPORTING_PATHS = List.of("/api/dashboard/**", "/api/export/**", "/api/admin/**");
+
+    private static final List<String> STATION_PATHS = List.of(
+            "/api/swap-transaction/swap-by-code",
+            "/api/swap-transaction/new-battery",
+            "/api/swap-transaction/old-battery"
+    );
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    // Đánh dấu request bị bulkhead từ chối: AdmissionControlFilter không tính độ trễ của request này
+    static final String REJECTED_ATTRIBUTE = RequestBulkheadFilter.class.getName() + ".rejected";
+
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final Map<Workload, Bulkhead> bulkheads = new EnumMap<>(Workload.class);
+    private final TokenService tokenService;
+
+    public RequestBulkheadFilter(Environment environment, MeterRegistry meterRegistry, TokenService tokenService) {
+        this.tokenService = tokenService;
+        bulkheads.put(Workload.DRIVER, new Bulkhead(environment, meterRegistry, Workload.DRIVER, 100, 200, 2000, 2));
+        bulkheads.put(Workload.STATION, new Bulkhead(environment, meterRegistry, Workload.STATION, 40, 80, 2000, 2));
+        bulkheads.put(Workload.REPORTING, new Bulkhead(environment, meterRegistry, Workload.REPORTING, 4, 8, 1000, 10));
+
+        if (!virtualThreadsEnabled(environment)) {
+            int workerThreads = environment.getProperty("server.tomcat.threads.max", Integer.class, 200);
+            int totalConcurrent = bulkheads.values().stream().mapToInt(bulkhead -> bulkhead.maxConcurrent).sum();
+            if (totalConcurrent >= workerThreads) {
+                log.warn("Bulkhead max-concurrent total {} >= server.tomcat.threads.max {}: one workload can still "
+                        + "take every Tomcat worker", totalConcurrent, workerThreads);
+            }
+        }
+    }
+
+    static boolean virtualThreadsEnabled(Environment environment) {
+        return environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return EXCLUDED_PATHS.stream().anyMatch(pattern -> matcher.match(pattern, uri));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Workload workload = classify(request);
+        Bulkhead bulkhead = bulkheads.get(workload);
+
+        if (!bulkhead.tryEnter()) {
+            request.setAttribute(REJECTED_ATTRIBUTE, workload);
+            reject(response, workload, bulkhead);
+            return;
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                bulkhead.exit();
+            }
+        };
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Export streaming chạy async: giữ chỗ tới khi response thật sự xong
+                request.getAsyncContext().addListener(new ReleaseOnComplete(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    Workload classify(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (REPORTING_PATHS.stream().anyMatch(pattern -> matcher.match(pattern, uri))) {
+            return Workload.REPORTING;
+        }
+        if (STATION_PATHS.stream().anyMatch(pattern -> matcher.match(pattern, uri))) {
+            return Workload.STATION;
+        }
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
+            return Workload.DRIVER;
+        }
+        return tokenService.extractRole(authHeader.substring(BEARER_PREFIX.length()))
+                .map(role -> switch (role) {
+                    case ADMIN -> Workload.REPORTING;
+                    case STAFF -> Workload.STATION;
+                    case DRIVER -> Workload.DRIVER;
+                })
+                .orElse(Workload.DRIVER);
+    }
+
+    private void reject(HttpServletResponse response, Workload workload, Bulkhead bulkhead) throws IOException {
+        bulkhead.rejected.increment();
+        log.warn("Bulkhead {} full ({} active, {} waiting), request rejected", workload, bulkhead.active(), bulkhead.waiting.get());
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", String.valueOf(bulkhead.retryAfterSeconds));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getOutputStream().write("Hệ thống đang bận, vui lòng thử lại sau!".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Giới hạn đồng thời + hàng chờ có giới hạn cho một loại traffic
+     * Cấu hình: app.bulkhead.{driver|station|reporting}.max-concurrent / max-queue / max-wait-ms / retry-after-seconds
+     * max-queue chỉ có tác dụng khi bật virtual thread, còn lại luôn là 0 (không chặn worker của Tomcat)
+     */
+    static final class Bulkhead {
+
+        private final int maxConcurrent;
+        private final int maxQueue;
+        private final long maxWaitMs;
+        private final int retryAfterSeconds;
+        private final Semaphore permits;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Counter rejected;
+
+        Bulkhead(Environment environment, MeterRegistry meterRegistry, Workload workload,
+                 int defaultConcurrent, int defaultQueue, long defaultWaitMs, int defaultRetryAfter) {
+            String prefix = "app.bulkhead." + workload.name().toLowerCase(Locale.ROOT) + ".";
+            this.maxConcurrent = environment.getProperty(prefix + "max-concurrent", Integer.class, defaultConcurrent);
+            this.maxQueue = virtualThreadsEnabled(environment)
+                    ? environment.getProperty(prefix + "max-queue", Integer.class, defaultQueue)
+                    : 0;
+            this.maxWaitMs = environment.getProperty(prefix + "max-wait-ms", Long.class, defaultWaitMs);
+            this.retryAfterSeconds = environment.getProperty(prefix + "retry-after-seconds", Integer.class, defaultRetryAfter);
+            this.permits = new Semaphore(maxConcurrent, true);
+
+            String tag = workload.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("evbs.bulkhead.active", this, Bulkhead::active)
+                    .description("Số request đang chạy trong bulkhead").tag("workload", tag).register(meterRegistry);
+            Gauge.builder("evbs.bulkhead.waiting", waiting, AtomicInteger::get)
+                    .description("Số request đang chờ vào bulkhead").tag("workload", tag).register(meterRegistry);
+            this.rejected = Counter.builder("evbs.bulkhead.rejected")
+                    .description("Số request bị trả 503 do bulkhead đầy").tag("workload", tag).register(meterRegistry);
+        }
+
+        boolean tryEnter() {
+            if (permits.tryAcquire()) {
+                return true;
+            }
+            // Không có hàng chờ (thread pool Tomcat) hoặc hàng chờ đầy: trả 503 ngay, không xếp thêm request
+            if (maxQueue == 0) {
+                return false;
+            }
+            if (waiting.incrementAndGet() > maxQueue) {
+                waiting.decrementAndGet();
+                return false;
+            }
+            try {
+                return permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        void exit() {
+            permits.release();
+        }
+
+        int active() {
+            return maxConcurrent - permits.availablePermits();
+        }
+    }
+
+    private record ReleaseOnComplete(Runnable release) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Async dispatch mới vẫn dùng listener này
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.evbs.BackEndEvBs.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Đánh dấu method @Scheduled được quản lý bởi ScheduledJobRegistry:
+ * - Bỏ qua lần chạy mới nếu lần trước của cùng job chưa xong (không chạy chồng)
+ * - Watchdog cảnh báo và interrupt khi chạy quá maxRuntimeMs
+ * - Ghi lịch sử chạy (bắt đầu, thời gian, số bản ghi xử lý, lỗi) - xem GET /api/admin/scheduled-jobs
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ScheduledJob {
+
+    // Tên job, trùng với tag job của metric evbs.scheduler.*
+    String value();
+
+    long maxRuntimeMs() default 600000;
+}
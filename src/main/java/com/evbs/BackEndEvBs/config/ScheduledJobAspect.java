@@ -0,0 +1,28 @@
+package com.evbs.BackEndEvBs.config;
+
+import com.evbs.BackEndEvBs.service.ScheduledJobRegistry;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bọc method @ScheduledJob bên ngoài @Transactional (HIGHEST_PRECEDENCE):
+ * lỗi lúc commit (vd. mất lease) cũng được ghi vào lịch sử chạy
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ScheduledJobAspect {
+
+    private final ScheduledJobRegistry scheduledJobRegistry;
+
+    @Around("@annotation(scheduledJob)")
+    public Object runJob(ProceedingJoinPoint joinPoint, ScheduledJob scheduledJob) throws Throwable {
+        return scheduledJobRegistry.run(scheduledJob.value(), scheduledJob.maxRuntimeMs(), joinPoint::proceed);
+    }
+}
@@ -0,0 +1,30 @@
+package com.evbs.BackEndEvBs.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Scheduler cho @Scheduled với nhiều thread
+ * Mặc định của Spring Boot là 1 thread (hoặc khi bật virtual thread, các job fixedDelay vẫn chạy tuần tự
+ * trên 1 thread scheduler): job nặng hoặc SMTP treo sẽ làm trễ các job khác.
+ * Bean "taskScheduler" thay thế scheduler tự cấu hình của Spring Boot; metrics executor của pool
+ * được Actuator tự đăng ký (executor.*).
+ */
+@Configuration
+public class SchedulingConfig {
+
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${app.scheduler.pool-size:6}") int poolSize,
+                                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setVirtualThreads(virtualThreads);
+        scheduler.setThreadNamePrefix("evbs-scheduler-");
+        // Khi tắt ứng dụng: chờ job đang chạy xong (tối đa 30s) để transaction và lease được trả đúng
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        return scheduler;
+    }
+}
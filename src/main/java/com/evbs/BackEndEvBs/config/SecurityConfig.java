@@ -43,6 +43,10 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(
                         req -> req
+                                // Metrics lộ URI, thời gian xử lý theo tài xế...: chỉ ADMIN hoặc Prometheus (scrape token)
+                                .requestMatchers("/actuator/health").permitAll()
+                                .requestMatchers("/actuator/prometheus").hasAnyAuthority("ROLE_ADMIN", Filter.METRICS_SCRAPE_AUTHORITY)
+                                .requestMatchers("/actuator/**").hasRole("ADMIN")
                                 .requestMatchers("/**")
                                 .permitAll()
                                 .anyRequest()
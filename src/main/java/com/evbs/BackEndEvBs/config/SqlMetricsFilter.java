@@ -0,0 +1,83 @@
+package com.evbs.BackEndEvBs.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Đo số câu SQL của mỗi HTTP request theo endpoint và cảnh báo khi:
+ * - vượt ngân sách app.sql.statement-budget
+ * - một dạng câu lệnh lặp lại từ app.sql.repeated-statement-threshold lần (nghi N+1)
+ *
+ * Metrics (tag method, uri):
+ * - evbs.http.sql.statements      : số câu SQL mỗi request
+ * - evbs.http.sql.budget-exceeded : số request vượt ngân sách
+ * - evbs.http.sql.n-plus-one      : số request có câu lệnh lặp lại
+ */
+@Component
+@Slf4j
+public class SqlMetricsFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.sql.statement-budget:50}")
+    private int statementBudget;
+
+    @Value("${app.sql.repeated-statement-threshold:10}")
+    private int repeatedStatementThreshold;
+
+    public SqlMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementInspector.Tracking tracking = SqlStatementInspector.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatementInspector.end(tracking);
+            record(request, tracking);
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStatementInspector.Tracking tracking) {
+        String method = request.getMethod();
+        // Dùng pattern của handler (/api/booking/{id}) thay vì URI thật để không bùng nổ số series
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        DistributionSummary.builder("evbs.http.sql.statements")
+                .description("Số câu SQL Hibernate phát ra trong một HTTP request")
+                .baseUnit("statements")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(tracking.getCount());
+
+        if (tracking.getCount() > statementBudget) {
+            meterRegistry.counter("evbs.http.sql.budget-exceeded", "method", method, "uri", uri).increment();
+            log.warn("SQL budget exceeded: {} {} ran {} statements (budget {})",
+                    method, uri, tracking.getCount(), statementBudget);
+        }
+
+        Map<String, Integer> repeated = tracking.getRepeatedShapes(repeatedStatementThreshold);
+        if (!repeated.isEmpty()) {
+            meterRegistry.counter("evbs.http.sql.n-plus-one", "method", method, "uri", uri).increment();
+            Map.Entry<String, Integer> worst = repeated.entrySet().iterator().next();
+            log.warn("Possible N+1 on {} {}: {} repeated statement shape(s), worst x{}: {}",
+                    method, uri, repeated.size(), worst.getValue(), worst.getKey());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.evbs.BackEndEvBs.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Đếm số câu SQL Hibernate phát ra trong một phiên đo (một HTTP request, hoặc một khối code trong test)
+ * và gom theo "dạng" câu lệnh để phát hiện N+1 (cùng một câu lặp lại nhiều lần)
+ * Đăng ký với Hibernate qua HibernatePropertiesCustomizer, không sửa nội dung câu lệnh
+ */
+@Component
+public class SqlStatementInspector implements StatementInspector, HibernatePropertiesCustomizer {
+
+    // Giới hạn số dạng câu lệnh giữ lại mỗi phiên, tránh request bất thường chiếm bộ nhớ
+    private static final int MAX_SHAPES_PER_TRACKING = 500;
+
+    // IN (?, ?, ?) có độ dài khác nhau vẫn là cùng một dạng
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+
+    private static final ThreadLocal<Tracking> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Kết quả đo của một phiên
+     */
+    public static final class Tracking {
+        private final Tracking parent;
+        private int count;
+        private final Map<String, Integer> countsByShape = new HashMap<>();
+
+        private Tracking(Tracking parent) {
+            this.parent = parent;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        // Các dạng câu lệnh chạy từ threshold lần trở lên, nhiều nhất trước
+        public Map<String, Integer> getRepeatedShapes(int threshold) {
+            Map<String, Integer> repeated = new LinkedHashMap<>();
+            countsByShape.entrySet().stream()
+                    .filter(e -> e.getValue() >= threshold)
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .forEach(e -> repeated.put(e.getKey(), e.getValue()));
+            return repeated;
+        }
+
+        private void record(String shape) {
+            count++;
+            if (countsByShape.size() < MAX_SHAPES_PER_TRACKING || countsByShape.containsKey(shape)) {
+                countsByShape.merge(shape, 1, Integer::sum);
+            }
+        }
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Tracking tracking = CURRENT.get();
+        if (tracking != null) {
+            String shape = shapeOf(sql);
+            // Phiên lồng nhau: câu lệnh được tính cho cả phiên cha
+            for (Tracking t = tracking; t != null; t = t.parent) {
+                t.record(shape);
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * Bắt đầu đo trên thread hiện tại (có thể lồng trong phiên khác)
+     */
+    public static Tracking begin() {
+        Tracking tracking = new Tracking(CURRENT.get());
+        CURRENT.set(tracking);
+        return tracking;
+    }
+
+    /**
+     * Kết thúc phiên đo, khôi phục phiên cha (nếu có)
+     */
+    public static Tracking end(Tracking tracking) {
+        if (tracking.parent != null) {
+            CURRENT.set(tracking.parent);
+        } else {
+            CURRENT.remove();
+        }
+        return tracking;
+    }
+
+    static String shapeOf(String sql) {
+        return IN_LIST.matcher(sql.trim()).replaceAll("(?...)");
+    }
+}
@@ -1,8 +1,10 @@
 package com.evbs.BackEndEvBs.controller;
 
 
+import com.evbs.BackEndEvBs.entity.User;
 import com.evbs.BackEndEvBs.model.request.CreateUserRequest;
 import com.evbs.BackEndEvBs.model.request.UpdateUserRequest;
+import com.evbs.BackEndEvBs.model.response.PageResponse;
 import com.evbs.BackEndEvBs.model.response.UserResponse;
 import com.evbs.BackEndEvBs.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -30,13 +32,17 @@ public class AdminUserController {
     UserService userService;
 
     /**
-     * Lấy danh sách tất cả user (Admin only)
+     * Lấy danh sách user theo trang (Admin only)
      */
     @GetMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
-    @Operation(summary = "Get all users", description = "Get list of all users (Admin only)")
-    public ResponseEntity<List<UserResponse>> getAllUsers() {
-        List<UserResponse> users = userService.getAllUsersSimple();
+    @Operation(summary = "Get all users", description = "Get list of users, newest first, with cursor pagination (Admin only)")
+    public ResponseEntity<PageResponse<UserResponse>> getAllUsers(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) User.Role role,
+            @RequestParam(required = false) User.Status status) {
+        PageResponse<UserResponse> users = userService.getAllUsersSimple(cursor, size, role, status);
         return ResponseEntity.ok(users);
     }
 
@@ -4,6 +4,7 @@ import com.evbs.BackEndEvBs.entity.Battery;
 import com.evbs.BackEndEvBs.model.request.BatteryRequest;
 import com.evbs.BackEndEvBs.model.request.BatteryUpdateRequest;
 import com.evbs.BackEndEvBs.model.request.FaultyBatterySwapRequest;
+import com.evbs.BackEndEvBs.model.response.BatteryListResponse;
 import com.evbs.BackEndEvBs.service.BatteryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -46,8 +47,8 @@ public class BatteryController {
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Get all batteries")
-    public ResponseEntity<List<Battery>> getAllBatteries() {
-        List<Battery> batteries = batteryService.getAllBatteries();
+    public ResponseEntity<List<BatteryListResponse>> getAllBatteries() {
+        List<BatteryListResponse> batteries = batteryService.getAllBatteries();
         return ResponseEntity.ok(batteries);
     }
 
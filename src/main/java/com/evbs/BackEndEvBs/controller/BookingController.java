@@ -3,6 +3,8 @@ package com.evbs.BackEndEvBs.controller;
 import com.evbs.BackEndEvBs.entity.Booking;
 import com.evbs.BackEndEvBs.entity.Station;
 import com.evbs.BackEndEvBs.model.request.BookingRequest;
+import com.evbs.BackEndEvBs.model.response.BookingHistoryResponse;
+import com.evbs.BackEndEvBs.model.response.PageResponse;
 import com.evbs.BackEndEvBs.service.BookingService;
 import com.evbs.BackEndEvBs.service.StaffStationAssignmentService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,11 +12,13 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -63,8 +67,8 @@ public class BookingController {
     @GetMapping("/my-bookings")
     @Operation(summary = "Get my bookings",
             description = "Get all bookings for the current driver")
-    public ResponseEntity<List<Booking>> getMyBookings() {
-        List<Booking> bookings = bookingService.getMyBookings();
+    public ResponseEntity<List<BookingHistoryResponse>> getMyBookings() {
+        List<BookingHistoryResponse> bookings = bookingService.getMyBookings();
         return ResponseEntity.ok(bookings);
     }
 
@@ -95,13 +99,20 @@ public class BookingController {
 
     /**
      * GET /api/booking : Get all bookings (Admin/Staff only)
+     * Phân trang keyset: truyền nextCursor của trang trước vào cursor để lấy trang tiếp
      */
     @GetMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
     @Operation(summary = "Get all bookings",
-            description = "Get all bookings in the system (Admin/Staff only)")
-    public ResponseEntity<List<Booking>> getAllBookings() {
-        List<Booking> bookings = bookingService.getAllBookings();
+            description = "Get bookings in the system, newest first, with cursor pagination and filters (Admin/Staff only)")
+    public ResponseEntity<PageResponse<Booking>> getAllBookings(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Booking.Status status,
+            @RequestParam(required = false) Long stationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        PageResponse<Booking> bookings = bookingService.getAllBookings(cursor, size, status, stationId, from, to);
         return ResponseEntity.ok(bookings);
     }
 
@@ -2,6 +2,7 @@ package com.evbs.BackEndEvBs.controller;
 
 import com.evbs.BackEndEvBs.entity.DriverSubscription;
 import com.evbs.BackEndEvBs.model.request.DriverSubscriptionRequest;
+import com.evbs.BackEndEvBs.model.response.PageResponse;
 import com.evbs.BackEndEvBs.model.response.UpgradeCalculationResponse;
 import com.evbs.BackEndEvBs.model.response.RenewalCalculationResponse;
 import com.evbs.BackEndEvBs.service.DriverSubscriptionService;
@@ -11,11 +12,13 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -33,9 +36,16 @@ public class DriverSubscriptionController {
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Get all subscriptions", description = "Get all subscriptions (Admin only)")
-    public ResponseEntity<List<DriverSubscription>> getAllSubscriptions() {
-        List<DriverSubscription> subscriptions = driverSubscriptionService.getAllSubscriptions();
+    @Operation(summary = "Get all subscriptions", description = "Get subscriptions, newest first, with cursor pagination and filters (Admin only)")
+    public ResponseEntity<PageResponse<DriverSubscription>> getAllSubscriptions(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) DriverSubscription.Status status,
+            @RequestParam(required = false) Long packageId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        PageResponse<DriverSubscription> subscriptions =
+                driverSubscriptionService.getAllSubscriptions(cursor, size, status, packageId, from, to);
         return ResponseEntity.ok(subscriptions);
     }
 
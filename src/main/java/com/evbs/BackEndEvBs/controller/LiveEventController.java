@@ -0,0 +1,44 @@
+package com.evbs.BackEndEvBs.controller;
+
+import com.evbs.BackEndEvBs.service.LiveEventService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/live")
+@Tag(name = "Live Events", description = "Server-Sent Events for station availability and booking status")
+public class LiveEventController {
+
+    @Autowired
+    private LiveEventService liveEventService;
+
+    /**
+     * GET /api/live/stations : Stream station availability (Public)
+     * stationIds bỏ trống = nhận tất cả trạm
+     */
+    @GetMapping(value = "/stations", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream live station availability (SSE)")
+    public SseEmitter streamStations(@RequestParam(required = false) List<Long> stationIds,
+                                     HttpServletRequest request) {
+        return liveEventService.subscribeStations(stationIds, request.getRemoteAddr());
+    }
+
+    /**
+     * GET /api/live/events : Stream station availability + my booking status changes (Authenticated)
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @SecurityRequirement(name = "api")
+    @Operation(summary = "Stream live station availability and my booking status (SSE)")
+    public SseEmitter streamMyEvents(@RequestParam(required = false) List<Long> stationIds,
+                                     HttpServletRequest request) {
+        return liveEventService.subscribeForCurrentUser(stationIds, request.getRemoteAddr());
+    }
+}
@@ -1,16 +1,19 @@
 package com.evbs.BackEndEvBs.controller;
 
 import com.evbs.BackEndEvBs.entity.Payment;
+import com.evbs.BackEndEvBs.model.response.PageResponse;
 import com.evbs.BackEndEvBs.service.MoMoService;
 import com.evbs.BackEndEvBs.service.PaymentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -30,9 +33,14 @@ public class PaymentController {
 
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
-    @Operation(summary = "Get all payments", description = "Get all payments (Admin/Staff only)")
-    public ResponseEntity<List<Payment>> getAllPayments() {
-        List<Payment> payments = paymentService.getAllPayments();
+    @Operation(summary = "Get all payments", description = "Get payments, newest first, with cursor pagination and filters (Admin/Staff only)")
+    public ResponseEntity<PageResponse<Payment>> getAllPayments(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Payment.Status status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        PageResponse<Payment> payments = paymentService.getAllPayments(cursor, size, status, from, to);
         return ResponseEntity.ok(payments);
     }
 
@@ -0,0 +1,99 @@
+package com.evbs.BackEndEvBs.controller;
+
+import com.evbs.BackEndEvBs.service.ReportExportService;
+import com.evbs.BackEndEvBs.service.ReportExportService.ExportFormat;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/export")
+@SecurityRequirement(name = "api")
+@Tag(name = "Report Export", description = "APIs for streaming CSV/NDJSON reports")
+public class ReportExportController {
+
+    @Autowired
+    private ReportExportService reportExportService;
+
+    /**
+     * GET /api/export/swap-transactions : Export swap transactions (Admin/Staff only)
+     * format = csv | ndjson, lọc theo trạm và khoảng thời gian [from, to)
+     */
+    @GetMapping("/swap-transactions")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @Operation(summary = "Export swap transactions as CSV/NDJSON (Admin/Staff only)")
+    public ResponseEntity<StreamingResponseBody> exportSwapTransactions(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Long stationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        List<Long> stationScope = reportExportService.resolveStationScope(stationId);
+        StreamingResponseBody body = out ->
+                reportExportService.exportSwapTransactions(stationScope, from, to, exportFormat, out);
+        return buildExportResponse("swap-transactions", exportFormat, body);
+    }
+
+    /**
+     * GET /api/export/payments : Export payments (Admin/Staff only)
+     * Lọc theo trạm chỉ áp dụng cho payment của giao dịch đổi pin
+     */
+    @GetMapping("/payments")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @Operation(summary = "Export payments as CSV/NDJSON (Admin/Staff only)")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Long stationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        List<Long> stationScope = reportExportService.resolveStationScope(stationId);
+        StreamingResponseBody body = out ->
+                reportExportService.exportPayments(stationScope, from, to, exportFormat, out);
+        return buildExportResponse("payments", exportFormat, body);
+    }
+
+    /**
+     * GET /api/export/bookings : Export bookings (Admin/Staff only)
+     */
+    @GetMapping("/bookings")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
+    @Operation(summary = "Export bookings as CSV/NDJSON (Admin/Staff only)")
+    public ResponseEntity<StreamingResponseBody> exportBookings(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Long stationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        List<Long> stationScope = reportExportService.resolveStationScope(stationId);
+        StreamingResponseBody body = out ->
+                reportExportService.exportBookings(stationScope, from, to, exportFormat, out);
+        return buildExportResponse("bookings", exportFormat, body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> buildExportResponse(String name, ExportFormat format,
+                                                                      StreamingResponseBody body) {
+        boolean csv = format == ExportFormat.CSV;
+        String fileName = name + "-" + LocalDate.now() + (csv ? ".csv" : ".ndjson");
+        MediaType mediaType = csv
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(mediaType)
+                .body(body);
+    }
+}
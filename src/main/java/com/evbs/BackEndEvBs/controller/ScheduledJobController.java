@@ -0,0 +1,36 @@
+package com.evbs.BackEndEvBs.controller;
+
+import com.evbs.BackEndEvBs.model.response.ScheduledJobStatusResponse;
+import com.evbs.BackEndEvBs.service.ScheduledJobRegistry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/scheduled-jobs")
+@RequiredArgsConstructor
+@SecurityRequirement(name = "api")
+@Tag(name = "Scheduled Jobs", description = "Theo dõi các job chạy định kỳ")
+public class ScheduledJobController {
+
+    private final ScheduledJobRegistry scheduledJobRegistry;
+
+    /**
+     * Trạng thái và lịch sử chạy gần nhất của các job trên node nhận request (ADMIN)
+     */
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Lịch sử chạy scheduled job",
+            description = "Job đang chạy, số lần chạy/lỗi/bỏ qua và các lần chạy gần nhất trên node hiện tại (ADMIN only)")
+    public ResponseEntity<List<ScheduledJobStatusResponse>> getScheduledJobs() {
+        return ResponseEntity.ok(scheduledJobRegistry.getJobStatuses());
+    }
+}
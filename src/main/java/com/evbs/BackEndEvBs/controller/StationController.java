@@ -1,9 +1,11 @@
 package com.evbs.BackEndEvBs.controller;
 
-import com.evbs.BackEndEvBs.entity.Battery;
 import com.evbs.BackEndEvBs.entity.Station;
 import com.evbs.BackEndEvBs.model.request.StationRequest;
 import com.evbs.BackEndEvBs.model.request.StationUpdateRequest;
+import com.evbs.BackEndEvBs.model.response.BatteryListResponse;
+import com.evbs.BackEndEvBs.model.response.StationAvailabilityResponse;
+import com.evbs.BackEndEvBs.model.response.StationSearchResponse;
 import com.evbs.BackEndEvBs.repository.StationRepository;
 import com.evbs.BackEndEvBs.service.BatteryHealthService;
 import com.evbs.BackEndEvBs.service.BatteryService;
@@ -60,11 +62,65 @@ public class StationController {
      */
     @GetMapping("/{id}/batteries")
     @Operation(summary = "Get all batteries in station")
-    public ResponseEntity<List<Battery>> getBatteriesByStation(@PathVariable Long id) {
-        List<Battery> batteries = batteryService.getBatteriesByStation(id);
+    public ResponseEntity<List<BatteryListResponse>> getBatteriesByStation(@PathVariable Long id) {
+        List<BatteryListResponse> batteries = batteryService.getBatteriesByStation(id);
         return ResponseEntity.ok(batteries);
     }
 
+    /**
+     * GET /api/station/availability : Battery counts by status for all stations (Public)
+     */
+    @GetMapping("/availability")
+    @Operation(summary = "Get battery availability of all stations")
+    public ResponseEntity<List<StationAvailabilityResponse>> getAllStationAvailability() {
+        return ResponseEntity.ok(stationService.getAllStationAvailability());
+    }
+
+    /**
+     * GET /api/station/{id}/availability : Battery counts by status for one station (Public)
+     */
+    @GetMapping("/{id}/availability")
+    @Operation(summary = "Get battery availability of a station")
+    public ResponseEntity<StationAvailabilityResponse> getStationAvailability(@PathVariable Long id) {
+        return ResponseEntity.ok(stationService.getStationAvailability(id));
+    }
+
+    /**
+     * GET /api/station/search : Find nearest stations (Public)
+     * radiusKm bỏ trống = không giới hạn bán kính, chỉ lấy N trạm gần nhất
+     */
+    @GetMapping("/search")
+    @Operation(summary = "Find nearest stations by GPS location")
+    public ResponseEntity<List<StationSearchResponse>> searchNearbyStations(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(required = false) Double radiusKm,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long batteryTypeId,
+            @RequestParam(required = false) Integer minAvailable,
+            @RequestParam(required = false) Station.Status status) {
+        List<StationSearchResponse> stations = stationService.searchNearbyStations(
+                lat, lng, radiusKm, limit, batteryTypeId, minAvailable, status);
+        return ResponseEntity.ok(stations);
+    }
+
+    /**
+     * GET /api/station/available : Find nearest ACTIVE stations that have swappable batteries (Public)
+     */
+    @GetMapping("/available")
+    @Operation(summary = "Find nearest active stations with swappable batteries")
+    public ResponseEntity<List<StationSearchResponse>> getNearbyAvailableStations(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(required = false) Double radiusKm,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long batteryTypeId,
+            @RequestParam(defaultValue = "1") Integer minAvailable) {
+        List<StationSearchResponse> stations = stationService.searchNearbyStations(
+                lat, lng, radiusKm, limit, batteryTypeId, minAvailable, Station.Status.ACTIVE);
+        return ResponseEntity.ok(stations);
+    }
+
     // ==================== ADMIN/STAFF ENDPOINTS ====================
 
     /**
@@ -2,17 +2,20 @@ package com.evbs.BackEndEvBs.controller;
 
 import com.evbs.BackEndEvBs.entity.SupportTicket;
 import com.evbs.BackEndEvBs.model.request.SupportTicketRequest;
+import com.evbs.BackEndEvBs.model.response.PageResponse;
 import com.evbs.BackEndEvBs.service.SupportTicketService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -62,8 +65,14 @@ public class SupportTicketController {
     @GetMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
     @Operation(summary = "Get all tickets (Admin gets all, Staff gets tickets from their stations)")
-    public ResponseEntity<List<SupportTicket>> getAllTickets() {
-        List<SupportTicket> tickets = supportTicketService.getAllTickets();
+    public ResponseEntity<PageResponse<SupportTicket>> getAllTickets(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) SupportTicket.Status status,
+            @RequestParam(required = false) Long stationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        PageResponse<SupportTicket> tickets = supportTicketService.getAllTickets(cursor, size, status, stationId, from, to);
         return ResponseEntity.ok(tickets);
     }
 
@@ -2,16 +2,20 @@ package com.evbs.BackEndEvBs.controller;
 
 import com.evbs.BackEndEvBs.entity.SwapTransaction;
 import com.evbs.BackEndEvBs.model.response.BatteryInfoResponse;
+import com.evbs.BackEndEvBs.model.response.PageResponse;
+import com.evbs.BackEndEvBs.model.response.SwapTransactionHistoryResponse;
 import com.evbs.BackEndEvBs.service.SwapTransactionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -63,8 +67,8 @@ public class SwapTransactionController {
     @PreAuthorize("hasRole('DRIVER')")
     @SecurityRequirement(name = "api")
     @Operation(summary = "Get my transactions")
-    public ResponseEntity<List<SwapTransaction>> getMyTransactions() {
-        List<SwapTransaction> transactions = swapTransactionService.getMyTransactions();
+    public ResponseEntity<List<SwapTransactionHistoryResponse>> getMyTransactions() {
+        List<SwapTransactionHistoryResponse> transactions = swapTransactionService.getMyTransactions();
         return ResponseEntity.ok(transactions);
     }
 
@@ -82,17 +86,25 @@ public class SwapTransactionController {
     @GetMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
     @SecurityRequirement(name = "api")
-    @Operation(summary = "Get all transactions")
-    public ResponseEntity<List<SwapTransaction>> getAllTransactions() {
-        List<SwapTransaction> transactions = swapTransactionService.getAllSwapTransactions();
+    @Operation(summary = "Get all transactions",
+            description = "Get transactions, newest first, with cursor pagination and filters")
+    public ResponseEntity<PageResponse<SwapTransaction>> getAllTransactions(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) SwapTransaction.Status status,
+            @RequestParam(required = false) Long stationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        PageResponse<SwapTransaction> transactions =
+                swapTransactionService.getAllSwapTransactions(cursor, size, status, stationId, from, to);
         return ResponseEntity.ok(transactions);
     }
 
     @GetMapping("/vehicle/{vehicleId}/history")
     @SecurityRequirement(name = "api")
     @Operation(summary = "Get vehicle swap history")
-    public ResponseEntity<List<SwapTransaction>> getVehicleSwapHistory(@PathVariable Long vehicleId) {
-        List<SwapTransaction> history = swapTransactionService.getVehicleSwapHistory(vehicleId);
+    public ResponseEntity<List<SwapTransactionHistoryResponse>> getVehicleSwapHistory(@PathVariable Long vehicleId) {
+        List<SwapTransactionHistoryResponse> history = swapTransactionService.getVehicleSwapHistory(vehicleId);
         return ResponseEntity.ok(history);
     }
 
@@ -100,8 +112,8 @@ public class SwapTransactionController {
     @PreAuthorize("hasRole('ADMIN') or hasRole('STAFF')")
     @SecurityRequirement(name = "api")
     @Operation(summary = "Get battery usage history")
-    public ResponseEntity<List<SwapTransaction>> getBatteryUsageHistory(@PathVariable Long batteryId) {
-        List<SwapTransaction> history = swapTransactionService.getBatteryUsageHistory(batteryId);
+    public ResponseEntity<List<SwapTransactionHistoryResponse>> getBatteryUsageHistory(@PathVariable Long batteryId) {
+        List<SwapTransactionHistoryResponse> history = swapTransactionService.getBatteryUsageHistory(batteryId);
         return ResponseEntity.ok(history);
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.evbs.BackEndEvBs.entity;
 
+import com.evbs.BackEndEvBs.service.BatteryAvailabilityListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
@@ -14,6 +15,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "Battery")
+@EntityListeners(BatteryAvailabilityListener.class)
 @Getter
 @Setter
 public class Battery {
@@ -28,8 +30,22 @@ public class Battery {
 
     }
 
+    // Nhóm trạng thái dùng cho bộ đếm pin tại trạm (StationAvailabilityTracker)
+    public enum AvailabilityBucket {
+        READY,        // AVAILABLE, chargeLevel >= 95%, stateOfHealth >= 70% - đổi được ngay
+        CHARGING,
+        PENDING,
+        MAINTENANCE,
+        OTHER         // AVAILABLE nhưng chưa đủ sạc/sức khỏe, hoặc trạng thái khác
+    }
+
+    // Ngưỡng pin sẵn sàng đổi (giống logic reserve pin khi tạo booking)
+    public static final BigDecimal READY_MIN_CHARGE_LEVEL = BigDecimal.valueOf(95);
+    public static final BigDecimal READY_MIN_HEALTH = BigDecimal.valueOf(70);
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "battery_seq")
+    @SequenceGenerator(name = "battery_seq", sequenceName = "Battery_SEQ", allocationSize = 50)
     @Column(name = "BatteryID")
     private Long id;
 
@@ -99,6 +115,15 @@ public class Battery {
     @JsonIgnore
     private List<SwapTransaction> swapOutTransactions = new ArrayList<>();
 
+    // Trạm + nhóm trạng thái lần cuối đồng bộ với DB, để listener tính chênh lệch bộ đếm
+    @Transient
+    @JsonIgnore
+    private Long trackedStationId;
+
+    @Transient
+    @JsonIgnore
+    private AvailabilityBucket trackedBucket;
+
     // Getter để serialize currentStationId thay vì toàn bộ Station object
     @JsonProperty("currentStation")
     public Long getCurrentStationId() {
@@ -123,6 +148,33 @@ public class Battery {
         return batteryType != null ? batteryType.getName() : null;
     }
 
+    // Phân nhóm trạng thái hiện tại của pin cho bộ đếm tại trạm
+    @JsonIgnore
+    public AvailabilityBucket getAvailabilityBucket() {
+        boolean ready = chargeLevel != null && chargeLevel.compareTo(READY_MIN_CHARGE_LEVEL) >= 0
+                && stateOfHealth != null && stateOfHealth.compareTo(READY_MIN_HEALTH) >= 0;
+        return availabilityBucketOf(status, ready);
+    }
+
+    // ready = đủ mức sạc và sức khỏe, chỉ có ý nghĩa với status AVAILABLE
+    public static AvailabilityBucket availabilityBucketOf(Status status, boolean ready) {
+        if (status == null) {
+            return AvailabilityBucket.OTHER;
+        }
+        switch (status) {
+            case AVAILABLE:
+                return ready ? AvailabilityBucket.READY : AvailabilityBucket.OTHER;
+            case CHARGING:
+                return AvailabilityBucket.CHARGING;
+            case PENDING:
+                return AvailabilityBucket.PENDING;
+            case MAINTENANCE:
+                return AvailabilityBucket.MAINTENANCE;
+            default:
+                return AvailabilityBucket.OTHER;
+        }
+    }
+
     // Phương thức tăng số lần sử dụng
     public void incrementUsageCount() {
         this.usageCount = (this.usageCount == null) ? 1 : this.usageCount + 1;
@@ -1,5 +1,6 @@
 package com.evbs.BackEndEvBs.entity;
 
+import com.evbs.BackEndEvBs.service.BookingStatusListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
@@ -8,7 +9,10 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "Booking")
+@Table(name = "Booking", indexes = {
+        @Index(name = "IX_Booking_Driver_BookingTime", columnList = "DriverID, BookingTime")
+})
+@EntityListeners(BookingStatusListener.class)
 @Getter
 @Setter
 public class Booking {
@@ -18,7 +22,8 @@ public class Booking {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_seq")
+    @SequenceGenerator(name = "booking_seq", sequenceName = "Booking_SEQ", allocationSize = 50)
     @Column(name = "BookingID")
     private Long id;
 
@@ -59,6 +64,11 @@ public class Booking {
     @Column(name = "Status", length = 50)
     private Status status = Status.PENDING;
 
+    // Status lần cuối đồng bộ với DB, để listener phát sự kiện khi status đổi
+    @Transient
+    @JsonIgnore
+    private Status trackedStatus;
+
     @ManyToOne
     @JoinColumn(name = "ReservedBatteryID")
     @JsonIgnore
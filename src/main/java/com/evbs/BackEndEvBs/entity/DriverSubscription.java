@@ -6,11 +6,17 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "DriverSubscription")
+@Table(name = "DriverSubscription", indexes = {
+        // Job vòng đời: hết hạn gói quá EndDate, nhắc gói sắp hết hạn
+        @Index(name = "IX_DriverSubscription_Status_EndDate", columnList = "Status, EndDate"),
+        // Tìm gói ACTIVE của driver khi booking / đổi pin, đọc được từ index không cần chạm bảng
+        @Index(name = "IX_DriverSubscription_Driver_Status", columnList = "DriverID, Status, EndDate, RemainingSwaps")
+})
 @Getter
 @Setter
 public class DriverSubscription {
@@ -46,6 +52,11 @@ public class DriverSubscription {
 
     @Column(name = "RemainingSwaps", nullable = false)
     private Integer remainingSwaps; // Số lần swap còn lại
+
+    // Thời điểm đã gửi email nhắc sắp hết hạn (null = chưa nhắc)
+    @Column(name = "ExpiryReminderSentAt")
+    @JsonIgnore
+    private LocalDateTime expiryReminderSentAt;
     
     @OneToMany(mappedBy = "subscription")
     @JsonIgnore
@@ -19,7 +19,8 @@ public class Payment {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_seq")
+    @SequenceGenerator(name = "payment_seq", sequenceName = "Payment_SEQ", allocationSize = 50)
     @Column(name = "PaymentID")
     private Long id;
 
@@ -0,0 +1,39 @@
+package com.evbs.BackEndEvBs.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease của một scheduled job (hoặc một shard của job) khi chạy nhiều instance
+ * - Chỉ node giữ lease (OwnerID, LeaseUntil còn hạn) mới được chạy job
+ * - FencingToken tăng mỗi lần lease được cấp: node cũ mất lease không thể commit ghi đè node mới
+ * - Node giữ lease gia hạn LeaseUntil định kỳ (heartbeat) trong lúc job còn chạy
+ */
+@Entity
+@Table(name = "SchedulerLease")
+@Getter
+@Setter
+public class SchedulerLease {
+
+    @Id
+    @Column(name = "LeaseName", length = 100)
+    private String name;
+
+    @Column(name = "OwnerID", length = 150)
+    private String ownerId;
+
+    @Column(name = "FencingToken", nullable = false)
+    private Long fencingToken = 0L;
+
+    @Column(name = "LeaseUntil", nullable = false)
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "AcquiredAt")
+    private LocalDateTime acquiredAt;
+
+    @Column(name = "HeartbeatAt")
+    private LocalDateTime heartbeatAt;
+}
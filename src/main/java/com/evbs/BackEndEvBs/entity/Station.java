@@ -6,12 +6,16 @@ import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Pattern;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Table(name = "Station")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 public class Station {
@@ -91,8 +95,15 @@ public class Station {
         return batteryType != null ? batteryType.getId() : null;
     }
 
+    // Số pin hiện có lấy từ bộ đếm trong bộ nhớ (service gán trước khi trả về), tránh load collection batteries
+    @Transient
+    private Integer currentBatteryCount;
+
     // Phương thức tính số pin hiện có trong trạm
     public int getCurrentBatteryCount() {
+        if (currentBatteryCount != null) {
+            return currentBatteryCount;
+        }
         return (batteries != null) ? batteries.size() : 0;
     }
 
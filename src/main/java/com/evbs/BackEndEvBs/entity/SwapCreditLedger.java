@@ -0,0 +1,57 @@
+package com.evbs.BackEndEvBs.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sổ cái lượt swap: mỗi lần trừ / hoàn lượt của DriverSubscription ghi thêm 1 dòng, không sửa, không xóa
+ * BalanceAfter là RemainingSwaps ngay sau câu UPDATE (đọc trong cùng transaction, dòng subscription đang bị khóa)
+ */
+@Entity
+@Table(name = "SwapCreditLedger", indexes = {
+        @Index(name = "IX_SwapCreditLedger_Subscription", columnList = "SubscriptionID"),
+        @Index(name = "IX_SwapCreditLedger_Reference", columnList = "ReferenceID, Reason")
+})
+@Getter
+@Setter
+public class SwapCreditLedger {
+
+    public enum Reason {
+        BOOKING,                // Driver đặt lịch
+        BOOKING_CANCEL_DRIVER,  // Driver hủy booking, hoàn lượt
+        BOOKING_CANCEL_STAFF,   // Staff/Admin hủy booking, hoàn lượt
+        QUICK_SWAP              // Driver tự đổi pin không qua booking
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "swap_credit_ledger_seq")
+    @SequenceGenerator(name = "swap_credit_ledger_seq", sequenceName = "SwapCreditLedger_SEQ", allocationSize = 50)
+    @Column(name = "LedgerID")
+    private Long id;
+
+    @Column(name = "SubscriptionID", nullable = false, updatable = false)
+    private Long subscriptionId;
+
+    @Column(name = "DriverID", nullable = false, updatable = false)
+    private Long driverId;
+
+    @Column(name = "Delta", nullable = false, updatable = false)
+    private Integer delta;
+
+    @Column(name = "BalanceAfter", nullable = false, updatable = false)
+    private Integer balanceAfter;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "Reason", length = 50, nullable = false, updatable = false)
+    private Reason reason;
+
+    // BookingID hoặc TransactionID tùy Reason
+    @Column(name = "ReferenceID", updatable = false)
+    private Long referenceId;
+
+    @Column(name = "CreatedAt", nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
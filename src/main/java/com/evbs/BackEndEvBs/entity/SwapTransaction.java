@@ -11,13 +11,18 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "SwapTransaction")
+@Table(name = "SwapTransaction", indexes = {
+        // Đếm số lần đổi pin theo xe (danh sách xe) chỉ quét index
+        @Index(name = "IX_SwapTransaction_Vehicle", columnList = "VehicleID")
+})
 @Getter
 @Setter
 public class SwapTransaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence cấp ID theo lô 50 (pooled): INSERT không cần chạy ngay khi save, Hibernate gom batch lúc flush
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "swap_transaction_seq")
+    @SequenceGenerator(name = "swap_transaction_seq", sequenceName = "SwapTransaction_SEQ", allocationSize = 50)
     @Column(name = "TransactionID")
     private Long id;
 
@@ -17,11 +17,19 @@ import java.util.Collection;
 import java.util.List;
 
 @Entity
-@Table(name = "Users") // map với bảng Users trong DB
+@Table(name = "Users", // map với bảng Users trong DB
+        uniqueConstraints = {
+                @UniqueConstraint(name = User.UQ_EMAIL, columnNames = "Email"),
+                @UniqueConstraint(name = User.UQ_PHONE_NUMBER, columnNames = "PhoneNumber")
+        })
 @Getter
 @Setter
 public class User implements UserDetails {
 
+    // Đặt tên cố định để nhận ra cột bị trùng khi lưu thất bại (xem UniquenessGuard.violatedField)
+    public static final String UQ_EMAIL = "UQ_Users_Email";
+    public static final String UQ_PHONE_NUMBER = "UQ_Users_PhoneNumber";
+
     public enum Role {
         DRIVER, STAFF, ADMIN
     }
@@ -52,14 +60,14 @@ public class User implements UserDetails {
 
     @Email(message = "Email không hợp lệ!")
     @NotEmpty(message = "Email không được để trống!")
-    @Column(name = "Email", nullable = false, unique = true, length = 150)
+    @Column(name = "Email", nullable = false, length = 150)
     private String email;
 
     @Pattern(
             regexp = "^(03|05|07|08|09)[0-9]{8}$",
             message = "Số điện thoại không hợp lệ!"
     )
-    @Column(name = "PhoneNumber", unique = true, length = 30) // nên unique để login
+    @Column(name = "PhoneNumber", length = 30) // unique (UQ_Users_PhoneNumber) để login
     private String phoneNumber;
 
     @NotEmpty(message = "Mật khẩu không được để trống!")
@@ -11,7 +11,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "Vehicle")
+@Table(name = "Vehicle", indexes = {
+        @Index(name = "IX_Vehicle_VIN", columnList = "VIN"),
+        @Index(name = "IX_Vehicle_PlateNumber", columnList = "PlateNumber")
+})
 @Getter
 @Setter
 public class Vehicle {
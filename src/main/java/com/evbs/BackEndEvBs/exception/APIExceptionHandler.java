@@ -2,6 +2,7 @@ package com.evbs.BackEndEvBs.exception;
 
 import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
 import com.evbs.BackEndEvBs.exception.exceptions.NotFoundException;
+import com.evbs.BackEndEvBs.exception.exceptions.ServiceUnavailableException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.InternalAuthenticationServiceException;
@@ -55,6 +56,15 @@ public class APIExceptionHandler {
         return ResponseEntity.status(404).body(exception.getMessage());
     }
 
+    /**
+     * Xử lý ServiceUnavailableException - 503 Service Unavailable
+     * Khi hệ thống từ chối nhận thêm (ví dụ: đã đủ số kết nối realtime), client thử lại sau
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<String> handleServiceUnavailableException(ServiceUnavailableException exception) {
+        return ResponseEntity.status(503).header("Retry-After", "30").body(exception.getMessage());
+    }
+
     /**
      * Xử lý IllegalStateException - 400 Bad Request
      * Khi business logic không hợp lệ (ví dụ: xóa xe đang có booking active)
@@ -0,0 +1,30 @@
+package com.evbs.BackEndEvBs.mapper;
+
+import com.evbs.BackEndEvBs.entity.User;
+import com.evbs.BackEndEvBs.model.request.CreateUserRequest;
+import com.evbs.BackEndEvBs.model.request.RegisterRequest;
+import com.evbs.BackEndEvBs.model.response.UserResponse;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+
+import java.util.List;
+
+/**
+ * Mapping User <-> DTO, MapStruct sinh UserMapperImpl lúc compile (getter/setter gọi trực tiếp, không reflection)
+ * Field chỉ có ở entity (passwordHash, quan hệ...) không được map, service tự set
+ */
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface UserMapper {
+
+    // Token chỉ set khi login
+    @Mapping(target = "token", ignore = true)
+    UserResponse toResponse(User user);
+
+    List<UserResponse> toResponses(List<User> users);
+
+    // Role / Status giữ mặc định của entity (DRIVER / ACTIVE)
+    User toEntity(RegisterRequest request);
+
+    User toEntity(CreateUserRequest request);
+}
@@ -0,0 +1,40 @@
+package com.evbs.BackEndEvBs.model.response;
+
+import com.evbs.BackEndEvBs.entity.Battery;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * DTO danh sách pin - select trực tiếp các cột cần hiển thị bằng JPQL constructor expression
+ * Giữ nguyên tên field JSON như entity Battery để frontend không phải đổi
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatteryListResponse {
+    private Long id;
+    private String model;
+    private BigDecimal capacity;
+    private BigDecimal stateOfHealth;
+    private BigDecimal chargeLevel;
+    private LocalDateTime lastChargedTime;
+    private Battery.Status status;
+    private LocalDate manufactureDate;
+    private Integer usageCount;
+    private LocalDate lastMaintenanceDate;
+    private LocalDateTime createdAt;
+    private LocalDateTime reservationExpiry;
+
+    @JsonProperty("currentStation")
+    private Long currentStationId;
+
+    private String stationName;
+    private Long batteryTypeId;
+    private String batteryTypeName;
+}
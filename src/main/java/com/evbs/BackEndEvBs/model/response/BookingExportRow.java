@@ -0,0 +1,29 @@
+package com.evbs.BackEndEvBs.model.response;
+
+import com.evbs.BackEndEvBs.entity.Booking;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng xuất báo cáo booking (CSV/NDJSON)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingExportRow {
+    private Long id;
+    private LocalDateTime bookingTime;
+    private LocalDateTime createdAt;
+    private Booking.Status status;
+    private Long stationId;
+    private String stationName;
+    private Long driverId;
+    private String driverName;
+    private String plateNumber;
+    private String confirmationCode;
+    private String confirmedByName;
+    private String cancellationReason;
+}
@@ -0,0 +1,47 @@
+package com.evbs.BackEndEvBs.model.response;
+
+import com.evbs.BackEndEvBs.entity.Booking;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO lịch sử booking của driver - chỉ select các cột hiển thị, không load entity liên quan
+ * Giữ nguyên tên field JSON như entity Booking
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingHistoryResponse {
+    private Long id;
+    private LocalDateTime bookingTime;
+    private LocalDateTime createdAt;
+    private String confirmationCode;
+    private Booking.Status status;
+    private LocalDateTime reservationExpiry;
+    private String cancellationReason;
+
+    private Long driverId;
+    private String driverName;
+    private String driverPhone;
+    private String driverEmail;
+    private Long confirmedById;
+    private Long reservedBatteryId;
+    private Long swapTransactionId;
+    private Long swapOutBatteryId;
+    private Long swapInBatteryId;
+    private String swapOutBatteryModel;
+    private String swapInBatteryModel;
+
+    private Long vehicleId;
+    private String vehiclePlateNumber;
+    private String vehicleModel;
+    private String vehicleVin;
+
+    private Long stationId;
+    private String stationName;
+    private String stationLocation;
+    private String stationContact;
+}
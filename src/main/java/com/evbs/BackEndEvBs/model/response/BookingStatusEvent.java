@@ -0,0 +1,22 @@
+package com.evbs.BackEndEvBs.model.response;
+
+import com.evbs.BackEndEvBs.entity.Booking;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sự kiện SSE khi booking của tài xế đổi trạng thái (confirm, hủy, hết hạn, hoàn thành)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingStatusEvent {
+    private Long bookingId;
+    private Long stationId;
+    private Booking.Status previousStatus;
+    private Booking.Status status;
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,23 @@
+package com.evbs.BackEndEvBs.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả phân trang theo keyset (cursor)
+ * Client gửi lại nextCursor ở request tiếp theo để lấy trang kế tiếp
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResponse<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+
+    // ID của phần tử cuối trang, null khi đã hết dữ liệu
+    private Long nextCursor;
+}
@@ -0,0 +1,30 @@
+package com.evbs.BackEndEvBs.model.response;
+
+import com.evbs.BackEndEvBs.entity.Payment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng xuất báo cáo thanh toán (CSV/NDJSON)
+ * paymentType: SWAP / SUBSCRIPTION / VEHICLE_DEPOSIT
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentExportRow {
+    private Long id;
+    private LocalDateTime paymentDate;
+    private BigDecimal amount;
+    private String paymentMethod;
+    private Payment.Status status;
+    private String paymentType;
+    private String customerName;
+    private Long transactionId;
+    private Long subscriptionId;
+    private Long vehicleId;
+    private Long stationId;
+}
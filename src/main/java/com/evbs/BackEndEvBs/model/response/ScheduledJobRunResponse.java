@@ -0,0 +1,23 @@
+package com.evbs.BackEndEvBs.model.response;
+
+import com.evbs.BackEndEvBs.service.ScheduledJobRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một lần chạy của scheduled job (giữ trong bộ nhớ, mỗi job N lần gần nhất)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledJobRunResponse {
+    private LocalDateTime startedAt;
+    private Long durationMs;
+    private int itemsProcessed;
+    private ScheduledJobRegistry.Outcome outcome;
+    private String error;
+    private String thread;
+}
@@ -0,0 +1,30 @@
+package com.evbs.BackEndEvBs.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Trạng thái một scheduled job trên node hiện tại
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledJobStatusResponse {
+    private String jobName;
+    private String nodeId;
+    private long maxRuntimeMs;
+
+    // null nếu job không chạy
+    private LocalDateTime runningSince;
+
+    private long totalRuns;
+    private long failedRuns;
+    private long skippedRuns;
+
+    // Mới nhất trước
+    private List<ScheduledJobRunResponse> recentRuns;
+}
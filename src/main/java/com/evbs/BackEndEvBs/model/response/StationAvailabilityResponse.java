@@ -0,0 +1,26 @@
+package com.evbs.BackEndEvBs.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Số pin theo trạng thái tại một trạm - đọc từ bộ đếm trong bộ nhớ, không query DB
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StationAvailabilityResponse {
+    private Long stationId;
+    private Integer capacity;
+    private int totalBatteries;
+
+    // Pin AVAILABLE, chargeLevel >= 95%, stateOfHealth >= 70%
+    private int availableBatteries;
+    private int chargingBatteries;
+    private int pendingBatteries;
+    private int maintenanceBatteries;
+
+    // capacity - totalBatteries (null nếu trạm chưa khai báo capacity)
+    private Integer freeSlots;
+}
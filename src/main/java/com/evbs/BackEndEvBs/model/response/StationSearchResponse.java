@@ -0,0 +1,30 @@
+package com.evbs.BackEndEvBs.model.response;
+
+import com.evbs.BackEndEvBs.entity.Station;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả tìm trạm gần nhất - kèm khoảng cách và số pin sẵn sàng đổi tại thời điểm truy vấn
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StationSearchResponse {
+    private Long id;
+    private String name;
+    private String location;
+    private String city;
+    private String district;
+    private String contactInfo;
+    private Double latitude;
+    private Double longitude;
+    private Integer capacity;
+    private Long batteryTypeId;
+    private Station.Status status;
+    private Double distanceKm;
+
+    // Pin AVAILABLE, chargeLevel >= 95%, stateOfHealth >= 70%
+    private Integer availableBatteries;
+}
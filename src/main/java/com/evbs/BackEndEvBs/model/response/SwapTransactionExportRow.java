@@ -0,0 +1,34 @@
+package com.evbs.BackEndEvBs.model.response;
+
+import com.evbs.BackEndEvBs.entity.SwapTransaction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng xuất báo cáo giao dịch đổi pin (CSV/NDJSON)
+ * Được tạo trực tiếp bằng constructor expression trong JPQL, không load entity
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SwapTransactionExportRow {
+    private Long id;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private SwapTransaction.Status status;
+    private Long stationId;
+    private String stationName;
+    private Long driverId;
+    private String driverName;
+    private String plateNumber;
+    private String staffName;
+    private String swapOutBatteryModel;
+    private BigDecimal swapOutBatteryChargeLevel;
+    private String swapInBatteryModel;
+    private BigDecimal swapInBatteryChargeLevel;
+    private BigDecimal cost;
+}
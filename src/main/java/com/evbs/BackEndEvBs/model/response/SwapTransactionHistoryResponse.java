@@ -0,0 +1,43 @@
+package com.evbs.BackEndEvBs.model.response;
+
+import com.evbs.BackEndEvBs.entity.SwapTransaction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO lịch sử giao dịch đổi pin - chỉ select các cột hiển thị, không load entity liên quan
+ * Giữ nguyên tên field JSON như entity SwapTransaction
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SwapTransactionHistoryResponse {
+    private Long id;
+    private Long driverId;
+    private Long vehicleId;
+    private Long stationId;
+    private String stationName;
+    private Long staffId;
+
+    private Long swapOutBatteryId;
+    private String swapOutBatteryTypeName;
+    private String swapOutBatteryModel;
+    private BigDecimal swapOutBatteryChargeLevel;
+    private BigDecimal swapOutBatteryHealth;
+
+    private Long swapInBatteryId;
+    private String swapInBatteryTypeName;
+    private String swapInBatteryModel;
+    private BigDecimal swapInBatteryChargeLevel;
+    private BigDecimal swapInBatteryHealth;
+
+    private Long bookingId;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private BigDecimal cost;
+    private SwapTransaction.Status status;
+}
@@ -2,23 +2,42 @@ package com.evbs.BackEndEvBs.repository;
 
 import com.evbs.BackEndEvBs.entity.Battery;
 import com.evbs.BackEndEvBs.entity.Booking;
+import com.evbs.BackEndEvBs.model.response.BatteryListResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BatteryRepository extends JpaRepository<Battery, Long> {
 
-    // Tìm TẤT CẢ batteries với JOIN FETCH để tránh N+1 query
-    @Query("SELECT DISTINCT b FROM Battery b " +
-           "LEFT JOIN FETCH b.currentStation " +
-           "LEFT JOIN FETCH b.batteryType")
-    List<Battery> findAllWithDetails();
+    // Danh sách pin dạng DTO: chỉ select cột hiển thị, không load entity Station/BatteryType
+    @Query("SELECT new com.evbs.BackEndEvBs.model.response.BatteryListResponse(" +
+           "b.id, b.model, b.capacity, b.stateOfHealth, b.chargeLevel, b.lastChargedTime, b.status, " +
+           "b.manufactureDate, b.usageCount, b.lastMaintenanceDate, b.createdAt, b.reservationExpiry, " +
+           "cs.id, cs.name, bt.id, bt.name) " +
+           "FROM Battery b " +
+           "LEFT JOIN b.currentStation cs " +
+           "LEFT JOIN b.batteryType bt " +
+           "ORDER BY b.id")
+    List<BatteryListResponse> findAllListView();
+
+    // Danh sách pin của 1 trạm dạng DTO
+    @Query("SELECT new com.evbs.BackEndEvBs.model.response.BatteryListResponse(" +
+           "b.id, b.model, b.capacity, b.stateOfHealth, b.chargeLevel, b.lastChargedTime, b.status, " +
+           "b.manufactureDate, b.usageCount, b.lastMaintenanceDate, b.createdAt, b.reservationExpiry, " +
+           "cs.id, cs.name, bt.id, bt.name) " +
+           "FROM Battery b " +
+           "JOIN b.currentStation cs " +
+           "LEFT JOIN b.batteryType bt " +
+           "WHERE cs.id = :stationId " +
+           "ORDER BY b.id")
+    List<BatteryListResponse> findListViewByStationId(@Param("stationId") Long stationId);
 
     // Tìm batteries theo status với JOIN FETCH để tránh N+1 query
     @Query("SELECT DISTINCT b FROM Battery b " +
@@ -30,6 +49,27 @@ public interface BatteryRepository extends JpaRepository<Battery, Long> {
     // Tìm batteries theo status
     List<Battery> findByStatus(Battery.Status status);
 
+    // Pin thuộc 1 shard trạm của scheduled job: stationId % shardCount = shardIndex, pin trong kho (không trạm) thuộc shard 0
+    // shardCount = 1 là toàn bộ pin
+    @Query("SELECT b FROM Battery b LEFT JOIN b.currentStation s " +
+            "WHERE (s IS NULL AND :shardIndex = 0) OR MOD(s.id, :shardCount) = :shardIndex")
+    List<Battery> findAllInStationShard(@Param("shardIndex") int shardIndex, @Param("shardCount") int shardCount);
+
+    @Query("SELECT b FROM Battery b LEFT JOIN b.currentStation s " +
+            "WHERE b.status = :status " +
+            "AND ((s IS NULL AND :shardIndex = 0) OR MOD(s.id, :shardCount) = :shardIndex)")
+    List<Battery> findByStatusInStationShard(@Param("status") Battery.Status status,
+                                             @Param("shardIndex") int shardIndex, @Param("shardCount") int shardCount);
+
+    // Pin giữ chỗ (PENDING) đã quá hạn reservation, theo shard trạm
+    @Query("SELECT b FROM Battery b LEFT JOIN b.currentStation s " +
+            "WHERE b.status = :status AND b.reservationExpiry < :now " +
+            "AND ((s IS NULL AND :shardIndex = 0) OR MOD(s.id, :shardCount) = :shardIndex)")
+    List<Battery> findReservationExpiredInStationShard(@Param("status") Battery.Status status,
+                                                       @Param("now") LocalDateTime now,
+                                                       @Param("shardIndex") int shardIndex,
+                                                       @Param("shardCount") int shardCount);
+
     // Tìm batteries theo station
     List<Battery> findByCurrentStation_Id(Long stationId);
 
@@ -55,6 +95,17 @@ public interface BatteryRepository extends JpaRepository<Battery, Long> {
             @Param("minChargeLevel") BigDecimal minChargeLevel
     );
 
+    // Đếm pin tại các trạm theo status - trả về [stationId, status, số pin đủ chuẩn đổi ngay, tổng số pin]
+    @Query("SELECT b.currentStation.id, b.status, " +
+            "SUM(CASE WHEN b.chargeLevel >= :minChargeLevel AND b.stateOfHealth >= :minHealth THEN 1 ELSE 0 END), " +
+            "COUNT(b) " +
+            "FROM Battery b WHERE b.currentStation IS NOT NULL " +
+            "GROUP BY b.currentStation.id, b.status")
+    List<Object[]> countAtStationsGroupByStatus(
+            @Param("minChargeLevel") BigDecimal minChargeLevel,
+            @Param("minHealth") BigDecimal minHealth
+    );
+
     // Dashboard queries - Đếm battery theo status
     Long countByStatus(Battery.Status status);
 
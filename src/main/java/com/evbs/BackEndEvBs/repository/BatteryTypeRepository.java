@@ -1,7 +1,10 @@
 package com.evbs.BackEndEvBs.repository;
 
 import com.evbs.BackEndEvBs.entity.BatteryType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,6 +12,10 @@ import java.util.List;
 @Repository
 public interface BatteryTypeRepository extends JpaRepository<BatteryType, Long> {
 
+    // Danh sách loại pin - cache kết quả query, tự invalidate khi bảng BatteryType thay đổi
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<BatteryType> findAll();
+
     // Kiểm tra trùng tên
     boolean existsByName(String name);
 }
\ No newline at end of file
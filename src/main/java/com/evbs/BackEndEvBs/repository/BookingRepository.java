@@ -4,65 +4,128 @@ import com.evbs.BackEndEvBs.entity.Booking;
 import com.evbs.BackEndEvBs.entity.Station;
 import com.evbs.BackEndEvBs.entity.User;
 import com.evbs.BackEndEvBs.entity.Vehicle;
+import com.evbs.BackEndEvBs.model.response.BookingExportRow;
+import com.evbs.BackEndEvBs.model.response.BookingHistoryResponse;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
-    // Tìm bookings theo driver với JOIN FETCH để tránh N+1 query
-    @Query("SELECT DISTINCT b FROM Booking b " +
-           "LEFT JOIN FETCH b.driver " +
-           "LEFT JOIN FETCH b.vehicle " +
-           "LEFT JOIN FETCH b.station " +
-           "LEFT JOIN FETCH b.reservedBattery " +
-           "LEFT JOIN FETCH b.confirmedBy " +
-           "LEFT JOIN FETCH b.swapTransaction st " +
-           "LEFT JOIN FETCH st.swapOutBattery " +
-           "LEFT JOIN FETCH st.swapInBattery " +
-           "WHERE b.driver = :driver")
-    List<Booking> findByDriverWithDetails(@Param("driver") User driver);
+    // Đếm booking chưa hủy của driver có giờ booking trong [fromTime, toTime) - dùng index (DriverID, BookingTime)
+    @Query("SELECT COUNT(b) FROM Booking b " +
+           "WHERE b.driver.id = :driverId " +
+           "AND b.bookingTime >= :fromTime AND b.bookingTime < :toTime " +
+           "AND b.status <> :excludedStatus")
+    long countByDriverIdAndBookingTimeRange(
+            @Param("driverId") Long driverId,
+            @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime,
+            @Param("excludedStatus") Booking.Status excludedStatus
+    );
+
+    // Lịch sử booking của driver dạng DTO: chỉ select cột hiển thị, không load entity liên quan
+    @Query("SELECT new com.evbs.BackEndEvBs.model.response.BookingHistoryResponse(" +
+           "b.id, b.bookingTime, b.createdAt, b.confirmationCode, b.status, b.reservationExpiry, b.cancellationReason, " +
+           "d.id, d.fullName, d.phoneNumber, d.email, b.confirmedBy.id, b.reservedBattery.id, " +
+           "st.id, st.swapOutBattery.id, st.swapInBattery.id, st.swapOutBatteryModel, st.swapInBatteryModel, " +
+           "v.id, v.plateNumber, v.model, v.vin, " +
+           "s.id, s.name, s.location, s.contactInfo) " +
+           "FROM Booking b " +
+           "JOIN b.driver d " +
+           "JOIN b.vehicle v " +
+           "JOIN b.station s " +
+           "LEFT JOIN b.swapTransaction st " +
+           "WHERE d.id = :driverId " +
+           "ORDER BY b.bookingTime DESC")
+    List<BookingHistoryResponse> findHistoryByDriverId(@Param("driverId") Long driverId);
 
-    // Tìm TẤT CẢ bookings với JOIN FETCH để tránh N+1 query
-    @Query("SELECT DISTINCT b FROM Booking b " +
-           "LEFT JOIN FETCH b.driver " +
-           "LEFT JOIN FETCH b.vehicle " +
-           "LEFT JOIN FETCH b.station " +
-           "LEFT JOIN FETCH b.reservedBattery " +
-           "LEFT JOIN FETCH b.confirmedBy " +
-           "LEFT JOIN FETCH b.swapTransaction st " +
-           "LEFT JOIN FETCH st.swapOutBattery " +
-           "LEFT JOIN FETCH st.swapInBattery")
+    // Tìm TẤT CẢ bookings: entity graph cho quan hệ hiển thị, còn lại batch fetch
+    @EntityGraph(attributePaths = {"driver", "vehicle", "station", "swapTransaction"})
+    @Query("SELECT b FROM Booking b")
     List<Booking> findAllWithDetails();
 
     // Tim bookings cua nhieu tram (cho Staff xem bookings cua cac tram minh quan ly)
-    @Query("SELECT DISTINCT b FROM Booking b " +
-           "LEFT JOIN FETCH b.driver " +
-           "LEFT JOIN FETCH b.vehicle " +
-           "LEFT JOIN FETCH b.station " +
-           "LEFT JOIN FETCH b.reservedBattery " +
-           "LEFT JOIN FETCH b.confirmedBy " +
-           "LEFT JOIN FETCH b.swapTransaction st " +
-           "LEFT JOIN FETCH st.swapOutBattery " +
-           "LEFT JOIN FETCH st.swapInBattery " +
-           "WHERE b.station IN :stations")
-    List<Booking> findByStationInWithDetails(@Param("stations") List<Station> stations);
+    @EntityGraph(attributePaths = {"driver", "vehicle", "station", "swapTransaction"})
+    @Query("SELECT b FROM Booking b " +
+           "WHERE b.station.id IN :stationIds")
+    List<Booking> findByStationIdInWithDetails(@Param("stationIds") Collection<Long> stationIds);
+
+    // Phân trang keyset theo ID giảm dần + filter (cursor = ID cuối của trang trước)
+    // Chỉ join quan hệ hiển thị trên danh sách, pin/người xác nhận load theo lô bằng IN (default_batch_fetch_size)
+    @EntityGraph(attributePaths = {"driver", "vehicle", "station", "swapTransaction"})
+    @Query("SELECT b FROM Booking b " +
+           "WHERE (:cursor IS NULL OR b.id < :cursor) " +
+           "AND (:status IS NULL OR b.status = :status) " +
+           "AND (:stationId IS NULL OR b.station.id = :stationId) " +
+           "AND (:fromTime IS NULL OR b.bookingTime >= :fromTime) " +
+           "AND (:toTime IS NULL OR b.bookingTime < :toTime) " +
+           "ORDER BY b.id DESC")
+    Slice<Booking> findPageWithDetails(
+            @Param("cursor") Long cursor,
+            @Param("status") Booking.Status status,
+            @Param("stationId") Long stationId,
+            @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime,
+            Pageable pageable
+    );
+
+    // Phân trang keyset giới hạn trong các trạm của Staff
+    @EntityGraph(attributePaths = {"driver", "vehicle", "station", "swapTransaction"})
+    @Query("SELECT b FROM Booking b " +
+           "WHERE b.station.id IN :stationIds " +
+           "AND (:cursor IS NULL OR b.id < :cursor) " +
+           "AND (:status IS NULL OR b.status = :status) " +
+           "AND (:fromTime IS NULL OR b.bookingTime >= :fromTime) " +
+           "AND (:toTime IS NULL OR b.bookingTime < :toTime) " +
+           "ORDER BY b.id DESC")
+    Slice<Booking> findPageByStationIdsWithDetails(
+            @Param("stationIds") Collection<Long> stationIds,
+            @Param("cursor") Long cursor,
+            @Param("status") Booking.Status status,
+            @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime,
+            Pageable pageable
+    );
+
+    // Xuất báo cáo: stream từng dòng DTO (không load entity), fetch size lớn để giảm round-trip
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.evbs.BackEndEvBs.model.response.BookingExportRow(" +
+           "b.id, b.bookingTime, b.createdAt, b.status, s.id, s.name, d.id, d.fullName, v.plateNumber, " +
+           "b.confirmationCode, cb.fullName, b.cancellationReason) " +
+           "FROM Booking b " +
+           "JOIN b.station s " +
+           "JOIN b.driver d " +
+           "JOIN b.vehicle v " +
+           "LEFT JOIN b.confirmedBy cb " +
+           "WHERE (:stationId IS NULL OR s.id = :stationId) " +
+           "AND (:fromTime IS NULL OR b.bookingTime >= :fromTime) " +
+           "AND (:toTime IS NULL OR b.bookingTime < :toTime) " +
+           "ORDER BY b.id")
+    Stream<BookingExportRow> streamForExport(
+            @Param("stationId") Long stationId,
+            @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime
+    );
 
-    // Tìm booking của driver cụ thể với JOIN FETCH để tránh N+1 query
-    @Query("SELECT DISTINCT b FROM Booking b " +
-           "LEFT JOIN FETCH b.driver " +
-           "LEFT JOIN FETCH b.vehicle " +
-           "LEFT JOIN FETCH b.station " +
-           "LEFT JOIN FETCH b.reservedBattery " +
-           "LEFT JOIN FETCH b.confirmedBy " +
-           "LEFT JOIN FETCH b.swapTransaction st " +
-           "LEFT JOIN FETCH st.swapOutBattery " +
-           "LEFT JOIN FETCH st.swapInBattery " +
+    // Tìm booking của driver cụ thể (trang chi tiết: lấy đủ quan hệ trong 1 query vì chỉ 1 dòng)
+    @EntityGraph(attributePaths = {"driver", "vehicle", "station", "reservedBattery", "confirmedBy",
+            "swapTransaction.swapOutBattery", "swapTransaction.swapInBattery"})
+    @Query("SELECT b FROM Booking b " +
            "WHERE b.id = :id AND b.driver = :driver")
     Optional<Booking> findByIdAndDriverWithDetails(@Param("id") Long id, @Param("driver") User driver);
 
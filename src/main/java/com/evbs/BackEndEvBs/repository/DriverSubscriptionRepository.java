@@ -2,13 +2,18 @@ package com.evbs.BackEndEvBs.repository;
 
 import com.evbs.BackEndEvBs.entity.DriverSubscription;
 import com.evbs.BackEndEvBs.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,7 +26,26 @@ public interface DriverSubscriptionRepository extends JpaRepository<DriverSubscr
     @EntityGraph(attributePaths = {"driver", "servicePackage"})
     List<DriverSubscription> findByDriver_Id(Long driverId);
 
+    // Phân trang keyset theo ID giảm dần + filter (cursor = ID cuối của trang trước)
+    @EntityGraph(attributePaths = {"driver", "servicePackage"})
+    @Query("SELECT ds FROM DriverSubscription ds " +
+           "WHERE (:cursor IS NULL OR ds.id < :cursor) " +
+           "AND (:status IS NULL OR ds.status = :status) " +
+           "AND (:packageId IS NULL OR ds.servicePackage.id = :packageId) " +
+           "AND (:fromDate IS NULL OR ds.startDate >= :fromDate) " +
+           "AND (:toDate IS NULL OR ds.startDate < :toDate) " +
+           "ORDER BY ds.id DESC")
+    Slice<DriverSubscription> findPage(
+            @Param("cursor") Long cursor,
+            @Param("status") DriverSubscription.Status status,
+            @Param("packageId") Long packageId,
+            @Param("fromDate") LocalDate fromDate,
+            @Param("toDate") LocalDate toDate,
+            Pageable pageable
+    );
+
     // Tìm subscription ACTIVE của driver (có remainingSwaps > 0 và chưa hết hạn)
+    // Vẫn lọc theo ngày: SubscriptionLifecycleScheduler chỉ chuyển EXPIRED mỗi giờ (và có thể chạy lỗi)
     // Lấy subscription gần hết hạn nhất (sử dụng trước subscription còn lâu)
     // Dùng findFirst để đảm bảo chỉ lấy 1 kết quả dù có nhiều subscriptions
     @Query("SELECT ds FROM DriverSubscription ds WHERE ds.driver = :driver " +
@@ -39,4 +63,110 @@ public interface DriverSubscriptionRepository extends JpaRepository<DriverSubscr
         List<DriverSubscription> subscriptions = findActiveSubscriptionsByDriver(driver, currentDate);
         return subscriptions.isEmpty() ? Optional.empty() : Optional.of(subscriptions.get(0));
     }
-}
\ No newline at end of file
+
+    // ===== Lượt swap (SwapCreditService): chỉ đọc / ghi ID và số lượt, không load entity =====
+
+    // Cùng điều kiện với findActiveSubscriptionsByDriver, truyền PageRequest.of(0, 1) để lấy gói đầu tiên
+    // Chỉ đọc index IX_DriverSubscription_Driver_Status (có EndDate), không chạm bảng
+    @Query("SELECT ds.id FROM DriverSubscription ds WHERE ds.driver.id = :driverId " +
+           "AND ds.status = 'ACTIVE' " +
+           "AND ds.remainingSwaps > 0 " +
+           "AND ds.endDate >= :currentDate " +
+           "ORDER BY ds.endDate ASC")
+    List<Long> findActiveSubscriptionIds(
+            @Param("driverId") Long driverId,
+            @Param("currentDate") LocalDate currentDate,
+            Pageable pageable
+    );
+
+    // Gói mới nhất (theo ID) ở một trong các trạng thái cho trước
+    @Query("SELECT ds.id FROM DriverSubscription ds WHERE ds.driver.id = :driverId " +
+           "AND ds.status IN :statuses " +
+           "ORDER BY ds.id DESC")
+    List<Long> findLatestSubscriptionIds(
+            @Param("driverId") Long driverId,
+            @Param("statuses") Collection<DriverSubscription.Status> statuses,
+            Pageable pageable
+    );
+
+    @Query("SELECT ds.remainingSwaps FROM DriverSubscription ds WHERE ds.id = :id")
+    Integer findRemainingSwaps(@Param("id") Long id);
+
+    /**
+     * Trừ 1 lượt nếu gói còn ACTIVE, còn hạn và còn lượt. Trả về 0 nếu không trừ được
+     * Hai request đồng thời cùng trừ gói chỉ còn 1 lượt: request sau chờ khóa dòng rồi không khớp điều kiện
+     * Vẫn kiểm tra EndDate (trên 1 dòng theo khóa chính) cho khoảng thời gian từ nửa đêm đến khi job hết hạn chạy
+     */
+    @Modifying
+    @Query("UPDATE DriverSubscription ds SET ds.remainingSwaps = ds.remainingSwaps - 1 " +
+           "WHERE ds.id = :id AND ds.driver.id = :driverId " +
+           "AND ds.status = 'ACTIVE' " +
+           "AND ds.remainingSwaps > 0 " +
+           "AND ds.endDate >= :currentDate")
+    int debitSwap(
+            @Param("id") Long id,
+            @Param("driverId") Long driverId,
+            @Param("currentDate") LocalDate currentDate
+    );
+
+    /**
+     * Hoàn 1 lượt, chỉ khi gói đang ở một trong các trạng thái cho trước
+     */
+    @Modifying
+    @Query("UPDATE DriverSubscription ds SET ds.remainingSwaps = ds.remainingSwaps + 1 " +
+           "WHERE ds.id = :id AND ds.status IN :statuses")
+    int creditSwap(
+            @Param("id") Long id,
+            @Param("statuses") Collection<DriverSubscription.Status> statuses
+    );
+
+    // Kích hoạt lại gói còn hạn (gói quá EndDate giữ nguyên trạng thái để không lọt vào truy vấn ACTIVE)
+    @Modifying
+    @Query("UPDATE DriverSubscription ds SET ds.status = :newStatus " +
+           "WHERE ds.id = :id AND ds.status = :currentStatus AND ds.endDate >= :currentDate")
+    int updateStatusIfNotPastDue(
+            @Param("id") Long id,
+            @Param("currentStatus") DriverSubscription.Status currentStatus,
+            @Param("newStatus") DriverSubscription.Status newStatus,
+            @Param("currentDate") LocalDate currentDate
+    );
+
+    @Modifying
+    @Query("UPDATE DriverSubscription ds SET ds.status = :newStatus " +
+           "WHERE ds.id = :id AND ds.status = :currentStatus AND ds.remainingSwaps <= 0")
+    int updateStatusIfExhausted(
+            @Param("id") Long id,
+            @Param("currentStatus") DriverSubscription.Status currentStatus,
+            @Param("newStatus") DriverSubscription.Status newStatus
+    );
+
+    // ===== Vòng đời gói (SubscriptionLifecycleScheduler), dùng index IX_DriverSubscription_Status_EndDate =====
+
+    @Modifying
+    @Query("UPDATE DriverSubscription ds SET ds.status = :newStatus " +
+           "WHERE ds.status = :currentStatus AND ds.endDate < :currentDate")
+    int updateStatusOfPastDue(
+            @Param("currentStatus") DriverSubscription.Status currentStatus,
+            @Param("newStatus") DriverSubscription.Status newStatus,
+            @Param("currentDate") LocalDate currentDate
+    );
+
+    // Gói ACTIVE hết hạn trong khoảng [fromDate, toDate] chưa được nhắc, phân trang keyset theo ID tăng dần
+    @EntityGraph(attributePaths = {"driver", "servicePackage"})
+    @Query("SELECT ds FROM DriverSubscription ds " +
+           "WHERE ds.status = 'ACTIVE' " +
+           "AND ds.endDate >= :fromDate AND ds.endDate <= :toDate " +
+           "AND ds.expiryReminderSentAt IS NULL " +
+           "AND (:cursor IS NULL OR ds.id > :cursor) " +
+           "ORDER BY ds.id ASC")
+    Slice<DriverSubscription> findExpiryReminderPage(
+            @Param("fromDate") LocalDate fromDate,
+            @Param("toDate") LocalDate toDate,
+            @Param("cursor") Long cursor,
+            Pageable pageable
+    );
+
+    @Modifying
+    @Query("UPDATE DriverSubscription ds SET ds.expiryReminderSentAt = :sentAt WHERE ds.id IN :ids")
+    int markExpiryReminderSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+}
@@ -1,14 +1,21 @@
 package com.evbs.BackEndEvBs.repository;
 
 import com.evbs.BackEndEvBs.entity.Payment;
+import com.evbs.BackEndEvBs.model.response.PaymentExportRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
@@ -29,4 +36,54 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     // Doanh thu theo khoảng thời gian
     @Query("SELECT SUM(p.amount) FROM Payment p WHERE p.status = 'COMPLETED' AND p.paymentDate BETWEEN :startDate AND :endDate")
     BigDecimal sumRevenueByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
-}
+
+    // Phân trang keyset theo ID giảm dần + filter, fetch sẵn driver để tính customerName
+    @Query("SELECT p FROM Payment p " +
+            "LEFT JOIN FETCH p.transaction t " +
+            "LEFT JOIN FETCH t.driver " +
+            "LEFT JOIN FETCH p.subscription s " +
+            "LEFT JOIN FETCH s.driver " +
+            "LEFT JOIN FETCH s.servicePackage " +
+            "LEFT JOIN FETCH p.vehicle v " +
+            "LEFT JOIN FETCH v.driver " +
+            "WHERE (:cursor IS NULL OR p.id < :cursor) " +
+            "AND (:status IS NULL OR p.status = :status) " +
+            "AND (:fromTime IS NULL OR p.paymentDate >= :fromTime) " +
+            "AND (:toTime IS NULL OR p.paymentDate < :toTime) " +
+            "ORDER BY p.id DESC")
+    Slice<Payment> findPageWithDetails(
+            @Param("cursor") Long cursor,
+            @Param("status") Payment.Status status,
+            @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime,
+            Pageable pageable
+    );
+
+    // Xuất báo cáo: stream từng dòng DTO, station lấy theo giao dịch đổi pin (chỉ payment SWAP có trạm)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.evbs.BackEndEvBs.model.response.PaymentExportRow(" +
+            "p.id, p.paymentDate, p.amount, p.paymentMethod, p.status, " +
+            "CASE WHEN s.id IS NOT NULL THEN 'SUBSCRIPTION' " +
+            "WHEN t.id IS NOT NULL THEN 'SWAP' " +
+            "WHEN v.id IS NOT NULL THEN 'VEHICLE_DEPOSIT' " +
+            "ELSE 'OTHER' END, " +
+            "COALESCE(sd.fullName, td.fullName, vd.fullName), " +
+            "t.id, s.id, v.id, ts.id) " +
+            "FROM Payment p " +
+            "LEFT JOIN p.transaction t " +
+            "LEFT JOIN t.driver td " +
+            "LEFT JOIN t.station ts " +
+            "LEFT JOIN p.subscription s " +
+            "LEFT JOIN s.driver sd " +
+            "LEFT JOIN p.vehicle v " +
+            "LEFT JOIN v.driver vd " +
+            "WHERE (:stationId IS NULL OR ts.id = :stationId) " +
+            "AND (:fromTime IS NULL OR p.paymentDate >= :fromTime) " +
+            "AND (:toTime IS NULL OR p.paymentDate < :toTime) " +
+            "ORDER BY p.id")
+    Stream<PaymentExportRow> streamForExport(
+            @Param("stationId") Long stationId,
+            @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime
+    );
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.evbs.BackEndEvBs.repository;
+
+import com.evbs.BackEndEvBs.entity.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+
+/**
+ * Các thao tác lease đều là 1 câu UPDATE có điều kiện: DB đảm bảo chỉ 1 node thắng
+ * Thời điểm hiện tại lấy từ đồng hồ của DB (local datetime), không lấy từ từng node:
+ * lệch giờ giữa các node không làm lease bị coi là hết hạn sớm / muộn
+ */
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    /**
+     * Nhận lease nếu đã hết hạn (hoặc đã được trả), đồng thời tăng fencing token
+     */
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.ownerId = :owner, l.fencingToken = l.fencingToken + 1, " +
+            "l.leaseUntil = timestampadd(millisecond, :durationMs, local datetime), " +
+            "l.acquiredAt = local datetime, l.heartbeatAt = local datetime " +
+            "WHERE l.name = :name AND l.leaseUntil < local datetime")
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner, @Param("durationMs") long durationMs);
+
+    @Query("SELECT l.fencingToken FROM SchedulerLease l WHERE l.name = :name AND l.ownerId = :owner")
+    Long findFencingToken(@Param("name") String name, @Param("owner") String owner);
+
+    /**
+     * Heartbeat: gia hạn lease, chỉ thành công khi node vẫn giữ đúng token và lease chưa hết hạn
+     */
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.leaseUntil = timestampadd(millisecond, :durationMs, local datetime), " +
+            "l.heartbeatAt = local datetime " +
+            "WHERE l.name = :name AND l.ownerId = :owner AND l.fencingToken = :token AND l.leaseUntil >= local datetime")
+    int renew(@Param("name") String name, @Param("owner") String owner, @Param("token") Long token,
+              @Param("durationMs") long durationMs);
+
+    /**
+     * Fencing: chạy trong transaction của job ngay trước commit
+     * Khóa dòng lease tới khi commit, node khác không thể nhận lease giữa chừng
+     */
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.heartbeatAt = local datetime " +
+            "WHERE l.name = :name AND l.ownerId = :owner AND l.fencingToken = :token AND l.leaseUntil >= local datetime")
+    int fence(@Param("name") String name, @Param("owner") String owner, @Param("token") Long token);
+
+    /**
+     * Trả lease ngay khi job xong để node khác (hoặc lần chạy sau) nhận được
+     */
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.leaseUntil = local datetime " +
+            "WHERE l.name = :name AND l.ownerId = :owner AND l.fencingToken = :token")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("token") Long token);
+}
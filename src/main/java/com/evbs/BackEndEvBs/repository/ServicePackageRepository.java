@@ -1,10 +1,20 @@
 package com.evbs.BackEndEvBs.repository;
 
 import com.evbs.BackEndEvBs.entity.ServicePackage;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ServicePackageRepository extends JpaRepository<ServicePackage, Long> {
+
+    // Danh sách gói dịch vụ (public) - cache kết quả query, tự invalidate khi bảng ServicePackage thay đổi
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<ServicePackage> findAll();
+
     boolean existsByName(String name);
 }
\ No newline at end of file
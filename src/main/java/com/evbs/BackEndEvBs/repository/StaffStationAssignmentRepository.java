@@ -3,6 +3,7 @@ package com.evbs.BackEndEvBs.repository;
 import com.evbs.BackEndEvBs.entity.StaffStationAssignment;
 import com.evbs.BackEndEvBs.entity.Station;
 import com.evbs.BackEndEvBs.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,12 +15,31 @@ import java.util.Optional;
 @Repository
 public interface StaffStationAssignmentRepository extends JpaRepository<StaffStationAssignment, Long> {
 
+    /**
+     * Lấy tất cả assignments kèm staff và station trong 1 query (tránh N+1 khi hiển thị danh sách)
+     */
+    @EntityGraph(attributePaths = {"staff", "station"})
+    @Query("SELECT ssa FROM StaffStationAssignment ssa")
+    List<StaffStationAssignment> findAllWithDetails();
+
     /**
      * Tìm tất cả stations được assign cho 1 staff
      */
     @Query("SELECT ssa.station FROM StaffStationAssignment ssa WHERE ssa.staff = :staff")
     List<Station> findStationsByStaff(@Param("staff") User staff);
 
+    /**
+     * Chỉ lấy ID các stations của 1 staff (không load entity Station)
+     */
+    @Query("SELECT ssa.station.id FROM StaffStationAssignment ssa WHERE ssa.staff = :staff")
+    List<Long> findStationIdsByStaff(@Param("staff") User staff);
+
+    /**
+     * ID các stations của 1 staff theo staffId (nạp bảng phân quyền trong bộ nhớ, không cần load User)
+     */
+    @Query("SELECT ssa.station.id FROM StaffStationAssignment ssa WHERE ssa.staff.id = :staffId")
+    List<Long> findStationIdsByStaffId(@Param("staffId") Long staffId);
+
     /**
      * Tìm tất cả staff được assign cho 1 station
      */
@@ -3,11 +3,15 @@ package com.evbs.BackEndEvBs.repository;
 import com.evbs.BackEndEvBs.entity.Station;
 import com.evbs.BackEndEvBs.entity.SupportTicket;
 import com.evbs.BackEndEvBs.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,4 +32,42 @@ public interface SupportTicketRepository extends JpaRepository<SupportTicket, Lo
     // Tìm tickets theo nhiều stations (cho staff quản lý nhiều trạm)
     @Query("SELECT t FROM SupportTicket t WHERE t.station IN :stations")
     List<SupportTicket> findByStationIn(@Param("stations") List<Station> stations);
+
+    // Phân trang keyset theo ID giảm dần + filter (cursor = ID cuối của trang trước)
+    @Query("SELECT t FROM SupportTicket t " +
+           "LEFT JOIN FETCH t.driver " +
+           "LEFT JOIN FETCH t.station " +
+           "WHERE (:cursor IS NULL OR t.id < :cursor) " +
+           "AND (:status IS NULL OR t.status = :status) " +
+           "AND (:stationId IS NULL OR t.station.id = :stationId) " +
+           "AND (:fromTime IS NULL OR t.createdAt >= :fromTime) " +
+           "AND (:toTime IS NULL OR t.createdAt < :toTime) " +
+           "ORDER BY t.id DESC")
+    Slice<SupportTicket> findPage(
+            @Param("cursor") Long cursor,
+            @Param("status") SupportTicket.Status status,
+            @Param("stationId") Long stationId,
+            @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime,
+            Pageable pageable
+    );
+
+    // Phân trang keyset giới hạn trong các trạm của Staff
+    @Query("SELECT t FROM SupportTicket t " +
+           "LEFT JOIN FETCH t.driver " +
+           "LEFT JOIN FETCH t.station " +
+           "WHERE t.station.id IN :stationIds " +
+           "AND (:cursor IS NULL OR t.id < :cursor) " +
+           "AND (:status IS NULL OR t.status = :status) " +
+           "AND (:fromTime IS NULL OR t.createdAt >= :fromTime) " +
+           "AND (:toTime IS NULL OR t.createdAt < :toTime) " +
+           "ORDER BY t.id DESC")
+    Slice<SupportTicket> findPageByStationIds(
+            @Param("stationIds") Collection<Long> stationIds,
+            @Param("cursor") Long cursor,
+            @Param("status") SupportTicket.Status status,
+            @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime,
+            Pageable pageable
+    );
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.evbs.BackEndEvBs.repository;
+
+import com.evbs.BackEndEvBs.entity.SwapCreditLedger;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SwapCreditLedgerRepository extends JpaRepository<SwapCreditLedger, Long> {
+
+    // Gói đã bị trừ lượt cho đúng thao tác (vd. booking), mới nhất trước
+    @Query("SELECT l.subscriptionId FROM SwapCreditLedger l " +
+            "WHERE l.driverId = :driverId AND l.reason = :reason AND l.referenceId = :referenceId AND l.delta < 0 " +
+            "ORDER BY l.id DESC")
+    List<Long> findDebitedSubscriptionIds(
+            @Param("driverId") Long driverId,
+            @Param("reason") SwapCreditLedger.Reason reason,
+            @Param("referenceId") Long referenceId,
+            Pageable pageable
+    );
+}
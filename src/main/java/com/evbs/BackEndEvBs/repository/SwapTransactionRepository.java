@@ -1,113 +1,112 @@
 package com.evbs.BackEndEvBs.repository;
 
-import com.evbs.BackEndEvBs.entity.Battery;
 import com.evbs.BackEndEvBs.entity.Booking;
 import com.evbs.BackEndEvBs.entity.SwapTransaction;
 import com.evbs.BackEndEvBs.entity.User;
 import com.evbs.BackEndEvBs.entity.Vehicle;
+import com.evbs.BackEndEvBs.model.response.SwapTransactionExportRow;
+import com.evbs.BackEndEvBs.model.response.SwapTransactionHistoryResponse;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SwapTransactionRepository extends JpaRepository<SwapTransaction, Long> {
 
-    // Tìm transactions theo driver với JOIN FETCH để tránh N+1 query
-    @Query("SELECT DISTINCT st FROM SwapTransaction st " +
-           "LEFT JOIN FETCH st.driver " +
-           "LEFT JOIN FETCH st.vehicle " +
-           "LEFT JOIN FETCH st.station " +
-           "LEFT JOIN FETCH st.staff " +
-           "LEFT JOIN FETCH st.swapOutBattery sob " +
-           "LEFT JOIN FETCH sob.batteryType " +
-           "LEFT JOIN FETCH st.swapInBattery sib " +
-           "LEFT JOIN FETCH sib.batteryType " +
-           "LEFT JOIN FETCH st.booking " +
-           "WHERE st.driver = :driver")
-    List<SwapTransaction> findByDriverWithDetails(@Param("driver") User driver);
-
-    // Tìm transaction của driver cụ thể với JOIN FETCH để tránh N+1 query
-    @Query("SELECT DISTINCT st FROM SwapTransaction st " +
-           "LEFT JOIN FETCH st.driver " +
-           "LEFT JOIN FETCH st.vehicle " +
-           "LEFT JOIN FETCH st.station " +
-           "LEFT JOIN FETCH st.staff " +
-           "LEFT JOIN FETCH st.swapOutBattery sob " +
-           "LEFT JOIN FETCH sob.batteryType " +
-           "LEFT JOIN FETCH st.swapInBattery sib " +
-           "LEFT JOIN FETCH sib.batteryType " +
-           "LEFT JOIN FETCH st.booking " +
+    // SELECT dùng chung cho các query lịch sử dạng DTO (ID lấy thẳng từ cột khóa ngoại, không join)
+    String HISTORY_SELECT = "SELECT new com.evbs.BackEndEvBs.model.response.SwapTransactionHistoryResponse(" +
+           "st.id, st.driver.id, st.vehicle.id, s.id, s.name, st.staff.id, " +
+           "sob.id, sobt.name, st.swapOutBatteryModel, st.swapOutBatteryChargeLevel, st.swapOutBatteryHealth, " +
+           "sib.id, sibt.name, st.swapInBatteryModel, st.swapInBatteryChargeLevel, st.swapInBatteryHealth, " +
+           "st.booking.id, st.startTime, st.endTime, st.cost, st.status) " +
+           "FROM SwapTransaction st " +
+           "JOIN st.station s " +
+           "LEFT JOIN st.swapOutBattery sob " +
+           "LEFT JOIN sob.batteryType sobt " +
+           "LEFT JOIN st.swapInBattery sib " +
+           "LEFT JOIN sib.batteryType sibt ";
+
+    // Lịch sử giao dịch của driver dạng DTO
+    @Query(HISTORY_SELECT +
+           "WHERE st.driver.id = :driverId " +
+           "ORDER BY st.startTime DESC")
+    List<SwapTransactionHistoryResponse> findHistoryByDriverId(@Param("driverId") Long driverId);
+
+    // Lịch sử đổi pin của xe dạng DTO
+    @Query(HISTORY_SELECT +
+           "WHERE st.vehicle.id = :vehicleId " +
+           "ORDER BY st.startTime DESC")
+    List<SwapTransactionHistoryResponse> findHistoryByVehicleId(@Param("vehicleId") Long vehicleId);
+
+    // Lịch sử sử dụng của pin (cả lần lấy ra và đem vào trạm) dạng DTO
+    @Query(HISTORY_SELECT +
+           "WHERE sob.id = :batteryId OR sib.id = :batteryId " +
+           "ORDER BY st.startTime DESC")
+    List<SwapTransactionHistoryResponse> findHistoryByBatteryId(@Param("batteryId") Long batteryId);
+
+    // Tìm transaction của driver cụ thể (trang chi tiết: lấy đủ quan hệ trong 1 query vì chỉ 1 dòng)
+    @EntityGraph(attributePaths = {"driver", "vehicle", "station", "staff", "booking",
+            "swapOutBattery.batteryType", "swapInBattery.batteryType"})
+    @Query("SELECT st FROM SwapTransaction st " +
            "WHERE st.id = :id AND st.driver = :driver")
     Optional<SwapTransaction> findByIdAndDriverWithDetails(@Param("id") Long id, @Param("driver") User driver);
 
     // tìm swap transaction gần nhất của vehicle (để biết pin nào đang trên xe)
     Optional<SwapTransaction> findTopByVehicleOrderByStartTimeDesc(Vehicle vehicle);
 
-    //  Tìm tất cả swap transactions của vehicle với JOIN FETCH để tránh N+1 query
-    @Query("SELECT DISTINCT st FROM SwapTransaction st " +
-           "LEFT JOIN FETCH st.driver " +
-           "LEFT JOIN FETCH st.vehicle " +
-           "LEFT JOIN FETCH st.station " +
-           "LEFT JOIN FETCH st.staff " +
-           "LEFT JOIN FETCH st.swapOutBattery sob " +
-           "LEFT JOIN FETCH sob.batteryType " +
-           "LEFT JOIN FETCH st.swapInBattery sib " +
-           "LEFT JOIN FETCH sib.batteryType " +
-           "LEFT JOIN FETCH st.booking " +
-           "WHERE st.vehicle = :vehicle " +
-           "ORDER BY st.startTime DESC")
-    List<SwapTransaction> findByVehicleWithDetailsOrderByStartTimeDesc(@Param("vehicle") Vehicle vehicle);
-
     //  Tìm swap transaction theo booking (kiểm tra code đã dùng chưa)
     Optional<SwapTransaction> findByBooking(Booking booking);
 
-    //  Tìm tất cả lần pin được lấy ra từ trạm với JOIN FETCH để tránh N+1 query
-    @Query("SELECT DISTINCT st FROM SwapTransaction st " +
-           "LEFT JOIN FETCH st.driver " +
-           "LEFT JOIN FETCH st.vehicle " +
-           "LEFT JOIN FETCH st.station " +
-           "LEFT JOIN FETCH st.staff " +
-           "LEFT JOIN FETCH st.swapOutBattery sob " +
-           "LEFT JOIN FETCH sob.batteryType " +
-           "LEFT JOIN FETCH st.swapInBattery sib " +
-           "LEFT JOIN FETCH sib.batteryType " +
-           "LEFT JOIN FETCH st.booking " +
-           "WHERE st.swapOutBattery = :battery " +
-           "ORDER BY st.startTime DESC")
-    List<SwapTransaction> findBySwapOutBatteryWithDetailsOrderByStartTimeDesc(@Param("battery") Battery battery);
-
-    //  Tìm tất cả lần pin được đem vào trạm với JOIN FETCH để tránh N+1 query
-    @Query("SELECT DISTINCT st FROM SwapTransaction st " +
-           "LEFT JOIN FETCH st.driver " +
-           "LEFT JOIN FETCH st.vehicle " +
-           "LEFT JOIN FETCH st.station " +
-           "LEFT JOIN FETCH st.staff " +
-           "LEFT JOIN FETCH st.swapOutBattery sob " +
-           "LEFT JOIN FETCH sob.batteryType " +
-           "LEFT JOIN FETCH st.swapInBattery sib " +
-           "LEFT JOIN FETCH sib.batteryType " +
-           "LEFT JOIN FETCH st.booking " +
-           "WHERE st.swapInBattery = :battery " +
-           "ORDER BY st.startTime DESC")
-    List<SwapTransaction> findBySwapInBatteryWithDetailsOrderByStartTimeDesc(@Param("battery") Battery battery);
-
-    // Tìm TẤT CẢ transactions với JOIN FETCH để tránh N+1 query (cho getAllTransactions)
-    @Query("SELECT DISTINCT st FROM SwapTransaction st " +
-           "LEFT JOIN FETCH st.driver " +
-           "LEFT JOIN FETCH st.vehicle " +
-           "LEFT JOIN FETCH st.station " +
-           "LEFT JOIN FETCH st.staff " +
-           "LEFT JOIN FETCH st.swapOutBattery sob " +
-           "LEFT JOIN FETCH sob.batteryType " +
-           "LEFT JOIN FETCH st.swapInBattery sib " +
-           "LEFT JOIN FETCH sib.batteryType " +
-           "LEFT JOIN FETCH st.booking")
-    List<SwapTransaction> findAllWithDetails();
+    // Phân trang keyset theo ID giảm dần + filter (cursor = ID cuối của trang trước)
+    // Chỉ join driver/vehicle/station, staff/pin/booking load theo lô bằng IN (default_batch_fetch_size)
+    @EntityGraph(attributePaths = {"driver", "vehicle", "station"})
+    @Query("SELECT st FROM SwapTransaction st " +
+           "WHERE (:cursor IS NULL OR st.id < :cursor) " +
+           "AND (:status IS NULL OR st.status = :status) " +
+           "AND (:stationId IS NULL OR st.station.id = :stationId) " +
+           "AND (:fromTime IS NULL OR st.startTime >= :fromTime) " +
+           "AND (:toTime IS NULL OR st.startTime < :toTime) " +
+           "ORDER BY st.id DESC")
+    Slice<SwapTransaction> findPageWithDetails(
+            @Param("cursor") Long cursor,
+            @Param("status") SwapTransaction.Status status,
+            @Param("stationId") Long stationId,
+            @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime,
+            Pageable pageable
+    );
+
+    // Xuất báo cáo: stream từng dòng DTO (không load entity), fetch size lớn để giảm round-trip
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.evbs.BackEndEvBs.model.response.SwapTransactionExportRow(" +
+           "st.id, st.startTime, st.endTime, st.status, s.id, s.name, d.id, d.fullName, v.plateNumber, sf.fullName, " +
+           "st.swapOutBatteryModel, st.swapOutBatteryChargeLevel, st.swapInBatteryModel, st.swapInBatteryChargeLevel, st.cost) " +
+           "FROM SwapTransaction st " +
+           "JOIN st.station s " +
+           "JOIN st.driver d " +
+           "JOIN st.vehicle v " +
+           "LEFT JOIN st.staff sf " +
+           "WHERE (:stationId IS NULL OR s.id = :stationId) " +
+           "AND (:fromTime IS NULL OR st.startTime >= :fromTime) " +
+           "AND (:toTime IS NULL OR st.startTime < :toTime) " +
+           "ORDER BY st.id")
+    Stream<SwapTransactionExportRow> streamForExport(
+            @Param("stationId") Long stationId,
+            @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime
+    );
 
     // Dashboard queries - Đếm theo status
     Long countByStatus(SwapTransaction.Status status);
@@ -139,7 +138,7 @@ public interface SwapTransactionRepository extends JpaRepository<SwapTransaction
             nativeQuery = true)
     List<Object[]> countTransactionsByHour(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 
-    // Đếm số booking theo station_id (cho dashboard)
-    @Query("SELECT COUNT(st) FROM SwapTransaction st WHERE st.station.id = :stationId")
-    Long countByStationId(@Param("stationId") Long stationId);
+    // Đếm số giao dịch của từng trạm trong một câu query (cho dashboard): [stationId, count]
+    @Query("SELECT st.station.id, COUNT(st) FROM SwapTransaction st GROUP BY st.station.id")
+    List<Object[]> countGroupByStation();
 }
\ No newline at end of file
@@ -3,7 +3,11 @@ package com.evbs.BackEndEvBs.repository;
 
 import com.evbs.BackEndEvBs.entity.User;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -18,6 +22,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Kiểm tra phone number đã tồn tại chưa
     boolean existsByPhoneNumber(String phoneNumber);
 
+    // Email + SĐT của toàn bộ user (dựng bộ lọc trùng lặp, không load entity)
+    @Query("SELECT u.email, u.phoneNumber FROM User u")
+    List<Object[]> findAllEmailAndPhoneNumber();
+
     // Dashboard queries - Đếm user theo role
     Long countByRole(User.Role role);
 
@@ -26,4 +34,17 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     // Tìm tất cả admin
     List<User> findByRole(User.Role role);
+
+    // Phân trang keyset theo ID giảm dần + filter theo role/status
+    @Query("SELECT u FROM User u " +
+           "WHERE (:cursor IS NULL OR u.id < :cursor) " +
+           "AND (:role IS NULL OR u.role = :role) " +
+           "AND (:status IS NULL OR u.status = :status) " +
+           "ORDER BY u.id DESC")
+    Slice<User> findPage(
+            @Param("cursor") Long cursor,
+            @Param("role") User.Role role,
+            @Param("status") User.Status status,
+            Pageable pageable
+    );
 }
\ No newline at end of file
@@ -2,9 +2,15 @@ package com.evbs.BackEndEvBs.repository;
 
 import com.evbs.BackEndEvBs.entity.User;
 import com.evbs.BackEndEvBs.entity.Vehicle;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +32,10 @@ public interface VehicleRepository extends JpaRepository<Vehicle,Long> {
     // Tìm vehicles theo driver và status
     List<Vehicle> findByDriverAndStatus(User driver, Vehicle.VehicleStatus status);
 
+    // Xe của driver theo nhiều status, kèm loại pin (hiển thị batteryTypeName không cần query thêm)
+    @EntityGraph(attributePaths = {"batteryType"})
+    List<Vehicle> findByDriverAndStatusIn(User driver, Collection<Vehicle.VehicleStatus> statuses);
+
     // Đếm số xe ACTIVE của driver
     long countByDriverAndStatus(User driver, Vehicle.VehicleStatus status);
 
@@ -37,4 +47,21 @@ public interface VehicleRepository extends JpaRepository<Vehicle,Long> {
 
     // Tìm xe có deposit status cụ thể (để admin xem xe cần hoàn tiền)
     List<Vehicle> findByDepositStatus(String depositStatus);
+
+    // Phân trang keyset theo ID giảm dần + filter (cursor = ID cuối của trang trước)
+    @Query("SELECT v FROM Vehicle v " +
+           "LEFT JOIN FETCH v.driver " +
+           "LEFT JOIN FETCH v.batteryType " +
+           "WHERE (:cursor IS NULL OR v.id < :cursor) " +
+           "AND (:status IS NULL OR v.status = :status) " +
+           "AND (:fromTime IS NULL OR v.createdAt >= :fromTime) " +
+           "AND (:toTime IS NULL OR v.createdAt < :toTime) " +
+           "ORDER BY v.id DESC")
+    Slice<Vehicle> findPageWithDetails(
+            @Param("cursor") Long cursor,
+            @Param("status") Vehicle.VehicleStatus status,
+            @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime,
+            Pageable pageable
+    );
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.evbs.BackEndEvBs.entity.User;
 
 import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
 import com.evbs.BackEndEvBs.exception.exceptions.NotFoundException;
+import com.evbs.BackEndEvBs.mapper.UserMapper;
 import com.evbs.BackEndEvBs.model.EmailDetail;
 import com.evbs.BackEndEvBs.model.request.LoginRequest;
 import com.evbs.BackEndEvBs.model.request.RegisterRequest;
@@ -13,8 +14,8 @@ import com.evbs.BackEndEvBs.model.request.ChangePasswordRequest;
 import com.evbs.BackEndEvBs.model.response.UserResponse;
 import com.evbs.BackEndEvBs.repository.AuthenticationRepository;
 import com.evbs.BackEndEvBs.repository.UserRepository;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -45,7 +46,7 @@ public class AuthenticationService implements UserDetailsService {
     AuthenticationManager authenticationManager;
 
     @Autowired
-    ModelMapper modelMapper;
+    UserMapper userMapper;
 
     @Autowired
     TokenService tokenService;
@@ -56,33 +57,52 @@ public class AuthenticationService implements UserDetailsService {
     @Autowired
     CaptchaService captchaService;
 
+    @Autowired
+    UniquenessGuard uniquenessGuard;
+
     public User register(RegisterRequest request){
         // Xác thực CAPTCHA trước
         if (!captchaService.verifyCaptcha(request.getCaptchaToken())) {
             throw new AuthenticationException("CAPTCHA không hợp lệ!");
         }
 
-        // Kiểm tra email đã tồn tại
-        if (userRepository.existsByEmail(request.getEmail())) {
+        // Kiểm tra email đã tồn tại (bộ lọc trả về chắc chắn chưa có thì không cần query)
+        if (uniquenessGuard.mightExist(UniquenessGuard.Field.EMAIL, request.getEmail())
+                && userRepository.existsByEmail(request.getEmail())) {
             throw new IllegalArgumentException("Email đã được sử dụng!");
         }
 
         // Kiểm tra phone number đã tồn tại
-        if (request.getPhoneNumber() != null && userRepository.existsByPhoneNumber(request.getPhoneNumber())) {
+        if (request.getPhoneNumber() != null
+                && uniquenessGuard.mightExist(UniquenessGuard.Field.PHONE, request.getPhoneNumber())
+                && userRepository.existsByPhoneNumber(request.getPhoneNumber())) {
             throw new IllegalArgumentException("Số điện thoại đã được sử dụng!");
         }
 
         // Tạo user mới
-        User user = new User();
-        user.setFullName(request.getFullName());
-        user.setEmail(request.getEmail());
-        user.setPhoneNumber(request.getPhoneNumber());
+        User user = userMapper.toEntity(request);
         user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
         user.setRole(User.Role.DRIVER); // Mặc định DRIVER
         user.setStatus(User.Status.ACTIVE); // Mặc định ACTIVE
 
         // Lưu vô database
-        return authenticationRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = authenticationRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // Bộ lọc chỉ dựng lại định kỳ trên từng instance: giá trị trùng vừa ghi ở instance khác bị DB chặn tại đây
+            throw duplicateOf(e, user.getEmail(), user.getPhoneNumber());
+        }
+        uniquenessGuard.record(UniquenessGuard.Field.EMAIL, savedUser.getEmail());
+        uniquenessGuard.record(UniquenessGuard.Field.PHONE, savedUser.getPhoneNumber());
+        return savedUser;
+    }
+
+    private RuntimeException duplicateOf(DataIntegrityViolationException e, String email, String phoneNumber) {
+        return uniquenessGuard.violatedField(e, email, phoneNumber)
+                .<RuntimeException>map(field -> new IllegalArgumentException(field == UniquenessGuard.Field.EMAIL
+                        ? "Email đã được sử dụng!" : "Số điện thoại đã được sử dụng!"))
+                .orElse(e);
     }
 
 
@@ -95,7 +115,7 @@ public class AuthenticationService implements UserDetailsService {
         ));
         User user = (User) authentication.getPrincipal();
 
-        UserResponse userResponse = modelMapper.map(user, UserResponse.class);
+        UserResponse userResponse = userMapper.toResponse(user);
         String token = tokenService.generateToken(user);
         userResponse.setToken(token);
         return userResponse;
@@ -144,7 +164,7 @@ public class AuthenticationService implements UserDetailsService {
     public UserResponse updatePassword(UpdatePasswordRequest updatePasswordRequest) {
         User user = getCurrentUser();
         user.setPasswordHash(passwordEncoder.encode(updatePasswordRequest.getPassword()));
-        return modelMapper.map(authenticationRepository.save(user), UserResponse.class);
+        return userMapper.toResponse(authenticationRepository.save(user));
     }
 
     /**
@@ -172,6 +192,6 @@ public class AuthenticationService implements UserDetailsService {
         currentUser.setPasswordHash(passwordEncoder.encode(request.getNewPassword()));
         User updatedUser = authenticationRepository.save(currentUser);
 
-        return modelMapper.map(updatedUser, UserResponse.class);
+        return userMapper.toResponse(updatedUser);
     }
 }
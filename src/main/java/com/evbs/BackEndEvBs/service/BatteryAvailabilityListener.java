@@ -0,0 +1,52 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.entity.Battery;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener của Battery: mọi thay đổi trạm/trạng thái/mức sạc được ghi nhận vào StationAvailabilityTracker
+ * Áp dụng cho tất cả service (booking, swap, sạc, health, inventory) mà không cần gọi tay ở từng chỗ
+ */
+@Component
+public class BatteryAvailabilityListener {
+
+    // @Lazy để tránh vòng phụ thuộc với EntityManagerFactory lúc khởi động
+    @Autowired
+    @Lazy
+    private StationAvailabilityTracker stationAvailabilityTracker;
+
+    @PostLoad
+    public void onLoad(Battery battery) {
+        remember(battery);
+    }
+
+    @PostPersist
+    public void onPersist(Battery battery) {
+        stationAvailabilityTracker.recordChange(null, null,
+                battery.getCurrentStationId(), battery.getAvailabilityBucket());
+        remember(battery);
+    }
+
+    @PostUpdate
+    public void onUpdate(Battery battery) {
+        stationAvailabilityTracker.recordChange(battery.getTrackedStationId(), battery.getTrackedBucket(),
+                battery.getCurrentStationId(), battery.getAvailabilityBucket());
+        remember(battery);
+    }
+
+    @PostRemove
+    public void onRemove(Battery battery) {
+        stationAvailabilityTracker.recordChange(battery.getTrackedStationId(), battery.getTrackedBucket(), null, null);
+    }
+
+    private void remember(Battery battery) {
+        battery.setTrackedStationId(battery.getCurrentStationId());
+        battery.setTrackedBucket(battery.getAvailabilityBucket());
+    }
+}
@@ -1,7 +1,9 @@
 package com.evbs.BackEndEvBs.service;
 
+import com.evbs.BackEndEvBs.config.ScheduledJob;
 import com.evbs.BackEndEvBs.entity.Battery;
 import com.evbs.BackEndEvBs.repository.BatteryRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -30,6 +32,8 @@ import java.util.List;
 public class BatteryChargingService {
 
     private final BatteryRepository batteryRepository;
+    private final SchedulerLockService schedulerLockService;
+    private final ScheduledJobRegistry scheduledJobRegistry;
 
     // cấu hình thời gian sạc
     private static final long FULL_CHARGE_HOURS = 4;  // 4 giờ để sạc đầy từ 0% → 100%
@@ -43,12 +47,20 @@ public class BatteryChargingService {
      * Cron: 0 15 * * * * = Mỗi 15 phút
      */
     @Scheduled(cron = "0 */15 * * * *")  // Chạy mỗi 15 phút
+    @ScheduledJob(value = "auto-charge-batteries", maxRuntimeMs = 600000)
     @Transactional
+    @Timed(value = "evbs.scheduler.run", extraTags = {"job", "auto-charge-batteries"})
     public void autoChargeBatteries() {
-        log.info("Tự động sạc pin - Bắt đầu quá trình...");
+        // Chạy nhiều instance: mỗi shard trạm chỉ được 1 node xử lý
+        schedulerLockService.runSharded("auto-charge-batteries", this::autoChargeBatteriesInShard);
+    }
+
+    private void autoChargeBatteriesInShard(SchedulerLockService.StationShard shard) {
+        log.info("Tự động sạc pin - Bắt đầu quá trình (shard {})...", shard);
 
-        // Tìm tất cả pin đang CHARGING
-        List<Battery> chargingBatteries = batteryRepository.findByStatus(Battery.Status.CHARGING);
+        // Tìm tất cả pin đang CHARGING thuộc shard
+        List<Battery> chargingBatteries = batteryRepository.findByStatusInStationShard(
+                Battery.Status.CHARGING, shard.index(), shard.count());
         
         if (chargingBatteries.isEmpty()) {
             log.info("Tự động sạc pin - Không có pin nào đang sạc. Kết thúc.");
@@ -76,6 +88,7 @@ public class BatteryChargingService {
 
         log.info("Đã hoàn tất sạc tự động: {} pin đã được cập nhật, {} đã được sạc đầy",
                  updatedCount, fullyChargedCount);
+        scheduledJobRegistry.addItems(updatedCount);
     }
 
     /**
@@ -1,7 +1,9 @@
 package com.evbs.BackEndEvBs.service;
 
+import com.evbs.BackEndEvBs.config.ScheduledJob;
 import com.evbs.BackEndEvBs.entity.Battery;
 import com.evbs.BackEndEvBs.repository.BatteryRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -31,6 +33,8 @@ import java.util.Map;
 public class BatteryHealthService {
 
     private final BatteryRepository batteryRepository;
+    private final SchedulerLockService schedulerLockService;
+    private final ScheduledJobRegistry scheduledJobRegistry;
 
     //  Ngưỡng cảnh báo SOH
     private static final BigDecimal SOH_WARNING_THRESHOLD = BigDecimal.valueOf(80.0);      // Cảnh báo theo dõi
@@ -46,11 +50,18 @@ public class BatteryHealthService {
      * Cron: 0 0 2 * * * = 2:00 AM mỗi ngày
      */
     @Scheduled(cron = "0 0 2 * * *")  // 2:00 AM mỗi ngày
+    @ScheduledJob(value = "battery-health-check", maxRuntimeMs = 3600000)
     @Transactional
+    @Timed(value = "evbs.scheduler.run", extraTags = {"job", "battery-health-check"})
     public void dailyBatteryHealthCheck() {
-        log.info("[Tình trạng pin] Bắt đầu kiểm tra tình trạng pin hàng ngày...");
+        // Chạy nhiều instance: mỗi shard trạm chỉ được 1 node xử lý
+        schedulerLockService.runSharded("battery-health-check", this::batteryHealthCheckInShard);
+    }
 
-        List<Battery> allBatteries = batteryRepository.findAll();
+    private void batteryHealthCheckInShard(SchedulerLockService.StationShard shard) {
+        log.info("[Tình trạng pin] Bắt đầu kiểm tra tình trạng pin hàng ngày (shard {})...", shard);
+
+        List<Battery> allBatteries = batteryRepository.findAllInStationShard(shard.index(), shard.count());
         
         if (allBatteries.isEmpty()) {
             log.info("[Tình trạng pin] Không tìm thấy pin.");
@@ -90,7 +101,7 @@ public class BatteryHealthService {
                 log.error("[Tình trạng pin] Lỗi khi kiểm tra pin {}: {}", battery.getId(), e.getMessage());
             }
         }
-
+        scheduledJobRegistry.addItems(checkedCount);
 
         // TODO: Gửi email/notification cho Admin về pin cần bảo trì
         if (!batteriesNeedingMaintenance.isEmpty()) {
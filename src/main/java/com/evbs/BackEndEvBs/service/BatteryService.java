@@ -5,6 +5,7 @@ import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
 import com.evbs.BackEndEvBs.exception.exceptions.NotFoundException;
 import com.evbs.BackEndEvBs.model.request.BatteryRequest;
 import com.evbs.BackEndEvBs.model.request.BatteryUpdateRequest;
+import com.evbs.BackEndEvBs.model.response.BatteryListResponse;
 import com.evbs.BackEndEvBs.repository.BatteryRepository;
 import com.evbs.BackEndEvBs.repository.BatteryTypeRepository;
 import com.evbs.BackEndEvBs.repository.StationInventoryRepository;
@@ -116,25 +117,25 @@ public class BatteryService {
      * READ - Get all batteries (Admin/Staff only)
      */
     @Transactional(readOnly = true)
-    public List<Battery> getAllBatteries() {
+    public List<BatteryListResponse> getAllBatteries() {
         User currentUser = authenticationService.getCurrentUser();
         if (!isAdminOrStaff(currentUser)) {
             throw new AuthenticationException("Truy cập bị từ chối");
         }
-        // Sử dụng JOIN FETCH để tránh N+1 query problem khi load stationName và batteryTypeName
-        return batteryRepository.findAllWithDetails();
+        // Select thẳng DTO (stationName, batteryTypeName) bằng 1 query, không load entity
+        return batteryRepository.findAllListView();
     }
 
     /**
      * READ - Lấy tất cả batteries trong station (Public)
      */
     @Transactional(readOnly = true)
-    public List<Battery> getBatteriesByStation(Long stationId) {
+    public List<BatteryListResponse> getBatteriesByStation(Long stationId) {
         // Kiểm tra station có tồn tại không
         if (!stationRepository.existsById(stationId)) {
             throw new NotFoundException("Không tìm thấy trạm");
         }
-        return batteryRepository.findByCurrentStation_Id(stationId);
+        return batteryRepository.findListViewByStationId(stationId);
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.evbs.BackEndEvBs.service;
 
+import com.evbs.BackEndEvBs.config.ScheduledJob;
 import com.evbs.BackEndEvBs.entity.Battery;
 import com.evbs.BackEndEvBs.entity.Booking;
 import com.evbs.BackEndEvBs.entity.DriverSubscription;
@@ -7,6 +8,8 @@ import com.evbs.BackEndEvBs.model.EmailDetail;
 import com.evbs.BackEndEvBs.repository.BatteryRepository;
 import com.evbs.BackEndEvBs.repository.BookingRepository;
 import com.evbs.BackEndEvBs.repository.DriverSubscriptionRepository;
+import com.evbs.BackEndEvBs.util.TransactionUtil;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,21 +34,27 @@ public class BookingExpirationScheduler {
     private final BookingRepository bookingRepository;
     private final DriverSubscriptionRepository driverSubscriptionRepository;
     private final EmailService emailService;
+    private final SchedulerLockService schedulerLockService;
+    private final ScheduledJobRegistry scheduledJobRegistry;
+    private final BookingQuotaService bookingQuotaService;
 
     @Scheduled(fixedDelay = 300000)
+    @ScheduledJob(value = "cancel-expired-bookings", maxRuntimeMs = 240000)
     @Transactional
+    @Timed(value = "evbs.scheduler.run", extraTags = {"job", "cancel-expired-bookings"})
     public void cancelExpiredBookings() {
+        // Chạy nhiều instance: mỗi shard trạm chỉ được 1 node xử lý
+        schedulerLockService.runSharded("cancel-expired-bookings", this::cancelExpiredBookingsInShard);
+    }
+
+    private void cancelExpiredBookingsInShard(SchedulerLockService.StationShard shard) {
         LocalDateTime now = LocalDateTime.now();
 
-        List<Battery> expiredBatteries = batteryRepository.findAll()
-                .stream()
-                .filter(b -> b.getStatus() == Battery.Status.PENDING
-                        && b.getReservationExpiry() != null
-                        && b.getReservationExpiry().isBefore(now))
-                .toList();
+        List<Battery> expiredBatteries = batteryRepository.findReservationExpiredInStationShard(
+                Battery.Status.PENDING, now, shard.index(), shard.count());
 
         if (expiredBatteries.isEmpty()) {
-            logger.debug("Khong co booking nao het han luc: {}", now);
+            logger.debug("Khong co booking nao het han luc: {} (shard {})", now, shard);
             return;
         }
 
@@ -74,13 +83,15 @@ public class BookingExpirationScheduler {
                     booking.setReservedBattery(null);
                     booking.setReservationExpiry(null);
                     bookingRepository.save(booking);
+                    // Booking đã hủy không tính vào giới hạn/ngày (khớp với COUNT khi bộ đếm nạp lại từ DB)
+                    bookingQuotaService.release(booking.getDriver().getId(), booking.getBookingTime());
 
                     logger.info("Da huy booking het han (KHONG HOAN LAI LUOT). BookingID: {}, ConfirmationCode: '{}' (da xoa), DriverID: {}",
                             booking.getId(), oldCode, booking.getDriver().getId());
                     cancelledCount++;
 
-                    // GỬI EMAIL THÔNG BÁO HỦY TỰ ĐỘNG CHO DRIVER
-                    sendAutoCancellationEmail(booking, oldCode);
+                    // GỬI EMAIL THÔNG BÁO HỦY TỰ ĐỘNG CHO DRIVER (chỉ khi hủy đã commit, tránh gửi trùng khi rollback)
+                    TransactionUtil.afterCommit(() -> sendAutoCancellationEmail(booking, oldCode));
                 }
 
                 releaseBattery(battery);
@@ -91,6 +102,7 @@ public class BookingExpirationScheduler {
         }
 
         logger.info("Hoan thanh xu ly booking het han. So luong huy: {}/{}", cancelledCount, expiredBatteries.size());
+        scheduledJobRegistry.addItems(cancelledCount);
     }
 
     private void releaseBattery(Battery battery) {
@@ -0,0 +1,148 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.config.ScheduledJob;
+import com.evbs.BackEndEvBs.entity.Booking;
+import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
+import com.evbs.BackEndEvBs.repository.BookingRepository;
+import com.evbs.BackEndEvBs.util.TransactionUtil;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Giới hạn số booking mỗi ngày của driver (ngày tính theo giờ booking)
+ * - Bộ đếm trong bộ nhớ theo (driverId, ngày): số booking đã commit + số lượt đang giữ bởi transaction chưa xong
+ * - Lần đầu gặp (hoặc sau TTL) đếm lại bằng COUNT trên index (DriverID, BookingTime), booking đã hủy không tính
+ * - Tạo booking giữ chỗ ngay khi kiểm tra: commit thì thành booking đã commit, rollback thì trả lại
+ * - Hủy booking (driver / staff) trả lại 1 lượt sau khi commit
+ * - TTL để bộ đếm khớp lại với DB khi chạy nhiều instance
+ *
+ * Đếm lại và cập nhật sau commit không được chồng lên nhau (COUNT không biết transaction nào đã / chưa tính):
+ * - Không đếm lại khi còn lượt đang giữ, bộ đếm cũ được dùng tiếp tới khi các transaction đó kết thúc
+ * - Lượt hủy chỉ trừ vào bộ đếm nếu không có lần đếm lại nào xen giữa lúc hủy và lúc commit,
+ *   ngược lại bộ đếm bị đánh dấu cần đếm lại (không trừ 2 lần)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookingQuotaService {
+
+    public static final int MAX_BOOKINGS_PER_DAY = 10;
+
+    private record DriverDay(Long driverId, LocalDate day) {
+    }
+
+    // Mọi trường chỉ đọc / ghi khi giữ lock; COUNT cũng chạy trong lock (chỉ chặn request cùng driver, cùng ngày)
+    private static final class DailyCount {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int committed;
+        private int reserved;
+        // 0 = chưa đếm hoặc cần đếm lại
+        private long loadedAt;
+        // Tăng mỗi lần đếm lại từ DB
+        private long generation;
+    }
+
+    @Autowired
+    private final BookingRepository bookingRepository;
+
+    @Value("${app.booking-quota.count-ttl-ms:600000}")
+    private long countTtlMs;
+
+    private final Map<DriverDay, DailyCount> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Giữ 1 lượt booking trong ngày của bookingTime, phải gọi trong transaction tạo booking
+     *
+     * @throws AuthenticationException nếu driver đã đủ MAX_BOOKINGS_PER_DAY booking trong ngày
+     */
+    public void reserve(Long driverId, LocalDateTime bookingTime) {
+        DriverDay key = new DriverDay(driverId, bookingTime.toLocalDate());
+        DailyCount entry = counts.computeIfAbsent(key, k -> new DailyCount());
+        entry.lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (entry.reserved == 0 && (entry.loadedAt == 0 || now - entry.loadedAt >= countTtlMs)) {
+                LocalDateTime from = key.day().atStartOfDay();
+                entry.committed = (int) bookingRepository.countByDriverIdAndBookingTimeRange(
+                        driverId, from, from.plusDays(1), Booking.Status.CANCELLED);
+                entry.loadedAt = now;
+                entry.generation++;
+            }
+            if (entry.committed + entry.reserved >= MAX_BOOKINGS_PER_DAY) {
+                throw new AuthenticationException("Đã đạt giới hạn " + MAX_BOOKINGS_PER_DAY + " lượt/ngày!");
+            }
+            entry.reserved++;
+        } finally {
+            entry.lock.unlock();
+        }
+
+        TransactionUtil.afterCommit(() -> update(entry, () -> {
+            entry.reserved--;
+            entry.committed++;
+        }));
+        TransactionUtil.afterRollback(() -> update(entry, () -> entry.reserved--));
+    }
+
+    /**
+     * Trả lại 1 lượt khi booking bị hủy, chỉ áp dụng sau khi transaction hủy commit
+     */
+    public void release(Long driverId, LocalDateTime bookingTime) {
+        if (bookingTime == null) {
+            return;
+        }
+        DailyCount entry = counts.get(new DriverDay(driverId, bookingTime.toLocalDate()));
+        if (entry == null) {
+            // Chưa có bộ đếm: lần đếm đầu tiên sẽ đọc DB
+            return;
+        }
+        long generation = generationOf(entry);
+        TransactionUtil.afterCommit(() -> update(entry, () -> {
+            if (entry.loadedAt != 0 && entry.generation == generation) {
+                entry.committed = Math.max(0, entry.committed - 1);
+            } else {
+                // Đã đếm lại trong lúc hủy: không biết COUNT có thấy lượt hủy chưa, đếm lại lần sau
+                entry.loadedAt = 0;
+            }
+        }));
+    }
+
+    // Bỏ bộ đếm của các ngày đã qua
+    @Scheduled(cron = "0 10 * * * *")
+    @ScheduledJob(value = "booking-quota-purge", maxRuntimeMs = 60000)
+    @Timed(value = "evbs.scheduler.run", extraTags = {"job", "booking-quota-purge"})
+    public void purgePastDays() {
+        LocalDate today = LocalDate.now();
+        int before = counts.size();
+        counts.keySet().removeIf(key -> key.day().isBefore(today));
+        log.debug("Purged {} booking quota counters", before - counts.size());
+    }
+
+    private static long generationOf(DailyCount entry) {
+        entry.lock.lock();
+        try {
+            return entry.loadedAt == 0 ? -1 : entry.generation;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    private static void update(DailyCount entry, Runnable change) {
+        entry.lock.lock();
+        try {
+            change.run();
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+}
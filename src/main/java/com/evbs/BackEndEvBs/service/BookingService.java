@@ -3,35 +3,39 @@ package com.evbs.BackEndEvBs.service;
 import com.evbs.BackEndEvBs.entity.Battery;
 import com.evbs.BackEndEvBs.entity.BatteryType;
 import com.evbs.BackEndEvBs.entity.Booking;
-import com.evbs.BackEndEvBs.entity.DriverSubscription;
 import com.evbs.BackEndEvBs.entity.Station;
+import com.evbs.BackEndEvBs.entity.SwapCreditLedger;
 import com.evbs.BackEndEvBs.entity.User;
 import com.evbs.BackEndEvBs.entity.Vehicle;
 import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
 import com.evbs.BackEndEvBs.exception.exceptions.NotFoundException;
 import com.evbs.BackEndEvBs.model.EmailDetail;
 import com.evbs.BackEndEvBs.model.request.BookingRequest;
+import com.evbs.BackEndEvBs.model.response.BookingHistoryResponse;
+import com.evbs.BackEndEvBs.model.response.PageResponse;
 import com.evbs.BackEndEvBs.repository.BatteryRepository;
 import com.evbs.BackEndEvBs.repository.BookingRepository;
-import com.evbs.BackEndEvBs.repository.DriverSubscriptionRepository;
-import com.evbs.BackEndEvBs.repository.StaffStationAssignmentRepository;
 import com.evbs.BackEndEvBs.repository.StationRepository;
 import com.evbs.BackEndEvBs.repository.VehicleRepository;
 import com.evbs.BackEndEvBs.repository.UserRepository;
 import com.evbs.BackEndEvBs.util.ConfirmationCodeGenerator;
+import com.evbs.BackEndEvBs.util.PageUtil;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.Duration;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -49,13 +53,13 @@ public class BookingService {
     private final StationRepository stationRepository;
 
     @Autowired
-    private final DriverSubscriptionRepository driverSubscriptionRepository;
+    private final BatteryRepository batteryRepository;
 
     @Autowired
-    private final BatteryRepository batteryRepository;
+    private final StaffStationAccessCache staffStationAccessCache;
 
     @Autowired
-    private final StaffStationAssignmentRepository staffStationAssignmentRepository;
+    private final StationAvailabilityTracker stationAvailabilityTracker;
 
     @Autowired
     private final AuthenticationService authenticationService;
@@ -66,6 +70,12 @@ public class BookingService {
     @Autowired
     private final UserRepository userRepository;
 
+    @Autowired
+    private final SwapCreditService swapCreditService;
+
+    @Autowired
+    private final BookingQuotaService bookingQuotaService;
+
     // Cấu hình thời gian cho phép hủy booking (phút) - TRƯỚC 1 TIẾNG
     private static final int ALLOW_CANCEL_BEFORE_MINUTES = 60;
 
@@ -73,34 +83,23 @@ public class BookingService {
      * CREATE - Tao booking moi (Driver) - TỰ ĐỘNG SET THỜI GIAN 3 TIẾNG SAU
      */
     @Transactional
+    @Timed(value = "evbs.booking.create", description = "Tạo booking (driver)")
     public Booking createBooking(BookingRequest request) {
         User currentUser = authenticationService.getCurrentUser();
 
-        // VALIDATION: BAT BUOC phai co subscription ACTIVE VA CON LUOT SWAP
-        DriverSubscription activeSubscription = driverSubscriptionRepository
-                .findActiveSubscriptionByDriver(currentUser, LocalDate.now())
-                .orElse(null);
-        
-        // Kiểm tra có subscription và còn lượt swap
-        if (activeSubscription == null) {
+        // VALIDATION: BAT BUOC phai co subscription ACTIVE VA CON LUOT SWAP (lượt được trừ nguyên tử ở cuối)
+        if (swapCreditService.findActiveSubscriptionId(currentUser.getId()).isEmpty()) {
             throw new AuthenticationException("Chưa có gói dịch vụ. Vui lòng mua gói!");
         }
-        
-        if (activeSubscription.getRemainingSwaps() <= 0) {
-            throw new AuthenticationException("Gói đã hết lượt. Vui lòng gia hạn!");
-        }
 
         // Cho phép driver có nhiều xe booking cùng lúc
 
-        // VALIDATION: Max 10 bookings per user per day
-        LocalDate today = LocalDate.now();
-        long bookingsToday = bookingRepository.findByDriverWithDetails(currentUser)
-                .stream()
-                .filter(b -> b.getBookingTime() != null && b.getBookingTime().toLocalDate().isEqual(today))
-                .count();
-        if (bookingsToday >= 10) {
-            throw new AuthenticationException("Đã đạt giới hạn 10 lượt/ngày!");
-        }
+        // ========== TỰ ĐỘNG SET THỜI GIAN 3 TIẾNG SAU ==========
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime bookingTime = now.plusHours(3); //ĐẶT 3 TIẾNG SAU
+
+        // VALIDATION: Max 10 bookings per user per day (giữ chỗ ngay, booking lỗi thì tự trả lại khi rollback)
+        bookingQuotaService.reserve(currentUser.getId(), bookingTime);
 
         // Validate vehicle thuộc về driver
         Vehicle vehicle = vehicleRepository.findById(request.getVehicleId())
@@ -134,10 +133,6 @@ public class BookingService {
             throw new AuthenticationException("Trạm không hỗ trợ loại pin này!");
         }
 
-        // ========== TỰ ĐỘNG SET THỜI GIAN 3 TIẾNG SAU ==========
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime bookingTime = now.plusHours(3); //ĐẶT 3 TIẾNG SAU
-
         // ========== TỰ ĐỘNG CONFIRM BOOKING VÀ RESERVE PIN ==========
 
         // Tìm pin available
@@ -170,9 +165,7 @@ public class BookingService {
         LocalDateTime expiryTime = bookingTime; // HẾT HẠN ĐÚNG VÀO GIỜ BOOKING
 
         reservedBattery.setStatus(Battery.Status.PENDING);
-        reservedBattery.setReservedForBooking(null);
         reservedBattery.setReservationExpiry(expiryTime);
-        batteryRepository.save(reservedBattery);
 
         // Generate code ngay khi tạo booking
         String confirmationCode = ConfirmationCodeGenerator.generateUnique(
@@ -196,29 +189,23 @@ public class BookingService {
 
         // Tự động set system user hoặc null cho confirmedBy
         try {
-            userRepository.findAll()
+            userRepository.findByRole(User.Role.ADMIN)
                     .stream()
-                    .filter(u -> u.getRole() == User.Role.ADMIN)
                     .findFirst()
                     .ifPresent(booking::setConfirmedBy);
         } catch (Exception ignore) {}
 
+        // ID lấy từ sequence nên save chưa INSERT ngay: booking và pin được ghi cùng lúc khi flush
         Booking savedBooking = bookingRepository.save(booking);
-
-        // Cập nhật battery với booking đã lưu
         reservedBattery.setReservedForBooking(savedBooking);
         batteryRepository.save(reservedBattery);
 
-        // TRỪ LƯỢT SWAP NGAY KHI BOOKING THÀNH CÔNG
-        int currentRemaining = activeSubscription.getRemainingSwaps();
-        activeSubscription.setRemainingSwaps(currentRemaining - 1);
-        driverSubscriptionRepository.save(activeSubscription);
-        
-        log.info("Đã trừ 1 lượt swap khi booking. Driver: {}, Còn lại: {}", 
-                currentUser.getId(), activeSubscription.getRemainingSwaps());
+        // TRỪ LƯỢT SWAP NGAY KHI BOOKING THÀNH CÔNG (hết lượt thì cả booking rollback)
+        SwapCreditService.Balance balance = swapCreditService.debit(
+                currentUser.getId(), SwapCreditLedger.Reason.BOOKING, savedBooking.getId());
 
         // Set số lượt còn lại vào response để driver biết
-        savedBooking.setRemainingSwaps(activeSubscription.getRemainingSwaps());
+        savedBooking.setRemainingSwaps(balance.remainingSwaps());
 
         // Gửi email xác nhận booking VỚI MÃ CODE
         sendBookingConfirmedEmail(savedBooking, booking.getConfirmedBy());
@@ -230,6 +217,7 @@ public class BookingService {
      * Hủy booking (Driver) - CHỈ CHO HỦY TRƯỚC 1 TIẾNG SO VỚI GIỜ BOOKING
      */
     @Transactional
+    @Timed(value = "evbs.booking.cancel", extraTags = {"actor", "driver"}, description = "Hủy booking")
     public Booking cancelMyBooking(Long id) {
         User currentUser = authenticationService.getCurrentUser();
         Booking booking = bookingRepository.findByIdAndDriverWithDetails(id, currentUser)
@@ -276,33 +264,13 @@ public class BookingService {
         }
 
         // HOÀN LẠI LƯỢT SWAP TRƯỚC KHI HỦY BOOKING
-        List<DriverSubscription> subscriptions = driverSubscriptionRepository.findByDriver_Id(currentUser.getId());
-        DriverSubscription subscription = subscriptions.stream()
-                .filter(s -> s.getStatus() == DriverSubscription.Status.ACTIVE || s.getStatus() == DriverSubscription.Status.EXPIRED)
-                .max((s1, s2) -> s1.getId().compareTo(s2.getId()))
-                .orElse(null);
-        
-        if (subscription != null) {
-            int oldRemaining = subscription.getRemainingSwaps();
-            subscription.setRemainingSwaps(oldRemaining + 1);
-            
-            // Nếu subscription đã EXPIRED nhưng còn hoàn lại lượt, kích hoạt lại thành ACTIVE
-            if (subscription.getStatus() == DriverSubscription.Status.EXPIRED && subscription.getRemainingSwaps() > 0) {
-                subscription.setStatus(DriverSubscription.Status.ACTIVE);
-            }
-            
-            driverSubscriptionRepository.save(subscription);
-            
-            log.info("Đã hoàn lại 1 lượt swap khi hủy booking. Driver: {}, {} → {}, Status: {}", 
-                    currentUser.getId(), oldRemaining, subscription.getRemainingSwaps(), subscription.getStatus());
-        } else {
-            log.warn("KHÔNG TÌM THẤY subscription để hoàn lại lượt cho driver: {}", currentUser.getId());
-        }
+        swapCreditService.credit(currentUser.getId(), SwapCreditLedger.Reason.BOOKING_CANCEL_DRIVER, booking.getId());
 
         // Hủy booking và xóa confirmation code để giải phóng mã
         booking.setStatus(Booking.Status.CANCELLED);
         booking.setConfirmationCode(null); // Xóa mã code để giải phóng
         Booking savedBooking = bookingRepository.save(booking);
+        bookingQuotaService.release(currentUser.getId(), savedBooking.getBookingTime());
 
         // Gửi email thông báo hủy booking
         sendBookingCancellationEmail(savedBooking, "DRIVER", null);
@@ -317,6 +285,7 @@ public class BookingService {
      * Hủy booking bởi Staff/Admin (vẫn cho phép hủy mọi lúc)
      */
     @Transactional
+    @Timed(value = "evbs.booking.cancel", extraTags = {"actor", "staff"}, description = "Hủy booking")
     public Booking cancelBookingByStaff(Long id, String reason) {
         User currentUser = authenticationService.getCurrentUser();
         if (!isAdminOrStaff(currentUser)) {
@@ -333,7 +302,7 @@ public class BookingService {
                 throw new AuthenticationException("Booking không có trạm!");
             }
 
-            if (!staffStationAssignmentRepository.existsByStaffAndStation(currentUser, bookingStation)) {
+            if (!staffStationAccessCache.hasAccess(currentUser.getId(), bookingStation.getId())) {
                 throw new AuthenticationException("Bạn không quản lý trạm này!");
             }
         }
@@ -368,36 +337,14 @@ public class BookingService {
             booking.setReservationExpiry(null);
         }
 
-        // HOÀN LẠI LƯỢT SWAP TRƯỚC KHI STAFF HỦY BOOKING
-        User driver = booking.getDriver();
-        // Tìm subscription mới nhất (kể cả EXPIRED) để hoàn lại lượt
-        List<DriverSubscription> subscriptions = driverSubscriptionRepository.findByDriver_Id(driver.getId());
-        DriverSubscription subscription = subscriptions.stream()
-                .filter(s -> s.getStatus() == DriverSubscription.Status.ACTIVE || s.getStatus() == DriverSubscription.Status.EXPIRED)
-                .max((s1, s2) -> s1.getId().compareTo(s2.getId()))
-                .orElse(null);
-        
-        if (subscription != null) {
-            int oldRemaining = subscription.getRemainingSwaps();
-            subscription.setRemainingSwaps(oldRemaining + 1);
-            
-            // Nếu subscription đã EXPIRED nhưng còn hoàn lại lượt, kích hoạt lại thành ACTIVE
-            if (subscription.getStatus() == DriverSubscription.Status.EXPIRED && subscription.getRemainingSwaps() > 0) {
-                subscription.setStatus(DriverSubscription.Status.ACTIVE);
-            }
-            
-            driverSubscriptionRepository.save(subscription);
-            
-            log.info("Đã hoàn lại 1 lượt swap khi staff hủy booking. Driver: {}, {} → {}, Status: {}", 
-                    driver.getId(), oldRemaining, subscription.getRemainingSwaps(), subscription.getStatus());
-        } else {
-            log.warn("KHÔNG TÌM THẤY subscription để hoàn lại lượt cho driver: {}", driver.getId());
-        }
+        // HOÀN LẠI LƯỢT SWAP TRƯỚC KHI STAFF HỦY BOOKING (vào gói mới nhất, kể cả EXPIRED)
+        swapCreditService.credit(booking.getDriver().getId(), SwapCreditLedger.Reason.BOOKING_CANCEL_STAFF, booking.getId());
 
         // Hủy booking
         booking.setStatus(Booking.Status.CANCELLED);
         booking.setConfirmationCode(null); // Xóa mã code để giải phóng
         booking.setCancellationReason(reason); // Lưu lý do hủy
+        bookingQuotaService.release(booking.getDriver().getId(), booking.getBookingTime());
 
         System.out.println(String.format(
                 "Nhân viên đã hủy đơn đặt chỗ. Mã đơn: %d, Mã tài xế: %d, Mã nhân viên: %d, Lý do: %s",
@@ -514,16 +461,16 @@ public class BookingService {
     // ==================== CÁC METHOD KHÁC ====================
 
     @Transactional(readOnly = true)
-    public List<Booking> getMyBookings() {
+    public List<BookingHistoryResponse> getMyBookings() {
         User currentUser = authenticationService.getCurrentUser();
-        // Sử dụng JOIN FETCH để tránh N+1 query problem
-        return bookingRepository.findByDriverWithDetails(currentUser);
+        // Select thẳng DTO, chỉ các cột hiển thị
+        return bookingRepository.findHistoryByDriverId(currentUser.getId());
     }
 
     @Transactional(readOnly = true)
     public Booking getMyBooking(Long id) {
         User currentUser = authenticationService.getCurrentUser();
-        // Sử dụng JOIN FETCH để tránh N+1 query problem
+        // Entity graph + batch fetch để tránh N+1 query problem
         return bookingRepository.findByIdAndDriverWithDetails(id, currentUser)
                 .orElseThrow(() -> new NotFoundException("Lịch đặt không tìm thấy"));
     }
@@ -532,31 +479,51 @@ public class BookingService {
     public List<Station> getCompatibleStations(Long vehicleId) {
         Vehicle vehicle = vehicleRepository.findById(vehicleId)
                 .orElseThrow(() -> new NotFoundException("xe không tìm thấy"));
-        return stationRepository.findStationsWithAvailableBatteries(
-                vehicle.getBatteryType(),
-                80
-        );
+        // Lọc theo bộ đếm pin trong bộ nhớ thay vì JOIN Battery
+        List<Station> stations = stationRepository.findByBatteryType(vehicle.getBatteryType()).stream()
+                .filter(station -> station.getStatus() == Station.Status.ACTIVE
+                        && stationAvailabilityTracker.getAvailableCount(station.getId()) > 0)
+                .collect(Collectors.toList());
+        stations.forEach(station -> station.setCurrentBatteryCount(
+                stationAvailabilityTracker.getBatteryCount(station.getId())));
+        return stations;
     }
 
+    /**
+     * READ - Lấy bookings theo trang (Admin/Staff only)
+     * Phân trang keyset: cursor = ID cuối của trang trước, sắp xếp mới nhất trước
+     */
     @Transactional(readOnly = true)
-    public List<Booking> getAllBookings() {
+    public PageResponse<Booking> getAllBookings(Long cursor, Integer size, Booking.Status status,
+                                                Long stationId, LocalDateTime from, LocalDateTime to) {
         User currentUser = authenticationService.getCurrentUser();
         if (!isAdminOrStaff(currentUser)) {
             throw new AuthenticationException("Không có quyền truy cập!");
         }
 
+        Slice<Booking> slice;
         if (currentUser.getRole() == User.Role.ADMIN) {
-            // Sử dụng JOIN FETCH để tránh N+1 query problem
-            return bookingRepository.findAllWithDetails();
+            slice = bookingRepository.findPageWithDetails(
+                    cursor, status, stationId, from, to, PageUtil.firstPage(size));
+            return PageUtil.toPageResponse(slice, Booking::getId);
         }
 
-        List<Station> myStations = staffStationAssignmentRepository.findStationsByStaff(currentUser);
-        if (myStations.isEmpty()) {
-            return List.of();
+        Set<Long> myStationIds = staffStationAccessCache.getStationIds(currentUser.getId());
+        if (myStationIds.isEmpty()) {
+            return new PageResponse<>(List.of(), 0, false, null);
         }
 
-        // Sử dụng JOIN FETCH để tránh N+1 query problem
-        return bookingRepository.findByStationInWithDetails(myStations);
+        if (stationId != null) {
+            if (!myStationIds.contains(stationId)) {
+                throw new AuthenticationException("Bạn không có quyền xem booking của trạm này!");
+            }
+            slice = bookingRepository.findPageWithDetails(
+                    cursor, status, stationId, from, to, PageUtil.firstPage(size));
+        } else {
+            slice = bookingRepository.findPageByStationIdsWithDetails(
+                    myStationIds, cursor, status, from, to, PageUtil.firstPage(size));
+        }
+        return PageUtil.toPageResponse(slice, Booking::getId);
     }
 
     @Transactional(readOnly = true)
@@ -568,18 +535,18 @@ public class BookingService {
         }
 
         if (currentUser.getRole() == User.Role.ADMIN) {
-            // Sử dụng JOIN FETCH để tránh N+1 query problem
+            // Entity graph + batch fetch để tránh N+1 query problem
             return bookingRepository.findAllWithDetails();
         }
 
-        List<Station> myStations = staffStationAssignmentRepository.findStationsByStaff(currentUser);
+        Set<Long> myStationIds = staffStationAccessCache.getStationIds(currentUser.getId());
 
-        if (myStations.isEmpty()) {
+        if (myStationIds.isEmpty()) {
             throw new AuthenticationException("Chưa được phân công vào trạm!");
         }
 
-        // Sử dụng JOIN FETCH để tránh N+1 query problem
-        return bookingRepository.findByStationInWithDetails(myStations);
+        // Entity graph + batch fetch để tránh N+1 query problem
+        return bookingRepository.findByStationIdInWithDetails(myStationIds);
     }
 
 
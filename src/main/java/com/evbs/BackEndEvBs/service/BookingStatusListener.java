@@ -0,0 +1,52 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.entity.Booking;
+import com.evbs.BackEndEvBs.model.response.BookingStatusEvent;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * JPA listener của Booking: phát sự kiện SSE cho tài xế mỗi khi booking đổi status
+ * Bắt được cả thay đổi từ BookingService, SwapTransactionService và BookingExpirationScheduler
+ */
+@Component
+public class BookingStatusListener {
+
+    // @Lazy để tránh vòng phụ thuộc với EntityManagerFactory lúc khởi động
+    @Autowired
+    @Lazy
+    private LiveEventService liveEventService;
+
+    @PostLoad
+    public void onLoad(Booking booking) {
+        booking.setTrackedStatus(booking.getStatus());
+    }
+
+    @PostPersist
+    public void onPersist(Booking booking) {
+        publish(booking, null);
+    }
+
+    @PostUpdate
+    public void onUpdate(Booking booking) {
+        if (booking.getStatus() != booking.getTrackedStatus()) {
+            publish(booking, booking.getTrackedStatus());
+        }
+    }
+
+    private void publish(Booking booking, Booking.Status previousStatus) {
+        booking.setTrackedStatus(booking.getStatus());
+        if (booking.getDriver() == null) {
+            return;
+        }
+        Long stationId = booking.getStation() != null ? booking.getStation().getId() : null;
+        liveEventService.publishBookingStatus(booking.getDriver().getId(), new BookingStatusEvent(
+                booking.getId(), stationId, previousStatus, booking.getStatus(), LocalDateTime.now()));
+    }
+}
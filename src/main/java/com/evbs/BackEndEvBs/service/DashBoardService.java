@@ -229,11 +229,17 @@ public class DashBoardService {
         
         // Đếm tổng số booking của tất cả trạm
         Long totalBookings = swapTransactionRepository.count();
-        
+
+        // Đếm số booking của tất cả trạm trong 1 query thay vì 1 query / trạm
+        Map<Long, Long> bookingsByStation = new HashMap<>();
+        for (Object[] row : swapTransactionRepository.countGroupByStation()) {
+            bookingsByStation.put((Long) row[0], (Long) row[1]);
+        }
+
         return stations.stream()
                 .map(station -> {
-                    // Đếm số booking của trạm này
-                    Long stationBookings = swapTransactionRepository.countByStationId(station.getId());
+                    // Số booking của trạm này
+                    Long stationBookings = bookingsByStation.getOrDefault(station.getId(), 0L);
                     
                     // Tính tỷ lệ: (Booking trạm / Tổng booking) * 100
                     double utilizationRate = 0.0;
@@ -5,11 +5,13 @@ import com.evbs.BackEndEvBs.entity.ServicePackage;
 import com.evbs.BackEndEvBs.entity.User;
 import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
 import com.evbs.BackEndEvBs.exception.exceptions.NotFoundException;
+import com.evbs.BackEndEvBs.model.response.PageResponse;
 import com.evbs.BackEndEvBs.model.response.UpgradeCalculationResponse;
 import com.evbs.BackEndEvBs.model.response.RenewalCalculationResponse;
 import com.evbs.BackEndEvBs.repository.DriverSubscriptionRepository;
 import com.evbs.BackEndEvBs.repository.ServicePackageRepository;
 import com.evbs.BackEndEvBs.repository.UserRepository;
+import com.evbs.BackEndEvBs.util.PageUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,6 +44,9 @@ public class DriverSubscriptionService {
     @Autowired
     private final EmailService emailService;
 
+    @Autowired
+    private final SwapCreditService swapCreditService;
+
     @Transactional
     public DriverSubscription createSubscriptionAfterPayment(Long packageId, Long driverId) {
         // Tìm tài xế theo ID (thay vì getCurrentUser)
@@ -91,6 +96,7 @@ public class DriverSubscriptionService {
         subscription.setRemainingSwaps(servicePackage.getMaxSwaps());
 
         DriverSubscription savedSubscription = driverSubscriptionRepository.save(subscription);
+        swapCreditService.evict(driver.getId());
 
         log.info("Đã tạo gói đăng ký mới sau khi thanh toán (callback): Tài xế {} -> Gói {} ({} lượt đổi, {} VND).",
                 driver.getEmail(),
@@ -104,15 +110,22 @@ public class DriverSubscriptionService {
         return savedSubscription;
     }
 
+    /**
+     * Lấy subscriptions theo trang (keyset theo ID giảm dần), filter theo status/gói/ngày bắt đầu
+     */
     @Transactional(readOnly = true)
-    public List<DriverSubscription> getAllSubscriptions() {
+    public PageResponse<DriverSubscription> getAllSubscriptions(Long cursor, Integer size, DriverSubscription.Status status,
+                                                                Long packageId, LocalDate from, LocalDate to) {
         User currentUser = authenticationService.getCurrentUser();
         if (currentUser.getRole() != User.Role.ADMIN) {
             throw new AuthenticationException("Quyền truy cập bị từ chối. Yêu cầu vai trò quản trị viên.");
         }
-        List<DriverSubscription> subscriptions = driverSubscriptionRepository.findAll();
-        populateSubscriptionsNames(subscriptions);
-        return subscriptions;
+        PageResponse<DriverSubscription> page = PageUtil.toPageResponse(
+                driverSubscriptionRepository.findPage(cursor, status, packageId, from, to, PageUtil.firstPage(size)),
+                DriverSubscription::getId
+        );
+        populateSubscriptionsNames(page.getContent());
+        return page;
     }
 
     @Transactional(readOnly = true)
@@ -453,6 +466,7 @@ public class DriverSubscriptionService {
         newSubscription.setRemainingSwaps(newPackage.getMaxSwaps()); // FULL 100% - KHÔNG BONUS
 
         DriverSubscription savedSubscription = driverSubscriptionRepository.save(newSubscription);
+        swapCreditService.evict(driver.getId());
 
         log.info("NÂNG CẤP THÀNH CÔNG - Gói mới ID={}: {} lượt FULL (100%), hết hạn {}",
                 savedSubscription.getId(),
@@ -748,6 +762,7 @@ public class DriverSubscriptionService {
         newSubscription.setRemainingSwaps(totalSwaps);
 
         DriverSubscription savedSubscription = driverSubscriptionRepository.save(newSubscription);
+        swapCreditService.evict(driver.getId());
 
         log.info("GIA HẠN THÀNH CÔNG - Gói mới {} được tạo: {} lượt (cộng dồn: {}), hết hạn ngày {}",
                 savedSubscription.getId(),
@@ -10,12 +10,17 @@ import com.evbs.BackEndEvBs.entity.Battery;
 import com.evbs.BackEndEvBs.entity.DriverSubscription;
 import com.evbs.BackEndEvBs.entity.SupportTicket;
 import com.evbs.BackEndEvBs.entity.TicketResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
@@ -23,10 +28,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.text.NumberFormat;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.math.BigDecimal;
 
 @Service
@@ -40,9 +52,66 @@ public class EmailService {
     @Autowired
     JavaMailSender mailSender;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @Value("${spring.mail.username}")
     private String fromEmail;
 
+    // Platform thread pool riêng cho SMTP: JavaMail giữ lock synchronized suốt lúc gửi,
+    // chạy trên virtual thread sẽ ghim (pin) carrier thread. Hàng đợi đầy thì luồng gọi tự gửi (không mất mail)
+    private final ThreadPoolTaskExecutor mailExecutor = createMailExecutor();
+
+    private static ThreadPoolTaskExecutor createMailExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("mail-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdownMailExecutor() {
+        mailExecutor.shutdown();
+    }
+
+    /**
+     * Gửi mail trên mailExecutor, request không phải chờ SMTP
+     * Message đã render xong nên không còn tham chiếu tới entity/session
+     * Kết quả (gửi được / lỗi) chỉ được log khi SMTP thật sự trả lời; future lỗi với MailException
+     * cho luồng cần biết kết quả (reset password)
+     * Metric evbs.email.send: thời gian gửi SMTP theo template và kết quả (success/failure)
+     */
+    private CompletableFuture<Void> dispatch(String template, MimeMessage mimeMessage) {
+        return CompletableFuture.runAsync(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "failure";
+            try {
+                mailSender.send(mimeMessage);
+                outcome = "success";
+                log.info("Đã gửi email {} cho: {}", template, recipients(mimeMessage));
+            } catch (MailException e) {
+                log.error("Lỗi khi gửi email {} cho {}: {}", template, recipients(mimeMessage), e.getMessage());
+                throw e;
+            } finally {
+                sample.stop(meterRegistry.timer("evbs.email.send", "template", template, "outcome", outcome));
+            }
+        }, mailExecutor);
+    }
+
+    private static String recipients(MimeMessage mimeMessage) {
+        try {
+            return Arrays.toString(mimeMessage.getAllRecipients());
+        } catch (MessagingException e) {
+            return "?";
+        }
+    }
+
     /**
      * Gửi email thông báo booking đã được confirm với confirmation code
      */
@@ -71,7 +140,7 @@ public class EmailService {
             mimeMessageHelper.setTo(emailDetail.getRecipient());
             mimeMessageHelper.setText(text, true);
             mimeMessageHelper.setSubject(emailDetail.getSubject());
-            mailSender.send(mimeMessage);
+            dispatch("booking-confirmed", mimeMessage);
 
         } catch (MessagingException e) {
             System.err.println("Failed to send booking confirmed email: " + e.getMessage());
@@ -109,9 +178,7 @@ public class EmailService {
             mimeMessageHelper.setTo(emailDetail.getRecipient());
             mimeMessageHelper.setText(text, true);
             mimeMessageHelper.setSubject(emailDetail.getSubject());
-            mailSender.send(mimeMessage);
-
-            log.info("Email hủy booking đã được gửi thành công cho: {}", emailDetail.getRecipient());
+            dispatch("booking-cancellation", mimeMessage);
 
         } catch (MessagingException e) {
             log.error("Lỗi khi gửi email hủy booking cho {}: {}", emailDetail.getRecipient(), e.getMessage());
@@ -139,9 +206,7 @@ public class EmailService {
             mimeMessageHelper.setText(htmlContent, true);
             mimeMessageHelper.setSubject("🎉 Thanh toán thành công - Gói dịch vụ EV Battery Swap");
 
-            mailSender.send(mimeMessage);
-
-            log.info("Email thanh toán thành công đã được gửi thành công cho: {}", driver.getEmail());
+            dispatch("payment-success-email", mimeMessage);
 
         } catch (MessagingException e) {
             log.error("Lỗi khi gửi email thanh toán thành công cho {}: {}", driver.getEmail(), e.getMessage());
@@ -169,9 +234,7 @@ public class EmailService {
             mimeMessageHelper.setText(htmlContent, true);
             mimeMessageHelper.setSubject("🔋 Đổi pin thành công - EV Battery Swap Station");
 
-            mailSender.send(mimeMessage);
-
-            log.info("Email đổi pin thành công đã được gửi thành công cho: {}", driver.getEmail());
+            dispatch("swap-success-email", mimeMessage);
 
         } catch (MessagingException e) {
             log.error("Lỗi khi gửi email đổi pin thành công cho {}: {}", driver.getEmail(), e.getMessage());
@@ -207,8 +270,7 @@ public class EmailService {
                     mimeMessageHelper.setText(htmlContent, true);
                     mimeMessageHelper.setSubject("🚨 [URGENT] Ticket hỗ trợ mới từ khách hàng - #" + ticket.getId());
 
-                    mailSender.send(mimeMessage);
-                    log.info("Email đã được gửi đến staff: {}", staff.getEmail());
+                    dispatch("ticket-created-staff", mimeMessage);
 
                 } catch (MessagingException e) {
                     log.error("Lỗi khi gửi email đến staff {}: {}", staff.getEmail(), e.getMessage());
@@ -247,8 +309,7 @@ public class EmailService {
                     mimeMessageHelper.setText(htmlContent, true);
                     mimeMessageHelper.setSubject("🚨 [ADMIN] Ticket hỗ trợ tổng quát mới - #" + ticket.getId());
 
-                    mailSender.send(mimeMessage);
-                    log.info("Email đã được gửi đến admin: {}", admin.getEmail());
+                    dispatch("ticket-created-staff", mimeMessage);
 
                 } catch (MessagingException e) {
                     log.error("Lỗi khi gửi email đến admin {}: {}", admin.getEmail(), e.getMessage());
@@ -280,10 +341,7 @@ public class EmailService {
             mimeMessageHelper.setText(htmlContent, true);
             mimeMessageHelper.setSubject("💬 Có phản hồi mới cho ticket #" + response.getTicket().getId());
 
-            mailSender.send(mimeMessage);
-
-            log.info("Email phản hồi ticket đã được gửi thành công cho driver: {}",
-                    response.getTicket().getDriver().getEmail());
+            dispatch("ticket-response-driver", mimeMessage);
 
         } catch (MessagingException e) {
             log.error("Lỗi khi gửi email phản hồi ticket cho driver {}: {}",
@@ -311,9 +369,7 @@ public class EmailService {
             mimeMessageHelper.setText(htmlContent, true);
             mimeMessageHelper.setSubject("THÔNG BÁO: Gói dịch vụ của bạn đã bị hủy - EV Battery Swap");
 
-            mailSender.send(mimeMessage);
-
-            log.info("Email xóa subscription đã được gửi thành công cho driver: {}", driver.getEmail());
+            dispatch("subscription-deleted-email", mimeMessage);
 
         } catch (MessagingException e) {
             log.error("Lỗi khi gửi email xóa subscription cho driver {}: {}",
@@ -538,13 +594,12 @@ public class EmailService {
             mimeMessageHelper.setText(htmlContent, true);
             mimeMessageHelper.setSubject(emailDetail.getSubject());
 
-            mailSender.send(mimeMessage);
-
-            log.info("Email reset password đã được gửi thành công cho: {}", emailDetail.getRecipient());
+            // Chờ SMTP trả lời: người dùng phải biết nếu link đặt lại mật khẩu không được gửi
+            dispatch("forgot-password", mimeMessage).join();
 
-        } catch (MessagingException e) {
+        } catch (MessagingException | CompletionException e) {
             log.error("Lỗi khi gửi email reset password cho {}: {}", emailDetail.getRecipient(), e.getMessage());
-            e.printStackTrace();
+            throw new IllegalStateException("Không gửi được email đặt lại mật khẩu, vui lòng thử lại sau!");
         }
     }
 
@@ -588,9 +643,7 @@ public class EmailService {
                 mimeMessageHelper.setText(htmlContent, true);
                 mimeMessageHelper.setSubject("Yêu cầu đăng ký xe mới cần duyệt - Xe #" + vehicle.getId());
 
-                mailSender.send(mimeMessage);
-
-                log.info("Email thông báo yêu cầu đăng ký xe đã được gửi cho admin: {}", admin.getEmail());
+                dispatch("vehicle-request-admin", mimeMessage);
             }
         } catch (MessagingException e) {
             log.error("Lỗi khi gửi email thông báo yêu cầu đăng ký xe: {}", e.getMessage());
@@ -643,9 +696,7 @@ public class EmailService {
             mimeMessageHelper.setText(htmlContent, true);
             mimeMessageHelper.setSubject("Xe của bạn đã được phê duyệt - EV Battery Swap Station");
 
-            mailSender.send(mimeMessage);
-
-            log.info("Email thông báo xe được phê duyệt đã được gửi cho tài xế: {}", driver.getEmail());
+            dispatch("vehicle-approved-driver", mimeMessage);
 
         } catch (MessagingException e) {
             log.error("Lỗi khi gửi email thông báo xe được phê duyệt cho tài xế: {}", e.getMessage());
@@ -683,9 +734,7 @@ public class EmailService {
             mimeMessageHelper.setText(htmlContent, true);
             mimeMessageHelper.setSubject("Yêu cầu đăng ký xe bị từ chối - EV Battery Swap Station");
 
-            mailSender.send(mimeMessage);
-
-            log.info("Email thông báo xe bị từ chối đã được gửi cho tài xế: {}", driver.getEmail());
+            dispatch("vehicle-rejected-driver", mimeMessage);
 
         } catch (MessagingException e) {
             log.error("Lỗi khi gửi email thông báo xe bị từ chối cho tài xế: {}", e.getMessage());
@@ -737,13 +786,51 @@ public class EmailService {
             mimeMessageHelper.setText(htmlContent, true);
             mimeMessageHelper.setSubject("⏰ Yêu cầu đăng ký xe đã hết hạn - EV Battery Swap Station");
 
-            mailSender.send(mimeMessage);
-
-            log.info("Email thông báo timeout đã được gửi cho tài xế: {}", driver.getEmail());
+            dispatch("vehicle-timeout", mimeMessage);
 
         } catch (MessagingException e) {
             log.error("Lỗi khi gửi email thông báo timeout cho tài xế: {}", e.getMessage());
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Gửi email nhắc gói sắp hết hạn, gom tất cả gói của một tài xế vào một email
+     */
+    public void sendSubscriptionExpiryReminder(User driver, List<DriverSubscription> subscriptions, int reminderDays) {
+        try {
+            Context context = new Context();
+            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+            LocalDate today = LocalDate.now();
+
+            List<Map<String, Object>> items = subscriptions.stream()
+                    .map(subscription -> Map.<String, Object>of(
+                            "packageName", subscription.getServicePackage().getName(),
+                            "endDate", subscription.getEndDate().format(dateFormatter),
+                            "daysLeft", ChronoUnit.DAYS.between(today, subscription.getEndDate()),
+                            "remainingSwaps", subscription.getRemainingSwaps()))
+                    .toList();
+
+            context.setVariable("driverName", driver.getFullName());
+            context.setVariable("subscriptions", items);
+            context.setVariable("subscriptionCount", items.size());
+            context.setVariable("reminderDays", reminderDays);
+            context.setVariable("supportEmail", "sp.evswapstation@gmail.com");
+
+            String htmlContent = templateEngine.process("subscription-expiry-reminder", context);
+
+            MimeMessage mimeMessage = mailSender.createMimeMessage();
+            MimeMessageHelper mimeMessageHelper = new MimeMessageHelper(mimeMessage, "UTF-8");
+
+            mimeMessageHelper.setFrom(fromEmail);
+            mimeMessageHelper.setTo(driver.getEmail());
+            mimeMessageHelper.setText(htmlContent, true);
+            mimeMessageHelper.setSubject("📅 Gói dịch vụ sắp hết hạn - EV Battery Swap Station");
+
+            dispatch("subscription-expiry-reminder", mimeMessage);
+
+        } catch (MessagingException e) {
+            log.error("Lỗi khi gửi email nhắc gói sắp hết hạn cho tài xế {}: {}", driver.getEmail(), e.getMessage());
+        }
+    }
+}
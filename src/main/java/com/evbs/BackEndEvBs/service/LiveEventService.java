@@ -0,0 +1,277 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.entity.User;
+import com.evbs.BackEndEvBs.exception.exceptions.ServiceUnavailableException;
+import com.evbs.BackEndEvBs.model.response.BookingStatusEvent;
+import com.evbs.BackEndEvBs.model.response.StationAvailabilityResponse;
+import com.evbs.BackEndEvBs.util.TransactionUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Phát sự kiện realtime qua Server-Sent Events thay cho việc frontend poll liên tục
+ * - station-availability: số pin theo trạng thái, gộp theo trạm mỗi giây (nhiều thay đổi trong 1 giây = 1 event)
+ * - booking-status: booking của chính tài xế đổi trạng thái
+ * Mỗi subscriber có buffer giới hạn, đầy thì bỏ event cũ nhất; gửi bằng virtual thread để không chặn scheduler
+ * Số kết nối bị giới hạn (app.live.max-subscribers toàn instance, app.live.max-subscribers-per-ip mỗi IP),
+ * vượt quá thì trả 503; snapshot ban đầu đọc từ bộ đếm trong bộ nhớ, kết nối mới không query DB
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LiveEventService {
+
+    public static final String STATION_AVAILABILITY_EVENT = "station-availability";
+    public static final String BOOKING_STATUS_EVENT = "booking-status";
+
+    // Client tự kết nối lại khi hết hạn (EventSource mặc định retry)
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final int MAX_BUFFERED_EVENTS = 100;
+
+    @Autowired
+    private final StationAvailabilityTracker stationAvailabilityTracker;
+
+    @Autowired
+    private final AuthenticationService authenticationService;
+
+    @Value("${app.live.max-subscribers:2000}")
+    private int maxSubscribers;
+
+    @Value("${app.live.max-subscribers-per-ip:10}")
+    private int maxSubscribersPerIp;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final Map<String, Integer> subscribersByIp = new ConcurrentHashMap<>();
+
+    private final ExecutorService senderExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Đăng ký nhận availability của các trạm (stationIds rỗng = tất cả trạm) - không cần đăng nhập
+     *
+     * @throws ServiceUnavailableException nếu đã đủ số kết nối (toàn instance hoặc của IP này)
+     */
+    public SseEmitter subscribeStations(Collection<Long> stationIds, String clientIp) {
+        return subscribe(null, clientIp, stationIds);
+    }
+
+    /**
+     * Đăng ký nhận availability + booking-status của người dùng hiện tại trên cùng một kết nối
+     *
+     * @throws ServiceUnavailableException nếu đã đủ số kết nối (toàn instance hoặc của IP này)
+     */
+    @Transactional(readOnly = true)
+    public SseEmitter subscribeForCurrentUser(Collection<Long> stationIds, String clientIp) {
+        User currentUser = authenticationService.getCurrentUser();
+        return subscribe(currentUser.getId(), clientIp, stationIds);
+    }
+
+    /**
+     * Phát sự kiện booking đổi status tới các kết nối của tài xế - chỉ gửi khi transaction commit
+     */
+    public void publishBookingStatus(Long driverId, BookingStatusEvent event) {
+        TransactionUtil.afterCommit(() -> {
+            for (Subscriber subscriber : subscribers) {
+                if (driverId.equals(subscriber.userId)) {
+                    subscriber.offer(new LiveEvent(BOOKING_STATUS_EVENT, event));
+                }
+            }
+        });
+    }
+
+    // Gộp thay đổi availability theo trạm, mỗi giây phát tối đa 1 event cho mỗi trạm
+    @Scheduled(fixedRate = 1000)
+    public void publishStationAvailability() {
+        Set<Long> changedStationIds = stationAvailabilityTracker.drainChangedStations();
+        if (changedStationIds.isEmpty() || subscribers.isEmpty()) {
+            return;
+        }
+        for (StationAvailabilityResponse availability : stationAvailabilityTracker.getAvailabilities(changedStationIds)) {
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.watches(availability.getStationId())) {
+                    subscriber.offer(new LiveEvent(STATION_AVAILABILITY_EVENT, availability));
+                }
+            }
+        }
+    }
+
+    // Comment rỗng giữ kết nối qua proxy/load balancer và phát hiện client đã ngắt
+    @Scheduled(fixedRate = 15000)
+    public void sendHeartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(new LiveEvent(null, null));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senderExecutor.shutdown();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private SseEmitter subscribe(Long userId, String clientIp, Collection<Long> stationIds) {
+        reserveSlot(clientIp);
+        Set<Long> watched = stationIds == null ? Collections.emptySet() : new HashSet<>(stationIds);
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscriber subscriber = new Subscriber(emitter, userId, clientIp, watched);
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+
+        // Snapshot ban đầu để client không phải gọi thêm API availability
+        for (StationAvailabilityResponse availability : stationAvailabilityTracker.getAvailabilities(watched)) {
+            subscriber.offer(new LiveEvent(STATION_AVAILABILITY_EVENT, availability));
+        }
+        log.info("SSE subscriber connected (user: {}, stations: {}), total: {}",
+                userId, watched.isEmpty() ? "all" : watched, subscribers.size());
+        return emitter;
+    }
+
+    // Giữ chỗ trước khi tạo emitter: vượt giới hạn toàn instance hoặc theo IP thì trả 503
+    private void reserveSlot(String clientIp) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new ServiceUnavailableException("Hệ thống đang quá tải kết nối realtime, vui lòng thử lại sau!");
+        }
+        int perIp = subscribersByIp.merge(clientIp, 1, Integer::sum);
+        if (perIp > maxSubscribersPerIp) {
+            releaseSlot(clientIp);
+            throw new ServiceUnavailableException("Quá nhiều kết nối realtime từ địa chỉ này, vui lòng thử lại sau!");
+        }
+    }
+
+    private void releaseSlot(String clientIp) {
+        subscriberCount.decrementAndGet();
+        subscribersByIp.computeIfPresent(clientIp, (ip, count) -> count <= 1 ? null : count - 1);
+    }
+
+    // Gọi từ nhiều nơi (completion, timeout, lỗi gửi): chỉ lần đầu trả chỗ
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            releaseSlot(subscriber.clientIp);
+        }
+    }
+
+    // name = null là heartbeat (comment)
+    private static class LiveEvent {
+        private final String name;
+        private final Object data;
+
+        private LiveEvent(String name, Object data) {
+            this.name = name;
+            this.data = data;
+        }
+
+        private SseEmitter.SseEventBuilder toSseEvent() {
+            if (name == null) {
+                return SseEmitter.event().comment("ping");
+            }
+            return SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final Long userId;
+        private final String clientIp;
+        private final Set<Long> stationIds;
+        private final Deque<LiveEvent> buffer = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private int droppedEvents;
+
+        private Subscriber(SseEmitter emitter, Long userId, String clientIp, Set<Long> stationIds) {
+            this.emitter = emitter;
+            this.userId = userId;
+            this.clientIp = clientIp;
+            this.stationIds = stationIds;
+        }
+
+        private boolean watches(Long stationId) {
+            return stationIds.isEmpty() || stationIds.contains(stationId);
+        }
+
+        // Client chậm: buffer đầy thì bỏ event cũ nhất, không để bộ nhớ tăng vô hạn
+        private void offer(LiveEvent event) {
+            synchronized (buffer) {
+                if (buffer.size() >= MAX_BUFFERED_EVENTS) {
+                    buffer.pollFirst();
+                    droppedEvents++;
+                }
+                buffer.addLast(event);
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                senderExecutor.execute(this::drain);
+            }
+        }
+
+        // Chỉ 1 luồng gửi cho mỗi subscriber tại một thời điểm, giữ đúng thứ tự event
+        private void drain() {
+            try {
+                while (true) {
+                    LiveEvent next;
+                    synchronized (buffer) {
+                        next = buffer.pollFirst();
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    emitter.send(next.toSseEvent());
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client đã ngắt kết nối
+                unsubscribe(this);
+                synchronized (buffer) {
+                    buffer.clear();
+                }
+                if (droppedEvents > 0) {
+                    log.debug("SSE subscriber closed after dropping {} events", droppedEvents);
+                }
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+
+            // Event có thể được thêm vào sau lần poll cuối nhưng trước khi nhả cờ draining
+            boolean hasPending;
+            synchronized (buffer) {
+                hasPending = !buffer.isEmpty();
+            }
+            if (hasPending) {
+                scheduleDrain();
+            }
+        }
+    }
+}
@@ -11,6 +11,8 @@ import com.evbs.BackEndEvBs.repository.PaymentRepository;
 import com.evbs.BackEndEvBs.repository.ServicePackageRepository;
 import com.evbs.BackEndEvBs.repository.UserRepository;
 import com.evbs.BackEndEvBs.util.MoMoUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,6 +52,9 @@ public class MoMoService {
     @Autowired
     private final AuthenticationService authenticationService;
 
+    @Autowired
+    private final MeterRegistry meterRegistry;
+
     @Autowired
     private EmailService emailService;
 
@@ -69,10 +74,7 @@ public class MoMoService {
 
         // BUOC 2: Kiểm tra driver có gói active và còn lượt swap không
         User currentDriver = authenticationService.getCurrentUser();
-        var activeSubscriptionOpt = driverSubscriptionRepository.findActiveSubscriptionByDriver(
-                currentDriver,
-                LocalDate.now()
-        );
+        var activeSubscriptionOpt = driverSubscriptionRepository.findActiveSubscriptionByDriver(currentDriver, LocalDate.now());
 
         if (activeSubscriptionOpt.isPresent()) {
             DriverSubscription existingSub = activeSubscriptionOpt.get();
@@ -143,12 +145,7 @@ public class MoMoService {
 
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    moMoConfig.getEndpoint(),
-                    HttpMethod.POST,
-                    entity,
-                    Map.class
-            );
+            ResponseEntity<Map> response = requestMoMo("NEW", entity);
 
             Map<String, Object> responseBody = response.getBody();
 
@@ -179,6 +176,8 @@ public class MoMoService {
     @Transactional
     public Map<String, Object> handleMoMoIPN(Map<String, String> momoData) {
         Map<String, Object> result = new HashMap<>();
+        String ipnType = "UNKNOWN";
+        String ipnOutcome = "error";
 
         try {
             // BUOC 1: Lấy data từ JSON
@@ -220,6 +219,7 @@ public class MoMoService {
 
             if (!calculatedSignature.equals(signature)) {
                 log.error(" IPN - Signature không hợp lệ!");
+                ipnOutcome = "invalid_signature";
                 throw new SecurityException("Chữ ký MoMo không hợp lệ! Có thể bị giả mạo.");
             }
 
@@ -233,6 +233,7 @@ public class MoMoService {
             boolean isUpgrade = "UPGRADE".equals(paymentType);
             boolean isRenewal = "RENEWAL".equals(paymentType);
             boolean isDeposit = "DEPOSIT".equals(paymentType);
+            ipnType = paymentType;
 
             // BUOC 4: Xử lý kết quả thanh toán
             if ("0".equals(resultCode)) {
@@ -283,6 +284,7 @@ public class MoMoService {
                     }
 
                     result.put("success", true);
+                    ipnOutcome = "success";
                     result.put("message", "Thanh toán tiền cọc pin thành công! Xe của bạn đang chờ admin duyệt.");
                     result.put("paymentType", paymentType);
                     result.put("vehicleId", vehicleId);
@@ -337,7 +339,7 @@ public class MoMoService {
                                 .orElseThrow(() -> new NotFoundException("Không tìm thấy driver ID: " + driverId));
 
                         emailService.sendPaymentSuccessEmail(driver, payment, servicePackage);
-                        log.info(" Email thanh toán thành công đã được gửi cho driver: {}", driver.getEmail());
+                        log.info(" Email thanh toán thành công đã xếp hàng gửi cho driver: {}", driver.getEmail());
 
                     } catch (Exception emailException) {
                         log.error(" Lỗi khi gửi email thanh toán thành công: {}", emailException.getMessage());
@@ -345,6 +347,7 @@ public class MoMoService {
                     }
 
                     result.put("success", true);
+                    ipnOutcome = "success";
                     result.put("message", isUpgrade ?
                             "Nâng cấp gói thành công! Gói mới đã được kích hoạt." :
                             (isRenewal ?
@@ -369,6 +372,7 @@ public class MoMoService {
                 result.put("success", false);
                 result.put("message", "Thanh toán thất bại: " + message);
                 result.put("resultCode", resultCode);
+                ipnOutcome = "failed";
             }
 
         } catch (Exception e) {
@@ -377,11 +381,30 @@ public class MoMoService {
             result.put("message", "Lỗi xử lý thanh toán: " + e.getMessage());
         }
 
+        meterRegistry.counter("evbs.momo.ipn", "type", ipnType, "outcome", ipnOutcome).increment();
         return result;
     }
 
     // HELPER METHODS
 
+    /**
+     * Gửi request tạo thanh toán tới MoMo
+     * Metric evbs.momo.request: thời gian gọi theo loại thanh toán và kết quả (success/rejected/error)
+     */
+    @SuppressWarnings("rawtypes")
+    private ResponseEntity<Map> requestMoMo(String paymentType, HttpEntity<Map<String, Object>> entity) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ResponseEntity<Map> response = restTemplate.postForEntity(moMoConfig.getEndpoint(), entity, Map.class);
+            Map body = response.getBody();
+            outcome = body != null && Integer.valueOf(0).equals(body.get("resultCode")) ? "success" : "rejected";
+            return response;
+        } finally {
+            sample.stop(meterRegistry.timer("evbs.momo.request", "type", paymentType, "outcome", outcome));
+        }
+    }
+
     /**
      * TẠO PAYMENT URL CHO NÂNG CẤP GÓI (UPGRADE)
      *
@@ -483,12 +506,7 @@ public class MoMoService {
 
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    moMoConfig.getEndpoint(),
-                    HttpMethod.POST,
-                    entity,
-                    Map.class
-            );
+            ResponseEntity<Map> response = requestMoMo("UPGRADE", entity);
 
             Map<String, Object> responseBody = response.getBody();
 
@@ -652,11 +670,7 @@ public class MoMoService {
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
 
             @SuppressWarnings("rawtypes")
-            ResponseEntity<Map> response = restTemplate.postForEntity(
-                    moMoConfig.getEndpoint(),
-                    entity,
-                    Map.class
-            );
+            ResponseEntity<Map> response = requestMoMo("RENEWAL", entity);
 
             @SuppressWarnings("unchecked")
             Map<String, Object> responseBody = response.getBody();
@@ -780,11 +794,7 @@ public class MoMoService {
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
 
             @SuppressWarnings("rawtypes")
-            ResponseEntity<Map> response = restTemplate.postForEntity(
-                    moMoConfig.getEndpoint(),
-                    entity,
-                    Map.class
-            );
+            ResponseEntity<Map> response = requestMoMo("DEPOSIT", entity);
 
             @SuppressWarnings("unchecked")
             Map<String, Object> responseBody = response.getBody();
@@ -4,13 +4,16 @@
     import com.evbs.BackEndEvBs.entity.User;
     import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
     import com.evbs.BackEndEvBs.model.request.PaymentRequest;
+    import com.evbs.BackEndEvBs.model.response.PageResponse;
     import com.evbs.BackEndEvBs.repository.PaymentRepository;
+    import com.evbs.BackEndEvBs.util.PageUtil;
     import lombok.RequiredArgsConstructor;
     import lombok.extern.slf4j.Slf4j;
     import org.springframework.beans.factory.annotation.Autowired;
     import org.springframework.stereotype.Service;
     import org.springframework.transaction.annotation.Transactional;
 
+    import java.time.LocalDateTime;
     import java.util.List;
 
     @Service
@@ -24,13 +27,20 @@
     @Autowired
     private final AuthenticationService authenticationService;
 
+    /**
+     * Lấy payments theo trang (keyset theo ID giảm dần)
+     */
     @Transactional(readOnly = true)
-    public List<Payment> getAllPayments() {
+    public PageResponse<Payment> getAllPayments(Long cursor, Integer size, Payment.Status status,
+                                                LocalDateTime from, LocalDateTime to) {
         User currentUser = authenticationService.getCurrentUser();
         if (currentUser.getRole() != User.Role.ADMIN && currentUser.getRole() != User.Role.STAFF) {
             throw new AuthenticationException("Từ chối truy cập. Chỉ Admin/Staff mới được phép thực hiện thao tác này.");
         }
-        return paymentRepository.findAll();
+        return PageUtil.toPageResponse(
+                paymentRepository.findPageWithDetails(cursor, status, from, to, PageUtil.firstPage(size)),
+                Payment::getId
+        );
     }
 
     @Transactional(readOnly = true)
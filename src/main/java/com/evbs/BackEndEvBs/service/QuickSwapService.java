@@ -7,6 +7,8 @@ import com.evbs.BackEndEvBs.model.request.QuickSwapRequest;
 import com.evbs.BackEndEvBs.model.response.BatteryInfoResponse;
 import com.evbs.BackEndEvBs.model.response.QuickSwapPreviewResponse;
 import com.evbs.BackEndEvBs.repository.*;
+import com.evbs.BackEndEvBs.util.TransactionUtil;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,7 +16,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -56,6 +57,9 @@ public class QuickSwapService {
     @Autowired
     private final BookingRepository bookingRepository;
 
+    @Autowired
+    private final SwapCreditService swapCreditService;
+
     /**
      * Preview thông tin đổi pin nhanh tại trạm
      * CHỈ HIỂN THỊ PIN MỚI SẼ ĐỔI
@@ -107,15 +111,14 @@ public class QuickSwapService {
         response.setBatteryTypeCapacity(vehicleBatteryType.getCapacity());
         
         // 4. Kiểm tra subscription và lượt swap
-        DriverSubscription activeSubscription = driverSubscriptionRepository
-                .findActiveSubscriptionByDriver(currentUser, LocalDate.now())
+        SwapCreditService.Balance balance = swapCreditService.findActiveBalance(currentUser.getId())
                 .orElseThrow(() -> new IllegalStateException("Chưa có gói dịch vụ. Vui lòng mua gói!"));
         
-        if (activeSubscription.getRemainingSwaps() <= 0) {
+        if (balance.remainingSwaps() <= 0) {
             throw new IllegalStateException("Gói đã hết lượt. Vui lòng gia hạn!");
         }
         
-        response.setRemainingSwaps(activeSubscription.getRemainingSwaps());
+        response.setRemainingSwaps(balance.remainingSwaps());
         
         // 5. Tìm pin mới tại trạm (sẵn sàng để đổi)
         List<Battery> availableBatteries = batteryRepository.findAll()
@@ -152,6 +155,7 @@ public class QuickSwapService {
      * DRIVER TỰ ĐỔI - Không cần booking trước, đổi luôn khi quét QR
      */
     @Transactional
+    @Timed(value = "evbs.swap.quick", description = "Đổi pin nhanh không cần booking")
     public SwapTransaction executeQuickSwap(QuickSwapRequest request) {
         User currentUser = authenticationService.getCurrentUser();
         
@@ -199,19 +203,11 @@ public class QuickSwapService {
             throw new AuthenticationException("Trạm không hỗ trợ loại pin của xe này!");
         }
         
-        // 4. Kiểm tra subscription và lượt swap
-        DriverSubscription activeSubscription = driverSubscriptionRepository
-                .findActiveSubscriptionByDriver(currentUser, LocalDate.now())
-                .orElse(null);
-        
-        if (activeSubscription == null) {
+        // 4. Kiểm tra subscription (lượt swap được trừ nguyên tử khi hoàn tất)
+        if (swapCreditService.findActiveSubscriptionId(currentUser.getId()).isEmpty()) {
             throw new AuthenticationException("Chưa có gói dịch vụ. Vui lòng mua gói!");
         }
         
-        if (activeSubscription.getRemainingSwaps() <= 0) {
-            throw new AuthenticationException("Gói đã hết lượt. Vui lòng gia hạn!");
-        }
-        
         // 5. Tìm pin cũ trên xe (nếu có)
         Battery swapInBattery = vehicle.getCurrentBattery();
         
@@ -282,8 +278,7 @@ public class QuickSwapService {
         if (swapOutBattery != null) {
             java.util.Random random = new java.util.Random();
             BigDecimal randomChargeLevel = BigDecimal.valueOf(10 + random.nextInt(40)); // Random 10-49%
-            swapOutBattery.setChargeLevel(randomChargeLevel);
-            batteryRepository.save(swapOutBattery);
+            swapOutBattery.setChargeLevel(randomChargeLevel); // Lưu cùng các thay đổi khác của pin trong handleBatterySwap
             log.info("Pin ID {} được đổi vào xe - Snapshot: {}%, Mức pin hiện tại giảm xuống: {}%",
                     swapOutBattery.getId(),
                     savedTransaction.getSwapOutBatteryChargeLevel().intValue(),
@@ -291,7 +286,7 @@ public class QuickSwapService {
         }
         
         // 10. Xử lý hoàn chỉnh swap transaction (giống SwapTransactionService)
-        handleQuickSwapCompletion(savedTransaction, activeSubscription);
+        handleQuickSwapCompletion(savedTransaction);
         
         log.info("Quick swap hoàn tất - Transaction ID: {}", savedTransaction.getId());
         
@@ -304,10 +299,7 @@ public class QuickSwapService {
      * Xử lý logic hoàn chỉnh khi quick swap transaction COMPLETED
      * Học theo SwapTransactionService.handleTransactionCompletion()
      */
-    private void handleQuickSwapCompletion(
-            SwapTransaction transaction,
-            DriverSubscription subscription
-    ) {
+    private void handleQuickSwapCompletion(SwapTransaction transaction) {
         // 1. Xử lý pin swap (lấy staff từ transaction nếu có, nếu không dùng driver)
         User staff = transaction.getStaff();
         if (staff == null) {
@@ -315,28 +307,27 @@ public class QuickSwapService {
         }
         handleBatterySwap(transaction, staff);
         
-        // 2. Trừ lượt swap từ subscription
-        int oldRemaining = subscription.getRemainingSwaps();
-        subscription.setRemainingSwaps(oldRemaining - 1);
-        
-        log.info("Đã trừ 1 lượt swap. Driver: {}, {} → {}",
-                transaction.getDriver().getId(), oldRemaining, subscription.getRemainingSwaps());
+        // 2. Trừ lượt swap từ subscription (hết lượt thì cả giao dịch rollback)
+        SwapCreditService.Balance balance = swapCreditService.debit(
+                transaction.getDriver().getId(), SwapCreditLedger.Reason.QUICK_SWAP, transaction.getId());
         
         // 3. Nếu hết lượt, chuyển sang EXPIRED
-        if (subscription.getRemainingSwaps() <= 0) {
-            subscription.setStatus(DriverSubscription.Status.EXPIRED);
-        }
-        
-        driverSubscriptionRepository.save(subscription);
-        
-        // 4. Gửi email thông báo đổi pin thành công
-        try {
-            emailService.sendSwapSuccessEmail(transaction.getDriver(), transaction, subscription);
-            log.info("Email đổi pin thành công đã được gửi cho tài xế: {}", 
-                    transaction.getDriver().getEmail());
-        } catch (Exception e) {
-            log.error("Lỗi khi gửi email đổi pin thành công: {}", e.getMessage());
-        }
+        swapCreditService.expireIfExhausted(balance);
+        
+        // Load sau khi trừ lượt để email hiển thị đúng số lượt còn lại
+        DriverSubscription subscription = driverSubscriptionRepository.findById(balance.subscriptionId())
+                .orElseThrow(() -> new NotFoundException("Không tìm thấy gói dịch vụ với ID: " + balance.subscriptionId()));
+        
+        // 4. Gửi email thông báo đổi pin thành công (sau commit: không giữ transaction trong lúc render email)
+        TransactionUtil.afterCommit(() -> {
+            try {
+                emailService.sendSwapSuccessEmail(transaction.getDriver(), transaction, subscription);
+                log.info("Email đổi pin thành công đã xếp hàng gửi cho tài xế: {}",
+                        transaction.getDriver().getEmail());
+            } catch (Exception e) {
+                log.error("Lỗi khi tạo email đổi pin thành công: {}", e.getMessage());
+            }
+        });
     }
     
     /**
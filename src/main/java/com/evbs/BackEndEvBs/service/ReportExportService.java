@@ -0,0 +1,229 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.entity.User;
+import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
+import com.evbs.BackEndEvBs.model.response.BookingExportRow;
+import com.evbs.BackEndEvBs.model.response.PaymentExportRow;
+import com.evbs.BackEndEvBs.model.response.SwapTransactionExportRow;
+import com.evbs.BackEndEvBs.repository.BookingRepository;
+import com.evbs.BackEndEvBs.repository.PaymentRepository;
+import com.evbs.BackEndEvBs.repository.SwapTransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Service xuất báo cáo dạng CSV / NDJSON
+ * Đọc từng dòng từ DB qua Stream và ghi thẳng ra response, bộ nhớ không phụ thuộc số dòng
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportExportService {
+
+    public enum ExportFormat {
+        CSV, NDJSON;
+
+        public static ExportFormat from(String value) {
+            try {
+                return ExportFormat.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Định dạng xuất không hợp lệ: " + value + " (chỉ hỗ trợ csv, ndjson)");
+            }
+        }
+    }
+
+    // Flush sau mỗi N dòng để client nhận dữ liệu ngay, không giữ buffer lớn
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private static final String[] SWAP_TRANSACTION_HEADER = {
+            "id", "startTime", "endTime", "status", "stationId", "stationName", "driverId", "driverName",
+            "plateNumber", "staffName", "swapOutBatteryModel", "swapOutBatteryChargeLevel",
+            "swapInBatteryModel", "swapInBatteryChargeLevel", "cost"
+    };
+
+    private static final String[] PAYMENT_HEADER = {
+            "id", "paymentDate", "amount", "paymentMethod", "status", "paymentType", "customerName",
+            "transactionId", "subscriptionId", "vehicleId", "stationId"
+    };
+
+    private static final String[] BOOKING_HEADER = {
+            "id", "bookingTime", "createdAt", "status", "stationId", "stationName", "driverId", "driverName",
+            "plateNumber", "confirmationCode", "confirmedByName", "cancellationReason"
+    };
+
+    @Autowired
+    private final SwapTransactionRepository swapTransactionRepository;
+
+    @Autowired
+    private final PaymentRepository paymentRepository;
+
+    @Autowired
+    private final BookingRepository bookingRepository;
+
+    @Autowired
+    private final StaffStationAccessCache staffStationAccessCache;
+
+    @Autowired
+    private final AuthenticationService authenticationService;
+
+    @Autowired
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Xác định phạm vi trạm được xuất (gọi trong request thread, trước khi bắt đầu stream)
+     * - Admin: trạm được chọn, hoặc toàn hệ thống (danh sách chỉ chứa null)
+     * - Staff: trạm được chọn (phải thuộc quyền quản lý), hoặc tất cả trạm của mình
+     */
+    @Transactional(readOnly = true)
+    public List<Long> resolveStationScope(Long stationId) {
+        User currentUser = authenticationService.getCurrentUser();
+        if (currentUser.getRole() == User.Role.ADMIN) {
+            return Collections.singletonList(stationId);
+        }
+        if (currentUser.getRole() != User.Role.STAFF) {
+            throw new AuthenticationException("Chỉ Admin/Staff mới được xuất báo cáo!");
+        }
+
+        Set<Long> myStationIds = staffStationAccessCache.getStationIds(currentUser.getId());
+        if (myStationIds.isEmpty()) {
+            throw new AuthenticationException("Nhân viên chưa được phân công vào trạm nào");
+        }
+        if (stationId == null) {
+            return new ArrayList<>(myStationIds);
+        }
+        if (!myStationIds.contains(stationId)) {
+            throw new AuthenticationException("Bạn không có quyền xuất báo cáo của trạm này!");
+        }
+        return List.of(stationId);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportSwapTransactions(List<Long> stationScope, LocalDateTime from, LocalDateTime to,
+                                       ExportFormat format, OutputStream out) throws IOException {
+        long count = writeRows(stationScope,
+                stationId -> swapTransactionRepository.streamForExport(stationId, from, to),
+                SWAP_TRANSACTION_HEADER,
+                row -> new Object[]{
+                        row.getId(), row.getStartTime(), row.getEndTime(), row.getStatus(),
+                        row.getStationId(), row.getStationName(), row.getDriverId(), row.getDriverName(),
+                        row.getPlateNumber(), row.getStaffName(), row.getSwapOutBatteryModel(),
+                        row.getSwapOutBatteryChargeLevel(), row.getSwapInBatteryModel(),
+                        row.getSwapInBatteryChargeLevel(), row.getCost()
+                },
+                format, out);
+        log.info("Exported {} swap transactions ({})", count, format);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportPayments(List<Long> stationScope, LocalDateTime from, LocalDateTime to,
+                               ExportFormat format, OutputStream out) throws IOException {
+        long count = writeRows(stationScope,
+                stationId -> paymentRepository.streamForExport(stationId, from, to),
+                PAYMENT_HEADER,
+                row -> new Object[]{
+                        row.getId(), row.getPaymentDate(), row.getAmount(), row.getPaymentMethod(),
+                        row.getStatus(), row.getPaymentType(), row.getCustomerName(),
+                        row.getTransactionId(), row.getSubscriptionId(), row.getVehicleId(), row.getStationId()
+                },
+                format, out);
+        log.info("Exported {} payments ({})", count, format);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportBookings(List<Long> stationScope, LocalDateTime from, LocalDateTime to,
+                               ExportFormat format, OutputStream out) throws IOException {
+        long count = writeRows(stationScope,
+                stationId -> bookingRepository.streamForExport(stationId, from, to),
+                BOOKING_HEADER,
+                row -> new Object[]{
+                        row.getId(), row.getBookingTime(), row.getCreatedAt(), row.getStatus(),
+                        row.getStationId(), row.getStationName(), row.getDriverId(), row.getDriverName(),
+                        row.getPlateNumber(), row.getConfirmationCode(), row.getConfirmedByName(),
+                        row.getCancellationReason()
+                },
+                format, out);
+        log.info("Exported {} bookings ({})", count, format);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    /**
+     * Ghi lần lượt từng trạm trong scope, mỗi trạm một Stream (đóng ngay sau khi đọc xong)
+     */
+    private <T> long writeRows(List<Long> stationScope, Function<Long, Stream<T>> query, String[] header,
+                               Function<T, Object[]> csvColumns, ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            // BOM để Excel đọc đúng tiếng Việt
+            writer.write('\uFEFF');
+            writeCsvLine(writer, header);
+        }
+
+        long count = 0;
+        for (Long stationId : stationScope) {
+            try (Stream<T> rows = query.apply(stationId)) {
+                Iterator<T> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    T row = iterator.next();
+                    if (format == ExportFormat.CSV) {
+                        writeCsvLine(writer, csvColumns.apply(row));
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(row));
+                        writer.write('\n');
+                    }
+                    if (++count % FLUSH_EVERY_ROWS == 0) {
+                        writer.flush();
+                    }
+                }
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escapeCsv(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    // Chuỗi do người dùng nhập bắt đầu bằng = + - @ (hoặc tab / CR) bị Excel hiểu là công thức: thêm ' phía trước.
+    // Chỉ áp dụng cho chuỗi, số âm (vd cost) vẫn giữ nguyên để tính toán được
+    static String escapeCsv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (value instanceof CharSequence && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        // Bọc giá trị trong dấu nháy kép nếu chứa dấu phẩy, nháy kép hoặc xuống dòng
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
@@ -0,0 +1,230 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.model.response.ScheduledJobRunResponse;
+import com.evbs.BackEndEvBs.model.response.ScheduledJobStatusResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Quản lý các lần chạy của scheduled job (@ScheduledJob) trên node hiện tại
+ * - Chống chạy chồng: lần trước chưa xong thì lần mới bị bỏ qua (SKIPPED_OVERLAP)
+ * - Watchdog: job chạy quá maxRuntimeMs bị ghi nhận TIMED_OUT và interrupt (app.scheduler.watchdog.interrupt)
+ * - Lịch sử chạy gần nhất của từng job + metrics evbs.scheduler.runs / evbs.scheduler.rows
+ */
+@Service
+@Slf4j
+public class ScheduledJobRegistry {
+
+    public enum Outcome {
+        SUCCESS,
+        FAILED,
+        TIMED_OUT,
+        SKIPPED_OVERLAP
+    }
+
+    @FunctionalInterface
+    public interface JobBody {
+        Object run() throws Throwable;
+    }
+
+    private static final int HISTORY_SIZE = 50;
+    private static final long WATCHDOG_PERIOD_MS = 5000;
+
+    // Lần chạy hiện tại trên thread, để job cộng dồn số bản ghi đã xử lý
+    private static final ThreadLocal<RunningJob> CURRENT = new ThreadLocal<>();
+
+    private static final class RunningJob {
+        private final Thread thread = Thread.currentThread();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+        private int items;
+        private volatile boolean timedOut;
+        // Đổi dưới synchronized(this) cùng với việc interrupt, tránh interrupt nhầm việc khác trên thread
+        private boolean finished;
+    }
+
+    private static final class JobState {
+        private volatile long maxRuntimeMs;
+        private final AtomicReference<RunningJob> running = new AtomicReference<>();
+        private final Deque<ScheduledJobRunResponse> history = new ArrayDeque<>();
+        private final AtomicLong totalRuns = new AtomicLong();
+        private final AtomicLong failedRuns = new AtomicLong();
+        private final AtomicLong skippedRuns = new AtomicLong();
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final SchedulerLockService schedulerLockService;
+    private final boolean interruptOnTimeout;
+
+    private final Map<String, JobState> jobs = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService watchdogExecutor;
+
+    public ScheduledJobRegistry(MeterRegistry meterRegistry,
+                                SchedulerLockService schedulerLockService,
+                                @Value("${app.scheduler.watchdog.interrupt:true}") boolean interruptOnTimeout) {
+        this.meterRegistry = meterRegistry;
+        this.schedulerLockService = schedulerLockService;
+        this.interruptOnTimeout = interruptOnTimeout;
+    }
+
+    @PostConstruct
+    void startWatchdog() {
+        watchdogExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scheduled-job-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdogExecutor.scheduleWithFixedDelay(this::checkRuntimes, WATCHDOG_PERIOD_MS, WATCHDOG_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stopWatchdog() {
+        watchdogExecutor.shutdownNow();
+    }
+
+    /**
+     * Chạy job nếu lần trước đã xong, ghi lịch sử và metrics
+     */
+    public Object run(String jobName, long maxRuntimeMs, JobBody body) throws Throwable {
+        JobState state = jobs.computeIfAbsent(jobName, k -> new JobState());
+        state.maxRuntimeMs = maxRuntimeMs;
+
+        RunningJob run = new RunningJob();
+        if (!state.running.compareAndSet(null, run)) {
+            RunningJob active = state.running.get();
+            log.warn("Job {} vẫn đang chạy từ {}, bỏ qua lần chạy này", jobName,
+                    active != null ? active.startedAt : "?");
+            state.skippedRuns.incrementAndGet();
+            record(jobName, state, new ScheduledJobRunResponse(run.startedAt, 0L, 0,
+                    Outcome.SKIPPED_OVERLAP, null, run.thread.getName()));
+            return null;
+        }
+
+        RunningJob previous = CURRENT.get();
+        CURRENT.set(run);
+        Outcome outcome = Outcome.SUCCESS;
+        String error = null;
+        try {
+            return body.run();
+        } catch (Throwable e) {
+            outcome = run.timedOut ? Outcome.TIMED_OUT : Outcome.FAILED;
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            throw e;
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+            synchronized (run) {
+                run.finished = true;
+            }
+            state.running.set(null);
+            if (outcome == Outcome.SUCCESS && run.timedOut) {
+                outcome = Outcome.TIMED_OUT;
+            }
+            // Interrupt của watchdog không được để lại cho lần chạy sau trên cùng thread pool
+            if (run.timedOut) {
+                Thread.interrupted();
+            }
+            long durationMs = (System.nanoTime() - run.startNanos) / 1_000_000;
+            state.totalRuns.incrementAndGet();
+            if (outcome != Outcome.SUCCESS) {
+                state.failedRuns.incrementAndGet();
+            } else {
+                meterRegistry.summary("evbs.scheduler.rows", "job", jobName).record(run.items);
+            }
+            record(jobName, state, new ScheduledJobRunResponse(run.startedAt, durationMs, run.items,
+                    outcome, error, run.thread.getName()));
+        }
+    }
+
+    /**
+     * Cộng số bản ghi job đã xử lý vào lần chạy hiện tại (gọi từ bên trong job)
+     */
+    public void addItems(int count) {
+        RunningJob run = CURRENT.get();
+        if (run != null) {
+            run.items += count;
+        }
+    }
+
+    /**
+     * Trạng thái và lịch sử chạy của tất cả job trên node này
+     */
+    public List<ScheduledJobStatusResponse> getJobStatuses() {
+        List<ScheduledJobStatusResponse> statuses = new ArrayList<>();
+        jobs.forEach((jobName, state) -> {
+            RunningJob active = state.running.get();
+            List<ScheduledJobRunResponse> recentRuns;
+            synchronized (state.history) {
+                recentRuns = new ArrayList<>(state.history);
+            }
+            statuses.add(new ScheduledJobStatusResponse(
+                    jobName,
+                    schedulerLockService.getNodeId(),
+                    state.maxRuntimeMs,
+                    active != null ? active.startedAt : null,
+                    state.totalRuns.get(),
+                    state.failedRuns.get(),
+                    state.skippedRuns.get(),
+                    recentRuns));
+        });
+        statuses.sort(Comparator.comparing(ScheduledJobStatusResponse::getJobName));
+        return statuses;
+    }
+
+    private void record(String jobName, JobState state, ScheduledJobRunResponse run) {
+        meterRegistry.counter("evbs.scheduler.runs", "job", jobName, "outcome", run.getOutcome().name()).increment();
+        synchronized (state.history) {
+            state.history.addFirst(run);
+            if (state.history.size() > HISTORY_SIZE) {
+                state.history.removeLast();
+            }
+        }
+    }
+
+    private void checkRuntimes() {
+        jobs.forEach((jobName, state) -> {
+            RunningJob run = state.running.get();
+            if (run == null || run.timedOut) {
+                return;
+            }
+            long elapsedMs = (System.nanoTime() - run.startNanos) / 1_000_000;
+            if (elapsedMs <= state.maxRuntimeMs) {
+                return;
+            }
+            synchronized (run) {
+                if (run.finished) {
+                    return;
+                }
+                run.timedOut = true;
+                if (interruptOnTimeout) {
+                    run.thread.interrupt();
+                }
+            }
+            meterRegistry.counter("evbs.scheduler.overrun", "job", jobName).increment();
+            log.error("Job {} chạy {} ms, vượt giới hạn {} ms (thread {}){}", jobName, elapsedMs,
+                    state.maxRuntimeMs, run.thread.getName(), interruptOnTimeout ? " - interrupt" : "");
+        });
+    }
+}
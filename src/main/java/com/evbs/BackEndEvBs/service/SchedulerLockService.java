@@ -0,0 +1,254 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.entity.SchedulerLease;
+import com.evbs.BackEndEvBs.repository.SchedulerLeaseRepository;
+import com.evbs.BackEndEvBs.util.TransactionUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Điều phối scheduled job khi chạy nhiều instance: mỗi job (hoặc mỗi shard trạm của job) chỉ chạy trên 1 node
+ *
+ * - Lease lưu ở bảng SchedulerLease, nhận / gia hạn / trả bằng UPDATE có điều kiện (transaction riêng),
+ *   hạn lease tính theo giờ của DB
+ * - Heartbeat gia hạn lease trên thread riêng, không phụ thuộc scheduler của Spring
+ * - Fencing: ngay trước khi transaction của job commit, kiểm tra node vẫn giữ đúng token.
+ *   Mất lease giữa chừng (GC pause, mất kết nối DB lâu) thì transaction của job bị rollback
+ * - Sharding (app.scheduler.station-shards > 1): chia việc theo stationId % số shard,
+ *   mỗi shard là 1 lease riêng nên các node chia nhau xử lý
+ */
+@Service
+@Slf4j
+public class SchedulerLockService {
+
+    /**
+     * Phần trạm mà một lần chạy job được xử lý: stationId % count = index
+     * Job đưa index / count vào câu query (vd. BatteryRepository.findAllInStationShard) để mỗi shard
+     * chỉ đọc phần của mình; pin không thuộc trạm nào (trong kho) được tính vào shard 0
+     */
+    public record StationShard(int index, int count) {
+
+        public static final StationShard ALL = new StationShard(0, 1);
+
+        @Override
+        public String toString() {
+            return count <= 1 ? "all" : index + "/" + count;
+        }
+    }
+
+    private record Lease(String jobName, String name, Long fencingToken) {
+    }
+
+    private final SchedulerLeaseRepository leaseRepository;
+    private final TransactionTemplate requiresNew;
+    private final MeterRegistry meterRegistry;
+
+    private final String nodeId;
+    private final Duration leaseDuration;
+    private final Duration heartbeatInterval;
+    private final int stationShards;
+    private final int maxShardsPerNode;
+
+    // Lease node đang giữ (theo tên lease) để heartbeat gia hạn
+    private final Map<String, Lease> heldLeases = new ConcurrentHashMap<>();
+    // Tên lease đã chắc chắn có dòng trong DB
+    private final Set<String> knownLeaseNames = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService heartbeatExecutor;
+
+    public SchedulerLockService(SchedulerLeaseRepository leaseRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.scheduler.node-id:}") String nodeId,
+                                @Value("${app.scheduler.lease.duration-ms:60000}") long leaseDurationMs,
+                                @Value("${app.scheduler.lease.heartbeat-ms:15000}") long heartbeatMs,
+                                @Value("${app.scheduler.station-shards:1}") int stationShards,
+                                @Value("${app.scheduler.max-shards-per-node:0}") int maxShardsPerNode) {
+        if (heartbeatMs <= 0 || heartbeatMs >= leaseDurationMs) {
+            throw new IllegalArgumentException("app.scheduler.lease.heartbeat-ms phải > 0 và nhỏ hơn duration-ms");
+        }
+        this.leaseRepository = leaseRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.meterRegistry = meterRegistry;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.leaseDuration = Duration.ofMillis(leaseDurationMs);
+        this.heartbeatInterval = Duration.ofMillis(heartbeatMs);
+        this.stationShards = Math.max(1, stationShards);
+        this.maxShardsPerNode = maxShardsPerNode <= 0 ? this.stationShards : maxShardsPerNode;
+    }
+
+    @PostConstruct
+    void startHeartbeat() {
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scheduler-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodMs = heartbeatInterval.toMillis();
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        log.info("Scheduler node {}: lease {}s, heartbeat {}s, {} station shard(s), max {} per node",
+                nodeId, leaseDuration.toSeconds(), heartbeatInterval.toSeconds(), stationShards, maxShardsPerNode);
+    }
+
+    @PreDestroy
+    void stopHeartbeat() {
+        heartbeatExecutor.shutdownNow();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Chạy task nếu nhận được lease của job, bỏ qua nếu node khác đang chạy
+     * Gọi bên trong transaction của job để được fencing trước commit
+     */
+    public boolean runExclusive(String jobName, Runnable task) {
+        return runWithLease(jobName, jobName, StationShard.ALL, shard -> task.run());
+    }
+
+    /**
+     * Chạy task cho từng shard trạm mà node nhận được lease (tối đa app.scheduler.max-shards-per-node)
+     * Không bật sharding thì tương đương runExclusive với StationShard.ALL
+     *
+     * @return số shard đã chạy trên node này
+     */
+    public int runSharded(String jobName, Consumer<StationShard> task) {
+        if (stationShards <= 1) {
+            return runWithLease(jobName, jobName, StationShard.ALL, task) ? 1 : 0;
+        }
+        // Mỗi node bắt đầu từ shard khác nhau để các node ít tranh cùng một lease
+        int start = Math.floorMod(nodeId.hashCode(), stationShards);
+        int ran = 0;
+        for (int i = 0; i < stationShards && ran < maxShardsPerNode; i++) {
+            int index = (start + i) % stationShards;
+            String leaseName = jobName + ":shard-" + index + "/" + stationShards;
+            if (runWithLease(jobName, leaseName, new StationShard(index, stationShards), task)) {
+                ran++;
+            }
+        }
+        return ran;
+    }
+
+    private boolean runWithLease(String jobName, String leaseName, StationShard shard, Consumer<StationShard> task) {
+        Lease lease = tryAcquire(jobName, leaseName);
+        if (lease == null) {
+            log.debug("Job {} (shard {}) đang chạy trên node khác, bỏ qua", jobName, shard);
+            meterRegistry.counter("evbs.scheduler.lease", "job", jobName, "outcome", "skipped").increment();
+            return false;
+        }
+        meterRegistry.counter("evbs.scheduler.lease", "job", jobName, "outcome", "acquired").increment();
+        heldLeases.put(leaseName, lease);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                task.accept(shard);
+            } finally {
+                release(lease);
+            }
+            return true;
+        }
+        // Trả lease khi transaction của job kết thúc (sau commit), không phải khi task return
+        TransactionUtil.beforeCommit(() -> fence(lease));
+        TransactionUtil.afterCompletion(() -> release(lease));
+        task.accept(shard);
+        return true;
+    }
+
+    private Lease tryAcquire(String jobName, String leaseName) {
+        ensureLeaseRow(leaseName);
+        return requiresNew.execute(status -> {
+            if (leaseRepository.tryAcquire(leaseName, nodeId, leaseDuration.toMillis()) == 0) {
+                return null;
+            }
+            return new Lease(jobName, leaseName, leaseRepository.findFencingToken(leaseName, nodeId));
+        });
+    }
+
+    // Dòng lease được tạo một lần, node tạo sau gặp lỗi trùng khóa thì bỏ qua
+    private void ensureLeaseRow(String leaseName) {
+        if (knownLeaseNames.contains(leaseName)) {
+            return;
+        }
+        try {
+            requiresNew.executeWithoutResult(status -> {
+                if (!leaseRepository.existsById(leaseName)) {
+                    SchedulerLease lease = new SchedulerLease();
+                    lease.setName(leaseName);
+                    lease.setLeaseUntil(LocalDateTime.of(2000, 1, 1, 0, 0));
+                    leaseRepository.saveAndFlush(lease);
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Lease {} vừa được node khác tạo", leaseName);
+        }
+        knownLeaseNames.add(leaseName);
+    }
+
+    private void fence(Lease lease) {
+        if (leaseRepository.fence(lease.name(), nodeId, lease.fencingToken()) == 0) {
+            meterRegistry.counter("evbs.scheduler.lease", "job", lease.jobName(), "outcome", "lost").increment();
+            throw new IllegalStateException("Mất lease " + lease.name() + " (token " + lease.fencingToken()
+                    + "), hủy kết quả của job để tránh ghi trùng với node khác");
+        }
+    }
+
+    private void release(Lease lease) {
+        heldLeases.remove(lease.name(), lease);
+        try {
+            requiresNew.executeWithoutResult(status ->
+                    leaseRepository.release(lease.name(), nodeId, lease.fencingToken()));
+        } catch (Exception e) {
+            // Không trả được thì lease tự hết hạn sau leaseDuration
+            log.warn("Không trả được lease {}: {}", lease.name(), e.getMessage());
+        }
+    }
+
+    private void heartbeat() {
+        for (Lease lease : heldLeases.values()) {
+            try {
+                Integer renewed = requiresNew.execute(status ->
+                        leaseRepository.renew(lease.name(), nodeId, lease.fencingToken(), leaseDuration.toMillis()));
+                if (renewed == null || renewed == 0) {
+                    heldLeases.remove(lease.name(), lease);
+                    log.warn("Lease {} (token {}) đã hết hạn hoặc bị node khác nhận", lease.name(), lease.fencingToken());
+                }
+            } catch (Exception e) {
+                log.warn("Heartbeat lease {} thất bại: {}", lease.name(), e.getMessage());
+            }
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        // Hậu tố ngẫu nhiên: node khởi động lại không dùng nhầm lease của tiến trình cũ
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
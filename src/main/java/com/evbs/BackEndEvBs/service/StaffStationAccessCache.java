@@ -0,0 +1,105 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.repository.StaffStationAssignmentRepository;
+import com.evbs.BackEndEvBs.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bảng phân quyền Staff → Station giữ trong bộ nhớ (staffId → tập stationId)
+ * - Nạp theo từng staff khi cần (1 query theo StaffID), mỗi mục chỉ dùng trong app.staff-access.ttl-seconds:
+ *   grant / revoke trên instance khác được thấy muộn nhất sau TTL
+ * - Trên instance xử lý assign/unassign, mục của staff bị bỏ ngay sau khi transaction commit
+ * - Mục nạp từ DB chỉ được ghi vào map nếu không có thay đổi nào (commit / invalidate) xảy ra sau lúc bắt đầu query,
+ *   tránh ghi đè kết quả cũ lên một grant / revoke vừa commit
+ * Kiểm tra quyền phần lớn chỉ là tra cứu ID, không cần load entity Station
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StaffStationAccessCache {
+
+    // stationIds == null: mục vừa bị bỏ, phải nạp lại; changedAt dùng để so với thời điểm bắt đầu nạp
+    private record Entry(Set<Long> stationIds, long changedAt) {
+
+        boolean isFresh(long now, long ttlNanos) {
+            return stationIds != null && now - changedAt < ttlNanos;
+        }
+    }
+
+    @Autowired
+    private final StaffStationAssignmentRepository assignmentRepository;
+
+    @Value("${app.staff-access.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile long invalidatedAllAt = System.nanoTime();
+
+    /**
+     * Bỏ toàn bộ bảng (vd. sau khi dữ liệu phân công bị ghi thẳng vào DB), các staff được nạp lại khi cần
+     */
+    public void reload() {
+        invalidatedAllAt = System.nanoTime();
+        entries.clear();
+        log.info("Staff-station access cache invalidated");
+    }
+
+    /**
+     * Staff có được phân công vào trạm này không
+     */
+    public boolean hasAccess(Long staffId, Long stationId) {
+        if (staffId == null || stationId == null) {
+            return false;
+        }
+        return getStationIds(staffId).contains(stationId);
+    }
+
+    /**
+     * Danh sách ID các trạm mà staff quản lý (read-only)
+     */
+    public Set<Long> getStationIds(Long staffId) {
+        if (staffId == null) {
+            return Set.of();
+        }
+        long now = System.nanoTime();
+        Entry entry = entries.get(staffId);
+        if (entry != null && entry.isFresh(now, TimeUnit.SECONDS.toNanos(ttlSeconds))) {
+            return entry.stationIds();
+        }
+        return load(staffId);
+    }
+
+    // Gọi trong transaction phân công: bỏ mục của staff khi DB đã commit, lần kiểm tra sau đọc lại từ DB
+    public void grant(Long staffId, Long stationId) {
+        TransactionUtil.afterCommit(() -> invalidate(staffId));
+    }
+
+    // Gọi trong transaction thu hồi: bỏ mục của staff khi DB đã commit
+    public void revoke(Long staffId, Long stationId) {
+        TransactionUtil.afterCommit(() -> invalidate(staffId));
+    }
+
+    private void invalidate(Long staffId) {
+        entries.put(staffId, new Entry(null, System.nanoTime()));
+    }
+
+    private Set<Long> load(Long staffId) {
+        long loadStart = System.nanoTime();
+        Set<Long> stationIds = Set.copyOf(assignmentRepository.findStationIdsByStaffId(staffId));
+        if (loadStart - invalidatedAllAt >= 0) {
+            entries.compute(staffId, (id, existing) ->
+                    existing != null && existing.changedAt() - loadStart > 0 ? existing : new Entry(stationIds, loadStart));
+        }
+        return stationIds;
+    }
+}
@@ -15,6 +15,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -32,6 +33,9 @@ public class StaffStationAssignmentService {
     @Autowired
     private final AuthenticationService authenticationService;
 
+    @Autowired
+    private final StaffStationAccessCache staffStationAccessCache;
+
     // Giới hạn số trạm tối đa mà 1 nhân viên có thể quản lý
     private static final int MAX_STATIONS_PER_STAFF = 5;
 
@@ -92,6 +96,7 @@ public class StaffStationAssignmentService {
         // AssignedAt sẽ tự động = thời gian hiện tại trong entity
 
         StaffStationAssignment savedAssignment = assignmentRepository.save(assignment);
+        staffStationAccessCache.grant(staff.getId(), station.getId());
         
         // Populate staffName và stationName
         savedAssignment.setStaffName(staff.getFullName());
@@ -122,6 +127,7 @@ public class StaffStationAssignmentService {
                 .orElseThrow(() -> new NotFoundException("Không tìm thấy phân công. Nhân viên này chưa được phân quyền vào trạm."));
 
         assignmentRepository.delete(assignment);
+        staffStationAccessCache.revoke(staff.getId(), station.getId());
     }
 
     /**
@@ -145,7 +151,7 @@ public class StaffStationAssignmentService {
             throw new AuthenticationException("Từ chối truy cập.");
         }
 
-        List<StaffStationAssignment> assignments = assignmentRepository.findAll();
+        List<StaffStationAssignment> assignments = assignmentRepository.findAllWithDetails();
         
         // Populate staffName và stationName cho tất cả assignments
         assignments.forEach(assignment -> {
@@ -197,7 +203,11 @@ public class StaffStationAssignmentService {
             throw new AuthenticationException("Chỉ nhân viên mới được xem danh sách trạm của mình.");
         }
 
-        return assignmentRepository.findStationsByStaff(currentStaff);
+        // Station đã bật second-level cache nên findById thường không chạm DB
+        return staffStationAccessCache.getStationIds(currentStaff.getId()).stream()
+                .map(stationRepository::findById)
+                .flatMap(Optional::stream)
+                .toList();
     }
 
     /**
@@ -211,7 +221,7 @@ public class StaffStationAssignmentService {
 
         // Nhân viên chỉ được quản lý trạm đã được phân quyền
         if (staff.getRole() == User.Role.STAFF) {
-            return assignmentRepository.existsByStaffAndStation(staff, station);
+            return staffStationAccessCache.hasAccess(staff.getId(), station.getId());
         }
 
         return false;
@@ -231,12 +241,12 @@ public class StaffStationAssignmentService {
 
         // Nhân viên chỉ được truy cập trạm được phân quyền
         if (currentUser.getRole() == User.Role.STAFF) {
-            Station station = stationRepository.findById(stationId)
-                    .orElseThrow(() -> new NotFoundException("Không tìm thấy trạm với ID: " + stationId));
-
-            boolean hasAccess = assignmentRepository.existsByStaffAndStation(currentUser, station);
+            boolean hasAccess = staffStationAccessCache.hasAccess(currentUser.getId(), stationId);
 
             if (!hasAccess) {
+                if (!stationRepository.existsById(stationId)) {
+                    throw new NotFoundException("Không tìm thấy trạm với ID: " + stationId);
+                }
                 throw new AuthenticationException(
                         "Từ chối truy cập. Bạn không được phân quyền để quản lý trạm này (ID: " + stationId + ")."
                 );
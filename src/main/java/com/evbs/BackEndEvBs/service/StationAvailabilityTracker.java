@@ -0,0 +1,247 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.config.ScheduledJob;
+import com.evbs.BackEndEvBs.entity.Battery;
+import com.evbs.BackEndEvBs.entity.Station;
+import com.evbs.BackEndEvBs.model.response.StationAvailabilityResponse;
+import com.evbs.BackEndEvBs.repository.BatteryRepository;
+import com.evbs.BackEndEvBs.repository.StationRepository;
+import com.evbs.BackEndEvBs.util.TransactionUtil;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bộ đếm pin theo trạm giữ trong bộ nhớ (stationId → số pin theo AvailabilityBucket)
+ * - Cập nhật tăng/giảm sau khi transaction commit, qua BatteryAvailabilityListener
+ * - Đối soát lại toàn bộ với DB khi khởi động và mỗi 5 phút (sửa lệch do bulk update, nhiều instance...)
+ *   Thay đổi commit trong lúc đối soát (sau khi đọc xong DB, trước khi đổi bộ đếm) được cộng vào bộ đếm mới
+ * Đọc số pin của một trạm là O(1), không cần join Battery hay load collection batteries
+ * Capacity của các trạm cũng được giữ lại (nạp khi đối soát, cập nhật mỗi lần getAvailability(Station))
+ * để dựng snapshot availability mà không cần load entity Station
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StationAvailabilityTracker {
+
+    private static final int BUCKET_COUNT = Battery.AvailabilityBucket.values().length;
+
+    @Autowired
+    private final BatteryRepository batteryRepository;
+
+    @Autowired
+    private final StationRepository stationRepository;
+
+    private volatile Map<Long, AtomicIntegerArray> countersByStation = new ConcurrentHashMap<>();
+
+    // Thay đổi ghi nhận từ lúc đọc xong DB tới lúc đổi bộ đếm (null khi không đối soát)
+    private volatile Map<Long, AtomicIntegerArray> pendingDeltas;
+
+    // Read: mỗi lần áp thay đổi; write: bắt đầu ghi pendingDeltas và đổi bộ đếm
+    // (không có thay đổi nào áp vào map cũ sau khi đã gộp pendingDeltas vào map mới)
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    // stationId → capacity, Optional.empty() nếu trạm chưa khai báo capacity
+    private volatile Map<Long, Optional<Integer>> capacityByStation = new ConcurrentHashMap<>();
+
+    // Các trạm có bộ đếm thay đổi kể từ lần drain gần nhất (dùng cho SSE)
+    private final Set<Long> changedStationIds = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelay = 300000, fixedDelay = 300000)
+    // Không readOnly: đối soát phải đọc primary, số liệu trễ từ replica sẽ ghi đè các recordChange mới nhất
+    @Transactional
+    @Timed(value = "evbs.scheduler.run", extraTags = {"job", "station-availability-reconcile"})
+    @ScheduledJob(value = "station-availability-reconcile", maxRuntimeMs = 120000)
+    public void reconcile() {
+        Map<Long, AtomicIntegerArray> fresh = new ConcurrentHashMap<>();
+        List<Object[]> rows = batteryRepository.countAtStationsGroupByStatus(
+                Battery.READY_MIN_CHARGE_LEVEL, Battery.READY_MIN_HEALTH);
+        // Từ đây thay đổi mới chưa có trong rows: ghi lại để cộng vào bộ đếm mới
+        // (thay đổi commit trong lúc chạy query có thể lệch tới lần đối soát sau)
+        swapLock.writeLock().lock();
+        try {
+            pendingDeltas = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        for (Object[] row : rows) {
+            AtomicIntegerArray counters = fresh.computeIfAbsent((Long) row[0], k -> new AtomicIntegerArray(BUCKET_COUNT));
+            Battery.Status status = (Battery.Status) row[1];
+            int ready = ((Number) row[2]).intValue();
+            int total = ((Number) row[3]).intValue();
+            if (status == Battery.Status.AVAILABLE) {
+                counters.addAndGet(Battery.AvailabilityBucket.READY.ordinal(), ready);
+                counters.addAndGet(Battery.AvailabilityBucket.OTHER.ordinal(), total - ready);
+            } else {
+                counters.addAndGet(Battery.availabilityBucketOf(status, false).ordinal(), total);
+            }
+        }
+        swapLock.writeLock().lock();
+        try {
+            pendingDeltas.forEach((stationId, deltas) -> {
+                AtomicIntegerArray counters = counters(fresh, stationId);
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    counters.addAndGet(i, deltas.get(i));
+                }
+            });
+            pendingDeltas = null;
+            markDifferences(countersByStation, fresh);
+            countersByStation = fresh;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        Map<Long, Optional<Integer>> capacities = new ConcurrentHashMap<>();
+        for (Object[] row : stationRepository.findAllIdAndCapacity()) {
+            capacities.put((Long) row[0], Optional.ofNullable((Integer) row[1]));
+        }
+        capacityByStation = capacities;
+        log.info("Reconciled station availability counters for {} stations", fresh.size());
+    }
+
+    /**
+     * Ghi nhận pin chuyển trạm/nhóm trạng thái - chỉ áp dụng khi transaction hiện tại commit
+     * stationId = null nghĩa là pin không ở trạm nào (kho, trên xe)
+     */
+    public void recordChange(Long oldStationId, Battery.AvailabilityBucket oldBucket,
+                             Long newStationId, Battery.AvailabilityBucket newBucket) {
+        if (Objects.equals(oldStationId, newStationId) && oldBucket == newBucket) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            swapLock.readLock().lock();
+            try {
+                if (oldStationId != null && oldBucket != null) {
+                    apply(oldStationId, oldBucket, -1);
+                }
+                if (newStationId != null && newBucket != null) {
+                    apply(newStationId, newBucket, 1);
+                }
+            } finally {
+                swapLock.readLock().unlock();
+            }
+        });
+    }
+
+    // Gọi khi giữ read lock
+    private void apply(Long stationId, Battery.AvailabilityBucket bucket, int delta) {
+        counters(countersByStation, stationId).addAndGet(bucket.ordinal(), delta);
+        Map<Long, AtomicIntegerArray> pending = pendingDeltas;
+        if (pending != null) {
+            counters(pending, stationId).addAndGet(bucket.ordinal(), delta);
+        }
+        changedStationIds.add(stationId);
+    }
+
+    public int getCount(Long stationId, Battery.AvailabilityBucket bucket) {
+        AtomicIntegerArray counters = countersByStation.get(stationId);
+        return counters == null ? 0 : Math.max(counters.get(bucket.ordinal()), 0);
+    }
+
+    /**
+     * Số pin đổi được ngay tại trạm
+     */
+    public int getAvailableCount(Long stationId) {
+        return getCount(stationId, Battery.AvailabilityBucket.READY);
+    }
+
+    /**
+     * Tổng số pin đang ở trạm (mọi trạng thái)
+     */
+    public int getBatteryCount(Long stationId) {
+        int total = 0;
+        for (Battery.AvailabilityBucket bucket : Battery.AvailabilityBucket.values()) {
+            total += getCount(stationId, bucket);
+        }
+        return total;
+    }
+
+    public StationAvailabilityResponse getAvailability(Station station) {
+        capacityByStation.put(station.getId(), Optional.ofNullable(station.getCapacity()));
+        return getAvailability(station.getId(), station.getCapacity());
+    }
+
+    /**
+     * Availability của các trạm (rỗng = mọi trạm), chỉ đọc bộ nhớ
+     * Trạm chưa từng được đối soát / đọc qua getAvailability(Station) (vd. ID không tồn tại) bị bỏ qua
+     */
+    public List<StationAvailabilityResponse> getAvailabilities(Collection<Long> stationIds) {
+        Map<Long, Optional<Integer>> capacities = capacityByStation;
+        Collection<Long> ids = stationIds.isEmpty() ? capacities.keySet() : stationIds;
+        return ids.stream()
+                .filter(capacities::containsKey)
+                .map(stationId -> getAvailability(stationId, capacities.get(stationId).orElse(null)))
+                .toList();
+    }
+
+    private StationAvailabilityResponse getAvailability(Long stationId, Integer capacity) {
+        int total = getBatteryCount(stationId);
+        Integer freeSlots = capacity != null ? Math.max(capacity - total, 0) : null;
+        return new StationAvailabilityResponse(
+                stationId,
+                capacity,
+                total,
+                getAvailableCount(stationId),
+                getCount(stationId, Battery.AvailabilityBucket.CHARGING),
+                getCount(stationId, Battery.AvailabilityBucket.PENDING),
+                getCount(stationId, Battery.AvailabilityBucket.MAINTENANCE),
+                freeSlots
+        );
+    }
+
+    /**
+     * Lấy và xóa danh sách trạm đã thay đổi - mỗi trạm chỉ xuất hiện 1 lần dù đổi nhiều lần
+     */
+    public Set<Long> drainChangedStations() {
+        Set<Long> drained = new HashSet<>();
+        Iterator<Long> iterator = changedStationIds.iterator();
+        while (iterator.hasNext()) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void markDifferences(Map<Long, AtomicIntegerArray> previous, Map<Long, AtomicIntegerArray> fresh) {
+        Set<Long> stationIds = new HashSet<>(previous.keySet());
+        stationIds.addAll(fresh.keySet());
+        for (Long stationId : stationIds) {
+            AtomicIntegerArray before = previous.get(stationId);
+            AtomicIntegerArray after = fresh.get(stationId);
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                int beforeValue = before == null ? 0 : before.get(i);
+                int afterValue = after == null ? 0 : after.get(i);
+                if (beforeValue != afterValue) {
+                    changedStationIds.add(stationId);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static AtomicIntegerArray counters(Map<Long, AtomicIntegerArray> target, Long stationId) {
+        return target.computeIfAbsent(stationId, k -> new AtomicIntegerArray(BUCKET_COUNT));
+    }
+}
@@ -9,11 +9,12 @@ import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
 import com.evbs.BackEndEvBs.exception.exceptions.NotFoundException;
 import com.evbs.BackEndEvBs.model.request.StationRequest;
 import com.evbs.BackEndEvBs.model.request.StationUpdateRequest;
+import com.evbs.BackEndEvBs.model.response.StationAvailabilityResponse;
+import com.evbs.BackEndEvBs.model.response.StationSearchResponse;
 import com.evbs.BackEndEvBs.repository.BatteryRepository;
 import com.evbs.BackEndEvBs.repository.BatteryTypeRepository;
 import com.evbs.BackEndEvBs.repository.BookingRepository;
 import com.evbs.BackEndEvBs.repository.StationRepository;
-import com.evbs.BackEndEvBs.repository.StaffStationAssignmentRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -22,6 +23,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,7 +43,7 @@ public class StationService {
     private final BookingRepository bookingRepository;
 
     @Autowired
-    private final StaffStationAssignmentRepository staffStationAssignmentRepository;
+    private final StaffStationAccessCache staffStationAccessCache;
 
     @Autowired
     private final AuthenticationService authenticationService;
@@ -49,6 +51,15 @@ public class StationService {
     @Autowired
     private final BatteryHealthService batteryHealthService;
 
+    @Autowired
+    private final StationSpatialIndex stationSpatialIndex;
+
+    @Autowired
+    private final StationAvailabilityTracker stationAvailabilityTracker;
+
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+    private static final int MAX_SEARCH_LIMIT = 50;
+
     /**
      * CREATE - Tạo station mới (Admin/Staff only)
      */
@@ -81,7 +92,9 @@ public class StationService {
         station.setBatteryType(batteryType);
         // status = ACTIVE (default)
 
-        return stationRepository.save(station);
+        Station saved = stationRepository.save(station);
+        stationSpatialIndex.invalidate();
+        return saved;
     }
 
     /**
@@ -90,7 +103,7 @@ public class StationService {
      */
     @Transactional(readOnly = true)
     public List<Station> getAllStations() {
-        return stationRepository.findAll();
+        return withBatteryCounts(stationRepository.findAll());
     }
 
     /**
@@ -109,7 +122,7 @@ public class StationService {
     public List<Station> getStationsByBatteryType(Long batteryTypeId) {
         BatteryType batteryType = batteryTypeRepository.findById(batteryTypeId)
                 .orElseThrow(() -> new NotFoundException("Không tìm thấy loại pin"));
-        return stationRepository.findByBatteryType(batteryType);
+        return withBatteryCounts(stationRepository.findByBatteryType(batteryType));
     }
 
     /**
@@ -120,7 +133,54 @@ public class StationService {
         // Cần có VehicleRepository để lấy vehicle, nhưng hiện tại chưa có
         // Có thể implement sau khi có VehicleService
         // Tạm thời trả về tất cả stations
-        return stationRepository.findAll();
+        return withBatteryCounts(stationRepository.findAll());
+    }
+
+    /**
+     * READ - Số pin theo trạng thái của tất cả trạm (Public)
+     */
+    @Transactional(readOnly = true)
+    public List<StationAvailabilityResponse> getAllStationAvailability() {
+        return stationRepository.findAll().stream()
+                .map(stationAvailabilityTracker::getAvailability)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * READ - Số pin theo trạng thái của một trạm (Public)
+     */
+    @Transactional(readOnly = true)
+    public StationAvailabilityResponse getStationAvailability(Long id) {
+        return stationAvailabilityTracker.getAvailability(getStationById(id));
+    }
+
+    /**
+     * READ - Tìm trạm gần vị trí người dùng (Public)
+     * Sắp xếp theo khoảng cách, lọc theo bán kính, loại pin, trạng thái và số pin sẵn sàng tối thiểu
+     */
+    @Transactional(readOnly = true)
+    public List<StationSearchResponse> searchNearbyStations(double latitude, double longitude, Double radiusKm,
+                                                            Integer limit, Long batteryTypeId,
+                                                            Integer minAvailable, Station.Status status) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Tọa độ không hợp lệ");
+        }
+        if (radiusKm != null && radiusKm <= 0) {
+            throw new IllegalArgumentException("Bán kính tìm kiếm phải lớn hơn 0");
+        }
+
+        int maxResults = (limit == null || limit <= 0) ? DEFAULT_SEARCH_LIMIT : Math.min(limit, MAX_SEARCH_LIMIT);
+        int minAvailableCount = minAvailable == null ? 0 : Math.max(minAvailable, 0);
+        Predicate<StationSpatialIndex.Entry> filter = entry ->
+                (batteryTypeId == null || batteryTypeId.equals(entry.getBatteryTypeId()))
+                        && (status == null || status == entry.getStatus())
+                        && (minAvailableCount == 0
+                                || stationAvailabilityTracker.getAvailableCount(entry.getId()) >= minAvailableCount);
+
+        return stationSpatialIndex.findNearest(latitude, longitude, radiusKm, filter, maxResults)
+                .stream()
+                .map(this::toSearchResponse)
+                .collect(Collectors.toList());
     }
 
     @Transactional
@@ -135,7 +195,7 @@ public class StationService {
 
         //  Staff chỉ update được stations được assign
         if (currentUser.getRole() == User.Role.STAFF) {
-            if (!staffStationAssignmentRepository.existsByStaffAndStation(currentUser, station)) {
+            if (!staffStationAccessCache.hasAccess(currentUser.getId(), station.getId())) {
                 throw new AuthenticationException("Bạn không được phân công quản lý trạm này");
             }
         }
@@ -187,14 +247,16 @@ public class StationService {
         if (request.getStatus() != null) {
             // Staff chỉ update status cho stations được assign
             if (currentUser.getRole() == User.Role.STAFF) {
-                if (!staffStationAssignmentRepository.existsByStaffAndStation(currentUser, station)) {
+                if (!staffStationAccessCache.hasAccess(currentUser.getId(), station.getId())) {
                     throw new AuthenticationException("Bạn không được phân công quản lý trạm này");
                 }
             }
             station.setStatus(request.getStatus());
         }
 
-        return stationRepository.save(station);
+        Station saved = stationRepository.save(station);
+        stationSpatialIndex.invalidate();
+        return saved;
     }
 
     /**
@@ -236,6 +298,7 @@ public class StationService {
         // Soft delete
         station.setStatus(Station.Status.INACTIVE);
         stationRepository.save(station);
+        stationSpatialIndex.invalidate();
     }
 
     /**
@@ -252,8 +315,7 @@ public class StationService {
         
         // Validate station access for staff
         if ("STAFF".equals(currentUser.getRole())) {
-            boolean hasAccess = staffStationAssignmentRepository
-                    .existsByStaffAndStation(currentUser, station);
+            boolean hasAccess = staffStationAccessCache.hasAccess(currentUser.getId(), station.getId());
             if (!hasAccess) {
                 throw new AuthenticationException("Bạn không có quyền truy cập trạm này");
             }
@@ -285,4 +347,21 @@ public class StationService {
     private boolean isAdminOrStaff(User user) {
         return user.getRole() == User.Role.ADMIN || user.getRole() == User.Role.STAFF;
     }
+
+    // Gán số pin từ bộ đếm để JSON không phải load collection batteries của từng trạm
+    private List<Station> withBatteryCounts(List<Station> stations) {
+        stations.forEach(station -> station.setCurrentBatteryCount(
+                stationAvailabilityTracker.getBatteryCount(station.getId())));
+        return stations;
+    }
+
+    private StationSearchResponse toSearchResponse(StationSpatialIndex.Match match) {
+        StationSpatialIndex.Entry station = match.getStation();
+        return new StationSearchResponse(
+                station.getId(), station.getName(), station.getLocation(), station.getCity(),
+                station.getDistrict(), station.getContactInfo(), station.getLatitude(), station.getLongitude(),
+                station.getCapacity(), station.getBatteryTypeId(), station.getStatus(),
+                Math.round(match.getDistanceKm() * 100) / 100.0,
+                stationAvailabilityTracker.getAvailableCount(station.getId()));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.entity.Station;
+import com.evbs.BackEndEvBs.repository.StationRepository;
+import com.evbs.BackEndEvBs.util.TransactionUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Chỉ mục không gian (lưới ô vuông theo vĩ độ/kinh độ) cho tìm trạm gần nhất
+ * - Mỗi ô rộng CELL_SIZE_DEG độ, trạm được gom theo ô chứa tọa độ của nó
+ * - Tìm kiếm mở rộng dần từng vòng ô quanh vị trí người dùng, dừng khi chắc chắn đã đủ N trạm gần nhất
+ * - Đánh dấu cũ sau khi CRUD station commit, dựng lại ở lần đọc kế tiếp
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StationSpatialIndex {
+
+    // ~5.5km theo chiều vĩ độ
+    private static final double CELL_SIZE_DEG = 0.05;
+    private static final double KM_PER_DEG_LAT = 111.32;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    @Autowired
+    private final StationRepository stationRepository;
+
+    // null = cần dựng lại
+    private volatile Snapshot snapshot;
+
+    // Tăng mỗi lần invalidate, bản dựng bắt đầu trước đó sẽ không được lưu lại
+    private final AtomicLong version = new AtomicLong();
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * Thông tin trạm giữ trong chỉ mục (không giữ entity để tránh lazy loading ngoài session)
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final Long id;
+        private final String name;
+        private final String location;
+        private final String city;
+        private final String district;
+        private final String contactInfo;
+        private final double latitude;
+        private final double longitude;
+        private final Integer capacity;
+        private final Long batteryTypeId;
+        private final Station.Status status;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Match {
+        private final Entry station;
+        private final double distanceKm;
+    }
+
+    private static class Snapshot {
+        private final Map<Long, List<Entry>> cells = new HashMap<>();
+        private int size;
+        private int minLatIdx = Integer.MAX_VALUE;
+        private int maxLatIdx = Integer.MIN_VALUE;
+        private int minLonIdx = Integer.MAX_VALUE;
+        private int maxLonIdx = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Đánh dấu chỉ mục đã cũ - gọi trong transaction tạo/sửa/xóa station
+     */
+    public void invalidate() {
+        TransactionUtil.afterCommit(() -> {
+            version.incrementAndGet();
+            snapshot = null;
+        });
+    }
+
+    // Phòng trường hợp chạy nhiều instance: dựng lại định kỳ mỗi 10 phút
+    @Scheduled(initialDelay = 600000, fixedDelay = 600000)
+    public void scheduledInvalidate() {
+        invalidate();
+    }
+
+    /**
+     * Tìm tối đa maxResults trạm gần nhất thỏa filter, sắp xếp theo khoảng cách tăng dần
+     * radiusKm = null nghĩa là không giới hạn bán kính
+     */
+    public List<Match> findNearest(double latitude, double longitude, Double radiusKm,
+                                   Predicate<Entry> filter, int maxResults) {
+        Snapshot current = currentSnapshot();
+        List<Match> matches = new ArrayList<>();
+        if (current.size == 0 || maxResults <= 0) {
+            return matches;
+        }
+
+        int latIdx = cellIndex(latitude);
+        int lonIdx = cellIndex(longitude);
+        // Cạnh ô ngắn nhất (theo kinh độ) quanh vị trí tìm kiếm, dùng để ước lượng khoảng cách tối thiểu của vòng kế tiếp
+        double cellKm = CELL_SIZE_DEG * KM_PER_DEG_LAT * Math.cos(Math.toRadians(Math.min(Math.abs(latitude) + 1, 89)));
+
+        int maxRing = Math.max(
+                Math.max(Math.abs(latIdx - current.minLatIdx), Math.abs(latIdx - current.maxLatIdx)),
+                Math.max(Math.abs(lonIdx - current.minLonIdx), Math.abs(lonIdx - current.maxLonIdx)));
+        if (radiusKm != null) {
+            maxRing = Math.min(maxRing, (int) Math.ceil(radiusKm / cellKm) + 1);
+        }
+
+        Comparator<Match> byDistance = Comparator.comparingDouble(Match::getDistanceKm);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int dLat = -ring; dLat <= ring; dLat++) {
+                boolean edgeRow = Math.abs(dLat) == ring;
+                for (int dLon = -ring; dLon <= ring; dLon += edgeRow ? 1 : 2 * ring) {
+                    collectCell(current, latIdx + dLat, lonIdx + dLon, latitude, longitude, radiusKm, filter, matches);
+                    if (ring == 0) {
+                        break;
+                    }
+                }
+            }
+
+            // Mọi trạm ở các vòng sau đều cách ít nhất ring * cellKm
+            if (matches.size() >= maxResults) {
+                matches.sort(byDistance);
+                if (matches.get(maxResults - 1).getDistanceKm() <= ring * cellKm) {
+                    break;
+                }
+            }
+        }
+
+        matches.sort(byDistance);
+        return matches.size() > maxResults ? new ArrayList<>(matches.subList(0, maxResults)) : matches;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void collectCell(Snapshot current, int latIdx, int lonIdx, double latitude, double longitude,
+                             Double radiusKm, Predicate<Entry> filter, List<Match> matches) {
+        List<Entry> entries = current.cells.get(cellKey(latIdx, lonIdx));
+        if (entries == null) {
+            return;
+        }
+        for (Entry entry : entries) {
+            if (!filter.test(entry)) {
+                continue;
+            }
+            double distance = haversineKm(latitude, longitude, entry.getLatitude(), entry.getLongitude());
+            if (radiusKm == null || distance <= radiusKm) {
+                matches.add(new Match(entry, distance));
+            }
+        }
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        // ReentrantLock thay vì synchronized: build() chờ DB, synchronized sẽ ghim carrier của virtual thread
+        rebuildLock.lock();
+        try {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            long startVersion = version.get();
+            Snapshot built = build();
+            if (version.get() == startVersion) {
+                snapshot = built;
+            }
+            return built;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Snapshot build() {
+        Snapshot built = new Snapshot();
+        for (Station station : stationRepository.findAll()) {
+            if (station.getLatitude() == null || station.getLongitude() == null) {
+                continue;
+            }
+            Entry entry = new Entry(
+                    station.getId(), station.getName(), station.getLocation(), station.getCity(),
+                    station.getDistrict(), station.getContactInfo(), station.getLatitude(), station.getLongitude(),
+                    station.getCapacity(), station.getBatteryTypeId(), station.getStatus());
+            int latIdx = cellIndex(entry.getLatitude());
+            int lonIdx = cellIndex(entry.getLongitude());
+            built.cells.computeIfAbsent(cellKey(latIdx, lonIdx), k -> new ArrayList<>()).add(entry);
+            built.size++;
+            built.minLatIdx = Math.min(built.minLatIdx, latIdx);
+            built.maxLatIdx = Math.max(built.maxLatIdx, latIdx);
+            built.minLonIdx = Math.min(built.minLonIdx, lonIdx);
+            built.maxLonIdx = Math.max(built.maxLonIdx, lonIdx);
+        }
+        log.info("Built station spatial index: {} stations in {} cells", built.size, built.cells.size());
+        return built;
+    }
+
+    private static int cellIndex(double degrees) {
+        return (int) Math.floor(degrees / CELL_SIZE_DEG);
+    }
+
+    private static long cellKey(int latIdx, int lonIdx) {
+        return ((long) latIdx << 32) | (lonIdx & 0xFFFFFFFFL);
+    }
+
+    private static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+}
@@ -0,0 +1,116 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.config.ScheduledJob;
+import com.evbs.BackEndEvBs.entity.DriverSubscription;
+import com.evbs.BackEndEvBs.entity.User;
+import com.evbs.BackEndEvBs.repository.DriverSubscriptionRepository;
+import com.evbs.BackEndEvBs.util.TransactionUtil;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SCHEDULED TASK - VÒNG ĐỜI GÓI DỊCH VỤ
+ *
+ * Chức năng:
+ * - Chuyển các gói ACTIVE đã quá EndDate sang EXPIRED bằng 1 câu UPDATE
+ *   (truy vấn gói ACTIVE lúc booking / đổi pin không cần lọc lại theo ngày)
+ * - Nhắc tài xế có gói sắp hết hạn trong app.subscription.expiry-reminder-days ngày:
+ *   mỗi tài xế 1 email gom các gói của mình, mỗi gói chỉ nhắc 1 lần (ExpiryReminderSentAt)
+ * - Chạy phút thứ 1 mỗi giờ: gói hết hạn lúc nửa đêm được chuyển EXPIRED ngay sau đó
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SubscriptionLifecycleScheduler {
+
+    private static final int REMINDER_PAGE_SIZE = 500;
+
+    private final DriverSubscriptionRepository driverSubscriptionRepository;
+    private final EmailService emailService;
+    private final SchedulerLockService schedulerLockService;
+    private final ScheduledJobRegistry scheduledJobRegistry;
+
+    @Value("${app.subscription.expiry-reminder-days:3}")
+    private int reminderDays;
+
+    @Scheduled(cron = "0 1 * * * *")
+    @ScheduledJob(value = "subscription-lifecycle", maxRuntimeMs = 600000)
+    @Transactional
+    @Timed(value = "evbs.scheduler.run", extraTags = {"job", "subscription-lifecycle"})
+    public void runLifecycle() {
+        // Chạy nhiều instance: chỉ 1 node xử lý mỗi lần
+        schedulerLockService.runExclusive("subscription-lifecycle", this::runLifecycleExclusive);
+    }
+
+    private void runLifecycleExclusive() {
+        LocalDate today = LocalDate.now();
+
+        int expired = driverSubscriptionRepository.updateStatusOfPastDue(
+                DriverSubscription.Status.ACTIVE, DriverSubscription.Status.EXPIRED, today);
+        if (expired > 0) {
+            log.info("Đã chuyển {} gói quá hạn sang EXPIRED", expired);
+        }
+
+        int reminded = sendExpiryReminders(today);
+
+        scheduledJobRegistry.addItems(expired + reminded);
+    }
+
+    private int sendExpiryReminders(LocalDate today) {
+        LocalDate toDate = today.plusDays(reminderDays);
+        LocalDateTime sentAt = LocalDateTime.now();
+        Map<Long, List<DriverSubscription>> subscriptionsByDriver = new LinkedHashMap<>();
+        Map<Long, User> drivers = new LinkedHashMap<>();
+        int reminded = 0;
+
+        Long cursor = null;
+        Slice<DriverSubscription> page;
+        do {
+            page = driverSubscriptionRepository.findExpiryReminderPage(
+                    today, toDate, cursor, PageRequest.of(0, REMINDER_PAGE_SIZE));
+            if (!page.hasContent()) {
+                break;
+            }
+
+            List<Long> ids = new ArrayList<>(page.getNumberOfElements());
+            for (DriverSubscription subscription : page.getContent()) {
+                ids.add(subscription.getId());
+                User driver = subscription.getDriver();
+                drivers.putIfAbsent(driver.getId(), driver);
+                subscriptionsByDriver.computeIfAbsent(driver.getId(), k -> new ArrayList<>()).add(subscription);
+            }
+            driverSubscriptionRepository.markExpiryReminderSent(ids, sentAt);
+            reminded += ids.size();
+            cursor = ids.get(ids.size() - 1);
+        } while (page.hasNext());
+
+        if (subscriptionsByDriver.isEmpty()) {
+            return 0;
+        }
+
+        // Gửi sau commit (rollback thì gói vẫn chưa được đánh dấu đã nhắc, lần chạy sau gửi lại)
+        TransactionUtil.afterCommit(() -> subscriptionsByDriver.forEach((driverId, subscriptions) -> {
+            try {
+                emailService.sendSubscriptionExpiryReminder(drivers.get(driverId), subscriptions, reminderDays);
+            } catch (Exception e) {
+                log.error("Lỗi khi gửi email nhắc gói sắp hết hạn. DriverID: {}, Error: {}", driverId, e.getMessage());
+            }
+        }));
+        log.info("Đã lên lịch nhắc {} gói sắp hết hạn cho {} tài xế", reminded, subscriptionsByDriver.size());
+        return reminded;
+    }
+}
@@ -6,11 +6,11 @@ import com.evbs.BackEndEvBs.entity.User;
 import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
 import com.evbs.BackEndEvBs.exception.exceptions.NotFoundException;
 import com.evbs.BackEndEvBs.model.request.SupportTicketRequest;
-import com.evbs.BackEndEvBs.repository.StaffStationAssignmentRepository;
+import com.evbs.BackEndEvBs.model.response.PageResponse;
 import com.evbs.BackEndEvBs.repository.SupportTicketRepository;
 import com.evbs.BackEndEvBs.repository.StationRepository;
-import com.evbs.BackEndEvBs.repository.StaffStationAssignmentRepository;
 import com.evbs.BackEndEvBs.repository.UserRepository;
+import com.evbs.BackEndEvBs.util.PageUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +19,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -32,7 +33,7 @@ public class SupportTicketService {
     private final StationRepository stationRepository;
 
     @Autowired
-    private final StaffStationAssignmentRepository staffStationAssignmentRepository;
+    private final StaffStationAccessCache staffStationAccessCache;
 
     @Autowired
     private final AuthenticationService authenticationService;
@@ -138,12 +139,14 @@ public class SupportTicketService {
     }
 
     /**
-     * READ - Lấy tất cả tickets (Admin/Staff only)
+     * READ - Lấy tickets theo trang (Admin/Staff only)
      * - Admin: Lấy TẤT CẢ tickets
      * - Staff: Chỉ lấy tickets của các stations họ quản lý
+     * Phân trang keyset: cursor = ID cuối của trang trước, sắp xếp mới nhất trước
      */
     @Transactional(readOnly = true)
-    public List<SupportTicket> getAllTickets() {
+    public PageResponse<SupportTicket> getAllTickets(Long cursor, Integer size, SupportTicket.Status status,
+                                                     Long stationId, LocalDateTime from, LocalDateTime to) {
         User currentUser = authenticationService.getCurrentUser();
         if (!isAdminOrStaff(currentUser)) {
             throw new AuthenticationException("Truy cập bị từ chối");
@@ -151,16 +154,32 @@ public class SupportTicketService {
 
         // Admin có thể xem tất cả tickets
         if (currentUser.getRole() == User.Role.ADMIN) {
-            return supportTicketRepository.findAll();
+            return PageUtil.toPageResponse(
+                    supportTicketRepository.findPage(cursor, status, stationId, from, to, PageUtil.firstPage(size)),
+                    SupportTicket::getId
+            );
         }
 
         // Staff chỉ xem tickets của các station họ quản lý
-        List<Station> myStations = staffStationAssignmentRepository.findStationsByStaff(currentUser);
-        if (myStations.isEmpty()) {
+        Set<Long> myStationIds = staffStationAccessCache.getStationIds(currentUser.getId());
+        if (myStationIds.isEmpty()) {
             throw new AuthenticationException("Nhân viên chưa được phân công vào trạm nào");
         }
 
-        return supportTicketRepository.findByStationIn(myStations);
+        if (stationId != null) {
+            if (!myStationIds.contains(stationId)) {
+                throw new AuthenticationException("Bạn không có quyền xem tickets của trạm này");
+            }
+            return PageUtil.toPageResponse(
+                    supportTicketRepository.findPage(cursor, status, stationId, from, to, PageUtil.firstPage(size)),
+                    SupportTicket::getId
+            );
+        }
+
+        return PageUtil.toPageResponse(
+                supportTicketRepository.findPageByStationIds(myStationIds, cursor, status, from, to, PageUtil.firstPage(size)),
+                SupportTicket::getId
+        );
     }
 
     /**
@@ -190,8 +209,7 @@ public class SupportTicketService {
             }
 
             // Kiểm tra staff có được assign cho station của ticket không
-            boolean hasAccess = staffStationAssignmentRepository
-                    .existsByStaffAndStation(currentUser, ticket.getStation());
+            boolean hasAccess = staffStationAccessCache.hasAccess(currentUser.getId(), ticket.getStation().getId());
 
             if (!hasAccess) {
                 throw new AuthenticationException(
@@ -0,0 +1,187 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.entity.DriverSubscription;
+import com.evbs.BackEndEvBs.entity.SwapCreditLedger;
+import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
+import com.evbs.BackEndEvBs.repository.DriverSubscriptionRepository;
+import com.evbs.BackEndEvBs.repository.SwapCreditLedgerRepository;
+import com.evbs.BackEndEvBs.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trừ / hoàn lượt swap của DriverSubscription
+ * - Mỗi thao tác là 1 câu UPDATE có điều kiện (remainingSwaps > 0 khi trừ): không mất cập nhật khi
+ *   nhiều xe của cùng driver đặt lịch / đổi pin đồng thời, không cần load entity DriverSubscription
+ * - Số dư mới đọc lại ngay sau UPDATE, trong cùng transaction (dòng đang bị khóa nên đúng là giá trị vừa ghi)
+ * - Mỗi lần trừ / hoàn ghi 1 dòng SwapCreditLedger; hoàn lượt trả về đúng gói đã bị trừ (tra dòng trừ theo referenceId)
+ * - ID gói ACTIVE của driver được cache (driverId → subscriptionId). Cache sai thì UPDATE không khớp điều kiện,
+ *   khi đó tra lại DB một lần nên cache không bao giờ làm trừ nhầm lượt
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SwapCreditService {
+
+    /**
+     * Gói vừa được trừ / hoàn lượt và số lượt còn lại sau thao tác
+     */
+    public record Balance(Long subscriptionId, int remainingSwaps) {
+    }
+
+    // Hủy booking hoàn lượt vào gói đã bị trừ, kể cả gói đã EXPIRED do hết lượt
+    private static final List<DriverSubscription.Status> CREDITABLE_STATUSES =
+            List.of(DriverSubscription.Status.ACTIVE, DriverSubscription.Status.EXPIRED);
+
+    private static final Pageable FIRST = PageRequest.of(0, 1);
+
+    @Autowired
+    private final DriverSubscriptionRepository driverSubscriptionRepository;
+
+    @Autowired
+    private final SwapCreditLedgerRepository swapCreditLedgerRepository;
+
+    private final Map<Long, Long> activeSubscriptionIds = new ConcurrentHashMap<>();
+
+    /**
+     * ID gói ACTIVE (còn hạn, còn lượt, gần hết hạn nhất) của driver
+     */
+    public Optional<Long> findActiveSubscriptionId(Long driverId) {
+        Long cached = activeSubscriptionIds.get(driverId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        List<Long> ids = driverSubscriptionRepository.findActiveSubscriptionIds(driverId, LocalDate.now(), FIRST);
+        if (ids.isEmpty()) {
+            return Optional.empty();
+        }
+        activeSubscriptionIds.put(driverId, ids.get(0));
+        return Optional.of(ids.get(0));
+    }
+
+    /**
+     * Số lượt còn lại của gói ACTIVE, empty nếu driver chưa có gói dùng được
+     */
+    @Transactional(readOnly = true)
+    public Optional<Balance> findActiveBalance(Long driverId) {
+        return findActiveSubscriptionId(driverId)
+                .map(id -> new Balance(id, driverSubscriptionRepository.findRemainingSwaps(id)));
+    }
+
+    /**
+     * Trừ 1 lượt từ gói ACTIVE của driver
+     *
+     * @throws AuthenticationException nếu driver không còn gói nào trừ được
+     */
+    @Transactional
+    public Balance debit(Long driverId, SwapCreditLedger.Reason reason, Long referenceId) {
+        LocalDate today = LocalDate.now();
+        Long subscriptionId = findActiveSubscriptionId(driverId)
+                .orElseThrow(() -> new AuthenticationException("Chưa có gói dịch vụ. Vui lòng mua gói!"));
+
+        if (driverSubscriptionRepository.debitSwap(subscriptionId, driverId, today) == 0) {
+            // Gói trong cache đã hết lượt / hết hạn / bị thay bằng gói khác
+            activeSubscriptionIds.remove(driverId, subscriptionId);
+            subscriptionId = findActiveSubscriptionId(driverId)
+                    .orElseThrow(() -> new AuthenticationException("Gói đã hết lượt. Vui lòng gia hạn!"));
+            if (driverSubscriptionRepository.debitSwap(subscriptionId, driverId, today) == 0) {
+                activeSubscriptionIds.remove(driverId, subscriptionId);
+                throw new AuthenticationException("Gói đã hết lượt. Vui lòng gia hạn!");
+            }
+        }
+
+        int remaining = driverSubscriptionRepository.findRemainingSwaps(subscriptionId);
+        if (remaining <= 0) {
+            activeSubscriptionIds.remove(driverId, subscriptionId);
+        }
+        append(subscriptionId, driverId, -1, remaining, reason, referenceId);
+        log.info("Đã trừ 1 lượt swap ({}). Driver: {}, Subscription: {}, Còn lại: {}",
+                reason, driverId, subscriptionId, remaining);
+        return new Balance(subscriptionId, remaining);
+    }
+
+    /**
+     * Hoàn 1 lượt vào gói đã bị trừ cho referenceId (dòng trừ tương ứng trong SwapCreditLedger),
+     * gói EXPIRED còn hạn được kích hoạt lại
+     * Không có dòng trừ (booking tạo trước khi có sổ cái) thì hoàn vào gói mới nhất (ACTIVE hoặc EXPIRED)
+     *
+     * @return empty nếu driver không có gói nào để hoàn
+     */
+    @Transactional
+    public Optional<Balance> credit(Long driverId, SwapCreditLedger.Reason reason, Long referenceId) {
+        List<Long> ids = referenceId == null ? List.of()
+                : swapCreditLedgerRepository.findDebitedSubscriptionIds(driverId, debitReasonOf(reason), referenceId, FIRST);
+        if (ids.isEmpty()) {
+            ids = driverSubscriptionRepository.findLatestSubscriptionIds(driverId, CREDITABLE_STATUSES, FIRST);
+        }
+        if (ids.isEmpty()) {
+            log.warn("KHÔNG TÌM THẤY subscription để hoàn lại lượt cho driver: {}", driverId);
+            return Optional.empty();
+        }
+        Long subscriptionId = ids.get(0);
+        if (driverSubscriptionRepository.creditSwap(subscriptionId, CREDITABLE_STATUSES) == 0) {
+            log.warn("Subscription {} vừa bị hủy, không hoàn lại lượt cho driver: {}", subscriptionId, driverId);
+            return Optional.empty();
+        }
+        driverSubscriptionRepository.updateStatusIfNotPastDue(subscriptionId,
+                DriverSubscription.Status.EXPIRED, DriverSubscription.Status.ACTIVE, LocalDate.now());
+
+        int remaining = driverSubscriptionRepository.findRemainingSwaps(subscriptionId);
+        append(subscriptionId, driverId, 1, remaining, reason, referenceId);
+        // Gói vừa kích hoạt lại có thể là gói ACTIVE gần hết hạn nhất
+        evict(driverId);
+        log.info("Đã hoàn lại 1 lượt swap ({}). Driver: {}, Subscription: {}, Còn lại: {}",
+                reason, driverId, subscriptionId, remaining);
+        return Optional.of(new Balance(subscriptionId, remaining));
+    }
+
+    /**
+     * Chuyển gói sang EXPIRED nếu lượt vừa trừ là lượt cuối
+     */
+    @Transactional
+    public void expireIfExhausted(Balance balance) {
+        if (balance.remainingSwaps() > 0) {
+            return;
+        }
+        driverSubscriptionRepository.updateStatusIfExhausted(balance.subscriptionId(),
+                DriverSubscription.Status.ACTIVE, DriverSubscription.Status.EXPIRED);
+    }
+
+    /**
+     * Bỏ gói ACTIVE đã cache của driver khi transaction hiện tại commit (mua / nâng cấp / gia hạn gói)
+     */
+    public void evict(Long driverId) {
+        TransactionUtil.afterCommit(() -> activeSubscriptionIds.remove(driverId));
+    }
+
+    // Lý do của dòng trừ lượt mà thao tác hoàn lượt đảo ngược
+    private static SwapCreditLedger.Reason debitReasonOf(SwapCreditLedger.Reason reason) {
+        return switch (reason) {
+            case BOOKING_CANCEL_DRIVER, BOOKING_CANCEL_STAFF -> SwapCreditLedger.Reason.BOOKING;
+            default -> reason;
+        };
+    }
+
+    private void append(Long subscriptionId, Long driverId, int delta, int balanceAfter,
+                        SwapCreditLedger.Reason reason, Long referenceId) {
+        SwapCreditLedger entry = new SwapCreditLedger();
+        entry.setSubscriptionId(subscriptionId);
+        entry.setDriverId(driverId);
+        entry.setDelta(delta);
+        entry.setBalanceAfter(balanceAfter);
+        entry.setReason(reason);
+        entry.setReferenceId(referenceId);
+        swapCreditLedgerRepository.save(entry);
+    }
+}
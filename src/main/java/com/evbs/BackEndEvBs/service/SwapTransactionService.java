@@ -4,7 +4,12 @@ import com.evbs.BackEndEvBs.entity.*;
 import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
 import com.evbs.BackEndEvBs.exception.exceptions.NotFoundException;
 import com.evbs.BackEndEvBs.model.response.BatteryInfoResponse;
+import com.evbs.BackEndEvBs.model.response.PageResponse;
+import com.evbs.BackEndEvBs.model.response.SwapTransactionHistoryResponse;
 import com.evbs.BackEndEvBs.repository.*;
+import com.evbs.BackEndEvBs.util.PageUtil;
+import com.evbs.BackEndEvBs.util.TransactionUtil;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,7 +19,6 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
@@ -115,6 +119,7 @@ public class SwapTransactionService {
      * CREATE SWAP BY CONFIRMATION CODE - Driver tự swap tại trạm (PUBLIC)
      */
     @Transactional
+    @Timed(value = "evbs.swap.by-code", description = "Đổi pin bằng mã xác nhận booking")
     public SwapTransaction createSwapByConfirmationCode(String confirmationCode) {
         log.info("Thực hiện swap công khai - Mã xác nhận: {}", confirmationCode);
 
@@ -182,9 +187,8 @@ public class SwapTransactionService {
         User staffWhoConfirmed = booking.getConfirmedBy();
         if (staffWhoConfirmed == null) {
             // Fallback: Tìm admin user nếu không có staff confirmed
-            staffWhoConfirmed = userRepository.findAll()
+            staffWhoConfirmed = userRepository.findByRole(User.Role.ADMIN)
                     .stream()
-                    .filter(u -> u.getRole() == User.Role.ADMIN)
                     .findFirst()
                     .orElseThrow(() -> new AuthenticationException(
                             "Lỗi hệ thống: Không tìm thấy nhân viên xác nhận booking"
@@ -227,8 +231,7 @@ public class SwapTransactionService {
         if (swapOutBattery != null) {
             Random random = new Random();
             BigDecimal randomChargeLevel = BigDecimal.valueOf(10 + random.nextInt(40)); // Random 10-49%
-            swapOutBattery.setChargeLevel(randomChargeLevel);
-            batteryRepository.save(swapOutBattery);
+            swapOutBattery.setChargeLevel(randomChargeLevel); // Lưu cùng các thay đổi khác của pin trong handleBatterySwap
             log.info("Pin ID {} được đổi vào xe - Snapshot: {}%, Mức pin hiện tại giảm xuống: {}%",
                     swapOutBattery.getId(),
                     savedTransaction.getSwapOutBatteryChargeLevel().intValue(),
@@ -250,10 +253,10 @@ public class SwapTransactionService {
      * READ - Lấy transactions của driver hiện tại
      */
     @Transactional(readOnly = true)
-    public List<SwapTransaction> getMyTransactions() {
+    public List<SwapTransactionHistoryResponse> getMyTransactions() {
         User currentUser = authenticationService.getCurrentUser();
-        // Sử dụng JOIN FETCH để tránh N+1 query problem
-        return swapTransactionRepository.findByDriverWithDetails(currentUser);
+        // Select thẳng DTO, chỉ các cột hiển thị
+        return swapTransactionRepository.findHistoryByDriverId(currentUser.getId());
     }
 
     /**
@@ -262,7 +265,7 @@ public class SwapTransactionService {
     @Transactional(readOnly = true)
     public SwapTransaction getMyTransaction(Long id) {
         User currentUser = authenticationService.getCurrentUser();
-        // Sử dụng JOIN FETCH để tránh N+1 query problem
+        // Entity graph + batch fetch để tránh N+1 query problem
         return swapTransactionRepository.findByIdAndDriverWithDetails(id, currentUser)
                 .orElseThrow(() -> new NotFoundException("Không tìm thấy giao dịch"));
     }
@@ -270,23 +273,28 @@ public class SwapTransactionService {
     // ==================== ADMIN/STAFF METHODS ====================
 
     /**
-     * READ - Lấy tất cả transactions (Admin/Staff only)
+     * READ - Lấy transactions theo trang (Admin/Staff only)
+     * Phân trang keyset: cursor = ID cuối của trang trước, sắp xếp mới nhất trước
      */
     @Transactional(readOnly = true)
-    public List<SwapTransaction> getAllSwapTransactions() {
+    public PageResponse<SwapTransaction> getAllSwapTransactions(Long cursor, Integer size, SwapTransaction.Status status,
+                                                                Long stationId, LocalDateTime from, LocalDateTime to) {
         User currentUser = authenticationService.getCurrentUser();
         if (!isAdminOrStaff(currentUser)) {
             throw new AuthenticationException("Không có quyền truy cập!");
         }
-        // Sử dụng JOIN FETCH để tránh N+1 query problem
-        return swapTransactionRepository.findAllWithDetails();
+        // Entity graph + batch fetch để tránh N+1 query problem, chỉ lấy size + 1 dòng
+        return PageUtil.toPageResponse(
+                swapTransactionRepository.findPageWithDetails(cursor, status, stationId, from, to, PageUtil.firstPage(size)),
+                SwapTransaction::getId
+        );
     }
 
     /**
      * XEM LỊCH SỬ ĐỔI PIN CỦA XE
      */
     @Transactional(readOnly = true)
-    public List<SwapTransaction> getVehicleSwapHistory(Long vehicleId) {
+    public List<SwapTransactionHistoryResponse> getVehicleSwapHistory(Long vehicleId) {
         User currentUser = authenticationService.getCurrentUser();
 
         // Tìm xe
@@ -302,9 +310,8 @@ public class SwapTransactionService {
             }
         }
 
-        // Lấy tất cả swap transactions của xe, sắp xếp mới nhất trước
-        // Sử dụng JOIN FETCH để tránh N+1 query problem
-        List<SwapTransaction> history = swapTransactionRepository.findByVehicleWithDetailsOrderByStartTimeDesc(vehicle);
+        // Lấy tất cả swap transactions của xe, sắp xếp mới nhất trước (DTO)
+        List<SwapTransactionHistoryResponse> history = swapTransactionRepository.findHistoryByVehicleId(vehicle.getId());
 
         log.info("Đã lấy {} giao dịch swap cho xe {}", history.size(), vehicleId);
 
@@ -315,7 +322,7 @@ public class SwapTransactionService {
      * XEM LỊCH SỬ SỬ DỤNG CỦA PIN
      */
     @Transactional(readOnly = true)
-    public List<SwapTransaction> getBatteryUsageHistory(Long batteryId) {
+    public List<SwapTransactionHistoryResponse> getBatteryUsageHistory(Long batteryId) {
         User currentUser = authenticationService.getCurrentUser();
 
         // Chỉ Staff/Admin mới xem được lịch sử pin
@@ -327,19 +334,9 @@ public class SwapTransactionService {
         Battery battery = batteryRepository.findById(batteryId)
                 .orElseThrow(() -> new NotFoundException("Không tìm thấy pin với ID: " + batteryId));
 
-        // Lấy tất cả lần pin được SWAP OUT (lấy ra từ trạm) với JOIN FETCH
-        List<SwapTransaction> swapOutHistory = swapTransactionRepository.findBySwapOutBatteryWithDetailsOrderByStartTimeDesc(battery);
-
-        // Lấy tất cả lần pin được SWAP IN (đem vào trạm) với JOIN FETCH
-        List<SwapTransaction> swapInHistory = swapTransactionRepository.findBySwapInBatteryWithDetailsOrderByStartTimeDesc(battery);
-
-        // Gộp 2 danh sách và sắp xếp theo thời gian
-        List<SwapTransaction> allHistory = new ArrayList<>();
-        allHistory.addAll(swapOutHistory);
-        allHistory.addAll(swapInHistory);
-
-        // Sắp xếp theo startTime từ mới đến cũ
-        allHistory.sort((t1, t2) -> t2.getStartTime().compareTo(t1.getStartTime()));
+        // Lấy tất cả lần pin được SWAP OUT (lấy ra từ trạm) và SWAP IN (đem vào trạm)
+        // trong 1 query, đã sắp xếp theo startTime từ mới đến cũ
+        List<SwapTransactionHistoryResponse> allHistory = swapTransactionRepository.findHistoryByBatteryId(battery.getId());
 
         log.info("Đã lấy {} giao dịch swap cho pin {} (model: {})",
                 allHistory.size(), batteryId, battery.getModel());
@@ -446,13 +443,15 @@ public class SwapTransactionService {
             driverSubscriptionRepository.save(subscription);
         }
 
-        // 5. Gửi email thông báo đổi pin thành công
-        try {
-            emailService.sendSwapSuccessEmail(transaction.getDriver(), transaction, subscription);
-            log.info("Email đổi pin thành công đã được gửi cho tài xế: {}", transaction.getDriver().getEmail());
-        } catch (Exception emailException) {
-            log.error("Lỗi khi gửi email đổi pin thành công: {}", emailException.getMessage());
-        }
+        // 5. Gửi email thông báo đổi pin thành công (sau commit: không giữ transaction trong lúc render email)
+        TransactionUtil.afterCommit(() -> {
+            try {
+                emailService.sendSwapSuccessEmail(transaction.getDriver(), transaction, subscription);
+                log.info("Email đổi pin thành công đã xếp hàng gửi cho tài xế: {}", transaction.getDriver().getEmail());
+            } catch (Exception emailException) {
+                log.error("Lỗi khi tạo email đổi pin thành công: {}", emailException.getMessage());
+            }
+        });
     }
 
     /**
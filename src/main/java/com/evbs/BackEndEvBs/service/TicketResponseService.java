@@ -6,7 +6,6 @@ import com.evbs.BackEndEvBs.entity.User;
 import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
 import com.evbs.BackEndEvBs.exception.exceptions.NotFoundException;
 import com.evbs.BackEndEvBs.model.request.TicketResponseRequest;
-import com.evbs.BackEndEvBs.repository.StaffStationAssignmentRepository;
 import com.evbs.BackEndEvBs.repository.SupportTicketRepository;
 import com.evbs.BackEndEvBs.repository.TicketResponseRepository;
 import lombok.RequiredArgsConstructor;
@@ -30,7 +29,7 @@ public class TicketResponseService {
     private final SupportTicketRepository supportTicketRepository;
 
     @Autowired
-    private final StaffStationAssignmentRepository staffStationAssignmentRepository;
+    private final StaffStationAccessCache staffStationAccessCache;
 
     @Autowired
     private final AuthenticationService authenticationService;
@@ -112,8 +111,7 @@ public class TicketResponseService {
                 );
             }
 
-            boolean hasAccess = staffStationAssignmentRepository
-                    .existsByStaffAndStation(currentUser, ticket.getStation());
+            boolean hasAccess = staffStationAccessCache.hasAccess(currentUser.getId(), ticket.getStation().getId());
 
             if (!hasAccess) {
                 throw new AuthenticationException(
@@ -171,8 +169,7 @@ public class TicketResponseService {
             }
 
             // Kiểm tra staff có được assign cho station của ticket không
-            boolean hasAccess = staffStationAssignmentRepository
-                    .existsByStaffAndStation(user, ticket.getStation());
+            boolean hasAccess = staffStationAccessCache.hasAccess(user.getId(), ticket.getStation().getId());
 
             if (!hasAccess) {
                 throw new AuthenticationException(
@@ -5,6 +5,7 @@ import com.evbs.BackEndEvBs.entity.User;
 
 import com.evbs.BackEndEvBs.repository.AuthenticationRepository;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -13,6 +14,7 @@ import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.Optional;
 import java.util.function.Function;
 
 @Service
@@ -20,6 +22,8 @@ public class TokenService {
 
     private final String SECRET_KEY = "HackHoTaoCaiHackHoTaoCaiHackHoTaoCaiHackHoTaoCaiHackHoTaoCaiHackHoTaoCai";
 
+    private static final String ROLE_CLAIM = "role";
+
     @Autowired
     AuthenticationRepository authenticationRepository;
 
@@ -32,6 +36,7 @@ public class TokenService {
     public String generateToken(User user){
         return Jwts.builder()
                 .subject(user.getId() + "")
+                .claim(ROLE_CLAIM, user.getRole().name())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + 1000*60*60*24*7))
                 .signWith(getSignInKey())
@@ -58,6 +63,20 @@ public class TokenService {
         return authenticationRepository.findUserById(id);
     }
 
+    /**
+     * Role ghi trong token lúc đăng nhập, chỉ kiểm tra chữ ký, không query DB
+     * Dùng để phân loại traffic trước Spring Security (RequestBulkheadFilter), không dùng để phân quyền
+     * Token không hợp lệ / hết hạn / cấp trước khi có claim role thì trả empty
+     */
+    public Optional<User.Role> extractRole(String token) {
+        try {
+            String role = extractClaim(token, claims -> claims.get(ROLE_CLAIM, String.class));
+            return role == null ? Optional.empty() : Optional.of(User.Role.valueOf(role));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
     public Claims extractAllClaims(String token) {
         return  Jwts.parser().
                 verifyWith(getSignInKey())
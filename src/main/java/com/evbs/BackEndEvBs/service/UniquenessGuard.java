@@ -0,0 +1,175 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.config.ScheduledJob;
+import com.evbs.BackEndEvBs.entity.User;
+import com.evbs.BackEndEvBs.repository.UserRepository;
+import com.evbs.BackEndEvBs.util.BloomFilter;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bộ lọc Bloom cho email, SĐT đã có trong DB
+ * - mightExist = false: giá trị chắc chắn chưa có, bỏ qua câu existsBy... khi đăng ký / cập nhật hồ sơ
+ * - mightExist = true : có thể trùng (hoặc bộ lọc chưa dựng xong), phải kiểm tra lại bằng DB
+ * - Dựng lại toàn bộ khi ứng dụng khởi động và mỗi 10 phút (kích thước theo số dòng hiện có,
+ *   nhận giá trị do instance khác ghi vào)
+ * - Giá trị mới được record ngay khi lưu; transaction rollback chỉ để lại 1 giá trị thừa trong bộ lọc
+ *   (thêm 1 lần kiểm tra DB)
+ * Chỉ dùng cho cột có unique constraint (Email, PhoneNumber): bộ lọc chỉ là lối tắt, giá trị trùng do
+ * instance khác vừa ghi vẫn bị DB chặn, nơi gọi dùng violatedField để trả đúng lỗi 400 thay vì 500.
+ * VIN / biển số không có constraint nên luôn kiểm tra bằng DB
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UniquenessGuard {
+
+    public enum Field {
+        EMAIL, PHONE
+    }
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long MIN_EXPECTED_INSERTIONS = 10_000;
+
+    // Giá trị record trong khoảng này trước lúc bắt đầu dựng được ghi lại vào bộ lọc mới:
+    // transaction của chúng có thể commit sau khi câu query dựng bộ lọc đã chạy
+    private static final long REPLAY_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    @Autowired
+    private final UserRepository userRepository;
+
+    @Autowired
+    private final MeterRegistry meterRegistry;
+
+    // null cho tới khi dựng xong lần đầu: mọi kiểm tra đi thẳng xuống DB
+    private volatile Map<Field, BloomFilter> filters;
+
+    private final Queue<Recorded> recent = new ConcurrentLinkedQueue<>();
+
+    private record Recorded(Field field, String value, long recordedAt) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelay = 600000, fixedDelay = 600000)
+    // Không readOnly: dựng từ primary để không sót email / SĐT vừa được thêm
+    @Transactional
+    @Timed(value = "evbs.scheduler.run", extraTags = {"job", "uniqueness-guard-rebuild"})
+    @ScheduledJob(value = "uniqueness-guard-rebuild", maxRuntimeMs = 120000)
+    public void rebuild() {
+        long startedAt = System.nanoTime();
+        // Dư gấp đôi số dòng hiện có để đủ chỗ cho đợt đăng ký mới tới lần dựng sau
+        long userCapacity = Math.max(MIN_EXPECTED_INSERTIONS, userRepository.count() * 2);
+
+        Map<Field, BloomFilter> fresh = new EnumMap<>(Field.class);
+        fresh.put(Field.EMAIL, new BloomFilter(userCapacity, FALSE_POSITIVE_RATE));
+        fresh.put(Field.PHONE, new BloomFilter(userCapacity, FALSE_POSITIVE_RATE));
+
+        List<Object[]> users = userRepository.findAllEmailAndPhoneNumber();
+        for (Object[] row : users) {
+            addTo(fresh, Field.EMAIL, (String) row[0]);
+            addTo(fresh, Field.PHONE, (String) row[1]);
+        }
+
+        // Đổi bộ lọc trước rồi mới ghi lại: record() chạy song song hoặc đã vào bộ lọc mới,
+        // hoặc đã nằm trong recent trước lúc duyệt
+        filters = fresh;
+        recent.removeIf(entry -> startedAt - entry.recordedAt() > REPLAY_WINDOW_NANOS);
+        for (Recorded entry : recent) {
+            addTo(fresh, entry.field(), entry.value());
+        }
+        log.info("Built uniqueness filters: {} users", users.size());
+    }
+
+    /**
+     * Giá trị có thể đã tồn tại không (false = chắc chắn chưa có, không cần query DB)
+     */
+    public boolean mightExist(Field field, String value) {
+        Map<Field, BloomFilter> current = filters;
+        if (current == null || value == null) {
+            return true;
+        }
+        boolean maybe = current.get(field).mightContain(normalize(value));
+        meterRegistry.counter("evbs.uniqueness.check",
+                "field", field.name().toLowerCase(Locale.ROOT),
+                "outcome", maybe ? "maybe" : "absent").increment();
+        return maybe;
+    }
+
+    /**
+     * Ghi nhận giá trị vừa được lưu (tạo mới hoặc đổi email / SĐT)
+     */
+    public void record(Field field, String value) {
+        if (value == null) {
+            return;
+        }
+        recent.add(new Recorded(field, value, System.nanoTime()));
+        Map<Field, BloomFilter> current = filters;
+        if (current != null) {
+            addTo(current, field, value);
+        }
+    }
+
+    /**
+     * Cột bị trùng khi lưu user thất bại do unique constraint (bộ lọc báo chưa có nhưng giá trị vừa được
+     * instance khác ghi, trước lần dựng lại). Không nhận ra tên constraint (DB cũ còn tên do Hibernate tự sinh)
+     * thì kiểm tra lại bằng DB. email / phoneNumber: giá trị vừa ghi, null nếu không đổi
+     */
+    public Optional<Field> violatedField(DataIntegrityViolationException exception, String email, String phoneNumber) {
+        String constraint = constraintName(exception);
+        if (constraint != null) {
+            String name = constraint.toUpperCase(Locale.ROOT);
+            if (name.contains(User.UQ_EMAIL.toUpperCase(Locale.ROOT))) {
+                return Optional.of(Field.EMAIL);
+            }
+            if (name.contains(User.UQ_PHONE_NUMBER.toUpperCase(Locale.ROOT))) {
+                return Optional.of(Field.PHONE);
+            }
+        }
+        if (email != null && userRepository.existsByEmail(email)) {
+            return Optional.of(Field.EMAIL);
+        }
+        if (phoneNumber != null && userRepository.existsByPhoneNumber(phoneNumber)) {
+            return Optional.of(Field.PHONE);
+        }
+        return Optional.empty();
+    }
+
+    private static String constraintName(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return violation.getConstraintName();
+            }
+        }
+        return null;
+    }
+
+    private static void addTo(Map<Field, BloomFilter> target, Field field, String value) {
+        if (value != null) {
+            target.get(field).add(normalize(value));
+        }
+    }
+
+    // SQL Server so sánh không phân biệt hoa thường: bộ lọc phải coi "A@x.com" và "a@x.com" là một
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
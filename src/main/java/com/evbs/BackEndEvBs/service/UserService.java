@@ -4,23 +4,25 @@ import com.evbs.BackEndEvBs.entity.Booking;
 import com.evbs.BackEndEvBs.entity.User;
 import com.evbs.BackEndEvBs.entity.Vehicle;
 import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
+import com.evbs.BackEndEvBs.mapper.UserMapper;
 import com.evbs.BackEndEvBs.model.request.CreateUserRequest;
 import com.evbs.BackEndEvBs.model.request.UpdateProfileRequest;
 import com.evbs.BackEndEvBs.model.request.UpdateUserRequest;
+import com.evbs.BackEndEvBs.model.response.PageResponse;
 import com.evbs.BackEndEvBs.model.response.UserResponse;
 import com.evbs.BackEndEvBs.repository.BookingRepository;
 import com.evbs.BackEndEvBs.repository.StaffStationAssignmentRepository;
 import com.evbs.BackEndEvBs.repository.UserRepository;
 import com.evbs.BackEndEvBs.repository.VehicleRepository;
-import org.modelmapper.ModelMapper;
+import com.evbs.BackEndEvBs.util.PageUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class UserService {
@@ -29,7 +31,7 @@ public class UserService {
     UserRepository userRepository;
 
     @Autowired
-    ModelMapper modelMapper;
+    UserMapper userMapper;
 
     @Autowired
     AuthenticationService authenticationService;
@@ -46,31 +48,39 @@ public class UserService {
     @Autowired
     StaffStationAssignmentRepository staffStationAssignmentRepository;
 
+    @Autowired
+    UniquenessGuard uniquenessGuard;
+
     /**
      * Tạo user mới
      */
     public UserResponse createUser(CreateUserRequest request) {
         // Kiểm tra email đã tồn tại
-        if (userRepository.existsByEmail(request.getEmail())) {
+        if (uniquenessGuard.mightExist(UniquenessGuard.Field.EMAIL, request.getEmail())
+                && userRepository.existsByEmail(request.getEmail())) {
             throw new IllegalArgumentException("Email đã được sử dụng!");
         }
 
         // Kiểm tra phone number đã tồn tại
-        if (request.getPhoneNumber() != null && userRepository.existsByPhoneNumber(request.getPhoneNumber())) {
+        if (request.getPhoneNumber() != null
+                && uniquenessGuard.mightExist(UniquenessGuard.Field.PHONE, request.getPhoneNumber())
+                && userRepository.existsByPhoneNumber(request.getPhoneNumber())) {
             throw new IllegalArgumentException("SĐT đã được sử dụng!");
         }
 
-        // Tạo user mới
-        User user = new User();
-        user.setFullName(request.getFullName());
-        user.setEmail(request.getEmail());
-        user.setPhoneNumber(request.getPhoneNumber());
+        // Tạo user mới (fullName, email, phoneNumber, role, status lấy từ request)
+        User user = userMapper.toEntity(request);
         user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
-        user.setRole(request.getRole());
-        user.setStatus(request.getStatus());
 
-        User savedUser = userRepository.save(user);
-        return modelMapper.map(savedUser, UserResponse.class);
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateOf(e, user.getEmail(), user.getPhoneNumber());
+        }
+        uniquenessGuard.record(UniquenessGuard.Field.EMAIL, savedUser.getEmail());
+        uniquenessGuard.record(UniquenessGuard.Field.PHONE, savedUser.getPhoneNumber());
+        return userMapper.toResponse(savedUser);
     }
 
     /**
@@ -132,20 +142,34 @@ public class UserService {
             user.setFullName(request.getFullName());
         }
 
+        // Email / SĐT thật sự đổi, dùng để báo đúng lỗi nếu DB chặn trùng lúc lưu
+        String changedEmail = null;
+        String changedPhoneNumber = null;
+
         if (request.getEmail() != null && !request.getEmail().trim().isEmpty()) {
             // Kiểm tra email mới có trùng với user khác không
-            if (!user.getEmail().equals(request.getEmail()) && userRepository.existsByEmail(request.getEmail())) {
-                throw new IllegalArgumentException("Email đã được sử dụng!");
+            if (!user.getEmail().equals(request.getEmail())) {
+                if (uniquenessGuard.mightExist(UniquenessGuard.Field.EMAIL, request.getEmail())
+                        && userRepository.existsByEmail(request.getEmail())) {
+                    throw new IllegalArgumentException("Email đã được sử dụng!");
+                }
+                changedEmail = request.getEmail();
             }
             user.setEmail(request.getEmail());
+            uniquenessGuard.record(UniquenessGuard.Field.EMAIL, request.getEmail());
         }
 
         if (request.getPhoneNumber() != null && !request.getPhoneNumber().trim().isEmpty()) {
             // Kiểm tra phone number mới có trùng với user khác không
-            if (!user.getPhoneNumber().equals(request.getPhoneNumber()) && userRepository.existsByPhoneNumber(request.getPhoneNumber())) {
-                throw new IllegalArgumentException("SĐT đã được sử dụng!");
+            if (!request.getPhoneNumber().equals(user.getPhoneNumber())) {
+                if (uniquenessGuard.mightExist(UniquenessGuard.Field.PHONE, request.getPhoneNumber())
+                        && userRepository.existsByPhoneNumber(request.getPhoneNumber())) {
+                    throw new IllegalArgumentException("SĐT đã được sử dụng!");
+                }
+                changedPhoneNumber = request.getPhoneNumber();
             }
             user.setPhoneNumber(request.getPhoneNumber());
+            uniquenessGuard.record(UniquenessGuard.Field.PHONE, request.getPhoneNumber());
         }
 
         // KIỂM TRA STATUS INACTIVE TRƯỚC KHI ĐỔI ROLE (dùng role CŨ để kiểm tra)
@@ -187,8 +211,13 @@ public class UserService {
             user.setStatus(request.getStatus());
         }
 
-        User updatedUser = userRepository.save(user);
-        return modelMapper.map(updatedUser, UserResponse.class);
+        User updatedUser;
+        try {
+            updatedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateOf(e, changedEmail, changedPhoneNumber);
+        }
+        return userMapper.toResponse(updatedUser);
     }
 
     /**
@@ -242,13 +271,14 @@ public class UserService {
     }
 
     /**
-     * Lấy danh sách tất cả user đơn giản 
+     * Lấy danh sách user theo trang (keyset theo ID giảm dần), filter theo role/status
      */
-    public List<UserResponse> getAllUsersSimple() {
-        List<User> users = userRepository.findAll();
-        return users.stream()
-                .map(user -> modelMapper.map(user, UserResponse.class))
-                .collect(Collectors.toList());
+    public PageResponse<UserResponse> getAllUsersSimple(Long cursor, Integer size, User.Role role, User.Status status) {
+        return PageUtil.toPageResponse(
+                userRepository.findPage(cursor, role, status, PageUtil.firstPage(size))
+                        .map(userMapper::toResponse),
+                UserResponse::getId
+        );
     }
 
     /**
@@ -263,12 +293,18 @@ public class UserService {
             currentUser.setFullName(request.getFullName());
         }
 
+        String changedEmail = null;
         if (request.getEmail() != null && !request.getEmail().trim().isEmpty()) {
             // Kiểm tra email mới có trùng với user khác không
-            if (!currentUser.getEmail().equals(request.getEmail()) && userRepository.existsByEmail(request.getEmail())) {
-                throw new IllegalArgumentException("Email đã được sử dụng!");
+            if (!currentUser.getEmail().equals(request.getEmail())) {
+                if (uniquenessGuard.mightExist(UniquenessGuard.Field.EMAIL, request.getEmail())
+                        && userRepository.existsByEmail(request.getEmail())) {
+                    throw new IllegalArgumentException("Email đã được sử dụng!");
+                }
+                changedEmail = request.getEmail();
             }
             currentUser.setEmail(request.getEmail());
+            uniquenessGuard.record(UniquenessGuard.Field.EMAIL, request.getEmail());
         }
 
         // Cập nhật ngày sinh nếu có
@@ -286,7 +322,23 @@ public class UserService {
             currentUser.setGender(request.getGender());
         }
 
-        User updatedUser = userRepository.save(currentUser);
-        return modelMapper.map(updatedUser, UserResponse.class);
+        User updatedUser;
+        try {
+            updatedUser = userRepository.save(currentUser);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateOf(e, changedEmail, null);
+        }
+        return userMapper.toResponse(updatedUser);
+    }
+
+    /**
+     * Bộ lọc trùng chỉ dựng lại định kỳ trên từng instance: email / SĐT vừa được instance khác ghi
+     * có thể lọt qua kiểm tra và bị unique constraint chặn khi lưu, trả lại đúng lỗi 400 như kiểm tra trước
+     */
+    private RuntimeException duplicateOf(DataIntegrityViolationException e, String email, String phoneNumber) {
+        return uniquenessGuard.violatedField(e, email, phoneNumber)
+                .<RuntimeException>map(field -> new IllegalArgumentException(field == UniquenessGuard.Field.EMAIL
+                        ? "Email đã được sử dụng!" : "SĐT đã được sử dụng!"))
+                .orElse(e);
     }
 }
\ No newline at end of file
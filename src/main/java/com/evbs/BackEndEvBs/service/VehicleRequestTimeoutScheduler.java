@@ -1,7 +1,10 @@
 package com.evbs.BackEndEvBs.service;
 
+import com.evbs.BackEndEvBs.config.ScheduledJob;
 import com.evbs.BackEndEvBs.entity.Vehicle;
 import com.evbs.BackEndEvBs.repository.VehicleRepository;
+import com.evbs.BackEndEvBs.util.TransactionUtil;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,14 +34,23 @@ public class VehicleRequestTimeoutScheduler {
 
     private final VehicleRepository vehicleRepository;
     private final EmailService emailService;
+    private final SchedulerLockService schedulerLockService;
+    private final ScheduledJobRegistry scheduledJobRegistry;
 
     /**
      * Chạy mỗi 30 phút (1800000 milliseconds)
      * Kiểm tra và hủy các yêu cầu đăng ký xe quá 12 tiếng
      */
     @Scheduled(fixedDelay = 1800000) // 30 phút
+    @ScheduledJob(value = "vehicle-request-timeout", maxRuntimeMs = 600000)
     @Transactional
+    @Timed(value = "evbs.scheduler.run", extraTags = {"job", "vehicle-request-timeout"})
     public void cancelExpiredVehicleRequests() {
+        // Chạy nhiều instance: chỉ 1 node xử lý mỗi lần
+        schedulerLockService.runExclusive("vehicle-request-timeout", this::cancelExpiredVehicleRequestsExclusive);
+    }
+
+    private void cancelExpiredVehicleRequestsExclusive() {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime timeoutThreshold = now.minusHours(TIMEOUT_HOURS);
 
@@ -86,16 +98,18 @@ public class VehicleRequestTimeoutScheduler {
 
                 vehicleRepository.save(vehicle);
 
-                // Gửi email thông báo cho tài xế
-                try {
-                    emailService.sendVehicleTimeoutToDriver(vehicle, TIMEOUT_HOURS);
-                    logger.info("Đã gửi email thông báo timeout cho tài xế: {}",
-                            vehicle.getDriver().getEmail());
-                } catch (Exception emailError) {
-                    logger.error("Lỗi khi gửi email thông báo timeout cho tài xế. VehicleID: {}, Error: {}",
-                            vehicle.getId(), emailError.getMessage());
-                    // Không throw exception để tiếp tục xử lý các xe khác
-                }
+                // Gửi email thông báo cho tài xế sau khi hủy đã commit (rollback thì không gửi)
+                TransactionUtil.afterCommit(() -> {
+                    try {
+                        emailService.sendVehicleTimeoutToDriver(vehicle, TIMEOUT_HOURS);
+                        logger.info("Đã gửi email thông báo timeout cho tài xế: {}",
+                                vehicle.getDriver().getEmail());
+                    } catch (Exception emailError) {
+                        logger.error("Lỗi khi gửi email thông báo timeout cho tài xế. VehicleID: {}, Error: {}",
+                                vehicle.getId(), emailError.getMessage());
+                        // Không throw exception để tiếp tục gửi cho các xe khác
+                    }
+                });
 
                 cancelledCount++;
                 logger.info("Đã hủy thành công yêu cầu đăng ký xe. VehicleID: {}", vehicle.getId());
@@ -109,5 +123,6 @@ public class VehicleRequestTimeoutScheduler {
 
         logger.info("Hoàn thành xử lý yêu cầu đăng ký xe hết hạn. Số lượng hủy: {}/{}",
                 cancelledCount, expiredVehicles.size());
+        scheduledJobRegistry.addItems(cancelledCount);
     }
 }
@@ -12,9 +12,10 @@ import com.evbs.BackEndEvBs.model.request.VehicleRejectRequest;
 import com.evbs.BackEndEvBs.model.request.VehicleRequest;
 import com.evbs.BackEndEvBs.model.request.VehicleApproveRequest;
 import com.evbs.BackEndEvBs.model.request.VehicleUpdateRequest;
+import com.evbs.BackEndEvBs.model.response.PageResponse;
 import com.evbs.BackEndEvBs.repository.*;
+import com.evbs.BackEndEvBs.util.PageUtil;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -50,9 +51,6 @@ public class VehicleService {
     @Autowired
     private final AuthenticationService authenticationService;
 
-    @Autowired
-    private final ModelMapper modelMapper;
-
     @Autowired
     private final UserRepository userRepository;
 
@@ -65,6 +63,13 @@ public class VehicleService {
     @Autowired
     private final MoMoService moMoService;
 
+    // Xe driver thấy trong "xe của tôi", theo thứ tự hiển thị
+    private static final List<Vehicle.VehicleStatus> MY_VEHICLE_STATUSES = List.of(
+            Vehicle.VehicleStatus.ACTIVE, Vehicle.VehicleStatus.PENDING, Vehicle.VehicleStatus.UNPAID);
+
+    // Số ID tối đa trong một IN (...) khi đếm swap
+    private static final int SWAP_COUNT_CHUNK_SIZE = 1000;
+
     /**
      * Creates a new Vehicle với status UNPAID (chưa cọc)
      * Upload ảnh giấy đăng ký xe
@@ -206,14 +211,9 @@ public class VehicleService {
     @Transactional(readOnly = true)
     public List<Vehicle> getMyVehicles() {
         User currentUser = authenticationService.getCurrentUser();
-        List<Vehicle> activeVehicles = vehicleRepository.findByDriverAndStatus(currentUser, Vehicle.VehicleStatus.ACTIVE);
-        List<Vehicle> pendingVehicles = vehicleRepository.findByDriverAndStatus(currentUser, Vehicle.VehicleStatus.PENDING);
-        List<Vehicle> unpaidVehicles = vehicleRepository.findByDriverAndStatus(currentUser, Vehicle.VehicleStatus.UNPAID);
-
-        List<Vehicle> vehicles = new ArrayList<>();
-        vehicles.addAll(activeVehicles);
-        vehicles.addAll(pendingVehicles);
-        vehicles.addAll(unpaidVehicles);
+        List<Vehicle> vehicles = new ArrayList<>(vehicleRepository.findByDriverAndStatusIn(currentUser, MY_VEHICLE_STATUSES));
+        // Giữ thứ tự hiển thị cũ: ACTIVE, PENDING rồi UNPAID
+        vehicles.sort(Comparator.comparingInt(v -> MY_VEHICLE_STATUSES.indexOf(v.getStatus())));
 
         populateSwapCounts(vehicles);
         populateBatteryTypeNames(vehicles);
@@ -221,22 +221,29 @@ public class VehicleService {
     }
 
     /**
-     * READ - Lấy tất cả xe (Admin/Staff only)
+     * READ - Lấy xe theo trang (Admin/Staff only)
+     * Phân trang keyset: cursor = ID cuối của trang trước, sắp xếp mới nhất trước
      */
     @Transactional(readOnly = true)
-    public List<Vehicle> getAllVehicles() {
+    public PageResponse<Vehicle> getAllVehicles(Long cursor, Integer size, Vehicle.VehicleStatus status,
+                                                LocalDateTime from, LocalDateTime to) {
         User currentUser = authenticationService.getCurrentUser();
         if (!isAdminOrStaff(currentUser)) {
             throw new AuthenticationException("Truy cập bị từ chối. Yêu cầu vai trò Admin/Staff.");
         }
-        List<Vehicle> vehicles = vehicleRepository.findAll();
-        populateSwapCounts(vehicles);
-        populateBatteryTypeNames(vehicles);
-        populateDriverNames(vehicles);
-        return vehicles;
+        PageResponse<Vehicle> page = PageUtil.toPageResponse(
+                vehicleRepository.findPageWithDetails(cursor, status, from, to, PageUtil.firstPage(size)),
+                Vehicle::getId
+        );
+        // swapCount chỉ đếm cho các xe trong trang hiện tại
+        populateSwapCounts(page.getContent());
+        populateBatteryTypeNames(page.getContent());
+        populateDriverNames(page.getContent());
+        return page;
     }
 
-    // Populate swapCount for a list of vehicles using a single grouped query
+    // Populate swapCount for a list of vehicles using grouped queries
+    // (chia lô ID: SQL Server giới hạn 2100 tham số mỗi câu lệnh)
     private void populateSwapCounts(List<Vehicle> vehicles) {
         if (vehicles == null || vehicles.isEmpty()) return;
 
@@ -250,12 +257,14 @@ public class VehicleService {
             return;
         }
 
-        List<Object[]> counts = swapTransactionRepository.countByVehicleIds(ids);
         Map<Long, Long> countMap = new HashMap<>();
-        for (Object[] row : counts) {
-            Long vehicleId = (Long) row[0];
-            Long cnt = (Long) row[1];
-            countMap.put(vehicleId, cnt);
+        for (int from = 0; from < ids.size(); from += SWAP_COUNT_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + SWAP_COUNT_CHUNK_SIZE, ids.size()));
+            for (Object[] row : swapTransactionRepository.countByVehicleIds(chunk)) {
+                Long vehicleId = (Long) row[0];
+                Long cnt = (Long) row[1];
+                countMap.put(vehicleId, cnt);
+            }
         }
 
         vehicles.forEach(v -> v.setSwapCount(countMap.getOrDefault(v.getId(), 0L)));
@@ -0,0 +1,136 @@
+package com.evbs.BackEndEvBs.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Giới hạn số request đồng thời tự điều chỉnh theo độ trễ (kiểu gradient)
+ * - Mỗi cửa sổ (>= windowMs và >= minWindowSamples mẫu) tính độ trễ trung bình ngắn hạn (shortRtt)
+ *   và so với đường nền dài hạn (longRtt, trung bình trượt qua nhiều cửa sổ)
+ * - shortRtt <= tolerance * longRtt: tăng limit thêm ~sqrt(limit); vượt quá thì giảm theo tỉ lệ
+ *   longRtt / shortRtt (tối đa giảm một nửa mỗi cửa sổ)
+ * - Khi dùng chưa tới nửa limit thì không tăng thêm, tránh limit phình to lúc rảnh rồi sập cùng lúc
+ * tryAcquire / release an toàn khi nhiều thread gọi cùng lúc; phần tính cửa sổ dùng ReentrantLock
+ * (không dùng synchronized vì request chạy trên virtual thread, giữ monitor sẽ ghim carrier thread)
+ */
+public class GradientConcurrencyLimit {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_RTT_WEIGHT = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowNanos;
+    private final int minWindowSamples;
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile double limit;
+    private volatile double shortRttMs = Double.NaN;
+    private volatile double longRttMs = Double.NaN;
+
+    // Trạng thái cửa sổ hiện tại, chỉ đọc / ghi khi giữ windowLock
+    private final ReentrantLock windowLock = new ReentrantLock();
+    private long windowStart;
+    private double windowRttSumMs;
+    private int windowSamples;
+    private int windowMaxInflight;
+
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long windowMs, int minWindowSamples) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.clamp(initialLimit, this.minLimit, this.maxLimit);
+        this.windowNanos = windowMs * 1_000_000;
+        this.minWindowSamples = Math.max(1, minWindowSamples);
+    }
+
+    /**
+     * Nhận request nếu số request đang chạy < share * limit (share <= 1 để chừa chỗ cho request ưu tiên hơn)
+     */
+    public boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Trả chỗ và ghi nhận độ trễ của request
+     */
+    public void release(long rttNanos) {
+        int inflightBefore = inflight.getAndDecrement();
+        onSample(rttNanos / 1_000_000.0, inflightBefore);
+    }
+
+    /**
+     * Trả chỗ không ghi nhận độ trễ (request dài có chủ đích như export streaming)
+     */
+    public void release() {
+        inflight.decrementAndGet();
+    }
+
+    private void onSample(double rttMs, int inflightBefore) {
+        windowLock.lock();
+        try {
+            long now = System.nanoTime();
+            if (windowSamples == 0) {
+                windowStart = now;
+            }
+            windowRttSumMs += rttMs;
+            windowSamples++;
+            windowMaxInflight = Math.max(windowMaxInflight, inflightBefore);
+            if (windowSamples >= minWindowSamples && now - windowStart >= windowNanos) {
+                closeWindow();
+            }
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
+    private void closeWindow() {
+        double shortRtt = windowRttSumMs / windowSamples;
+        double longRtt = Double.isNaN(longRttMs) ? shortRtt : longRttMs * (1 - LONG_RTT_WEIGHT) + shortRtt * LONG_RTT_WEIGHT;
+        // Sau đợt quá tải, đường nền đã bị kéo lên: hạ nhanh về lại khi độ trễ đã giảm hẳn
+        if (longRtt > shortRtt * 2) {
+            longRtt *= 0.95;
+        }
+
+        double current = limit;
+        double gradient = Math.clamp(TOLERANCE * longRtt / shortRtt, MIN_GRADIENT, 1.0);
+        double target = current * gradient + Math.sqrt(current);
+        if (windowMaxInflight < current / 2) {
+            target = Math.min(target, current);
+        }
+        double next = current * (1 - SMOOTHING) + target * SMOOTHING;
+
+        limit = Math.clamp(next, minLimit, maxLimit);
+        shortRttMs = shortRtt;
+        longRttMs = longRtt;
+        windowRttSumMs = 0;
+        windowSamples = 0;
+        windowMaxInflight = 0;
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public double getShortRttMs() {
+        return shortRttMs;
+    }
+
+    public double getLongRttMs() {
+        return longRttMs;
+    }
+}
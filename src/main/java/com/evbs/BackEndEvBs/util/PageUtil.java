@@ -0,0 +1,42 @@
+package com.evbs.BackEndEvBs.util;
+
+import com.evbs.BackEndEvBs.model.response.PageResponse;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Utility cho phân trang keyset (cursor theo ID giảm dần)
+ * Query chỉ lấy size + 1 dòng, không cần COUNT(*) toàn bảng
+ */
+public class PageUtil {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Giới hạn size trong khoảng [1, MAX_PAGE_SIZE]
+    public static int normalizeSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    // Luôn lấy trang đầu tiên tính từ cursor, thứ tự đã cố định trong query
+    public static Pageable firstPage(Integer size) {
+        return PageRequest.of(0, normalizeSize(size));
+    }
+
+    // Chuyển Slice sang PageResponse, nextCursor là ID của phần tử cuối cùng
+    public static <T> PageResponse<T> toPageResponse(Slice<T> slice, Function<T, Long> idGetter) {
+        List<T> content = slice.getContent();
+        Long nextCursor = null;
+        if (slice.hasNext() && !content.isEmpty()) {
+            nextCursor = idGetter.apply(content.get(content.size() - 1));
+        }
+        return new PageResponse<>(content, content.size(), slice.hasNext(), nextCursor);
+    }
+}
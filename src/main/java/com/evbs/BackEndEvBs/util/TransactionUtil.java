@@ -0,0 +1,67 @@
+package com.evbs.BackEndEvBs.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utility chạy tác vụ sau khi transaction hiện tại commit thành công
+ * Dùng để cập nhật cache/index trong bộ nhớ, tránh ghi nhận thay đổi bị rollback
+ */
+public class TransactionUtil {
+
+    // Không có transaction đang chạy thì thực hiện ngay
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Chạy trong transaction hiện tại ngay trước commit, ném exception sẽ rollback. Không có transaction thì bỏ qua
+    public static void beforeCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                action.run();
+            }
+        });
+    }
+
+    // Chạy khi transaction hiện tại rollback (hoàn lại phần đã giữ chỗ trong bộ nhớ). Không có transaction thì bỏ qua
+    public static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    // Chạy sau khi transaction kết thúc (commit hoặc rollback). Không có transaction thì thực hiện ngay
+    public static void afterCompletion(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+}
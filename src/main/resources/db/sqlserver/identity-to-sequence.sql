@@ -0,0 +1,179 @@
+-- =====================================================================
+-- Chuyển khóa chính IDENTITY sang SEQUENCE cho Booking, Battery, Payment, SwapTransaction
+--
+-- Chạy MỘT LẦN trên database SQL Server đã có dữ liệu, TRƯỚC khi deploy bản dùng sequence
+-- (ứng dụng kiểm tra lúc khởi động và dừng lại nếu cột vẫn là IDENTITY - xem IdentityColumnCheck).
+-- Database mới tạo bằng ddl-auto không cần chạy script này.
+--
+-- Với mỗi bảng:
+-- 1. Lưu lại định nghĩa rồi tạm bỏ: foreign key trỏ tới bảng (kể cả FK nhiều cột, giữ ON DELETE / ON UPDATE)
+--    và các index / unique constraint khác primary key có dùng cột khóa (SQL Server không cho DROP COLUMN
+--    khi còn index tham chiếu cột)
+-- 2. Chép khóa chính sang cột mới không IDENTITY, bỏ cột cũ, đổi tên, tạo lại primary key
+-- 3. Tạo lại index, unique constraint và foreign key theo định nghĩa đã lưu
+-- 4. Tạo sequence bắt đầu sau ID lớn nhất (+ 1 lô) để không trùng ID cũ
+-- Index không chứa cột khóa (vd IX_Booking_Driver_BookingTime) giữ nguyên, chỉ được build lại khi đổi primary key.
+-- Cả bước chạy trong 1 transaction: lỗi giữa chừng thì rollback, bảng và index giữ như cũ.
+-- Script chạy lại được: bảng đã chuyển thì bỏ qua.
+-- =====================================================================
+
+SET XACT_ABORT ON;
+GO
+
+CREATE PROCEDURE #ConvertIdentityToSequence
+    @Table SYSNAME,
+    @Column SYSNAME,
+    @Sequence SYSNAME,
+    @AllocationSize INT = 50
+AS
+BEGIN
+    SET NOCOUNT ON;
+
+    IF ISNULL(COLUMNPROPERTY(OBJECT_ID(@Table), @Column, 'IsIdentity'), 0) = 0
+    BEGIN
+        PRINT @Table + N'.' + @Column + N' không phải IDENTITY, bỏ qua';
+        RETURN;
+    END
+
+    DECLARE @dropForeignKeys NVARCHAR(MAX);
+    DECLARE @createForeignKeys NVARCHAR(MAX);
+
+    SELECT
+        @dropForeignKeys = STRING_AGG(CAST(
+            N'ALTER TABLE ' + QUOTENAME(OBJECT_SCHEMA_NAME(fk.parent_object_id)) + N'.' + QUOTENAME(OBJECT_NAME(fk.parent_object_id))
+            + N' DROP CONSTRAINT ' + QUOTENAME(fk.name) + N';' AS NVARCHAR(MAX)), CHAR(10)),
+        @createForeignKeys = STRING_AGG(CAST(
+            N'ALTER TABLE ' + QUOTENAME(OBJECT_SCHEMA_NAME(fk.parent_object_id)) + N'.' + QUOTENAME(OBJECT_NAME(fk.parent_object_id))
+            + CASE WHEN fk.is_not_trusted = 1 THEN N' WITH NOCHECK' ELSE N' WITH CHECK' END
+            + N' ADD CONSTRAINT ' + QUOTENAME(fk.name)
+            + N' FOREIGN KEY (' + cols.parentColumns + N')'
+            + N' REFERENCES ' + QUOTENAME(OBJECT_SCHEMA_NAME(fk.referenced_object_id)) + N'.' + QUOTENAME(OBJECT_NAME(fk.referenced_object_id))
+            + N' (' + cols.referencedColumns + N')'
+            + N' ON DELETE ' + REPLACE(fk.delete_referential_action_desc, N'_', N' ')
+            + N' ON UPDATE ' + REPLACE(fk.update_referential_action_desc, N'_', N' ') + N';'
+            + CASE WHEN fk.is_disabled = 1
+                THEN N'ALTER TABLE ' + QUOTENAME(OBJECT_SCHEMA_NAME(fk.parent_object_id)) + N'.' + QUOTENAME(OBJECT_NAME(fk.parent_object_id))
+                    + N' NOCHECK CONSTRAINT ' + QUOTENAME(fk.name) + N';'
+                ELSE N'' END AS NVARCHAR(MAX)), CHAR(10))
+    FROM sys.foreign_keys fk
+    CROSS APPLY (
+        SELECT
+            STRING_AGG(CAST(QUOTENAME(COL_NAME(fkc.parent_object_id, fkc.parent_column_id)) AS NVARCHAR(MAX)), N', ')
+                WITHIN GROUP (ORDER BY fkc.constraint_column_id) AS parentColumns,
+            STRING_AGG(CAST(QUOTENAME(COL_NAME(fkc.referenced_object_id, fkc.referenced_column_id)) AS NVARCHAR(MAX)), N', ')
+                WITHIN GROUP (ORDER BY fkc.constraint_column_id) AS referencedColumns
+        FROM sys.foreign_key_columns fkc
+        WHERE fkc.constraint_object_id = fk.object_id
+    ) cols
+    WHERE fk.referenced_object_id = OBJECT_ID(@Table);
+
+    -- Index / unique constraint (trừ primary key) có cột khóa ở phần key hoặc INCLUDE
+    DECLARE @dropIndexes NVARCHAR(MAX);
+    DECLARE @createIndexes NVARCHAR(MAX);
+
+    SELECT
+        @dropIndexes = STRING_AGG(CAST(
+            CASE WHEN i.is_unique_constraint = 1
+                THEN N'ALTER TABLE ' + QUOTENAME(@Table) + N' DROP CONSTRAINT ' + QUOTENAME(i.name) + N';'
+                ELSE N'DROP INDEX ' + QUOTENAME(i.name) + N' ON ' + QUOTENAME(@Table) + N';'
+            END AS NVARCHAR(MAX)), CHAR(10)),
+        @createIndexes = STRING_AGG(CAST(
+            CASE WHEN i.is_unique_constraint = 1
+                THEN N'ALTER TABLE ' + QUOTENAME(@Table) + N' ADD CONSTRAINT ' + QUOTENAME(i.name)
+                    + N' UNIQUE ' + i.type_desc COLLATE DATABASE_DEFAULT + N' (' + cols.keyColumns + N');'
+                ELSE N'CREATE ' + CASE WHEN i.is_unique = 1 THEN N'UNIQUE ' ELSE N'' END
+                    + i.type_desc COLLATE DATABASE_DEFAULT + N' INDEX ' + QUOTENAME(i.name) + N' ON ' + QUOTENAME(@Table)
+                    + N' (' + cols.keyColumns + N')'
+                    + ISNULL(N' INCLUDE (' + cols.includedColumns + N')', N'')
+                    + ISNULL(N' WHERE ' + i.filter_definition, N'') + N';'
+            END AS NVARCHAR(MAX)), CHAR(10))
+    FROM sys.indexes i
+    CROSS APPLY (
+        SELECT
+            STRING_AGG(CASE WHEN ic.is_included_column = 0
+                    THEN CAST(QUOTENAME(COL_NAME(ic.object_id, ic.column_id))
+                        + CASE WHEN ic.is_descending_key = 1 THEN N' DESC' ELSE N'' END AS NVARCHAR(MAX)) END, N', ')
+                WITHIN GROUP (ORDER BY ic.key_ordinal) AS keyColumns,
+            STRING_AGG(CASE WHEN ic.is_included_column = 1
+                    THEN CAST(QUOTENAME(COL_NAME(ic.object_id, ic.column_id)) AS NVARCHAR(MAX)) END, N', ')
+                WITHIN GROUP (ORDER BY ic.index_column_id) AS includedColumns
+        FROM sys.index_columns ic
+        WHERE ic.object_id = i.object_id AND ic.index_id = i.index_id
+    ) cols
+    WHERE i.object_id = OBJECT_ID(@Table)
+      AND i.is_primary_key = 0
+      AND i.type IN (1, 2)
+      AND EXISTS (
+          SELECT 1 FROM sys.index_columns ic
+          WHERE ic.object_id = i.object_id AND ic.index_id = i.index_id
+            AND ic.column_id = COLUMNPROPERTY(OBJECT_ID(@Table), @Column, 'ColumnId'));
+
+    DECLARE @primaryKey SYSNAME = (
+        SELECT name FROM sys.key_constraints
+        WHERE parent_object_id = OBJECT_ID(@Table) AND type = 'PK');
+
+    DECLARE @tempColumn SYSNAME = @Column + N'_New';
+    DECLARE @sql NVARCHAR(MAX);
+
+    BEGIN TRANSACTION;
+
+    IF @dropForeignKeys IS NOT NULL
+        EXEC sp_executesql @dropForeignKeys;
+
+    IF @dropIndexes IS NOT NULL
+        EXEC sp_executesql @dropIndexes;
+
+    SET @sql = N'ALTER TABLE ' + QUOTENAME(@Table) + N' ADD ' + QUOTENAME(@tempColumn) + N' BIGINT NULL;';
+    EXEC sp_executesql @sql;
+
+    SET @sql = N'UPDATE ' + QUOTENAME(@Table) + N' SET ' + QUOTENAME(@tempColumn) + N' = ' + QUOTENAME(@Column) + N';';
+    EXEC sp_executesql @sql;
+
+    SET @sql = N'ALTER TABLE ' + QUOTENAME(@Table) + N' DROP CONSTRAINT ' + QUOTENAME(@primaryKey) + N';'
+        + N'ALTER TABLE ' + QUOTENAME(@Table) + N' DROP COLUMN ' + QUOTENAME(@Column) + N';';
+    EXEC sp_executesql @sql;
+
+    DECLARE @renameFrom NVARCHAR(300) = @Table + N'.' + @tempColumn;
+    EXEC sp_rename @renameFrom, @Column, 'COLUMN';
+
+    SET @sql = N'ALTER TABLE ' + QUOTENAME(@Table) + N' ALTER COLUMN ' + QUOTENAME(@Column) + N' BIGINT NOT NULL;';
+    EXEC sp_executesql @sql;
+
+    SET @sql = N'ALTER TABLE ' + QUOTENAME(@Table) + N' ADD CONSTRAINT ' + QUOTENAME(@primaryKey)
+        + N' PRIMARY KEY (' + QUOTENAME(@Column) + N');';
+    EXEC sp_executesql @sql;
+
+    IF @createIndexes IS NOT NULL
+        EXEC sp_executesql @createIndexes;
+
+    IF @createForeignKeys IS NOT NULL
+        EXEC sp_executesql @createForeignKeys;
+
+    -- Hibernate (pooled optimizer) coi giá trị sequence là đầu trên của lô: cộng thêm 1 lô cho chắc chắn
+    DECLARE @maxId BIGINT;
+    SET @sql = N'SELECT @maxId = ISNULL(MAX(' + QUOTENAME(@Column) + N'), 0) FROM ' + QUOTENAME(@Table) + N';';
+    EXEC sp_executesql @sql, N'@maxId BIGINT OUTPUT', @maxId = @maxId OUTPUT;
+    DECLARE @start BIGINT = @maxId + 1 + @AllocationSize;
+
+    IF OBJECT_ID(@Sequence, 'SO') IS NOT NULL
+        SET @sql = N'ALTER SEQUENCE ' + QUOTENAME(@Sequence) + N' RESTART WITH ' + CAST(@start AS NVARCHAR(20))
+            + N' INCREMENT BY ' + CAST(@AllocationSize AS NVARCHAR(10)) + N';';
+    ELSE
+        SET @sql = N'CREATE SEQUENCE ' + QUOTENAME(@Sequence) + N' AS BIGINT START WITH ' + CAST(@start AS NVARCHAR(20))
+            + N' INCREMENT BY ' + CAST(@AllocationSize AS NVARCHAR(10)) + N';';
+    EXEC sp_executesql @sql;
+
+    COMMIT TRANSACTION;
+
+    PRINT @Table + N'.' + @Column + N' -> ' + @Sequence + N' (bắt đầu ' + CAST(@start AS NVARCHAR(20)) + N')';
+END
+GO
+
+EXEC #ConvertIdentityToSequence @Table = N'Booking', @Column = N'BookingID', @Sequence = N'Booking_SEQ';
+EXEC #ConvertIdentityToSequence @Table = N'Battery', @Column = N'BatteryID', @Sequence = N'Battery_SEQ';
+EXEC #ConvertIdentityToSequence @Table = N'Payment', @Column = N'PaymentID', @Sequence = N'Payment_SEQ';
+EXEC #ConvertIdentityToSequence @Table = N'SwapTransaction', @Column = N'TransactionID', @Sequence = N'SwapTransaction_SEQ';
+GO
+
+DROP PROCEDURE #ConvertIdentityToSequence;
+GO
@@ -0,0 +1,65 @@
+package com.evbs.BackEndEvBs.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlFilterTest {
+
+    private final AdmissionControlFilter filter =
+            new AdmissionControlFilter(new SimpleMeterRegistry(), 50, 10, 400, 1000, 20, 0.8, 0.5);
+
+    @Test
+    void unpagedListingsAreLowPriority() {
+        assertEquals(AdmissionControlFilter.Priority.LOW, classify("GET", "/api/booking"));
+        assertEquals(AdmissionControlFilter.Priority.LOW, classify("GET", "/api/swap-transaction"));
+        assertEquals(AdmissionControlFilter.Priority.LOW, classify("GET", "/api/dashboard"));
+        assertEquals(AdmissionControlFilter.Priority.LOW, classify("GET", "/api/export/bookings"));
+    }
+
+    @Test
+    void bookingAndSwapWritesAreCritical() {
+        assertEquals(AdmissionControlFilter.Priority.CRITICAL, classify("POST", "/api/booking"));
+        assertEquals(AdmissionControlFilter.Priority.CRITICAL, classify("PATCH", "/api/booking/my-bookings/7/cancel"));
+        assertEquals(AdmissionControlFilter.Priority.CRITICAL, classify("POST", "/api/swap-transaction/swap-by-code"));
+        assertEquals(AdmissionControlFilter.Priority.CRITICAL, classify("GET", "/api/booking/my-bookings"));
+    }
+
+    @Test
+    void everythingElseIsNormal() {
+        assertEquals(AdmissionControlFilter.Priority.NORMAL, classify("POST", "/api/login"));
+        assertEquals(AdmissionControlFilter.Priority.NORMAL, classify("GET", "/api/station/3"));
+    }
+
+    @Test
+    void onlyCompletedRequestsCountTowardLatency() {
+        assertTrue(countsTowardLatency(200, false));
+        assertTrue(countsTowardLatency(400, false));
+        assertTrue(countsTowardLatency(404, false));
+
+        assertFalse(countsTowardLatency(401, false));
+        assertFalse(countsTowardLatency(403, false));
+        assertFalse(countsTowardLatency(500, false));
+        assertFalse(countsTowardLatency(503, false));
+        assertFalse(countsTowardLatency(200, true));
+    }
+
+    private static boolean countsTowardLatency(int status, boolean rejectedByBulkhead) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/booking/my-bookings");
+        if (rejectedByBulkhead) {
+            request.setAttribute(RequestBulkheadFilter.REJECTED_ATTRIBUTE, RequestBulkheadFilter.Workload.DRIVER);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(status);
+        return AdmissionControlFilter.countsTowardLatency(request, response);
+    }
+
+    private AdmissionControlFilter.Priority classify(String method, String uri) {
+        return filter.classify(new MockHttpServletRequest(method, uri));
+    }
+}
@@ -0,0 +1,76 @@
+package com.evbs.BackEndEvBs.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Định tuyến đọc / ghi: transaction readOnly lấy connection của pool evbs-replica khi ReplicaLagMonitor cho phép,
+ * replica trễ quá max-lag-seconds thì quay về evbs-primary
+ * Mỗi pool ghi tên mình vào biến @POOL của session H2 khi mở connection; độ trễ đọc từ bảng ReplicaLagProbe
+ */
+@ActiveProfiles("perf")
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:evbs-replica-routing;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.connection-init-sql=SET @POOL = 'evbs-primary'",
+        "app.datasource.replica.hikari.connection-init-sql=SET @POOL = 'evbs-replica'",
+        "app.datasource.replica.lag-query=SELECT Seconds FROM ReplicaLagProbe",
+        "app.datasource.replica.max-lag-seconds=5"
+})
+class ReplicaRoutingTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @AfterEach
+    void dropProbe() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS ReplicaLagProbe");
+    }
+
+    @Test
+    void readOnlyTransactionUsesReplicaWhenLagIsWithinLimit() {
+        setLag(0);
+
+        assertTrue(replicaLagMonitor.isUsable());
+        assertEquals("evbs-replica", poolOf(true));
+        assertEquals("evbs-primary", poolOf(false));
+    }
+
+    @Test
+    void readOnlyTransactionFallsBackToPrimaryWhenReplicaIsNotUsable() {
+        setLag(60);
+
+        assertFalse(replicaLagMonitor.isUsable());
+        assertEquals("evbs-primary", poolOf(true));
+    }
+
+    private void setLag(int seconds) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS ReplicaLagProbe (Seconds INT)");
+        jdbcTemplate.update("DELETE FROM ReplicaLagProbe");
+        jdbcTemplate.update("INSERT INTO ReplicaLagProbe (Seconds) VALUES (?)", seconds);
+        replicaLagMonitor.check();
+    }
+
+    private String poolOf(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> jdbcTemplate.queryForObject("SELECT @POOL", String.class));
+    }
+}
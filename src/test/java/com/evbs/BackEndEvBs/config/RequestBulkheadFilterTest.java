@@ -0,0 +1,102 @@
+package com.evbs.BackEndEvBs.config;
+
+import com.evbs.BackEndEvBs.entity.User;
+import com.evbs.BackEndEvBs.service.TokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestBulkheadFilterTest {
+
+    private final TokenService tokenService = new TokenService();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RequestBulkheadFilter filter =
+            new RequestBulkheadFilter(new MockEnvironment(), meterRegistry, tokenService);
+
+    @Test
+    void reportingAndStationPathsIgnoreRole() {
+        assertEquals(RequestBulkheadFilter.Workload.REPORTING, classify("GET", "/api/dashboard", null));
+        assertEquals(RequestBulkheadFilter.Workload.REPORTING, classify("GET", "/api/export/bookings", User.Role.DRIVER));
+        assertEquals(RequestBulkheadFilter.Workload.STATION, classify("POST", "/api/swap-transaction/swap-by-code", null));
+    }
+
+    @Test
+    void otherRequestsAreClassifiedByTokenRole() {
+        assertEquals(RequestBulkheadFilter.Workload.REPORTING, classify("GET", "/api/station", User.Role.ADMIN));
+        assertEquals(RequestBulkheadFilter.Workload.STATION, classify("GET", "/api/station", User.Role.STAFF));
+        assertEquals(RequestBulkheadFilter.Workload.DRIVER, classify("POST", "/api/booking", User.Role.DRIVER));
+    }
+
+    @Test
+    void missingOrInvalidTokenIsDriverTraffic() {
+        assertEquals(RequestBulkheadFilter.Workload.DRIVER, classify("GET", "/api/station", null));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/station");
+        request.addHeader("Authorization", "Bearer not-a-jwt");
+        assertEquals(RequestBulkheadFilter.Workload.DRIVER, filter.classify(request));
+    }
+
+    @Test
+    void tryEnterRejectsWhenConcurrencyAndQueueAreFull() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.bulkhead.reporting.max-concurrent", "1")
+                .withProperty("app.bulkhead.reporting.max-queue", "0");
+        RequestBulkheadFilter.Bulkhead bulkhead = new RequestBulkheadFilter.Bulkhead(
+                environment, new SimpleMeterRegistry(), RequestBulkheadFilter.Workload.REPORTING, 4, 8, 1000, 10);
+
+        assertTrue(bulkhead.tryEnter());
+        assertFalse(bulkhead.tryEnter());
+
+        bulkhead.exit();
+        assertTrue(bulkhead.tryEnter());
+    }
+
+    @Test
+    void tryEnterNeverQueuesOnPlatformThreads() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.bulkhead.station.max-concurrent", "1")
+                .withProperty("app.bulkhead.station.max-queue", "10")
+                .withProperty("app.bulkhead.station.max-wait-ms", "5000");
+        RequestBulkheadFilter.Bulkhead bulkhead = new RequestBulkheadFilter.Bulkhead(
+                environment, new SimpleMeterRegistry(), RequestBulkheadFilter.Workload.STATION, 40, 80, 2000, 2);
+
+        assertTrue(bulkhead.tryEnter());
+        long start = System.nanoTime();
+        assertFalse(bulkhead.tryEnter());
+        assertTrue(System.nanoTime() - start < 1_000_000_000L, "không được giữ worker chờ max-wait-ms");
+    }
+
+    @Test
+    void tryEnterGivesUpAfterMaxWait() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.threads.virtual.enabled", "true")
+                .withProperty("app.bulkhead.station.max-concurrent", "1")
+                .withProperty("app.bulkhead.station.max-queue", "1")
+                .withProperty("app.bulkhead.station.max-wait-ms", "50");
+        RequestBulkheadFilter.Bulkhead bulkhead = new RequestBulkheadFilter.Bulkhead(
+                environment, new SimpleMeterRegistry(), RequestBulkheadFilter.Workload.STATION, 40, 80, 2000, 2);
+
+        assertTrue(bulkhead.tryEnter());
+        long start = System.nanoTime();
+        assertFalse(bulkhead.tryEnter());
+        assertTrue(System.nanoTime() - start >= 50_000_000L);
+    }
+
+    private RequestBulkheadFilter.Workload classify(String method, String uri, User.Role role) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (role != null) {
+            User user = new User();
+            user.setId(42L);
+            user.setRole(role);
+            request.addHeader("Authorization", "Bearer " + tokenService.generateToken(user));
+        }
+        return filter.classify(request);
+    }
+}
@@ -0,0 +1,163 @@
+package com.evbs.BackEndEvBs.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Kịch bản tải HTTP cho luồng chính của driver (kiểu Gatling/JMeter, viết bằng java.net.http):
+ * login -> danh sách trạm -> tìm trạm gần -> trạm tương thích -> đặt lịch -> lịch sử booking
+ *
+ * Mỗi virtual user là một driver riêng, chạy trên virtual thread.
+ * -Dperf.http.users=500      : số user đồng thời
+ * -Dperf.http.maxErrorRate=0.01 : tỉ lệ lỗi tối đa trước khi fail
+ * So sánh virtual thread bật / tắt phía server: chạy 2 lần với -Dperf.http.users=1000 (cần -Dperf.drivers >= 1000),
+ * một lần thêm VIRTUAL_THREADS_ENABLED=true. Báo cáo ghi riêng: http-scenario.json và http-scenario-virtual-threads.json
+ */
+@Tag("perf")
+@ActiveProfiles("perf")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class HttpLoadScenarioTest {
+
+    private static final List<String> STEPS = List.of(
+            "login", "listStations", "searchStations", "compatibleStations", "createBooking", "myBookings");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, List<Long>> latenciesByStep = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    private HttpClient client;
+
+    @Test
+    void driverBookingFlowDoesNotRegress() throws Exception {
+        PerfDataGenerator data = new PerfDataGenerator(jdbcTemplate, PerfDataGenerator.Scale.fromSystemProperties());
+        data.generate();
+        PerfDataGenerator.refreshInMemoryState(applicationContext);
+
+        int users = Math.min(Integer.getInteger("perf.http.users", 500), data.getScale().drivers());
+        STEPS.forEach(step -> latenciesByStep.put(step, Collections.synchronizedList(new ArrayList<>())));
+
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                int driverIndex = i;
+                executor.submit(() -> runDriverFlow(data, driverIndex));
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        Map<String, PerfReport.Metric> metrics = new LinkedHashMap<>();
+        metrics.put("throughput", new PerfReport.Metric(requests.get() / elapsedSeconds, "req/s", true));
+        latenciesByStep.forEach((step, latencies) -> {
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            metrics.put(step + ".p50", new PerfReport.Metric(percentile(sorted, 0.50), "ms", false));
+            metrics.put(step + ".p95", new PerfReport.Metric(percentile(sorted, 0.95), "ms", false));
+            metrics.put(step + ".p99", new PerfReport.Metric(percentile(sorted, 0.99), "ms", false));
+        });
+        double errorRate = requests.get() == 0 ? 0 : (double) errors.get() / requests.get();
+        metrics.put("errorRate", new PerfReport.Metric(errorRate, "ratio", false));
+
+        boolean virtualThreads = applicationContext.getEnvironment()
+                .getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        List<String> regressions = PerfReport.publish(virtualThreads ? "http-scenario-virtual-threads" : "http-scenario",
+                data.getScale().label() + ",users=" + users, metrics);
+
+        double maxErrorRate = Double.parseDouble(System.getProperty("perf.http.maxErrorRate", "0.01"));
+        assertTrue(errorRate <= maxErrorRate, "Error rate " + errorRate + " > " + maxErrorRate);
+        assertTrue(regressions.isEmpty(), "Performance regression: " + regressions);
+    }
+
+    private void runDriverFlow(PerfDataGenerator data, int driverIndex) {
+        try {
+            String login = call("login", HttpRequest.newBuilder(uri("/api/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(Map.of(
+                            "phone", data.driverPhone(driverIndex),
+                            "password", PerfDataGenerator.DRIVER_PASSWORD)))), null);
+            if (login == null) {
+                return;
+            }
+            String token = objectMapper.readTree(login).path("token").asText();
+
+            long stationId = data.compatibleStationId(driverIndex, driverIndex / 2);
+            call("listStations", HttpRequest.newBuilder(uri("/api/station")).GET(), null);
+            call("searchStations", HttpRequest.newBuilder(uri("/api/station/search?lat="
+                    + data.stationLatitude(stationId) + "&lng=" + data.stationLongitude(stationId) + "&limit=10")).GET(), null);
+            call("compatibleStations", HttpRequest.newBuilder(
+                    uri("/api/booking/compatible-stations/" + data.vehicleId(driverIndex))).GET(), token);
+            call("createBooking", HttpRequest.newBuilder(uri("/api/booking"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(Map.of(
+                            "vehicleId", data.vehicleId(driverIndex),
+                            "stationId", stationId)))), token);
+            call("myBookings", HttpRequest.newBuilder(uri("/api/booking/my-bookings")).GET(), token);
+        } catch (Exception e) {
+            errors.incrementAndGet();
+        }
+    }
+
+    // Trả về body nếu 2xx, null nếu lỗi (đã ghi nhận vào errors)
+    private String call(String step, HttpRequest.Builder builder, String token) throws Exception {
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+        latenciesByStep.get(step).add((System.nanoTime() - start) / 1_000_000);
+        requests.incrementAndGet();
+        if (response.statusCode() / 100 != 2) {
+            errors.incrementAndGet();
+            return null;
+        }
+        return response.body();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+}
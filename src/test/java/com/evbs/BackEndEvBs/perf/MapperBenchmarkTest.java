@@ -0,0 +1,48 @@
+package com.evbs.BackEndEvBs.perf;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Chạy MapperBenchmarks và ghi báo cáo target/perf/mapper-benchmarks.json
+ */
+@Tag("perf")
+class MapperBenchmarkTest {
+
+    @Test
+    void generatedMapperOutperformsModelMapper() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(MapperBenchmarks.class.getName() + "\\.")
+                .resultFormat(ResultFormatType.JSON)
+                .result(PerfReport.outputFile("mapper-benchmarks-jmh.json").toString())
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        Map<String, PerfReport.Metric> metrics = new LinkedHashMap<>();
+        String rows = "";
+        for (RunResult result : results) {
+            String method = result.getParams().getBenchmark();
+            method = method.substring(method.lastIndexOf('.') + 1);
+            rows = result.getParams().getParam("rows");
+            metrics.put(method, new PerfReport.Metric(result.getPrimaryResult().getScore(), "us/op", false));
+        }
+
+        assertTrue(metrics.get("mapStruct").value() < metrics.get("modelMapper").value(),
+                "MapStruct chậm hơn ModelMapper: " + metrics);
+
+        List<String> regressions = PerfReport.publish("mapper-benchmarks", "rows-" + rows, metrics);
+        assertTrue(regressions.isEmpty(), "Performance regression: " + regressions);
+    }
+}
@@ -0,0 +1,80 @@
+package com.evbs.BackEndEvBs.perf;
+
+import com.evbs.BackEndEvBs.entity.User;
+import com.evbs.BackEndEvBs.mapper.UserMapper;
+import com.evbs.BackEndEvBs.model.response.UserResponse;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh User → UserResponse giữa ModelMapper (reflection) và UserMapper do MapStruct sinh
+ * Mỗi lần gọi map cả danh sách `rows` user, như một trang lớn của danh sách user
+ *
+ * Chạy qua MapperBenchmarkTest: mvn -Pperf test -Dtest=MapperBenchmarkTest
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class MapperBenchmarks {
+
+    @Param({"1000"})
+    public int rows;
+
+    private List<User> users;
+    private ModelMapper modelMapper;
+    private UserMapper userMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        userMapper = Mappers.getMapper(UserMapper.class);
+
+        users = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            User user = new User();
+            user.setId((long) i + 1);
+            user.setFullName("Driver " + i);
+            user.setEmail("driver" + i + "@evbs.test");
+            user.setPhoneNumber(String.format("09%08d", i));
+            user.setDateOfBirth(LocalDate.of(1990, 1, 1).plusDays(i));
+            user.setGender(User.Gender.values()[i % User.Gender.values().length]);
+            user.setRole(User.Role.DRIVER);
+            user.setStatus(User.Status.ACTIVE);
+            users.add(user);
+        }
+    }
+
+    @Benchmark
+    public List<UserResponse> modelMapper() {
+        List<UserResponse> responses = new ArrayList<>(users.size());
+        for (User user : users) {
+            responses.add(modelMapper.map(user, UserResponse.class));
+        }
+        return responses;
+    }
+
+    @Benchmark
+    public List<UserResponse> mapStruct() {
+        return userMapper.toResponses(users);
+    }
+}
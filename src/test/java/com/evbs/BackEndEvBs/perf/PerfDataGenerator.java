@@ -0,0 +1,315 @@
+package com.evbs.BackEndEvBs.perf;
+
+import com.evbs.BackEndEvBs.service.StaffStationAccessCache;
+import com.evbs.BackEndEvBs.service.StationAvailabilityTracker;
+import com.evbs.BackEndEvBs.service.StationSpatialIndex;
+import com.evbs.BackEndEvBs.service.UniquenessGuard;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Sinh dữ liệu giả lập cho profile perf (H2 MSSQL mode)
+ * Ghi thẳng bằng JDBC batch với ID cố định, benchmark tự tính được quan hệ driver - xe - trạm - pin
+ *
+ * Bố cục ID:
+ * - User: 1 = admin, 2..staff+1 = staff, tiếp theo là driver
+ * - Vehicle / DriverSubscription thứ k thuộc driver thứ k
+ * - Trạm có ID chẵn dùng loại pin 1, ID lẻ dùng loại pin 2; xe thứ k (0-based) chẵn dùng loại pin 1
+ * - Pin thứ b nằm ở trạm (b % stations) + 1, cùng loại pin với trạm
+ */
+@Slf4j
+public class PerfDataGenerator {
+
+    public static final String DRIVER_PASSWORD = "perf@123";
+    public static final long ADMIN_ID = 1L;
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int SUBSCRIPTION_SWAPS = 1_000_000;
+
+    // Tọa độ quanh TP.HCM cho tìm kiếm trạm gần nhất
+    private static final double MIN_LAT = 10.65;
+    private static final double MIN_LNG = 106.50;
+    private static final double SPAN_DEG = 0.40;
+
+    /**
+     * Quy mô dữ liệu, đọc từ system property:
+     * -Dperf.scale=full (100k pin, 1M swap, 50k driver) hoặc từng giá trị -Dperf.drivers, -Dperf.batteries, ...
+     */
+    public record Scale(int stations, int staff, int drivers, int batteries, int swaps) {
+
+        public static Scale fromSystemProperties() {
+            boolean full = "full".equalsIgnoreCase(System.getProperty("perf.scale", "small"));
+            return new Scale(
+                    Integer.getInteger("perf.stations", full ? 1_000 : 100),
+                    Integer.getInteger("perf.staff", full ? 2_000 : 100),
+                    Integer.getInteger("perf.drivers", full ? 50_000 : 2_000),
+                    Integer.getInteger("perf.batteries", full ? 100_000 : 5_000),
+                    Integer.getInteger("perf.swaps", full ? 1_000_000 : 20_000));
+        }
+
+        public String label() {
+            return "stations=" + stations + ",staff=" + staff + ",drivers=" + drivers
+                    + ",batteries=" + batteries + ",swaps=" + swaps;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Scale scale;
+    private final Random random = new Random(42);
+
+    public PerfDataGenerator(JdbcTemplate jdbcTemplate, Scale scale) {
+        if (scale.stations() < 2) {
+            throw new IllegalArgumentException("Cần ít nhất 2 trạm (mỗi loại pin một trạm)");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.scale = scale;
+    }
+
+    public Scale getScale() {
+        return scale;
+    }
+
+    // ==================== BỐ CỤC ID ====================
+
+    public long staffId(int index) {
+        return 2L + index;
+    }
+
+    public long driverId(int index) {
+        return 2L + scale.staff() + index;
+    }
+
+    public long vehicleId(int driverIndex) {
+        return driverIndex + 1L;
+    }
+
+    public String driverPhone(int driverIndex) {
+        return String.format("09%08d", driverIndex);
+    }
+
+    public long batteryTypeOfStation(long stationId) {
+        return stationId % 2 + 1;
+    }
+
+    // Trạm cùng loại pin với xe của driver, xoay vòng theo n
+    public long compatibleStationId(int driverIndex, int n) {
+        int stationsPerType = scale.stations() / 2;
+        long first = driverIndex % 2 == 0 ? 2 : 1;
+        return first + 2L * Math.floorMod(n, stationsPerType);
+    }
+
+    public double stationLatitude(long stationId) {
+        return MIN_LAT + SPAN_DEG * ((stationId * 7919) % 1000) / 1000.0;
+    }
+
+    public double stationLongitude(long stationId) {
+        return MIN_LNG + SPAN_DEG * ((stationId * 104729) % 1000) / 1000.0;
+    }
+
+    // ==================== SINH DỮ LIỆU ====================
+
+    public void generate() {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+
+        allowNullConfirmationCodes();
+
+        insert("INSERT INTO BatteryType (BatteryTypeID, Name, Description, Voltage, Capacity, Weight, Dimensions) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)", 2,
+                i -> new Object[]{i + 1L, "PERF-" + (i + 1), "Loại pin benchmark", 48.0 + i * 12, 2.0 + i, 10.0 + i, "350x200x150"});
+
+        insert("INSERT INTO ServicePackage (PackageID, Name, Description, Price, Duration, MaxSwaps) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)", 1,
+                i -> new Object[]{1L, "Perf Unlimited", "Gói benchmark", new BigDecimal("500000.00"), 30, SUBSCRIPTION_SWAPS});
+
+        String passwordHash = new BCryptPasswordEncoder().encode(DRIVER_PASSWORD);
+        String userSql = "INSERT INTO Users (UserID, FullName, Email, PhoneNumber, PasswordHash, Role, Status) "
+                + "VALUES (?, ?, ?, ?, ?, ?, 'ACTIVE')";
+        insert(userSql, 1,
+                i -> new Object[]{ADMIN_ID, "Perf Admin", "admin@perf.local", "0700000000", passwordHash, "ADMIN"});
+        insert(userSql, scale.staff(),
+                i -> new Object[]{staffId(i), "Perf Staff " + i, "staff" + i + "@perf.local",
+                        String.format("08%08d", i), passwordHash, "STAFF"});
+        insert(userSql, scale.drivers(),
+                i -> new Object[]{driverId(i), "Perf Driver " + i, "driver" + i + "@perf.local",
+                        driverPhone(i), passwordHash, "DRIVER"});
+
+        insert("INSERT INTO Station (StationID, Name, Location, Capacity, ContactInfo, City, District, "
+                        + "Latitude, Longitude, BatteryTypeID, Status) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'ACTIVE')",
+                scale.stations(),
+                i -> {
+                    long stationId = i + 1L;
+                    return new Object[]{stationId, "Perf Station " + stationId, "Địa chỉ " + stationId,
+                            Math.max(20, 2 * scale.batteries() / scale.stations()), String.format("028%07d", i),
+                            "Hồ Chí Minh", "Quận " + (i % 24 + 1), stationLatitude(stationId),
+                            stationLongitude(stationId), batteryTypeOfStation(stationId)};
+                });
+
+        insert("INSERT INTO StaffStationAssignment (AssignmentID, StaffID, StationID, AssignedAt) VALUES (?, ?, ?, ?)",
+                scale.staff(),
+                i -> new Object[]{i + 1L, staffId(i), i % scale.stations() + 1L, now});
+
+        insert("INSERT INTO Battery (BatteryID, Model, Capacity, StateOfHealth, ChargeLevel, LastChargedTime, Status, "
+                        + "UsageCount, CreatedAt, CurrentStationID, BatteryTypeID) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                scale.batteries(), i -> batteryRow(i, now));
+
+        insert("INSERT INTO Vehicle (VehicleID, VIN, PlateNumber, Model, DepositStatus, DriverID, BatteryTypeID, "
+                        + "Status, CreatedAt) VALUES (?, ?, ?, ?, 'PAID', ?, ?, 'ACTIVE', ?)",
+                scale.drivers(),
+                i -> new Object[]{vehicleId(i), String.format("VINPERF%010d", i), String.format("59P-%06d", i),
+                        "Perf Scooter", driverId(i), i % 2 + 1L, now.minusDays(30)});
+
+        insert("INSERT INTO DriverSubscription (SubscriptionID, DriverID, PackageID, StartDate, EndDate, Status, "
+                        + "RemainingSwaps) VALUES (?, ?, 1, ?, ?, 'ACTIVE', ?)",
+                scale.drivers(),
+                i -> new Object[]{i + 1L, driverId(i), today.minusDays(10), today.plusDays(20), SUBSCRIPTION_SWAPS});
+
+        insert("INSERT INTO Payment (PaymentID, SubscriptionID, Amount, PaymentMethod, PaymentDate, Status) "
+                        + "VALUES (?, ?, ?, 'MOMO', ?, 'COMPLETED')",
+                scale.drivers(),
+                i -> new Object[]{i + 1L, i + 1L, new BigDecimal("500000.00"), now.minusMinutes(random.nextInt(60 * 24 * 30))});
+
+        // Lịch sử booking đã hoàn thành: createBooking đọc toàn bộ booking của driver để kiểm tra giới hạn/ngày
+        int bookings = scale.swaps() / 4;
+        insert("INSERT INTO Booking (BookingID, DriverID, VehicleID, StationID, BookingTime, CreatedAt, "
+                        + "ConfirmationCode, Status, ConfirmedBy) VALUES (?, ?, ?, ?, ?, ?, ?, 'COMPLETED', ?)",
+                bookings,
+                i -> {
+                    int driver = random.nextInt(scale.drivers());
+                    LocalDateTime time = now.minusMinutes(60 + random.nextInt(60 * 24 * 90));
+                    return new Object[]{i + 1L, driverId(driver), vehicleId(driver),
+                            compatibleStationId(driver, random.nextInt()), time, time.minusHours(3),
+                            String.format("H%09d", i), ADMIN_ID};
+                });
+
+        insert("INSERT INTO SwapTransaction (TransactionID, DriverID, VehicleID, StationID, StaffID, SwapOutBatteryID, "
+                        + "SwapInBatteryID, SwapOutBatteryModel, SwapOutBatteryChargeLevel, SwapOutBatteryHealth, "
+                        + "SwapInBatteryModel, SwapInBatteryChargeLevel, SwapInBatteryHealth, StartTime, EndTime, Cost, Status) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, 'PERF', 100.00, ?, 'PERF', ?, ?, ?, ?, 0, 'COMPLETED')",
+                scale.swaps(),
+                i -> {
+                    int driver = random.nextInt(scale.drivers());
+                    LocalDateTime time = now.minusMinutes(random.nextInt(60 * 24 * 90));
+                    return new Object[]{i + 1L, driverId(driver), vehicleId(driver),
+                            compatibleStationId(driver, random.nextInt()),
+                            random.nextBoolean() ? staffId(random.nextInt(scale.staff())) : null,
+                            random.nextInt(scale.batteries()) + 1L, random.nextInt(scale.batteries()) + 1L,
+                            BigDecimal.valueOf(75 + random.nextInt(25)), BigDecimal.valueOf(5 + random.nextInt(30)),
+                            BigDecimal.valueOf(70 + random.nextInt(30)), time, time.plusMinutes(3 + random.nextInt(10))};
+                });
+
+        restartIdentity("BatteryType", "BatteryTypeID", 2);
+        restartIdentity("ServicePackage", "PackageID", 1);
+        restartIdentity("Users", "UserID", 1L + scale.staff() + scale.drivers());
+        restartIdentity("Station", "StationID", scale.stations());
+        restartIdentity("StaffStationAssignment", "AssignmentID", scale.staff());
+        restartSequence("Battery_SEQ", scale.batteries());
+        restartIdentity("Vehicle", "VehicleID", scale.drivers());
+        restartIdentity("DriverSubscription", "SubscriptionID", scale.drivers());
+        restartSequence("Payment_SEQ", scale.drivers());
+        restartSequence("Booking_SEQ", bookings);
+        restartSequence("SwapTransaction_SEQ", scale.swaps());
+
+        log.warn("Perf data generated ({}) in {} ms", scale.label(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Dữ liệu ghi thẳng qua JDBC nên cache trong bộ nhớ và L2 cache phải nạp lại
+     */
+    public static void refreshInMemoryState(ApplicationContext context) {
+        context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getCache().evictAllRegions();
+        context.getBean(StationAvailabilityTracker.class).reconcile();
+        context.getBean(StaffStationAccessCache.class).reload();
+        context.getBean(StationSpatialIndex.class).invalidate();
+        context.getBean(UniquenessGuard.class).rebuild();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    // Phân bố: ~70% sẵn sàng đổi, 10% chưa đầy, 15% đang sạc (BatteryID chia hết cho 7), 5% bảo trì
+    private Object[] batteryRow(int index, LocalDateTime now) {
+        long batteryId = index + 1L;
+        long stationId = index % scale.stations() + 1L;
+        int roll = random.nextInt(100);
+        String status;
+        BigDecimal chargeLevel;
+        LocalDateTime lastChargedTime = null;
+        if (isChargingBattery(batteryId)) {
+            status = "CHARGING";
+            chargeLevel = BigDecimal.valueOf(20 + random.nextInt(70));
+            lastChargedTime = now.minusMinutes(30);
+        } else if (roll < 5) {
+            status = "MAINTENANCE";
+            chargeLevel = BigDecimal.valueOf(random.nextInt(100));
+        } else if (roll < 17) {
+            status = "AVAILABLE";
+            chargeLevel = BigDecimal.valueOf(50 + random.nextInt(45));
+        } else {
+            status = "AVAILABLE";
+            chargeLevel = BigDecimal.valueOf(95 + random.nextInt(6));
+        }
+        BigDecimal health = BigDecimal.valueOf(status.equals("MAINTENANCE") ? 40 + random.nextInt(30) : 75 + random.nextInt(26));
+        return new Object[]{batteryId, "PERF-" + batteryTypeOfStation(stationId), new BigDecimal("2.50"), health,
+                chargeLevel, lastChargedTime, status, random.nextInt(500), now.minusDays(365), stationId,
+                batteryTypeOfStation(stationId)};
+    }
+
+    public static boolean isChargingBattery(long batteryId) {
+        return batteryId % 7 == 0;
+    }
+
+    /**
+     * SQL Server: Hibernate tạo unique index có lọc (WHERE ... IS NOT NULL) cho cột nullable.
+     * H2 MSSQL mode coi các NULL là trùng nhau, nên đổi constraint của ConfirmationCode
+     * sang unique index NULLS DISTINCT để booking bị hủy (code = null) không va chạm nhau.
+     */
+    private void allowNullConfirmationCodes() {
+        List<String> constraints = jdbcTemplate.queryForList(
+                "SELECT tc.CONSTRAINT_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS tc "
+                        + "JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE k ON k.CONSTRAINT_NAME = tc.CONSTRAINT_NAME "
+                        + "WHERE tc.TABLE_NAME = 'BOOKING' AND tc.CONSTRAINT_TYPE = 'UNIQUE' "
+                        + "AND k.COLUMN_NAME = 'CONFIRMATIONCODE'",
+                String.class);
+        for (String constraint : constraints) {
+            jdbcTemplate.execute("ALTER TABLE Booking DROP CONSTRAINT " + constraint);
+        }
+        jdbcTemplate.execute("CREATE UNIQUE NULLS DISTINCT INDEX UX_Booking_ConfirmationCode ON Booking (ConfirmationCode)");
+    }
+
+    private void insert(String sql, int count, IntFunction<Object[]> rowFactory) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            batch.add(rowFactory.apply(i));
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+    }
+
+    // ID được gán tay nên phải đẩy bộ đếm IDENTITY qua giá trị lớn nhất đã dùng
+    private void restartIdentity(String table, String column, long maxId) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " RESTART WITH " + (maxId + 1));
+    }
+
+    // Pooled optimizer coi giá trị sequence là đầu trên của lô 50: bỏ qua thêm 1 lô
+    private void restartSequence(String sequence, long maxId) {
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (maxId + 1 + 50));
+    }
+}
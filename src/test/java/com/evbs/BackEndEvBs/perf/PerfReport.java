@@ -0,0 +1,120 @@
+package com.evbs.BackEndEvBs.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ghi kết quả đo ra target/perf/{name}.json và so sánh với baseline
+ *
+ * - Baseline mặc định: src/test/resources/perf/{name}.json (đổi bằng -Dperf.baselineDir)
+ * - -Dperf.updateBaseline=true      : ghi kết quả lần chạy này làm baseline
+ * - -Dperf.tolerance=0.2            : cho phép lệch 20% trước khi coi là regression
+ * - -Dperf.allowMissingBaseline=true: chỉ đo, không so sánh (chạy thử ở quy mô khác, chưa có baseline)
+ * Không có baseline hoặc baseline đo ở quy mô dữ liệu khác thì test fail, trừ khi bật allowMissingBaseline
+ */
+@Slf4j
+public final class PerfReport {
+
+    private static final Path OUTPUT_DIR = Paths.get("target", "perf");
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    /**
+     * Một chỉ số đo, higherIsBetter = true cho throughput, false cho latency
+     */
+    public record Metric(double value, String unit, boolean higherIsBetter) {
+    }
+
+    private PerfReport() {
+    }
+
+    public static Path outputFile(String fileName) throws IOException {
+        Files.createDirectories(OUTPUT_DIR);
+        return OUTPUT_DIR.resolve(fileName);
+    }
+
+    // Truyền các -Dperf.* sang JVM con do JMH fork
+    public static String[] propagatedSystemProperties() {
+        return System.getProperties().stringPropertyNames().stream()
+                .filter(key -> key.startsWith("perf."))
+                .map(key -> "-D" + key + "=" + System.getProperty(key))
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Ghi báo cáo và trả về danh sách regression so với baseline
+     *
+     * @throws AssertionError nếu không so sánh được (thiếu baseline / khác quy mô) và chưa bật perf.allowMissingBaseline
+     */
+    public static List<String> publish(String name, String scaleLabel, Map<String, Metric> metrics) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("name", name);
+        report.put("generatedAt", LocalDateTime.now().toString());
+        report.put("scale", scaleLabel);
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("metrics", metrics);
+
+        Path output = outputFile(name + ".json");
+        MAPPER.writeValue(output.toFile(), report);
+        log.warn("Perf report written to {}", output.toAbsolutePath());
+
+        Path baseline = Paths.get(System.getProperty("perf.baselineDir", "src/test/resources/perf"), name + ".json");
+        if (Boolean.getBoolean("perf.updateBaseline")) {
+            Files.createDirectories(baseline.getParent());
+            Files.copy(output, baseline, StandardCopyOption.REPLACE_EXISTING);
+            log.warn("Baseline updated: {}", baseline.toAbsolutePath());
+            return List.of();
+        }
+        if (!Files.exists(baseline)) {
+            return notCompared("No baseline at " + baseline.toAbsolutePath()
+                    + ", run with -Dperf.updateBaseline=true to record one");
+        }
+        return compare(MAPPER.readTree(baseline.toFile()), scaleLabel, metrics);
+    }
+
+    private static List<String> compare(JsonNode baseline, String scaleLabel, Map<String, Metric> metrics) {
+        if (!scaleLabel.equals(baseline.path("scale").asText())) {
+            return notCompared("Baseline scale (" + baseline.path("scale").asText() + ") differs from current ("
+                    + scaleLabel + "), record a baseline for this scale with -Dperf.updateBaseline=true");
+        }
+
+        double tolerance = Double.parseDouble(System.getProperty("perf.tolerance", "0.2"));
+        List<String> regressions = new ArrayList<>();
+        JsonNode baselineMetrics = baseline.path("metrics");
+        metrics.forEach((key, current) -> {
+            JsonNode previous = baselineMetrics.path(key).path("value");
+            if (previous.isMissingNode() || previous.asDouble() <= 0) {
+                return;
+            }
+            double ratio = current.value() / previous.asDouble();
+            boolean regressed = current.higherIsBetter() ? ratio < 1 - tolerance : ratio > 1 + tolerance;
+            if (regressed) {
+                regressions.add(String.format("%s: %.3f %s (baseline %.3f, %+.1f%%)",
+                        key, current.value(), current.unit(), previous.asDouble(), (ratio - 1) * 100));
+            }
+        });
+        regressions.forEach(regression -> log.warn("REGRESSION {}", regression));
+        return regressions;
+    }
+
+    // Không có gì để so sánh: mặc định fail để build perf không âm thầm pass
+    private static List<String> notCompared(String reason) {
+        if (!Boolean.getBoolean("perf.allowMissingBaseline")) {
+            throw new AssertionError(reason);
+        }
+        log.warn("{} (comparison skipped: perf.allowMissingBaseline=true)", reason);
+        return List.of();
+    }
+}
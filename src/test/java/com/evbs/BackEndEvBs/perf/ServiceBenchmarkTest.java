@@ -0,0 +1,54 @@
+package com.evbs.BackEndEvBs.perf;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Chạy ServiceBenchmarks và ghi báo cáo target/perf/service-benchmarks.json
+ * Lọc benchmark bằng -Dperf.benchmarks=createBooking|executeQuickSwap (regex theo tên method)
+ */
+@Tag("perf")
+class ServiceBenchmarkTest {
+
+    @Test
+    void serviceBenchmarksDoNotRegress() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ServiceBenchmarks.class.getName() + "\\.(" + System.getProperty("perf.benchmarks", ".*") + ")$")
+                .jvmArgsAppend(PerfReport.propagatedSystemProperties())
+                .resultFormat(ResultFormatType.JSON)
+                .result(PerfReport.outputFile("service-benchmarks-jmh.json").toString())
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        // SingleShotTime đo cả batch, quy về thời gian cho một lần gọi
+        Map<String, PerfReport.Metric> metrics = new LinkedHashMap<>();
+        for (RunResult result : results) {
+            String method = result.getParams().getBenchmark();
+            method = method.substring(method.lastIndexOf('.') + 1);
+            Result<?> primary = result.getPrimaryResult();
+            double score = primary.getScore();
+            if (result.getParams().getMode() == Mode.SingleShotTime) {
+                score /= result.getParams().getMeasurement().getBatchSize();
+            }
+            metrics.put(method, new PerfReport.Metric(score, "ms/op", false));
+        }
+
+        List<String> regressions = PerfReport.publish("service-benchmarks",
+                PerfDataGenerator.Scale.fromSystemProperties().label(), metrics);
+        assertTrue(regressions.isEmpty(), "Performance regression: " + regressions);
+    }
+}
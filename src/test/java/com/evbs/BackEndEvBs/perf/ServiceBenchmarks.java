@@ -0,0 +1,361 @@
+package com.evbs.BackEndEvBs.perf;
+
+import com.evbs.BackEndEvBs.BackEndEvBsApplication;
+import com.evbs.BackEndEvBs.entity.Booking;
+import com.evbs.BackEndEvBs.entity.SwapTransaction;
+import com.evbs.BackEndEvBs.entity.User;
+import com.evbs.BackEndEvBs.model.request.BookingRequest;
+import com.evbs.BackEndEvBs.model.request.QuickSwapRequest;
+import com.evbs.BackEndEvBs.model.response.DashboardResponse;
+import com.evbs.BackEndEvBs.repository.UserRepository;
+import com.evbs.BackEndEvBs.service.BatteryChargingService;
+import com.evbs.BackEndEvBs.service.BookingExpirationScheduler;
+import com.evbs.BackEndEvBs.service.BookingService;
+import com.evbs.BackEndEvBs.service.DashBoardService;
+import com.evbs.BackEndEvBs.service.QuickSwapService;
+import com.evbs.BackEndEvBs.service.SwapTransactionService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * JMH benchmark cho các service method nóng, chạy trên H2 với dữ liệu từ PerfDataGenerator
+ *
+ * Các method ghi dữ liệu đo bằng SingleShotTime: mỗi iteration gọi OPS_PER_ITERATION lần,
+ * mỗi lần một driver / pin mới (chuẩn bị sẵn trong @Setup, không tính vào thời gian đo).
+ * Mỗi benchmark chạy trong một JVM riêng (fork) với database mới.
+ *
+ * Danh sách booking / lịch sử đổi pin đo cả bước serialize JSON trong 1 transaction readOnly
+ * (giống open-in-view của request thật): association lazy bị chạm khi serialize cũng được tính vào thời gian.
+ *
+ * Chạy qua ServiceBenchmarkTest: mvn -Pperf test -Dtest=ServiceBenchmarkTest
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@Warmup(iterations = 2, batchSize = ServiceBenchmarks.OPS_PER_ITERATION)
+@Measurement(iterations = 5, batchSize = ServiceBenchmarks.OPS_PER_ITERATION)
+public class ServiceBenchmarks {
+
+    public static final int OPS_PER_ITERATION = 20;
+
+    // Số booking hết hạn mỗi lần chạy cancelExpiredBookings
+    public static final int EXPIRED_BOOKINGS_PER_RUN = 50;
+
+    @State(Scope.Benchmark)
+    public static class SpringState {
+
+        ConfigurableApplicationContext context;
+        PerfDataGenerator data;
+        JdbcTemplate jdbcTemplate;
+        UserRepository userRepository;
+        BookingService bookingService;
+        QuickSwapService quickSwapService;
+        SwapTransactionService swapTransactionService;
+        DashBoardService dashBoardService;
+        BatteryChargingService batteryChargingService;
+        BookingExpirationScheduler bookingExpirationScheduler;
+        ObjectMapper objectMapper;
+        TransactionTemplate readOnlyTransaction;
+        User admin;
+        // Driver có nhiều booking nhất trong dữ liệu sinh ra (lịch sử dài nhất)
+        User historyDriver;
+
+        private int nextDriverIndex;
+        private final Set<Long> handedOutBatteries = new HashSet<>();
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = new SpringApplicationBuilder(BackEndEvBsApplication.class)
+                    .profiles("perf")
+                    .properties("server.port=0")
+                    .run();
+            jdbcTemplate = context.getBean(JdbcTemplate.class);
+            data = new PerfDataGenerator(jdbcTemplate, PerfDataGenerator.Scale.fromSystemProperties());
+            data.generate();
+            PerfDataGenerator.refreshInMemoryState(context);
+
+            userRepository = context.getBean(UserRepository.class);
+            bookingService = context.getBean(BookingService.class);
+            quickSwapService = context.getBean(QuickSwapService.class);
+            swapTransactionService = context.getBean(SwapTransactionService.class);
+            dashBoardService = context.getBean(DashBoardService.class);
+            batteryChargingService = context.getBean(BatteryChargingService.class);
+            bookingExpirationScheduler = context.getBean(BookingExpirationScheduler.class);
+            objectMapper = context.getBean(ObjectMapper.class);
+            readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+            readOnlyTransaction.setReadOnly(true);
+            admin = userRepository.findById(PerfDataGenerator.ADMIN_ID).orElseThrow();
+            historyDriver = userRepository.findById(jdbcTemplate.queryForObject(
+                    "SELECT TOP 1 DriverID FROM Booking GROUP BY DriverID ORDER BY COUNT(*) DESC, DriverID", Long.class))
+                    .orElseThrow();
+        }
+
+        // Gọi service và serialize kết quả như controller trả về
+        byte[] render(User user, Supplier<?> call) {
+            authenticate(user);
+            try {
+                return readOnlyTransaction.execute(status -> {
+                    try {
+                        return objectMapper.writeValueAsBytes(call.get());
+                    } catch (JsonProcessingException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+
+        // Mỗi driver chỉ dùng một lần: tránh giới hạn 10 booking/ngày và booking active trên cùng xe
+        int nextDriver() {
+            if (nextDriverIndex >= data.getScale().drivers()) {
+                throw new IllegalStateException("Không đủ driver cho benchmark, tăng -Dperf.drivers");
+            }
+            return nextDriverIndex++;
+        }
+
+        User loadDriver(int driverIndex) {
+            return userRepository.findById(data.driverId(driverIndex)).orElseThrow();
+        }
+
+        BookingRequest bookingRequest(int driverIndex) {
+            BookingRequest request = new BookingRequest();
+            request.setVehicleId(data.vehicleId(driverIndex));
+            request.setStationId(data.compatibleStationId(driverIndex, driverIndex / 2));
+            return request;
+        }
+
+        // Pin sẵn sàng đổi tại trạm, mỗi pin chỉ giao cho một lần đổi
+        long takeReadyBattery(long stationId) {
+            List<Long> batteryIds = jdbcTemplate.queryForList(
+                    "SELECT BatteryID FROM Battery WHERE CurrentStationID = ? AND Status = 'AVAILABLE' "
+                            + "AND ChargeLevel >= 95 AND StateOfHealth >= 70 ORDER BY BatteryID",
+                    Long.class, stationId);
+            for (Long batteryId : batteryIds) {
+                if (handedOutBatteries.add(batteryId)) {
+                    return batteryId;
+                }
+            }
+            throw new IllegalStateException("Trạm " + stationId + " hết pin cho benchmark, tăng -Dperf.batteries");
+        }
+
+        // Tạo booking CONFIRMED (giữ pin PENDING) qua chính BookingService, trả về mã xác nhận
+        String createConfirmedBooking(int driverIndex) {
+            authenticate(loadDriver(driverIndex));
+            try {
+                return bookingService.createBooking(bookingRequest(driverIndex)).getConfirmationCode();
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }
+    }
+
+    /**
+     * Danh sách việc cần làm cho một iteration, benchmark lấy lần lượt từng phần tử
+     */
+    public abstract static class WorkQueue<T> {
+
+        private List<T> items = List.of();
+        private int cursor;
+
+        void reset(List<T> items) {
+            this.items = items;
+            this.cursor = 0;
+        }
+
+        T next() {
+            return items.get(cursor++);
+        }
+    }
+
+    public record DriverWork<T>(User driver, T request) {
+    }
+
+    @State(Scope.Benchmark)
+    public static class BookingWork extends WorkQueue<DriverWork<BookingRequest>> {
+
+        @Setup(Level.Iteration)
+        public void prepare(SpringState spring) {
+            List<DriverWork<BookingRequest>> items = new ArrayList<>();
+            for (int i = 0; i < OPS_PER_ITERATION; i++) {
+                int driverIndex = spring.nextDriver();
+                items.add(new DriverWork<>(spring.loadDriver(driverIndex), spring.bookingRequest(driverIndex)));
+            }
+            reset(items);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class QuickSwapWork extends WorkQueue<DriverWork<QuickSwapRequest>> {
+
+        @Setup(Level.Iteration)
+        public void prepare(SpringState spring) {
+            List<DriverWork<QuickSwapRequest>> items = new ArrayList<>();
+            for (int i = 0; i < OPS_PER_ITERATION; i++) {
+                int driverIndex = spring.nextDriver();
+                long stationId = spring.data.compatibleStationId(driverIndex, driverIndex / 2);
+                QuickSwapRequest request = new QuickSwapRequest();
+                request.setStationId(stationId);
+                request.setVehicleId(spring.data.vehicleId(driverIndex));
+                request.setBatteryId(spring.takeReadyBattery(stationId));
+                items.add(new DriverWork<>(spring.loadDriver(driverIndex), request));
+            }
+            reset(items);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ConfirmationCodeWork extends WorkQueue<String> {
+
+        @Setup(Level.Iteration)
+        public void prepare(SpringState spring) {
+            List<String> codes = new ArrayList<>();
+            for (int i = 0; i < OPS_PER_ITERATION; i++) {
+                codes.add(spring.createConfirmedBooking(spring.nextDriver()));
+            }
+            reset(codes);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ExpiredBookingsWork {
+
+        // Tạo booking mới rồi lùi hạn giữ pin về quá khứ để job hủy có việc làm
+        @Setup(Level.Iteration)
+        public void prepare(SpringState spring) {
+            for (int i = 0; i < EXPIRED_BOOKINGS_PER_RUN; i++) {
+                spring.createConfirmedBooking(spring.nextDriver());
+            }
+            spring.jdbcTemplate.update(
+                    "UPDATE Battery SET ReservationExpiry = ? WHERE Status = 'PENDING' AND ReservationExpiry IS NOT NULL",
+                    LocalDateTime.now().minusMinutes(1));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ChargingWork {
+
+        // Đưa nhóm pin sạc (BatteryID chia hết cho 7) về trạng thái đang sạc 30 phút
+        @Setup(Level.Iteration)
+        public void prepare(SpringState spring) {
+            spring.jdbcTemplate.update(
+                    "UPDATE Battery SET Status = 'CHARGING', ChargeLevel = 20, LastChargedTime = ? "
+                            + "WHERE MOD(BatteryID, 7) = 0 AND Status IN ('AVAILABLE', 'CHARGING')",
+                    LocalDateTime.now().minusMinutes(30));
+        }
+    }
+
+    // ==================== BENCHMARKS ====================
+
+    @Benchmark
+    public Booking createBooking(SpringState spring, BookingWork work) {
+        DriverWork<BookingRequest> item = work.next();
+        authenticate(item.driver());
+        return spring.bookingService.createBooking(item.request());
+    }
+
+    @Benchmark
+    public SwapTransaction executeQuickSwap(SpringState spring, QuickSwapWork work) {
+        DriverWork<QuickSwapRequest> item = work.next();
+        authenticate(item.driver());
+        return spring.quickSwapService.executeQuickSwap(item.request());
+    }
+
+    @Benchmark
+    public SwapTransaction createSwapByConfirmationCode(SpringState spring, ConfirmationCodeWork work) {
+        return spring.swapTransactionService.createSwapByConfirmationCode(work.next());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public DashboardResponse getDashboardData(SpringState spring) {
+        return spring.dashBoardService.getDashboardData();
+    }
+
+    @Benchmark
+    @Warmup(iterations = 2, batchSize = 1)
+    @Measurement(iterations = 5, batchSize = 1)
+    public void autoChargeBatteries(SpringState spring, ChargingWork work) {
+        spring.batteryChargingService.autoChargeBatteries();
+    }
+
+    @Benchmark
+    @Warmup(iterations = 2, batchSize = 1)
+    @Measurement(iterations = 5, batchSize = 1)
+    public void cancelExpiredBookings(SpringState spring, ExpiredBookingsWork work) {
+        spring.bookingExpirationScheduler.cancelExpiredBookings();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public byte[] getAllBookings(SpringState spring) {
+        return spring.render(spring.admin,
+                () -> spring.bookingService.getAllBookings(null, null, null, null, null, null));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public byte[] getAllSwapTransactions(SpringState spring) {
+        return spring.render(spring.admin,
+                () -> spring.swapTransactionService.getAllSwapTransactions(null, null, null, null, null, null));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public byte[] getMyBookings(SpringState spring) {
+        return spring.render(spring.historyDriver, () -> spring.bookingService.getMyBookings());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public byte[] getMyTransactions(SpringState spring) {
+        return spring.render(spring.historyDriver, () -> spring.swapTransactionService.getMyTransactions());
+    }
+
+    private static void authenticate(User user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+}
@@ -0,0 +1,139 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
+import com.evbs.BackEndEvBs.repository.BookingRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bộ đếm booking / ngày: giữ chỗ, commit, rollback, hủy và đếm lại từ DB xen giữa các transaction
+ * Transaction được giả lập bằng TransactionSynchronization: begin() chạy phần việc trong transaction
+ * rồi giữ lại các callback, commit() / rollback() gọi chúng sau
+ */
+class BookingQuotaServiceTest {
+
+    private static final long DRIVER_ID = 7L;
+    private static final LocalDateTime BOOKING_TIME = LocalDateTime.of(2030, 1, 15, 9, 0);
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final BookingQuotaService quotaService = new BookingQuotaService(bookingRepository);
+
+    @Test
+    void reserveRejectsBookingsOverDailyLimit() {
+        useTtl(600_000);
+        dbCount(0);
+
+        for (int i = 0; i < BookingQuotaService.MAX_BOOKINGS_PER_DAY; i++) {
+            commit(begin(this::reserve));
+        }
+
+        assertThrows(AuthenticationException.class, this::reserve);
+    }
+
+    @Test
+    void rolledBackReservationIsReturned() {
+        useTtl(600_000);
+        dbCount(BookingQuotaService.MAX_BOOKINGS_PER_DAY - 1);
+
+        rollback(begin(this::reserve));
+        commit(begin(this::reserve));
+
+        assertThrows(AuthenticationException.class, this::reserve);
+    }
+
+    @Test
+    void releaseFreesOneSlotAfterCommit() {
+        useTtl(600_000);
+        dbCount(BookingQuotaService.MAX_BOOKINGS_PER_DAY);
+        assertThrows(AuthenticationException.class, this::reserve);
+
+        List<TransactionSynchronization> cancel = begin(this::release);
+        assertThrows(AuthenticationException.class, this::reserve);
+        commit(cancel);
+
+        commit(begin(this::reserve));
+        assertThrows(AuthenticationException.class, this::reserve);
+    }
+
+    @Test
+    void reloadDoesNotDropUncommittedReservation() {
+        // TTL 0: mỗi lần giữ chỗ đều muốn đếm lại từ DB
+        useTtl(0);
+        dbCount(BookingQuotaService.MAX_BOOKINGS_PER_DAY - 1);
+
+        List<TransactionSynchronization> inFlight = begin(this::reserve);
+        // Booking của inFlight chưa commit nên COUNT vẫn trả 9: lượt thứ 11 vẫn phải bị chặn
+        assertThrows(AuthenticationException.class, this::reserve);
+
+        commit(inFlight);
+        dbCount(BookingQuotaService.MAX_BOOKINGS_PER_DAY);
+        assertThrows(AuthenticationException.class, this::reserve);
+    }
+
+    @Test
+    void releaseAfterReloadDoesNotDecrementTwice() {
+        useTtl(600_000);
+        dbCount(BookingQuotaService.MAX_BOOKINGS_PER_DAY);
+        assertThrows(AuthenticationException.class, this::reserve);
+
+        List<TransactionSynchronization> cancel = begin(this::release);
+
+        // Lượt hủy đã commit ở DB nhưng callback chưa chạy, đúng lúc đó bộ đếm được nạp lại
+        useTtl(0);
+        dbCount(BookingQuotaService.MAX_BOOKINGS_PER_DAY - 1);
+        commit(begin(this::reserve));
+        useTtl(600_000);
+        dbCount(BookingQuotaService.MAX_BOOKINGS_PER_DAY);
+
+        commit(cancel);
+
+        assertThrows(AuthenticationException.class, this::reserve);
+    }
+
+    private void reserve() {
+        quotaService.reserve(DRIVER_ID, BOOKING_TIME);
+    }
+
+    private void release() {
+        quotaService.release(DRIVER_ID, BOOKING_TIME);
+    }
+
+    private void useTtl(long ttlMs) {
+        ReflectionTestUtils.setField(quotaService, "countTtlMs", ttlMs);
+    }
+
+    private void dbCount(long count) {
+        when(bookingRepository.countByDriverIdAndBookingTimeRange(eq(DRIVER_ID), any(), any(), any())).thenReturn(count);
+    }
+
+    private static List<TransactionSynchronization> begin(Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void commit(List<TransactionSynchronization> transaction) {
+        TransactionSynchronizationUtils.invokeAfterCommit(transaction);
+        TransactionSynchronizationUtils.invokeAfterCompletion(transaction, TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private static void rollback(List<TransactionSynchronization> transaction) {
+        TransactionSynchronizationUtils.invokeAfterCompletion(transaction, TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+}
@@ -0,0 +1,181 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.entity.Booking;
+import com.evbs.BackEndEvBs.entity.StaffStationAssignment;
+import com.evbs.BackEndEvBs.entity.SwapTransaction;
+import com.evbs.BackEndEvBs.entity.User;
+import com.evbs.BackEndEvBs.entity.Vehicle;
+import com.evbs.BackEndEvBs.model.response.BookingHistoryResponse;
+import com.evbs.BackEndEvBs.model.response.PageResponse;
+import com.evbs.BackEndEvBs.model.response.SwapTransactionHistoryResponse;
+import com.evbs.BackEndEvBs.perf.PerfDataGenerator;
+import com.evbs.BackEndEvBs.repository.UserRepository;
+import com.evbs.BackEndEvBs.support.PerfDataTestBase;
+import com.evbs.BackEndEvBs.util.PageUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.evbs.BackEndEvBs.support.SqlAssertions.assertMaxQueries;
+import static com.evbs.BackEndEvBs.support.SqlAssertions.countQueries;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ngân sách số câu SQL cho các màn hình danh sách / dashboard (chặn N+1 quay lại)
+ * Chạy trên H2 với dữ liệu nhỏ từ PerfDataGenerator
+ */
+class QueryBudgetTest extends PerfDataTestBase {
+
+    private static final int EXTRA_STATIONS = 20;
+    private static final long EXTRA_ID_START = 1_000_000L;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StaffStationAssignmentService staffStationAssignmentService;
+
+    @Autowired
+    private DashBoardService dashBoardService;
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SwapTransactionService swapTransactionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void authenticateAsAdmin() {
+        User admin = userRepository.findById(PerfDataGenerator.ADMIN_ID).orElseThrow();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void allAssignmentsLoadStaffAndStationWithoutNPlusOne() {
+        List<StaffStationAssignment> assignments =
+                assertMaxQueries(5, () -> staffStationAssignmentService.getAllAssignments());
+
+        assertEquals(SCALE.staff(), assignments.size());
+    }
+
+    @Test
+    void dashboardQueryCountDoesNotGrowWithStations() {
+        // Đo sau khi nạp lại cache để 2 lần đo cùng điều kiện
+        PerfDataGenerator.refreshInMemoryState(applicationContext);
+        int baseline = countQueries(() -> assertEquals(SCALE.stations(),
+                dashBoardService.getDashboardData().getStations().getStationUtilizations().size()));
+        assertTrue(baseline <= 50, "Dashboard chạy " + baseline + " câu SQL");
+
+        // Thêm trạm (mỗi trạm 1 pin) rồi đo lại: số câu SQL phải giữ nguyên
+        addStationsWithBattery(EXTRA_STATIONS);
+        try {
+            PerfDataGenerator.refreshInMemoryState(applicationContext);
+            int withMoreStations = countQueries(() -> assertEquals(SCALE.stations() + EXTRA_STATIONS,
+                    dashBoardService.getDashboardData().getStations().getStationUtilizations().size()));
+            assertEquals(baseline, withMoreStations, "Số câu SQL của dashboard tăng theo số trạm");
+        } finally {
+            jdbcTemplate.update("DELETE FROM Battery WHERE BatteryID > ?", EXTRA_ID_START);
+            jdbcTemplate.update("DELETE FROM Station WHERE StationID > ?", EXTRA_ID_START);
+            PerfDataGenerator.refreshInMemoryState(applicationContext);
+        }
+    }
+
+    @Test
+    void vehiclePageLoadsDriverBatteryTypeAndSwapCountsInFixedQueries() {
+        PageResponse<Vehicle> page = assertMaxQueries(5,
+                () -> vehicleService.getAllVehicles(null, null, null, null, null));
+
+        assertEquals(PageUtil.DEFAULT_PAGE_SIZE, page.getContent().size());
+        assertTrue(page.getContent().stream().allMatch(v -> v.getDriverName() != null && v.getBatteryTypeName() != null));
+    }
+
+    @Test
+    void bookingPageLoadsDetailsInFixedQueries() {
+        PageResponse<Booking> page = assertMaxQueries(5, () -> renderAsResponse(
+                () -> bookingService.getAllBookings(null, null, null, null, null, null)));
+
+        assertEquals(PageUtil.DEFAULT_PAGE_SIZE, page.getContent().size());
+    }
+
+    @Test
+    void swapTransactionPageLoadsDetailsInFixedQueries() {
+        PageResponse<SwapTransaction> page = assertMaxQueries(5, () -> renderAsResponse(
+                () -> swapTransactionService.getAllSwapTransactions(null, null, null, null, null, null)));
+
+        assertEquals(PageUtil.DEFAULT_PAGE_SIZE, page.getContent().size());
+    }
+
+    @Test
+    void driverHistoryIsOneQueryPerList() {
+        User driver = userRepository.findById(jdbcTemplate.queryForObject(
+                "SELECT TOP 1 DriverID FROM Booking GROUP BY DriverID ORDER BY COUNT(*) DESC, DriverID", Long.class))
+                .orElseThrow();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(driver, null, driver.getAuthorities()));
+
+        List<BookingHistoryResponse> bookings = assertMaxQueries(2, () -> renderAsResponse(
+                () -> bookingService.getMyBookings()));
+        List<SwapTransactionHistoryResponse> swaps = assertMaxQueries(2, () -> renderAsResponse(
+                () -> swapTransactionService.getMyTransactions()));
+
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Booking WHERE DriverID = ?",
+                Integer.class, driver.getId()), bookings.size());
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SwapTransaction WHERE DriverID = ?",
+                Integer.class, driver.getId()), swaps.size());
+    }
+
+    // Gọi service và serialize JSON trong cùng transaction như request thật (open-in-view):
+    // association lazy bị chạm khi serialize cũng được đếm
+    private <T> T renderAsResponse(Supplier<T> call) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        return transaction.execute(status -> {
+            T result = call.get();
+            try {
+                objectMapper.writeValueAsBytes(result);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return result;
+        });
+    }
+
+    private void addStationsWithBattery(int count) {
+        for (int i = 1; i <= count; i++) {
+            long stationId = EXTRA_ID_START + i;
+            jdbcTemplate.update("INSERT INTO Station (StationID, Name, Location, Capacity, ContactInfo, City, District, "
+                            + "Latitude, Longitude, BatteryTypeID, Status) VALUES (?, ?, ?, 20, ?, ?, ?, ?, ?, ?, 'ACTIVE')",
+                    stationId, "Extra Station " + i, "Địa chỉ " + stationId, String.format("029%07d", i),
+                    "Hồ Chí Minh", "Quận 1", 10.8, 106.7, 1L);
+            jdbcTemplate.update("INSERT INTO Battery (BatteryID, Model, Capacity, StateOfHealth, ChargeLevel, Status, "
+                            + "UsageCount, CreatedAt, CurrentStationID, BatteryTypeID) "
+                            + "VALUES (?, 'PERF-1', 2.50, 90, 100, 'AVAILABLE', 0, CURRENT_TIMESTAMP, ?, 1)",
+                    stationId, stationId);
+        }
+    }
+}
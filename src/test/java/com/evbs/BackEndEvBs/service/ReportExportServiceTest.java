@@ -0,0 +1,31 @@
+package com.evbs.BackEndEvBs.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReportExportServiceTest {
+
+    @Test
+    void formulaCellsArePrefixed() {
+        assertEquals("'=HYPERLINK(\"\"http://x\"\")", unquote(ReportExportService.escapeCsv("=HYPERLINK(\"http://x\")")));
+        assertEquals("'+1+1", ReportExportService.escapeCsv("+1+1"));
+        assertEquals("'-2+3", ReportExportService.escapeCsv("-2+3"));
+        assertEquals("'@SUM(A1)", ReportExportService.escapeCsv("@SUM(A1)"));
+    }
+
+    @Test
+    void numbersAndPlainTextAreUnchanged() {
+        assertEquals("-15000", ReportExportService.escapeCsv(-15000L));
+        assertEquals("-1.5", ReportExportService.escapeCsv(new BigDecimal("-1.5")));
+        assertEquals("Nguyễn Văn A", ReportExportService.escapeCsv("Nguyễn Văn A"));
+        assertEquals("", ReportExportService.escapeCsv(null));
+        assertEquals("\"a,b\"", ReportExportService.escapeCsv("a,b"));
+    }
+
+    private static String unquote(String cell) {
+        return cell.substring(1, cell.length() - 1);
+    }
+}
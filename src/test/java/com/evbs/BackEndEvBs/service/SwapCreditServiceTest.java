@@ -0,0 +1,114 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.entity.SwapCreditLedger;
+import com.evbs.BackEndEvBs.exception.exceptions.AuthenticationException;
+import com.evbs.BackEndEvBs.support.PerfDataTestBase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Trừ / hoàn lượt swap đồng thời trên cùng một gói (H2, DB riêng để không đụng dữ liệu của test khác)
+ */
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:evbs-swap-credit;MODE=MSSQLServer;DB_CLOSE_DELAY=-1")
+class SwapCreditServiceTest extends PerfDataTestBase {
+
+    @Autowired
+    private SwapCreditService swapCreditService;
+
+    @Test
+    void concurrentDebitsNeverOverdrawSubscription() throws Exception {
+        // Driver thứ 0 sở hữu DriverSubscription 1
+        long driverId = generator.driverId(0);
+        jdbcTemplate.update("UPDATE DriverSubscription SET RemainingSwaps = 3 WHERE SubscriptionID = 1");
+
+        int requests = 10;
+        ExecutorService pool = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < requests; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        swapCreditService.debit(driverId, SwapCreditLedger.Reason.BOOKING, null);
+                        return true;
+                    } catch (AuthenticationException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    succeeded++;
+                }
+            }
+            assertEquals(3, succeeded);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT RemainingSwaps FROM DriverSubscription WHERE SubscriptionID = 1", Integer.class));
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM SwapCreditLedger WHERE SubscriptionID = 1 AND Delta = -1", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT MIN(BalanceAfter) FROM SwapCreditLedger WHERE SubscriptionID = 1", Integer.class));
+    }
+
+    @Test
+    void creditReactivatesExpiredSubscription() {
+        // Driver thứ 1 sở hữu DriverSubscription 2, đã dùng hết lượt
+        long driverId = generator.driverId(1);
+        jdbcTemplate.update("UPDATE DriverSubscription SET RemainingSwaps = 0, Status = 'EXPIRED' WHERE SubscriptionID = 2");
+
+        Optional<SwapCreditService.Balance> balance =
+                swapCreditService.credit(driverId, SwapCreditLedger.Reason.BOOKING_CANCEL_STAFF, null);
+
+        assertTrue(balance.isPresent());
+        assertEquals(2L, balance.get().subscriptionId());
+        assertEquals(1, balance.get().remainingSwaps());
+        assertEquals("ACTIVE", jdbcTemplate.queryForObject(
+                "SELECT Status FROM DriverSubscription WHERE SubscriptionID = 2", String.class));
+        assertEquals(Optional.of(2L), swapCreditService.findActiveSubscriptionId(driverId));
+    }
+
+    @Test
+    void creditReturnsSwapToDebitedSubscriptionNotLatest() {
+        // Driver thứ 2 sở hữu DriverSubscription 3, trừ lượt cho booking 9001 rồi mua thêm gói mới
+        long driverId = generator.driverId(2);
+        long bookingId = 9001L;
+        SwapCreditService.Balance debited =
+                swapCreditService.debit(driverId, SwapCreditLedger.Reason.BOOKING, bookingId);
+        assertEquals(3L, debited.subscriptionId());
+
+        jdbcTemplate.update("INSERT INTO DriverSubscription (DriverID, PackageID, StartDate, EndDate, Status, RemainingSwaps) "
+                + "VALUES (?, 1, CURRENT_DATE, DATEADD(DAY, 30, CURRENT_DATE), 'ACTIVE', 5)", driverId);
+        Long newest = jdbcTemplate.queryForObject(
+                "SELECT MAX(SubscriptionID) FROM DriverSubscription WHERE DriverID = ?", Long.class, driverId);
+        assertTrue(newest > 3L);
+
+        Optional<SwapCreditService.Balance> balance =
+                swapCreditService.credit(driverId, SwapCreditLedger.Reason.BOOKING_CANCEL_DRIVER, bookingId);
+
+        assertTrue(balance.isPresent());
+        assertEquals(3L, balance.get().subscriptionId());
+        assertEquals(debited.remainingSwaps() + 1, balance.get().remainingSwaps());
+        assertEquals(5, jdbcTemplate.queryForObject(
+                "SELECT RemainingSwaps FROM DriverSubscription WHERE SubscriptionID = ?", Integer.class, newest));
+    }
+}
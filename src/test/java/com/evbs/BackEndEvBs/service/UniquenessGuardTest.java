@@ -0,0 +1,62 @@
+package com.evbs.BackEndEvBs.service;
+
+import com.evbs.BackEndEvBs.entity.User;
+import com.evbs.BackEndEvBs.model.request.CreateUserRequest;
+import com.evbs.BackEndEvBs.support.PerfDataTestBase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Giá trị trùng mà bộ lọc báo chưa có (user do instance khác ghi sau lần dựng lại, ở đây ghi thẳng bằng JDBC):
+ * unique constraint chặn lúc lưu và phải trả lỗi 400 như kiểm tra existsBy..., không phải lỗi 500
+ */
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:evbs-uniqueness;MODE=MSSQLServer;DB_CLOSE_DELAY=-1")
+class UniquenessGuardTest extends PerfDataTestBase {
+
+    @Autowired
+    private UniquenessGuard uniquenessGuard;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void duplicateEmailMissedByFilterIsReportedAsBadRequest() {
+        insertUserBehindFilter(9_000_001L, "other-instance@perf.local", "0391000001");
+        assertFalse(uniquenessGuard.mightExist(UniquenessGuard.Field.EMAIL, "other-instance@perf.local"));
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> userService.createUser(request("other-instance@perf.local", "0391000002")));
+        assertEquals("Email đã được sử dụng!", error.getMessage());
+    }
+
+    @Test
+    void duplicatePhoneMissedByFilterIsReportedAsBadRequest() {
+        insertUserBehindFilter(9_000_002L, "phone-owner@perf.local", "0391000003");
+        assertFalse(uniquenessGuard.mightExist(UniquenessGuard.Field.PHONE, "0391000003"));
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> userService.createUser(request("new-driver@perf.local", "0391000003")));
+        assertEquals("SĐT đã được sử dụng!", error.getMessage());
+    }
+
+    // Ghi thẳng vào DB, không qua record(): bộ lọc của instance này không biết giá trị
+    private void insertUserBehindFilter(long id, String email, String phoneNumber) {
+        jdbcTemplate.update("INSERT INTO Users (UserID, FullName, Email, PhoneNumber, PasswordHash, Role, Status) "
+                + "VALUES (?, 'Other Instance', ?, ?, 'x', 'DRIVER', 'ACTIVE')", id, email, phoneNumber);
+    }
+
+    private static CreateUserRequest request(String email, String phoneNumber) {
+        CreateUserRequest request = new CreateUserRequest();
+        request.setFullName("Duplicate Driver");
+        request.setEmail(email);
+        request.setPhoneNumber(phoneNumber);
+        request.setPassword("secret123");
+        request.setRole(User.Role.DRIVER);
+        return request;
+    }
+}
@@ -0,0 +1,38 @@
+package com.evbs.BackEndEvBs.support;
+
+import com.evbs.BackEndEvBs.perf.PerfDataGenerator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Nền chung cho test tích hợp chạy trên dữ liệu nhỏ của PerfDataGenerator (profile perf, H2)
+ * Dữ liệu sinh 1 lần cho cả class; class cần DB riêng thì khai báo thêm
+ * {@code @TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:<tên>;MODE=MSSQLServer;DB_CLOSE_DELAY=-1")}
+ */
+@ActiveProfiles("perf")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public abstract class PerfDataTestBase {
+
+    protected static final PerfDataGenerator.Scale SCALE = new PerfDataGenerator.Scale(20, 10, 50, 200, 500);
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected ApplicationContext applicationContext;
+
+    protected PerfDataGenerator generator;
+
+    @BeforeAll
+    void generateData() {
+        generator = new PerfDataGenerator(jdbcTemplate, SCALE);
+        generator.generate();
+        PerfDataGenerator.refreshInMemoryState(applicationContext);
+    }
+}
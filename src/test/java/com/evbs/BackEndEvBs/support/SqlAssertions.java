@@ -0,0 +1,69 @@
+package com.evbs.BackEndEvBs.support;
+
+import com.evbs.BackEndEvBs.config.SqlStatementInspector;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Kiểm tra số câu SQL một khối code phát ra, dùng trong test để chặn N+1 quay lại:
+ *
+ *   List<Station> stations = assertMaxQueries(3, () -> stationService.getAllStations());
+ *
+ * Chỉ đếm câu lệnh chạy trên thread hiện tại (qua SqlStatementInspector)
+ */
+public final class SqlAssertions {
+
+    // Dạng câu lệnh lặp lại từ số lần này trở lên được liệt kê trong thông báo lỗi
+    private static final int REPORTED_REPEAT_THRESHOLD = 2;
+
+    private SqlAssertions() {
+    }
+
+    public static <T> T assertMaxQueries(int maxQueries, Supplier<T> action) {
+        SqlStatementInspector.Tracking tracking = SqlStatementInspector.begin();
+        T result;
+        try {
+            result = action.get();
+        } finally {
+            SqlStatementInspector.end(tracking);
+        }
+        if (tracking.getCount() > maxQueries) {
+            throw new AssertionError(describe(maxQueries, tracking));
+        }
+        return result;
+    }
+
+    public static void assertMaxQueries(int maxQueries, Runnable action) {
+        assertMaxQueries(maxQueries, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Số câu SQL mà action phát ra trên thread hiện tại (so sánh số câu giữa 2 quy mô dữ liệu)
+     */
+    public static int countQueries(Runnable action) {
+        SqlStatementInspector.Tracking tracking = SqlStatementInspector.begin();
+        try {
+            action.run();
+        } finally {
+            SqlStatementInspector.end(tracking);
+        }
+        return tracking.getCount();
+    }
+
+    private static String describe(int maxQueries, SqlStatementInspector.Tracking tracking) {
+        StringBuilder message = new StringBuilder()
+                .append("Expected at most ").append(maxQueries)
+                .append(" SQL statements but ").append(tracking.getCount()).append(" were executed");
+        Map<String, Integer> repeated = tracking.getRepeatedShapes(REPORTED_REPEAT_THRESHOLD);
+        if (!repeated.isEmpty()) {
+            message.append(". Repeated statements:");
+            repeated.forEach((sql, count) -> message.append(System.lineSeparator())
+                    .append("  x").append(count).append(": ").append(sql));
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package com.evbs.BackEndEvBs.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vòng điều khiển của GradientConcurrencyLimit, mỗi mẫu đóng 1 cửa sổ (windowMs = 0, minWindowSamples = 1)
+ */
+class GradientConcurrencyLimitTest {
+
+    private static final long FLAT_RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void limitGrowsWhileLatencyIsFlat() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 5, 400, 0, 1);
+
+        double previous = limit.getLimit();
+        for (int i = 0; i < 20; i++) {
+            saturatedWindow(limit, FLAT_RTT);
+            assertTrue(limit.getLimit() > previous, "limit phải tăng ở cửa sổ " + i);
+            previous = limit.getLimit();
+        }
+    }
+
+    @Test
+    void limitDoesNotGrowWhenMostlyIdle() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 5, 400, 0, 1);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limit.tryAcquire(1.0));
+            limit.release(FLAT_RTT);
+        }
+
+        assertEquals(20, limit.getLimit(), 0.001);
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRisesButAtMostByHalfPerWindow() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(100, 5, 400, 0, 1);
+        for (int i = 0; i < 10; i++) {
+            saturatedWindow(limit, FLAT_RTT);
+        }
+        double beforeOverload = limit.getLimit();
+
+        long rtt = FLAT_RTT;
+        double previous = beforeOverload;
+        for (int i = 0; i < 10; i++) {
+            rtt *= 10;
+            saturatedWindow(limit, rtt);
+            assertTrue(limit.getLimit() < previous, "limit phải giảm ở cửa sổ " + i);
+            assertTrue(limit.getLimit() >= previous / 2, "mỗi cửa sổ giảm tối đa một nửa");
+            previous = limit.getLimit();
+        }
+        assertTrue(limit.getLimit() < beforeOverload / 2);
+    }
+
+    @Test
+    void limitStaysWithinMinAndMax() {
+        GradientConcurrencyLimit growing = new GradientConcurrencyLimit(20, 5, 30, 0, 1);
+        for (int i = 0; i < 100; i++) {
+            saturatedWindow(growing, FLAT_RTT);
+        }
+        assertEquals(30, growing.getLimit(), 0.001);
+
+        GradientConcurrencyLimit shrinking = new GradientConcurrencyLimit(20, 8, 30, 0, 1);
+        long rtt = FLAT_RTT;
+        for (int i = 0; i < 60; i++) {
+            rtt = rtt * 3 / 2;
+            saturatedWindow(shrinking, rtt);
+        }
+        assertEquals(8, shrinking.getLimit(), 0.001);
+
+        assertEquals(30, new GradientConcurrencyLimit(1000, 5, 30, 0, 1).getLimit(), 0.001);
+        assertEquals(5, new GradientConcurrencyLimit(1, 5, 30, 0, 1).getLimit(), 0.001);
+    }
+
+    @Test
+    void lowerSharesAreShedFirst() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(10, 1, 10, 0, 1);
+
+        // LOW (0.5) được 5 chỗ, NORMAL (0.8) tới 8, CRITICAL (1.0) tới 10
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limit.tryAcquire(0.5));
+        }
+        assertFalse(limit.tryAcquire(0.5));
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limit.tryAcquire(0.8));
+        }
+        assertFalse(limit.tryAcquire(0.8));
+        assertFalse(limit.tryAcquire(0.5));
+
+        assertTrue(limit.tryAcquire(1.0));
+        assertTrue(limit.tryAcquire(1.0));
+        assertFalse(limit.tryAcquire(1.0));
+        assertEquals(10, limit.getInflight());
+
+        limit.release();
+        assertFalse(limit.tryAcquire(0.5));
+        assertTrue(limit.tryAcquire(1.0));
+    }
+
+    @Test
+    void releasesWithoutSampleDoNotMaskOverload() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(100, 5, 400, 0, 1);
+        for (int i = 0; i < 10; i++) {
+            saturatedWindow(limit, FLAT_RTT);
+        }
+        double beforeOverload = limit.getLimit();
+
+        // Mỗi cửa sổ: 1 request chậm dần, còn lại là lỗi trả ngay (503 / 401) được trả chỗ không ghi độ trễ
+        long rtt = FLAT_RTT;
+        for (int i = 0; i < 5; i++) {
+            rtt *= 10;
+            saturatedWindow(limit, rtt);
+            assertEquals(rtt / 1_000_000.0, limit.getShortRttMs(), 0.001);
+        }
+        assertTrue(limit.getLimit() < beforeOverload);
+    }
+
+    // Dùng hết limit rồi trả lại, chỉ 1 request ghi nhận độ trễ để mỗi lần gọi đóng đúng 1 cửa sổ
+    private static void saturatedWindow(GradientConcurrencyLimit limit, long rttNanos) {
+        int acquired = 0;
+        while (limit.tryAcquire(1.0)) {
+            acquired++;
+        }
+        limit.release(rttNanos);
+        for (int i = 1; i < acquired; i++) {
+            limit.release();
+        }
+    }
+}